@@ -40,6 +40,7 @@ import java.text.ParseException;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Queue;
 import lombok.EqualsAndHashCode;
@@ -169,6 +170,17 @@ final class RtMessageIterator implements Iterator<Message> {
             public String author() {
                 return xml.xpath("author/text()").get(0);
             }
+            @Override
+            public String html() {
+                final List<String> html = xml.xpath("html/text()");
+                final String out;
+                if (html.isEmpty()) {
+                    out = this.text();
+                } else {
+                    out = html.get(0);
+                }
+                return out;
+            }
         };
     }
 
@@ -84,4 +84,10 @@ public final class CdMessage implements Message {
     public String author() throws IOException {
         return this.origin.author();
     }
+
+    @Override
+    @Cacheable
+    public String html() throws IOException {
+        return this.origin.html();
+    }
 }
@@ -98,4 +98,13 @@ public final class ReMessage implements Message {
     public String author() throws IOException {
         return this.origin.author();
     }
+
+    @Override
+    @RetryOnFailure(
+        verbose = false, attempts = Tv.TWENTY,
+        delay = Tv.FIVE, unit = TimeUnit.SECONDS
+    )
+    public String html() throws IOException {
+        return this.origin.html();
+    }
 }
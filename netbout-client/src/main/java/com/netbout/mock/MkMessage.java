@@ -40,6 +40,7 @@ import java.util.Date;
 import java.util.Locale;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
+import org.apache.commons.lang3.StringEscapeUtils;
 
 /**
  * Cached message.
@@ -130,4 +131,11 @@ final class MkMessage implements Message {
             throw new IOException(ex);
         }
     }
+
+    @Override
+    public String html() throws IOException {
+        return String.format(
+            "<p>%s</p>", StringEscapeUtils.escapeXml(this.text())
+        );
+    }
 }
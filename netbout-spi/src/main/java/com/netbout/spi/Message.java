@@ -71,6 +71,14 @@ public interface Message {
      */
     String author() throws IOException;
 
+    /**
+     * Its text, rendered to HTML.
+     * @return The HTML
+     * @throws IOException If fails
+     * @since 2.16
+     */
+    String html() throws IOException;
+
     /**
      * Matcher of its text.
      */
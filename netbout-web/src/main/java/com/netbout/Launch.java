@@ -30,8 +30,10 @@ import com.jcabi.email.Postman;
 import com.jcabi.email.postman.PostNoLoops;
 import com.jcabi.email.wire.SMTP;
 import com.jcabi.manifests.Manifests;
+import com.netbout.cached.Cache;
 import com.netbout.cached.CdBase;
 import com.netbout.dynamo.DyBase;
+import com.netbout.dynamo.DyBus;
 import com.netbout.email.EmBase;
 import com.netbout.rest.TkApp;
 import org.takes.http.Exit;
@@ -59,6 +61,7 @@ public final class Launch {
      * @throws Exception If fails
      */
     public static void main(final String[] args) throws Exception {
+        Cache.connect(new DyBus());
         new FtCLI(
             new TkApp(
                 new EmBase(
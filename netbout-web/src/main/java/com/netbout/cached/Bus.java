@@ -0,0 +1,87 @@
+/**
+ * Copyright (c) 2009-2015, netbout.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are PROHIBITED without prior written permission from
+ * the author. This product may NOT be used anywhere and on any computer
+ * except the server platform of netbout Inc. located at www.netbout.com.
+ * Federal copyright law prohibits unauthorized reproduction by any means
+ * and imposes fines up to $25,000 for violation. If you received
+ * this code accidentally and without intent to use it, please report this
+ * incident to the author by email.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.netbout.cached;
+
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * Bus of invalidations, shared by all dynos.
+ *
+ * <p>When a value is changed on one dyno, the keys of the affected
+ * cached values are published to the bus, and all other dynos
+ * invalidate them in their engines.
+ *
+ * @author Yegor Bugayenko (yegor@teamed.io)
+ * @version $Id$
+ * @since 2.16
+ */
+public interface Bus {
+
+    /**
+     * Bus that connects nobody.
+     */
+    Bus NONE = new Bus() {
+        @Override
+        public void publish(final Collection<Engine.Key> keys) {
+            // nothing to do
+        }
+        @Override
+        public void listen(final Bus.Listener listener) {
+            // nothing to do
+        }
+    };
+
+    /**
+     * Publish keys to invalidate.
+     * @param keys Keys
+     * @throws IOException If fails
+     */
+    void publish(Collection<Engine.Key> keys) throws IOException;
+
+    /**
+     * Deliver keys published by others to this listener, from now on.
+     * @param listener Listener
+     */
+    void listen(Bus.Listener listener);
+
+    /**
+     * Listener of invalidations.
+     */
+    interface Listener {
+        /**
+         * Invalidate these keys.
+         * @param keys Keys
+         */
+        void invalidate(Collection<Engine.Key> keys);
+        /**
+         * Invalidate everything, since some keys may be lost.
+         */
+        void flush();
+    }
+
+}
@@ -0,0 +1,247 @@
+/**
+ * Copyright (c) 2009-2015, netbout.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are PROHIBITED without prior written permission from
+ * the author. This product may NOT be used anywhere and on any computer
+ * except the server platform of netbout Inc. located at www.netbout.com.
+ * Federal copyright law prohibits unauthorized reproduction by any means
+ * and imposes fines up to $25,000 for violation. If you received
+ * this code accidentally and without intent to use it, please report this
+ * incident to the author by email.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.netbout.cached;
+
+import com.jcabi.aspects.Tv;
+import com.jcabi.log.Logger;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Cache engine used by the decorators of this package.
+ *
+ * <p>By default it is {@link TinyLfu} of 100K entries and 64Mb at most,
+ * which is a predictable part of the heap. Another engine may be
+ * plugged in by {@link #use(Engine)}. Rendered markdown is kept
+ * in a separate engine of 10K entries and 16Mb, see {@link #markdown()}.
+ * Content of attachments is copied to a {@link Disk}, 512Mb at most,
+ * in the directory set by "netbout.disk" system property, or in the
+ * temporary one.
+ *
+ * <p>Invalidations are published to the {@link Bus}, if it is connected
+ * by {@link #connect(Bus)}, and keys published by other dynos are
+ * invalidated here. Invalidated keys are deleted from the disk too,
+ * since thumbnails of photos are kept there, see
+ * {@link #thumbnail(String, URI)}. If the bus may have lost some keys,
+ * in either direction, the engine is flushed.
+ *
+ * @author Yegor Bugayenko (yegor@teamed.io)
+ * @version $Id$
+ * @since 2.16
+ */
+public final class Cache {
+
+    /**
+     * Maximum number of entries.
+     */
+    private static final int ENTRIES = Tv.HUNDRED * Tv.THOUSAND;
+
+    /**
+     * Maximum estimated weight of entries, in bytes.
+     * @checkstyle MagicNumber (2 lines)
+     */
+    private static final long BYTES = 64L * 1024L * 1024L;
+
+    /**
+     * Maximum estimated weight of rendered markdown, in bytes.
+     * @checkstyle MagicNumber (2 lines)
+     */
+    private static final long MARKDOWN = 16L * 1024L * 1024L;
+
+    /**
+     * Maximum total size of local copies of attachments, in bytes.
+     * @checkstyle MagicNumber (2 lines)
+     */
+    private static final long FILES = 512L * 1024L * 1024L;
+
+    /**
+     * The engine.
+     */
+    private static final AtomicReference<Engine> ENGINE =
+        new AtomicReference<Engine>(new TinyLfu(Cache.ENTRIES, Cache.BYTES));
+
+    /**
+     * The engine of rendered markdown.
+     */
+    private static final Engine RENDERED =
+        new TinyLfu(Tv.TEN * Tv.THOUSAND, Cache.MARKDOWN);
+
+    /**
+     * Local copies of attachments.
+     */
+    private static final AtomicReference<Disk> DISK =
+        new AtomicReference<Disk>(
+            new Disk(
+                new File(
+                    System.getProperty(
+                        "netbout.disk",
+                        new File(
+                            System.getProperty("java.io.tmpdir"), "netbout"
+                        ).getPath()
+                    )
+                ),
+                Cache.FILES
+            )
+        );
+
+    /**
+     * The bus.
+     */
+    private static final AtomicReference<Bus> BUS =
+        new AtomicReference<Bus>(Bus.NONE);
+
+    /**
+     * Utility class.
+     */
+    private Cache() {
+        // intentionally empty
+    }
+
+    /**
+     * Current engine.
+     * @return Engine
+     */
+    public static Engine engine() {
+        return Cache.ENGINE.get();
+    }
+
+    /**
+     * Engine of rendered markdown, with its own budget.
+     *
+     * <p>Its keys are built from the content, never invalidated, so the
+     * engine is not connected to the bus.
+     *
+     * @return Engine
+     */
+    public static Engine markdown() {
+        return Cache.RENDERED;
+    }
+
+    /**
+     * Local copies of attachments.
+     * @return Disk
+     */
+    public static Disk disk() {
+        return Cache.DISK.get();
+    }
+
+    /**
+     * Keep local copies of attachments on this disk from now on.
+     * @param disk The disk
+     */
+    public static void use(final Disk disk) {
+        Cache.DISK.set(disk);
+    }
+
+    /**
+     * Use another engine from now on.
+     * @param engine The engine
+     */
+    public static void use(final Engine engine) {
+        Cache.ENGINE.set(engine);
+    }
+
+    /**
+     * Publish invalidations to this bus and receive them from it.
+     * @param bus The bus
+     */
+    public static void connect(final Bus bus) {
+        Cache.BUS.set(bus);
+        bus.listen(
+            new Bus.Listener() {
+                @Override
+                public void invalidate(final Collection<Engine.Key> keys) {
+                    Cache.forget(keys.toArray(new Engine.Key[keys.size()]));
+                }
+                @Override
+                public void flush() {
+                    Cache.engine().flush();
+                }
+            }
+        );
+    }
+
+    /**
+     * Invalidate keys here and on all other dynos.
+     *
+     * <p>Call it after the change is saved, otherwise other dynos
+     * may load the old value again before it's saved.
+     *
+     * @param keys Keys
+     */
+    public static void invalidate(final Engine.Key... keys) {
+        Cache.forget(keys);
+        Cache.publish(keys);
+    }
+
+    /**
+     * Invalidate keys on all other dynos only.
+     *
+     * <p>Call it after values are updated here in place, like
+     * {@link Counter}, since other dynos don't know about the change.
+     * If the bus fails, the whole engine here is flushed, since this
+     * dyno most likely can't receive keys of others either.
+     *
+     * @param keys Keys
+     */
+    public static void publish(final Engine.Key... keys) {
+        final Collection<Engine.Key> list = Arrays.asList(keys);
+        try {
+            Cache.BUS.get().publish(list);
+        } catch (final IOException ex) {
+            Logger.warn(
+                Cache.class, "failed to publish %s, flushing: %s", list, ex
+            );
+            Cache.engine().flush();
+        }
+    }
+
+    /**
+     * Key of the thumbnail of a photo of an alias, in the engine and
+     * on the disk, invalidated when the photo is changed.
+     * @param alias Name of the alias
+     * @param photo URI of its photo
+     * @return Key
+     */
+    public static Engine.Key thumbnail(final String alias, final URI photo) {
+        return new Engine.Key("friend.avatar", alias, photo);
+    }
+
+    /**
+     * Forget the keys here, in the engine and on the disk.
+     * @param keys Keys
+     */
+    private static void forget(final Engine.Key... keys) {
+        Cache.engine().invalidate(keys);
+        Cache.disk().delete(keys);
+    }
+
+}
@@ -26,7 +26,6 @@
  */
 package com.netbout.cached;
 
-import com.jcabi.aspects.Cacheable;
 import com.jcabi.aspects.Immutable;
 import com.jcabi.aspects.Loggable;
 import com.jcabi.aspects.Tv;
@@ -49,7 +48,7 @@ import lombok.ToString;
 @Immutable
 @Loggable(Loggable.DEBUG)
 @ToString(of = "origin")
-@EqualsAndHashCode(of = "origin")
+@EqualsAndHashCode(of = { "origin", "label" })
 final class CdAlias implements Alias {
 
     /**
@@ -57,52 +56,94 @@ final class CdAlias implements Alias {
      */
     private final transient Alias origin;
 
+    /**
+     * Name of the alias.
+     */
+    private final transient String label;
+
     /**
      * Public ctor.
      * @param org Origin
+     * @param name Name of the alias
      */
-    CdAlias(final Alias org) {
+    CdAlias(final Alias org, final String name) {
         this.origin = org;
+        this.label = name;
     }
 
     @Override
-    @Cacheable(lifetime = Tv.FIVE, unit = TimeUnit.HOURS)
-    public String name() throws IOException {
-        return this.origin.name();
+    public String name() {
+        return this.label;
     }
 
     @Override
-    @Cacheable(lifetime = Tv.FIVE, unit = TimeUnit.HOURS)
     public URI photo() throws IOException {
-        return this.origin.photo();
+        return Cache.engine().get(
+            CdAlias.key(this.label, "photo"), Tv.FIVE, TimeUnit.HOURS,
+            new Engine.Source<URI>() {
+                @Override
+                public URI load() throws IOException {
+                    return CdAlias.this.origin.photo();
+                }
+            }
+        );
     }
 
     @Override
-    @Cacheable(lifetime = Tv.FIVE, unit = TimeUnit.HOURS)
     public Locale locale() throws IOException {
-        return this.origin.locale();
+        return Cache.engine().get(
+            CdAlias.key(this.label, "locale"), Tv.FIVE, TimeUnit.HOURS,
+            new Engine.Source<Locale>() {
+                @Override
+                public Locale load() throws IOException {
+                    return CdAlias.this.origin.locale();
+                }
+            }
+        );
     }
 
     @Override
-    @Cacheable.FlushBefore
     public void photo(final URI uri) throws IOException {
+        final URI before = this.photo();
         this.origin.photo(uri);
+        Cache.invalidate(
+            CdAlias.key(this.label, "photo"),
+            Cache.thumbnail(this.label, before),
+            Cache.thumbnail(this.label, uri)
+        );
     }
 
     @Override
-    @Cacheable(lifetime = Tv.FIVE, unit = TimeUnit.HOURS)
     public String email() throws IOException {
-        return this.origin.email();
+        return Cache.engine().get(
+            CdAlias.key(this.label, "email"), Tv.FIVE, TimeUnit.HOURS,
+            new Engine.Source<String>() {
+                @Override
+                public String load() throws IOException {
+                    return CdAlias.this.origin.email();
+                }
+            }
+        );
     }
 
     @Override
-    @Cacheable.FlushBefore
     public void email(final String email) throws IOException {
         this.origin.email(email);
+        Cache.invalidate(CdAlias.key(this.label, "email"));
     }
 
     @Override
     public Inbox inbox() throws IOException {
-        return new CdInbox(this.origin.inbox());
+        return new CdInbox(this.origin.inbox(), this.label);
+    }
+
+    /**
+     * Key of a property of an alias, shared with {@link CdFriend}.
+     * @param name Name of the alias
+     * @param property Name of the property
+     * @return Key
+     */
+    static Engine.Key key(final String name, final String property) {
+        return new Engine.Key(String.format("alias.%s", property), name);
     }
 }
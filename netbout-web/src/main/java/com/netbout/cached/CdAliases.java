@@ -26,16 +26,15 @@
  */
 package com.netbout.cached;
 
-import com.google.common.base.Function;
-import com.google.common.collect.Iterables;
-import com.google.common.collect.Lists;
-import com.jcabi.aspects.Cacheable;
 import com.jcabi.aspects.Immutable;
 import com.jcabi.aspects.Loggable;
 import com.jcabi.aspects.Tv;
+import com.jcabi.urn.URN;
 import com.netbout.spi.Alias;
 import com.netbout.spi.Aliases;
 import java.io.IOException;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
@@ -50,7 +49,7 @@ import lombok.ToString;
 @Immutable
 @Loggable(Loggable.DEBUG)
 @ToString(of = "origin")
-@EqualsAndHashCode(of = "origin")
+@EqualsAndHashCode(of = { "origin", "urn" })
 final class CdAliases implements Aliases {
 
     /**
@@ -58,12 +57,19 @@ final class CdAliases implements Aliases {
      */
     private final transient Aliases origin;
 
+    /**
+     * URN of the user.
+     */
+    private final transient URN urn;
+
     /**
      * Public ctor.
      * @param org Origin
+     * @param user URN of the user
      */
-    CdAliases(final Aliases org) {
+    CdAliases(final Aliases org, final URN user) {
         this.origin = org;
+        this.urn = user;
     }
 
     @Override
@@ -72,25 +78,34 @@ final class CdAliases implements Aliases {
     }
 
     @Override
-    @Cacheable.FlushBefore
     public void add(final String name) throws IOException {
         this.origin.add(name);
+        Cache.invalidate(this.key());
     }
 
     @Override
-    @Cacheable(lifetime = Tv.FIVE, unit = TimeUnit.HOURS)
     public Iterable<Alias> iterate() throws IOException {
-        return Lists.newArrayList(
-            Iterables.transform(
-                this.origin.iterate(),
-                new Function<Alias, Alias>() {
-                    @Override
-                    public Alias apply(final Alias input) {
-                        return new CdAlias(input);
+        return Cache.engine().get(
+            this.key(), Tv.FIVE, TimeUnit.HOURS,
+            new Engine.Source<Iterable<Alias>>() {
+                @Override
+                public Iterable<Alias> load() throws IOException {
+                    final List<Alias> list = new LinkedList<Alias>();
+                    for (final Alias alias : CdAliases.this.origin.iterate()) {
+                        list.add(new CdAlias(alias, alias.name()));
                     }
+                    return list;
                 }
-            )
+            }
         );
     }
 
+    /**
+     * Key of the list.
+     * @return Key
+     */
+    private Engine.Key key() {
+        return new Engine.Key("aliases.iterate", this.urn.toString());
+    }
+
 }
@@ -26,19 +26,26 @@
  */
 package com.netbout.cached;
 
-import com.jcabi.aspects.Cacheable;
 import com.jcabi.aspects.Immutable;
 import com.jcabi.aspects.Loggable;
 import com.jcabi.aspects.Tv;
 import com.netbout.spi.Attachment;
+import com.netbout.spi.Friend;
+import com.netbout.spi.Friends;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 
 /**
- * Cached Attachments.
+ * Cached Attachment.
+ *
+ * <p>The unseen flag is a {@link Counter} of zero or one, which is
+ * changed here on download and upload, together with the number of
+ * unseen attachments, see {@link CdAttachments}. Content is read from
+ * a local copy on {@link Disk}.
  *
  * @author Yegor Bugayenko (yegor@teamed.io)
  * @version $Id$
@@ -47,7 +54,7 @@ import lombok.ToString;
 @Immutable
 @Loggable(Loggable.DEBUG)
 @ToString(of = "origin")
-@EqualsAndHashCode(of = "origin")
+@EqualsAndHashCode(of = { "origin", "alias", "bout", "friends" })
 final class CdAttachment implements Attachment {
 
     /**
@@ -55,47 +62,184 @@ final class CdAttachment implements Attachment {
      */
     private final transient Attachment origin;
 
+    /**
+     * Alias of the reader.
+     */
+    private final transient String alias;
+
+    /**
+     * Bout number.
+     */
+    private final transient long bout;
+
+    /**
+     * Friends of the bout.
+     */
+    private final transient Friends friends;
+
     /**
      * Public ctor.
      * @param org Origin
+     * @param name Alias of the reader
+     * @param number Bout number
+     * @param frnds Friends of the bout
+     * @checkstyle ParameterNumberCheck (5 lines)
      */
-    CdAttachment(final Attachment org) {
+    CdAttachment(final Attachment org, final String name,
+        final long number, final Friends frnds) {
         this.origin = org;
+        this.alias = name;
+        this.bout = number;
+        this.friends = frnds;
     }
 
     @Override
-    @Cacheable(lifetime = Tv.FIVE, unit = TimeUnit.HOURS)
     public String name() throws IOException {
         return this.origin.name();
     }
 
     @Override
-    @Cacheable(lifetime = Tv.FIVE, unit = TimeUnit.HOURS)
     public String ctype() throws IOException {
-        return this.origin.ctype();
+        return Cache.engine().get(
+            CdAttachment.key(this.bout, this.name(), "ctype"),
+            Tv.FIVE, TimeUnit.HOURS,
+            new Engine.Source<String>() {
+                @Override
+                public String load() throws IOException {
+                    return CdAttachment.this.origin.ctype();
+                }
+            }
+        );
     }
 
     @Override
-    @Cacheable(lifetime = Tv.FIVE, unit = TimeUnit.HOURS)
     public String etag() throws IOException {
-        return this.origin.etag();
+        return Cache.engine().get(
+            CdAttachment.key(this.bout, this.name(), "etag"),
+            Tv.FIVE, TimeUnit.HOURS,
+            new Engine.Source<String>() {
+                @Override
+                public String load() throws IOException {
+                    return CdAttachment.this.origin.etag();
+                }
+            }
+        );
     }
 
     @Override
-    @Cacheable(lifetime = Tv.FIVE, unit = TimeUnit.HOURS)
     public boolean unseen() throws IOException {
-        return this.origin.unseen();
+        return Counter.load(
+            CdAttachment.unseen(this.bout, this.name(), this.alias),
+            new Engine.Source<Long>() {
+                @Override
+                public Long load() throws IOException {
+                    long flag = 0L;
+                    if (CdAttachment.this.origin.unseen()) {
+                        flag = 1L;
+                    }
+                    return flag;
+                }
+            }
+        ) > 0L;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The content is read from the local copy, see {@link Disk}, which
+     * is downloaded from the origin only if it's absent. If the reader
+     * didn't see the attachment yet and the copy is there, the origin is
+     * opened and closed at once, in order to mark it as seen, its stream
+     * is lazy and nothing is downloaded.
+     */
     @Override
     public InputStream read() throws IOException {
-        return this.origin.read();
+        final boolean unseen = this.unseen();
+        final AtomicBoolean loaded = new AtomicBoolean();
+        final InputStream stream = Cache.disk().read(
+            new Engine.Key("content", this.bout, this.name(), this.etag()),
+            new Engine.Source<InputStream>() {
+                @Override
+                public InputStream load() throws IOException {
+                    loaded.set(true);
+                    return CdAttachment.this.origin.read();
+                }
+            }
+        );
+        if (unseen && !loaded.get()) {
+            this.origin.read().close();
+        }
+        if (unseen) {
+            this.flag(this.alias, 0L);
+            Cache.invalidate(CdInbox.page(this.alias));
+        }
+        return stream;
     }
 
     @Override
-    @Cacheable.FlushAfter
     public void write(final InputStream stream, final String ctype,
         final String etag) throws IOException {
+        final boolean changed = !etag.equals(this.etag());
         this.origin.write(stream, ctype, etag);
+        Cache.invalidate(
+            CdAttachment.key(this.bout, this.name(), "ctype"),
+            CdAttachment.key(this.bout, this.name(), "etag")
+        );
+        if (changed) {
+            for (final Friend friend : this.friends.iterate()) {
+                if (!friend.alias().equals(this.alias)) {
+                    this.flag(friend.alias(), 1L);
+                }
+                Cache.invalidate(CdInbox.page(friend.alias()));
+            }
+        }
+    }
+
+    /**
+     * Key of the unseen flag of a friend.
+     * @param number Bout number
+     * @param name Name of the attachment
+     * @param friend Alias of the friend
+     * @return Key
+     */
+    static Engine.Key unseen(final long number, final String name,
+        final String friend) {
+        return new Engine.Key("attachment.unseen", number, name, friend);
+    }
+
+    /**
+     * Set the unseen flag of a friend and change the number of unseen
+     * attachments accordingly.
+     * @param friend Alias of the friend
+     * @param value One if unseen, zero if seen
+     * @throws IOException If fails
+     */
+    private void flag(final String friend, final long value)
+        throws IOException {
+        final Engine.Key key = CdAttachment.unseen(
+            this.bout, this.name(), friend
+        );
+        final Engine.Key total = CdAttachments.unseen(this.bout, friend);
+        final long before = Counter.reset(key, value);
+        if (before == Counter.UNKNOWN) {
+            Cache.engine().invalidate(total);
+        } else {
+            Counter.shift(total, value - before);
+        }
+        Cache.publish(key, total);
+    }
+
+    /**
+     * Key of a property of an attachment.
+     * @param number Bout number
+     * @param name Name of the attachment
+     * @param property Name of the property
+     * @return Key
+     */
+    static Engine.Key key(final long number, final String name,
+        final String property) {
+        return new Engine.Key(
+            String.format("attachment.%s", property), number, name
+        );
     }
 }
@@ -26,16 +26,17 @@
  */
 package com.netbout.cached;
 
-import com.google.common.base.Function;
-import com.google.common.collect.Iterables;
-import com.google.common.collect.Lists;
-import com.jcabi.aspects.Cacheable;
 import com.jcabi.aspects.Immutable;
 import com.jcabi.aspects.Loggable;
 import com.jcabi.aspects.Tv;
 import com.netbout.spi.Attachment;
 import com.netbout.spi.Attachments;
+import com.netbout.spi.Friend;
+import com.netbout.spi.Friends;
 import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
@@ -43,6 +44,9 @@ import lombok.ToString;
 /**
  * Cached Attachments.
  *
+ * <p>The number of unseen attachments is a {@link Counter}, which is
+ * changed by {@link CdAttachment} when they are uploaded and downloaded.
+ *
  * @author Yegor Bugayenko (yegor@teamed.io)
  * @version $Id$
  * @since 2.2
@@ -50,7 +54,7 @@ import lombok.ToString;
 @Immutable
 @Loggable(Loggable.DEBUG)
 @ToString(of = "origin")
-@EqualsAndHashCode(of = "origin")
+@EqualsAndHashCode(of = { "origin", "alias", "bout", "friends" })
 final class CdAttachments implements Attachments {
 
     /**
@@ -58,51 +62,165 @@ final class CdAttachments implements Attachments {
      */
     private final transient Attachments origin;
 
+    /**
+     * Alias of the reader.
+     */
+    private final transient String alias;
+
+    /**
+     * Bout number.
+     */
+    private final transient long bout;
+
+    /**
+     * Friends of the bout.
+     */
+    private final transient Friends friends;
+
     /**
      * Public ctor.
      * @param org Origin
+     * @param name Alias of the reader
+     * @param number Bout number
+     * @param frnds Friends of the bout
+     * @checkstyle ParameterNumberCheck (5 lines)
      */
-    CdAttachments(final Attachments org) {
+    CdAttachments(final Attachments org, final String name,
+        final long number, final Friends frnds) {
         this.origin = org;
+        this.alias = name;
+        this.bout = number;
+        this.friends = frnds;
     }
 
     @Override
-    @Cacheable(lifetime = Tv.FIVE, unit = TimeUnit.HOURS)
     public int unseen() throws IOException {
-        return this.origin.unseen();
+        return (int) Counter.load(
+            CdAttachments.unseen(this.bout, this.alias),
+            new Engine.Source<Integer>() {
+                @Override
+                public Integer load() throws IOException {
+                    return CdAttachments.this.origin.unseen();
+                }
+            }
+        );
     }
 
     @Override
-    @Cacheable.FlushBefore
     public void create(final String name) throws IOException {
         this.origin.create(name);
+        this.flush(name);
     }
 
     @Override
-    @Cacheable.FlushBefore
     public void delete(final String name) throws IOException {
         this.origin.delete(name);
+        this.flush(name);
     }
 
     @Override
-    @Cacheable(lifetime = Tv.FIVE, unit = TimeUnit.HOURS)
     public Attachment get(final String name) throws IOException {
-        return new CdAttachment(this.origin.get(name));
+        return Cache.engine().get(
+            CdAttachments.key(this.bout, name, this.alias, "get"),
+            Tv.FIVE, TimeUnit.HOURS,
+            new Engine.Source<Attachment>() {
+                @Override
+                public Attachment load() throws IOException {
+                    return CdAttachments.this.wrap(
+                        CdAttachments.this.origin.get(name)
+                    );
+                }
+            }
+        );
     }
 
     @Override
-    @Cacheable(lifetime = Tv.FIVE, unit = TimeUnit.HOURS)
     public Iterable<Attachment> iterate() throws IOException {
-        return Lists.newArrayList(
-            Iterables.transform(
-                this.origin.iterate(),
-                new Function<Attachment, Attachment>() {
-                    @Override
-                    public Attachment apply(final Attachment attachment) {
-                        return new CdAttachment(attachment);
+        return Cache.engine().get(
+            CdAttachments.key(this.bout, this.alias, "iterate"),
+            Tv.FIVE, TimeUnit.HOURS,
+            new Engine.Source<Iterable<Attachment>>() {
+                @Override
+                public Iterable<Attachment> load() throws IOException {
+                    final List<Attachment> list =
+                        new LinkedList<Attachment>();
+                    for (final Attachment attachment
+                        : CdAttachments.this.origin.iterate()) {
+                        list.add(CdAttachments.this.wrap(attachment));
                     }
+                    return list;
                 }
-            )
+            }
+        );
+    }
+
+    /**
+     * Key of the number of unseen attachments of a friend.
+     * @param number Bout number
+     * @param friend Alias of the friend
+     * @return Key
+     */
+    static Engine.Key unseen(final long number, final String friend) {
+        return CdAttachments.key(number, friend, "unseen");
+    }
+
+    /**
+     * Forget everything about this attachment and the lists, for
+     * all friends, since creating and deleting are rare.
+     * @param name Name of the attachment
+     * @throws IOException If fails
+     */
+    private void flush(final String name) throws IOException {
+        final Collection<Engine.Key> keys = new LinkedList<Engine.Key>();
+        for (final Friend friend : this.friends.iterate()) {
+            keys.add(CdAttachments.unseen(this.bout, friend.alias()));
+            keys.add(CdAttachments.key(this.bout, friend.alias(), "iterate"));
+            keys.add(
+                CdAttachments.key(this.bout, name, friend.alias(), "get")
+            );
+            keys.add(CdAttachment.unseen(this.bout, name, friend.alias()));
+        }
+        Cache.invalidate(keys.toArray(new Engine.Key[keys.size()]));
+    }
+
+    /**
+     * Wrap the attachment.
+     * @param attachment The attachment
+     * @return Cached one
+     */
+    private Attachment wrap(final Attachment attachment) {
+        return new CdAttachment(
+            attachment, this.alias, this.bout, this.friends
+        );
+    }
+
+    /**
+     * Key of a property of attachments, as seen by a friend.
+     * @param number Bout number
+     * @param friend Alias of the friend
+     * @param property Name of the property
+     * @return Key
+     */
+    private static Engine.Key key(final long number, final String friend,
+        final String property) {
+        return new Engine.Key(
+            String.format("attachments.%s", property), number, friend
+        );
+    }
+
+    /**
+     * Key of a property of an attachment, as seen by a friend.
+     * @param number Bout number
+     * @param name Name of the attachment
+     * @param friend Alias of the friend
+     * @param property Name of the property
+     * @return Key
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    private static Engine.Key key(final long number, final String name,
+        final String friend, final String property) {
+        return new Engine.Key(
+            String.format("attachments.%s", property), number, name, friend
         );
     }
 }
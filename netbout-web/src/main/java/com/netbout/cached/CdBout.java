@@ -26,16 +26,18 @@
  */
 package com.netbout.cached;
 
-import com.jcabi.aspects.Cacheable;
 import com.jcabi.aspects.Immutable;
 import com.jcabi.aspects.Loggable;
 import com.jcabi.aspects.Tv;
 import com.netbout.spi.Attachments;
 import com.netbout.spi.Bout;
+import com.netbout.spi.Friend;
 import com.netbout.spi.Friends;
 import com.netbout.spi.Messages;
 import java.io.IOException;
+import java.util.Collection;
 import java.util.Date;
+import java.util.LinkedList;
 import java.util.concurrent.TimeUnit;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
@@ -50,7 +52,7 @@ import lombok.ToString;
 @Immutable
 @Loggable(Loggable.DEBUG)
 @ToString(of = "origin")
-@EqualsAndHashCode(of = "origin")
+@EqualsAndHashCode(of = { "origin", "alias" })
 final class CdBout implements Bout {
 
     /**
@@ -58,12 +60,19 @@ final class CdBout implements Bout {
      */
     private final transient Bout origin;
 
+    /**
+     * Alias of the reader.
+     */
+    private final transient String alias;
+
     /**
      * Public ctor.
      * @param org Origin
+     * @param name Alias of the reader
      */
-    CdBout(final Bout org) {
+    CdBout(final Bout org, final String name) {
         this.origin = org;
+        this.alias = name;
     }
 
     @Override
@@ -72,41 +81,93 @@ final class CdBout implements Bout {
     }
 
     @Override
-    @Cacheable(lifetime = Tv.FIVE, unit = TimeUnit.HOURS)
     public Date date() throws IOException {
-        return this.origin.date();
+        return Cache.engine().get(
+            new Engine.Key("bout.date", this.number()),
+            Tv.FIVE, TimeUnit.HOURS,
+            new Engine.Source<Date>() {
+                @Override
+                public Date load() throws IOException {
+                    return CdBout.this.origin.date();
+                }
+            }
+        );
     }
 
     @Override
-    @Cacheable(lifetime = Tv.FIVE, unit = TimeUnit.HOURS)
     public Date updated() throws IOException {
-        return this.origin.updated();
+        return Cache.engine().get(
+            this.updatedKey(), Tv.FIVE, TimeUnit.HOURS,
+            new Engine.Source<Date>() {
+                @Override
+                public Date load() throws IOException {
+                    return CdBout.this.origin.updated();
+                }
+            }
+        );
     }
 
     @Override
-    @Cacheable(lifetime = Tv.FIVE, unit = TimeUnit.HOURS)
     public String title() throws IOException {
-        return this.origin.title();
+        return Cache.engine().get(
+            this.titleKey(), Tv.FIVE, TimeUnit.HOURS,
+            new Engine.Source<String>() {
+                @Override
+                public String load() throws IOException {
+                    return CdBout.this.origin.title();
+                }
+            }
+        );
     }
 
     @Override
-    @Cacheable.FlushBefore
     public void rename(final String text) throws IOException {
         this.origin.rename(text);
+        final Collection<Engine.Key> keys = new LinkedList<Engine.Key>();
+        keys.add(this.titleKey());
+        keys.add(this.updatedKey());
+        for (final Friend friend : this.friends().iterate()) {
+            keys.add(CdInbox.page(friend.alias()));
+        }
+        Cache.invalidate(keys.toArray(new Engine.Key[keys.size()]));
     }
 
     @Override
     public Messages messages() throws IOException {
-        return new CdMessages(this.origin.messages());
+        return new CdMessages(
+            this.origin.messages(), this.alias, this.number(),
+            this.friends()
+        );
     }
 
     @Override
     public Friends friends() throws IOException {
-        return new CdFriends(this.origin.friends());
+        return new CdFriends(this.origin.friends(), this.number());
     }
 
     @Override
     public Attachments attachments() throws IOException {
-        return new CdAttachments(this.origin.attachments());
+        return new CdAttachments(
+            this.origin.attachments(), this.alias, this.number(),
+            this.friends()
+        );
+    }
+
+    /**
+     * Key of the title, which is the same for all friends.
+     * @return Key
+     * @throws IOException If fails
+     */
+    private Engine.Key titleKey() throws IOException {
+        return new Engine.Key("bout.title", this.number());
+    }
+
+    /**
+     * Key of the moment of update, as seen by the reader.
+     * @return Key
+     * @throws IOException If fails
+     */
+    private Engine.Key updatedKey() throws IOException {
+        return new Engine.Key("bout.updated", this.number(), this.alias);
     }
 }
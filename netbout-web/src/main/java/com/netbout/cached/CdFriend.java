@@ -26,7 +26,6 @@
  */
 package com.netbout.cached;
 
-import com.jcabi.aspects.Cacheable;
 import com.jcabi.aspects.Immutable;
 import com.jcabi.aspects.Loggable;
 import com.jcabi.aspects.Tv;
@@ -64,20 +63,33 @@ final class CdFriend implements Friend {
     }
 
     @Override
-    @Cacheable(lifetime = Tv.FIVE, unit = TimeUnit.HOURS)
     public String alias() throws IOException {
         return this.origin.alias();
     }
 
     @Override
-    @Cacheable(lifetime = Tv.FIVE, unit = TimeUnit.HOURS)
     public URI photo() throws IOException {
-        return this.origin.photo();
+        return Cache.engine().get(
+            CdAlias.key(this.alias(), "photo"), Tv.FIVE, TimeUnit.HOURS,
+            new Engine.Source<URI>() {
+                @Override
+                public URI load() throws IOException {
+                    return CdFriend.this.origin.photo();
+                }
+            }
+        );
     }
 
     @Override
-    @Cacheable(lifetime = Tv.FIVE, unit = TimeUnit.HOURS)
     public String email() throws IOException {
-        return this.origin.email();
+        return Cache.engine().get(
+            CdAlias.key(this.alias(), "email"), Tv.FIVE, TimeUnit.HOURS,
+            new Engine.Source<String>() {
+                @Override
+                public String load() throws IOException {
+                    return CdFriend.this.origin.email();
+                }
+            }
+        );
     }
 }
@@ -26,16 +26,14 @@
  */
 package com.netbout.cached;
 
-import com.google.common.base.Function;
-import com.google.common.collect.Iterables;
-import com.google.common.collect.Lists;
-import com.jcabi.aspects.Cacheable;
 import com.jcabi.aspects.Immutable;
 import com.jcabi.aspects.Loggable;
 import com.jcabi.aspects.Tv;
 import com.netbout.spi.Friend;
 import com.netbout.spi.Friends;
 import java.io.IOException;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
@@ -50,7 +48,7 @@ import lombok.ToString;
 @Immutable
 @Loggable(Loggable.DEBUG)
 @ToString(of = "origin")
-@EqualsAndHashCode(of = "origin")
+@EqualsAndHashCode(of = { "origin", "bout" })
 final class CdFriends implements Friends {
 
     /**
@@ -58,39 +56,71 @@ final class CdFriends implements Friends {
      */
     private final transient Friends origin;
 
+    /**
+     * Bout number.
+     */
+    private final transient long bout;
+
     /**
      * Public ctor.
      * @param org Origin
+     * @param number Bout number
      */
-    CdFriends(final Friends org) {
+    CdFriends(final Friends org, final long number) {
         this.origin = org;
+        this.bout = number;
     }
 
     @Override
-    @Cacheable.FlushBefore
     public void invite(final String friend) throws IOException {
         this.origin.invite(friend);
+        this.flush(friend);
     }
 
     @Override
-    @Cacheable.FlushBefore
     public void kick(final String friend) throws IOException {
         this.origin.kick(friend);
+        this.flush(friend);
     }
 
     @Override
-    @Cacheable(lifetime = Tv.FIVE, unit = TimeUnit.HOURS)
     public Iterable<Friend> iterate() throws IOException {
-        return Lists.newArrayList(
-            Iterables.transform(
-                this.origin.iterate(),
-                new Function<Friend, Friend>() {
-                    @Override
-                    public Friend apply(final Friend input) {
-                        return new CdFriend(input);
+        return Cache.engine().get(
+            this.key(), Tv.FIVE, TimeUnit.HOURS,
+            new Engine.Source<Iterable<Friend>>() {
+                @Override
+                public Iterable<Friend> load() throws IOException {
+                    final List<Friend> list = new LinkedList<Friend>();
+                    for (final Friend friend
+                        : CdFriends.this.origin.iterate()) {
+                        list.add(new CdFriend(friend));
                     }
+                    return list;
                 }
-            )
+            }
+        );
+    }
+
+    /**
+     * Forget the list and the numbers of unread messages and unseen
+     * attachments and the inbox of the friend, invited or kicked.
+     * @param friend Alias of the friend
+     */
+    private void flush(final String friend) {
+        Cache.invalidate(
+            this.key(),
+            CdInbox.unread(friend),
+            CdMessages.unread(this.bout, friend),
+            CdAttachments.unseen(this.bout, friend),
+            CdInbox.page(friend)
         );
     }
+
+    /**
+     * Key of the list of friends, the same for all of them.
+     * @return Key
+     */
+    private Engine.Key key() {
+        return new Engine.Key("friends.iterate", this.bout);
+    }
 }
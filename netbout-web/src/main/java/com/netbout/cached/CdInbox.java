@@ -26,9 +26,7 @@
  */
 package com.netbout.cached;
 
-import com.google.common.base.Function;
 import com.google.common.collect.Iterables;
-import com.jcabi.aspects.Cacheable;
 import com.jcabi.aspects.Immutable;
 import com.jcabi.aspects.Loggable;
 import com.jcabi.aspects.Tv;
@@ -36,6 +34,8 @@ import com.netbout.spi.Bout;
 import com.netbout.spi.Inbox;
 import com.netbout.spi.Pageable;
 import java.io.IOException;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
@@ -43,6 +43,9 @@ import lombok.ToString;
 /**
  * Cached Inbox.
  *
+ * <p>The first page of bouts is cached, until any of them is changed,
+ * pages after it are not.
+ *
  * @author Yegor Bugayenko (yegor@teamed.io)
  * @version $Id$
  * @since 2.0
@@ -50,7 +53,7 @@ import lombok.ToString;
 @Immutable
 @Loggable(Loggable.DEBUG)
 @ToString(of = "origin")
-@EqualsAndHashCode(of = "origin")
+@EqualsAndHashCode(of = { "origin", "alias" })
 final class CdInbox implements Inbox {
 
     /**
@@ -58,51 +61,117 @@ final class CdInbox implements Inbox {
      */
     private final transient Inbox origin;
 
+    /**
+     * Alias of the owner.
+     */
+    private final transient String alias;
+
     /**
      * Public ctor.
      * @param org Origin
+     * @param name Alias of the owner
      */
-    CdInbox(final Inbox org) {
+    CdInbox(final Inbox org, final String name) {
         this.origin = org;
+        this.alias = name;
     }
 
     @Override
-    @Cacheable.FlushBefore
     public long start() throws IOException {
-        return this.origin.start();
+        final long number = this.origin.start();
+        Cache.invalidate(
+            CdInbox.unread(this.alias), CdInbox.page(this.alias)
+        );
+        return number;
     }
 
     @Override
-    @Cacheable(lifetime = Tv.FIVE, unit = TimeUnit.HOURS)
     public long unread() throws IOException {
-        return this.origin.unread();
+        return Counter.load(
+            CdInbox.unread(this.alias),
+            new Engine.Source<Long>() {
+                @Override
+                public Long load() throws IOException {
+                    return CdInbox.this.origin.unread();
+                }
+            }
+        );
     }
 
     @Override
-    @Cacheable(lifetime = Tv.FIVE, unit = TimeUnit.HOURS)
     @Loggable(
         value = Loggable.DEBUG,
         ignore = Inbox.BoutNotFoundException.class
     )
     public Bout bout(final long number) throws Inbox.BoutNotFoundException {
-        return new CdBout(this.origin.bout(number));
+        try {
+            return Cache.engine().get(
+                new Engine.Key("inbox.bout", this.alias, number),
+                Tv.FIVE, TimeUnit.HOURS,
+                new Engine.Source<Bout>() {
+                    @Override
+                    public Bout load() throws IOException {
+                        return new CdBout(
+                            CdInbox.this.origin.bout(number),
+                            CdInbox.this.alias
+                        );
+                    }
+                }
+            );
+        } catch (final Inbox.BoutNotFoundException ex) {
+            throw ex;
+        } catch (final IOException ex) {
+            throw new IllegalStateException(ex);
+        }
     }
 
     @Override
     public Pageable<Bout> jump(final long number) throws IOException {
-        return new CdPageable<Bout>(this.origin.jump(number));
+        final Pageable<Bout> pageable;
+        if (number == Inbox.NEVER) {
+            pageable = this;
+        } else {
+            pageable = new CdPageable<Bout>(
+                this.origin.jump(number), this.alias
+            );
+        }
+        return pageable;
     }
 
     @Override
     public Iterable<Bout> iterate() throws IOException {
-        return Iterables.transform(
-            this.origin.iterate(),
-            new Function<Bout, Bout>() {
+        return Cache.engine().get(
+            CdInbox.page(this.alias), Tv.FIVE, TimeUnit.MINUTES,
+            new Engine.Source<Iterable<Bout>>() {
                 @Override
-                public Bout apply(final Bout input) {
-                    return new CdBout(input);
+                public Iterable<Bout> load() throws IOException {
+                    final List<Bout> list = new LinkedList<Bout>();
+                    for (final Bout bout : Iterables.limit(
+                        CdInbox.this.origin.iterate(), Inbox.PAGE
+                    )) {
+                        list.add(new CdBout(bout, CdInbox.this.alias));
+                    }
+                    return list;
                 }
             }
         );
     }
+
+    /**
+     * Key of the number of unread messages in the inbox.
+     * @param name Alias of the owner
+     * @return Key
+     */
+    static Engine.Key unread(final String name) {
+        return new Engine.Key("inbox.unread", name);
+    }
+
+    /**
+     * Key of the first page of the inbox.
+     * @param name Alias of the owner
+     * @return Key
+     */
+    static Engine.Key page(final String name) {
+        return new Engine.Key("inbox.iterate", name);
+    }
 }
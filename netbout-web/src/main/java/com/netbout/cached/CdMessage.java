@@ -79,4 +79,9 @@ final class CdMessage implements Message {
     public String author() throws IOException {
         return this.origin.author();
     }
+
+    @Override
+    public String html() throws IOException {
+        return this.origin.html();
+    }
 }
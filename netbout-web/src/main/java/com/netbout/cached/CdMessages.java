@@ -26,23 +26,26 @@
  */
 package com.netbout.cached;
 
-import com.google.common.base.Function;
-import com.google.common.collect.Iterables;
-import com.jcabi.aspects.Cacheable;
 import com.jcabi.aspects.Immutable;
 import com.jcabi.aspects.Loggable;
-import com.jcabi.aspects.Tv;
+import com.netbout.spi.Friend;
+import com.netbout.spi.Friends;
+import com.netbout.spi.Inbox;
 import com.netbout.spi.Message;
 import com.netbout.spi.Messages;
 import com.netbout.spi.Pageable;
 import java.io.IOException;
-import java.util.concurrent.TimeUnit;
+import java.util.Collection;
+import java.util.LinkedList;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 
 /**
  * Cached Messages.
  *
+ * <p>Numbers of unread messages are {@link Counter}s, which are changed
+ * here when messages are posted and seen.
+ *
  * @author Yegor Bugayenko (yegor@teamed.io)
  * @version $Id$
  * @since 2.2
@@ -50,7 +53,7 @@ import lombok.ToString;
 @Immutable
 @Loggable(Loggable.DEBUG)
 @ToString(of = "origin")
-@EqualsAndHashCode(of = "origin")
+@EqualsAndHashCode(of = { "origin", "alias", "bout", "friends" })
 final class CdMessages implements Messages {
 
     /**
@@ -59,85 +62,112 @@ final class CdMessages implements Messages {
     private final transient Messages origin;
 
     /**
-     * Flag to use for caching.
+     * Alias of the reader.
+     */
+    private final transient String alias;
+
+    /**
+     * Bout number.
+     */
+    private final transient long bout;
+
+    /**
+     * Friends of the bout.
      */
-    private final transient CdMessages.Flag flag;
+    private final transient Friends friends;
 
     /**
      * Public ctor.
      * @param org Origin
+     * @param name Alias of the reader
+     * @param number Bout number
+     * @param frnds Friends of the bout
+     * @checkstyle ParameterNumberCheck (5 lines)
      */
-    CdMessages(final Messages org) {
+    CdMessages(final Messages org, final String name, final long number,
+        final Friends frnds) {
         this.origin = org;
-        this.flag = new CdMessages.Flag(org);
+        this.alias = name;
+        this.bout = number;
+        this.friends = frnds;
     }
 
     @Override
-    @Cacheable.FlushBefore
     public void post(final String text) throws IOException {
         this.origin.post(text);
+        final Collection<Engine.Key> pages = new LinkedList<Engine.Key>();
+        pages.add(CdPage.head(this.bout));
+        final Collection<Engine.Key> keys = new LinkedList<Engine.Key>();
+        for (final Friend friend : this.friends.iterate()) {
+            pages.add(CdInbox.page(friend.alias()));
+            if (friend.alias().equals(this.alias)) {
+                continue;
+            }
+            keys.add(CdMessages.unread(this.bout, friend.alias()));
+            keys.add(CdInbox.unread(friend.alias()));
+        }
+        Cache.invalidate(pages.toArray(new Engine.Key[pages.size()]));
+        for (final Engine.Key key : keys) {
+            Counter.shift(key, 1L);
+        }
+        Cache.publish(keys.toArray(new Engine.Key[keys.size()]));
     }
 
     @Override
     public long unread() throws IOException {
-        return this.flag.unread();
+        return Counter.load(
+            this.key(),
+            new Engine.Source<Long>() {
+                @Override
+                public Long load() throws IOException {
+                    return CdMessages.this.origin.unread();
+                }
+            }
+        );
     }
 
     @Override
     public Pageable<Message> jump(final long number) throws IOException {
-        return new CdPageable<Message>(this.origin.jump(number));
+        return new CdPage(
+            this.origin.jump(number), this.origin, this.bout, number
+        );
     }
 
     @Override
     public Iterable<Message> iterate() throws IOException {
-        this.flag.touch();
-        return Iterables.transform(
-            this.origin.iterate(),
-            new Function<Message, Message>() {
-                @Override
-                public Message apply(final Message input) {
-                    return new CdMessage(input);
-                }
-            }
-        );
+        final Iterable<Message> page =
+            new CdPage(this.origin, this.origin, this.bout, Inbox.NEVER)
+                .iterate();
+        final long before = Counter.reset(this.key(), 0L);
+        final Engine.Key inbox = CdInbox.unread(this.alias);
+        if (before == Counter.UNKNOWN) {
+            Cache.engine().invalidate(inbox);
+        } else {
+            Counter.shift(inbox, -before);
+        }
+        if (before != 0L) {
+            Cache.publish(this.key(), inbox);
+            Cache.invalidate(CdInbox.page(this.alias));
+        }
+        return page;
     }
 
     /**
-     * Flag of read/unread.
-     * @since 2.6
+     * Key of the number of unread messages.
+     * @return Key
      */
-    @Immutable
-    @Loggable(Loggable.DEBUG)
-    @ToString(of = "messages")
-    @EqualsAndHashCode(of = "messages")
-    private static final class Flag {
-        /**
-         * Original.
-         */
-        private final transient Messages messages;
-        /**
-         * Public ctor.
-         * @param org Origin
-         */
-        Flag(final Messages org) {
-            this.messages = org;
-        }
-        /**
-         * How many unread.
-         * @return Number
-         * @throws IOException If fails
-         */
-        @Cacheable(lifetime = Tv.FIVE, unit = TimeUnit.MINUTES)
-        public long unread() throws IOException {
-            return this.messages.unread();
-        }
-        /**
-         * I've seen them all.
-         */
-        @Cacheable.FlushBefore
-        public void touch() {
-            // nothing special
-        }
+    private Engine.Key key() {
+        return CdMessages.unread(this.bout, this.alias);
+    }
+
+    /**
+     * Key of the number of unread messages of a friend.
+     * @param number Bout number
+     * @param name Alias of the friend
+     * @return Key
+     */
+    static Engine.Key unread(final long number, final String name) {
+        return new Engine.Key("messages.unread", number, name);
     }
 
 }
@@ -0,0 +1,283 @@
+/**
+ * Copyright (c) 2009-2015, netbout.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are PROHIBITED without prior written permission from
+ * the author. This product may NOT be used anywhere and on any computer
+ * except the server platform of netbout Inc. located at www.netbout.com.
+ * Federal copyright law prohibits unauthorized reproduction by any means
+ * and imposes fines up to $25,000 for violation. If you received
+ * this code accidentally and without intent to use it, please report this
+ * incident to the author by email.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.netbout.cached;
+
+import com.google.common.collect.Iterables;
+import com.jcabi.aspects.Immutable;
+import com.jcabi.aspects.Loggable;
+import com.jcabi.aspects.Tv;
+import com.netbout.spi.Inbox;
+import com.netbout.spi.Message;
+import com.netbout.spi.Messages;
+import com.netbout.spi.Pageable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Cached page of messages.
+ *
+ * <p>Messages never change after they are posted, that's why a page
+ * that starts at or below the newest message never changes either and is
+ * cached for {@link Tv#THIRTY} days. Only the head page (the one that
+ * starts at {@link Inbox#NEVER}) changes, and it is invalidated by
+ * {@link CdMessages#post(String)}. A page that starts above the newest
+ * message is the head page, until more messages are posted.
+ *
+ * <p>Messages in the page are loaded completely, so that rendering
+ * them needs no I/O.
+ *
+ * @author Yegor Bugayenko (yegor@teamed.io)
+ * @version $Id$
+ * @since 2.16
+ */
+@Immutable
+@Loggable(Loggable.DEBUG)
+@ToString(of = { "bout", "start" })
+@EqualsAndHashCode(of = { "origin", "all", "bout", "start" })
+final class CdPage implements Pageable<Message> {
+
+    /**
+     * Original.
+     */
+    private final transient Pageable<Message> origin;
+
+    /**
+     * Original, not jumped, to load the head page.
+     */
+    private final transient Pageable<Message> all;
+
+    /**
+     * Bout number.
+     */
+    private final transient long bout;
+
+    /**
+     * Number of the message to start from (exclusive).
+     */
+    private final transient long start;
+
+    /**
+     * Public ctor.
+     * @param org Origin
+     * @param whole Origin, not jumped
+     * @param number Bout number
+     * @param first Number of the message to start from
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    CdPage(final Pageable<Message> org, final Pageable<Message> whole,
+        final long number, final long first) {
+        this.origin = org;
+        this.all = whole;
+        this.bout = number;
+        this.start = first;
+    }
+
+    @Override
+    public Pageable<Message> jump(final long number) throws IOException {
+        return new CdPage(
+            this.all.jump(number), this.all, this.bout, number
+        );
+    }
+
+    @Override
+    public Iterable<Message> iterate() throws IOException {
+        Iterable<Message> page = CdPage.load(
+            this.all, CdPage.head(this.bout), (long) Tv.FIVE, TimeUnit.HOURS
+        );
+        if (this.start != Inbox.NEVER && this.start <= CdPage.newest(page)) {
+            page = CdPage.load(
+                this.origin,
+                new Engine.Key("messages.iterate", this.bout, this.start),
+                (long) Tv.THIRTY, TimeUnit.DAYS
+            );
+        }
+        return page;
+    }
+
+    /**
+     * Key of the head page of the bout.
+     * @param number Bout number
+     * @return Key
+     */
+    static Engine.Key head(final long number) {
+        return new Engine.Key("messages.iterate", number, "head");
+    }
+
+    /**
+     * Load a page through the cache.
+     * @param source Original page
+     * @param key Key of the page
+     * @param lifetime How long to keep it
+     * @param unit Unit of the lifetime
+     * @return Loaded messages
+     * @throws IOException If fails
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    private static Iterable<Message> load(final Pageable<Message> source,
+        final Engine.Key key, final long lifetime, final TimeUnit unit)
+        throws IOException {
+        final Iterable<Message> messages = source.iterate();
+        return Cache.engine().get(
+            key, lifetime, unit,
+            new Engine.Source<Iterable<Message>>() {
+                @Override
+                public Iterable<Message> load() throws IOException {
+                    final List<Message> page =
+                        new ArrayList<Message>(Messages.PAGE);
+                    for (final Message msg
+                        : Iterables.limit(messages, Messages.PAGE)) {
+                        page.add(new CdPage.Loaded(msg));
+                    }
+                    return new CdPage.Page(page);
+                }
+            }
+        );
+    }
+
+    /**
+     * Number of the newest message in the head page.
+     * @param head Head page, newest message first
+     * @return Number, or zero if there are no messages
+     */
+    private static long newest(final Iterable<Message> head) {
+        final Iterator<Message> msgs = head.iterator();
+        long number = 0L;
+        if (msgs.hasNext()) {
+            number = msgs.next().number();
+        }
+        return number;
+    }
+
+    /**
+     * Page of loaded messages, with its weight.
+     */
+    @ToString(of = "list")
+    @EqualsAndHashCode(of = "list")
+    private static final class Page implements Iterable<Message>,
+        Engine.Weighted {
+        /**
+         * Messages.
+         */
+        private final transient List<Message> list;
+        /**
+         * Ctor.
+         * @param msgs Messages
+         */
+        Page(final List<Message> msgs) {
+            this.list = msgs;
+        }
+        @Override
+        public Iterator<Message> iterator() {
+            return this.list.iterator();
+        }
+        @Override
+        public long weight() {
+            // @checkstyle MagicNumber (1 line)
+            long bytes = 40L;
+            for (final Message msg : this.list) {
+                bytes += CdPage.Loaded.class.cast(msg).weight();
+            }
+            return bytes;
+        }
+    }
+
+    /**
+     * Message loaded completely.
+     */
+    @Immutable
+    @ToString(of = "num")
+    @EqualsAndHashCode(of = { "num", "author", "body", "time" })
+    private static final class Loaded implements Message, Engine.Weighted {
+        /**
+         * Number.
+         */
+        private final transient long num;
+        /**
+         * Author.
+         */
+        private final transient String author;
+        /**
+         * Text.
+         */
+        private final transient String body;
+        /**
+         * Text, rendered to HTML.
+         */
+        private final transient String rendered;
+        /**
+         * Date, in milliseconds.
+         */
+        private final transient long time;
+        /**
+         * Ctor.
+         * @param msg Message to load
+         * @throws IOException If fails
+         */
+        Loaded(final Message msg) throws IOException {
+            this.num = msg.number();
+            this.author = msg.author();
+            this.body = msg.text();
+            this.rendered = msg.html();
+            this.time = msg.date().getTime();
+        }
+        @Override
+        public long number() {
+            return this.num;
+        }
+        @Override
+        public Date date() {
+            return new Date(this.time);
+        }
+        @Override
+        public String text() {
+            return this.body;
+        }
+        @Override
+        public String author() {
+            return this.author;
+        }
+        @Override
+        public String html() {
+            return this.rendered;
+        }
+        @Override
+        public long weight() {
+            // @checkstyle MagicNumber (1 line)
+            return 120L + 2L * (
+                this.body.length() + this.rendered.length()
+                    + this.author.length()
+            );
+        }
+    }
+
+}
@@ -47,7 +47,7 @@ import lombok.ToString;
 @Immutable
 @Loggable(Loggable.DEBUG)
 @ToString(of = "origin")
-@EqualsAndHashCode(of = "origin")
+@EqualsAndHashCode(of = { "origin", "alias" })
 final class CdPageable<T> implements Pageable<T> {
 
     /**
@@ -55,17 +55,24 @@ final class CdPageable<T> implements Pageable<T> {
      */
     private final transient Pageable<T> origin;
 
+    /**
+     * Alias of the owner.
+     */
+    private final transient String alias;
+
     /**
      * Public ctor.
      * @param org Origin
+     * @param name Alias of the owner
      */
-    CdPageable(final Pageable<T> org) {
+    CdPageable(final Pageable<T> org, final String name) {
         this.origin = org;
+        this.alias = name;
     }
 
     @Override
     public Pageable<T> jump(final long number) throws IOException {
-        return new CdPageable<T>(this.origin.jump(number));
+        return new CdPageable<T>(this.origin.jump(number), this.alias);
     }
 
     @Override
@@ -80,7 +87,9 @@ final class CdPageable<T> implements Pageable<T> {
                     if (input instanceof Message) {
                         result = new CdMessage(Message.class.cast(input));
                     } else {
-                        result = new CdBout(Bout.class.cast(input));
+                        result = new CdBout(
+                            Bout.class.cast(input), CdPageable.this.alias
+                        );
                     }
                     return (T) result;
                 }
@@ -28,6 +28,7 @@ package com.netbout.cached;
 
 import com.jcabi.aspects.Immutable;
 import com.jcabi.aspects.Loggable;
+import com.jcabi.urn.URN;
 import com.netbout.spi.Aliases;
 import com.netbout.spi.Friend;
 import com.netbout.spi.User;
@@ -45,7 +46,7 @@ import lombok.ToString;
 @Immutable
 @Loggable(Loggable.DEBUG)
 @ToString(of = "origin")
-@EqualsAndHashCode(of = "origin")
+@EqualsAndHashCode(of = { "origin", "urn" })
 final class CdUser implements User {
 
     /**
@@ -53,17 +54,24 @@ final class CdUser implements User {
      */
     private final transient User origin;
 
+    /**
+     * URN of the user.
+     */
+    private final transient URN urn;
+
     /**
      * Public ctor.
      * @param org Origin
+     * @param user URN of the user
      */
-    CdUser(final User org) {
+    CdUser(final User org, final URN user) {
         this.origin = org;
+        this.urn = user;
     }
 
     @Override
     public Aliases aliases() {
-        return new CdAliases(this.origin.aliases());
+        return new CdAliases(this.origin.aliases(), this.urn);
     }
 
     @Override
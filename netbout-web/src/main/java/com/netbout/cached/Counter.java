@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2009-2015, netbout.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are PROHIBITED without prior written permission from
+ * the author. This product may NOT be used anywhere and on any computer
+ * except the server platform of netbout Inc. located at www.netbout.com.
+ * Federal copyright law prohibits unauthorized reproduction by any means
+ * and imposes fines up to $25,000 for violation. If you received
+ * this code accidentally and without intent to use it, please report this
+ * incident to the author by email.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.netbout.cached;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.ToString;
+
+/**
+ * Counter, kept by the cache engine and updated in place.
+ *
+ * <p>Numbers of unread messages and unseen attachments are loaded from
+ * the origin only when they are absent here. After that they are changed
+ * by local events, like posts, downloads and uploads, without reading
+ * them again. Other dynos are told to forget them by
+ * {@link Cache#publish(Engine.Key...)}.
+ *
+ * <p>The class is thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor@teamed.io)
+ * @version $Id$
+ * @since 2.16
+ */
+@ToString(of = "value")
+final class Counter implements Engine.Weighted {
+
+    /**
+     * The value is not known here.
+     */
+    public static final long UNKNOWN = -1L;
+
+    /**
+     * Lifetime of a counter, in days.
+     */
+    private static final long DAYS = 1L;
+
+    /**
+     * The value.
+     */
+    private final transient AtomicLong value;
+
+    /**
+     * Ctor.
+     * @param val The value
+     */
+    Counter(final long val) {
+        this.value = new AtomicLong(val);
+    }
+
+    @Override
+    public long weight() {
+        // @checkstyle MagicNumber (1 line)
+        return 48L;
+    }
+
+    /**
+     * Get the value of a counter, loading it if it's absent.
+     * @param key Key
+     * @param origin Source of the value
+     * @return Value
+     * @throws IOException If fails
+     */
+    public static long load(final Engine.Key key,
+        final Engine.Source<? extends Number> origin) throws IOException {
+        return Cache.engine().get(
+            key, Counter.DAYS, TimeUnit.DAYS,
+            new Engine.Source<Counter>() {
+                @Override
+                public Counter load() throws IOException {
+                    return new Counter(origin.load().longValue());
+                }
+            }
+        ).value.get();
+    }
+
+    /**
+     * Add to the value of a counter, if it's here, or forget it
+     * otherwise.
+     *
+     * <p>When the counter is absent, it may be loading from the origin
+     * right now, with the value from before the change. It is
+     * invalidated then, so that the loaded value is not kept.
+     *
+     * @param key Key
+     * @param delta How much to add
+     */
+    public static void shift(final Engine.Key key, final long delta) {
+        final Counter counter = Cache.engine().peek(key);
+        if (counter == null) {
+            Cache.engine().invalidate(key);
+        } else {
+            counter.value.addAndGet(delta);
+        }
+    }
+
+    /**
+     * Set the value of a counter, which is known exactly.
+     * @param key Key
+     * @param val The value
+     * @return Previous value or {@link #UNKNOWN}
+     * @throws IOException If fails
+     */
+    public static long reset(final Engine.Key key, final long val)
+        throws IOException {
+        final Counter counter = Cache.engine().peek(key);
+        final long before;
+        if (counter == null) {
+            Cache.engine().get(
+                key, Counter.DAYS, TimeUnit.DAYS,
+                new Engine.Source<Counter>() {
+                    @Override
+                    public Counter load() {
+                        return new Counter(val);
+                    }
+                }
+            );
+            before = Counter.UNKNOWN;
+        } else {
+            before = counter.value.getAndSet(val);
+        }
+        return before;
+    }
+
+}
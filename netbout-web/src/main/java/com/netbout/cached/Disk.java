@@ -0,0 +1,265 @@
+/**
+ * Copyright (c) 2009-2015, netbout.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are PROHIBITED without prior written permission from
+ * the author. This product may NOT be used anywhere and on any computer
+ * except the server platform of netbout Inc. located at www.netbout.com.
+ * Federal copyright law prohibits unauthorized reproduction by any means
+ * and imposes fines up to $25,000 for violation. If you received
+ * this code accidentally and without intent to use it, please report this
+ * incident to the author by email.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.netbout.cached;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import com.jcabi.log.Logger;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Local copies of attachments, in a directory on disk.
+ *
+ * <p>Files are named by SHA-256 of their keys, like
+ * {@code ("content", bout, name, etag)}, and the least recently used
+ * ones are deleted when their total size is bigger than the budget,
+ * as well as files of invalidated keys, see {@link Cache}. A file is
+ * downloaded into a temporary one first and then moved to its
+ * place atomically, so readers never see it incomplete. A file deleted
+ * while it's being read stays readable until closed, since the file
+ * system is POSIX.
+ *
+ * <p>The class is thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor@teamed.io)
+ * @version $Id$
+ * @since 2.16
+ */
+@ToString(of = { "dir", "budget" })
+@EqualsAndHashCode(of = { "dir", "budget" })
+public final class Disk {
+
+    /**
+     * Suffix of temporary files.
+     */
+    private static final String TEMP = ".part";
+
+    /**
+     * Directory.
+     */
+    private final transient File dir;
+
+    /**
+     * Maximum total size of files, in bytes.
+     */
+    private final transient long budget;
+
+    /**
+     * Sizes of files by names, least recently used first.
+     */
+    private final transient Map<String, Long> files;
+
+    /**
+     * Total size of files, in bytes.
+     */
+    private transient long total;
+
+    /**
+     * Ctor.
+     *
+     * <p>Files left in the directory by the previous run are used,
+     * the ones modified recently are considered recently used.
+     *
+     * @param path Directory
+     * @param bytes Maximum total size of files
+     */
+    public Disk(final File path, final long bytes) {
+        this.dir = path;
+        this.budget = bytes;
+        this.files = new LinkedHashMap<String, Long>(
+            // @checkstyle MagicNumber (1 line)
+            16, 0.75f, true
+        );
+        if (!path.mkdirs() && !path.isDirectory()) {
+            throw new IllegalArgumentException(
+                String.format("can't create directory %s", path)
+            );
+        }
+        final File[] found = path.listFiles();
+        Arrays.sort(
+            found,
+            new Comparator<File>() {
+                @Override
+                public int compare(final File left, final File right) {
+                    return Long.valueOf(left.lastModified())
+                        .compareTo(right.lastModified());
+                }
+            }
+        );
+        for (final File file : found) {
+            if (file.getName().endsWith(Disk.TEMP)) {
+                FileUtils.deleteQuietly(file);
+            } else {
+                this.add(file.getName(), file.length());
+            }
+        }
+    }
+
+    /**
+     * Read the local copy, downloading it from the source if it's absent.
+     *
+     * <p>The file is moved to its place, opened and registered under the
+     * lock, the same one that deleting of old files takes, so it can't be
+     * deleted before it's opened, and the stream is always complete.
+     * If the source fails, nothing is saved.
+     *
+     * @param key Key
+     * @param source Source of the content
+     * @return Stream of the file
+     * @throws IOException If fails
+     */
+    public FileInputStream read(final Engine.Key key,
+        final Engine.Source<InputStream> source) throws IOException {
+        final String name = Disk.name(key);
+        final File file = new File(this.dir, name);
+        FileInputStream stream = null;
+        synchronized (this.files) {
+            if (this.files.get(name) != null && file.exists()) {
+                stream = new FileInputStream(file);
+            }
+        }
+        if (stream == null) {
+            final File temp = File.createTempFile(name, Disk.TEMP, this.dir);
+            try {
+                final InputStream input = source.load();
+                try {
+                    final OutputStream output = new FileOutputStream(temp);
+                    try {
+                        IOUtils.copyLarge(input, output);
+                    } finally {
+                        output.close();
+                    }
+                } finally {
+                    input.close();
+                }
+                synchronized (this.files) {
+                    Files.move(
+                        temp.toPath(), file.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE
+                    );
+                    stream = new FileInputStream(file);
+                    this.add(name, file.length());
+                }
+            } finally {
+                FileUtils.deleteQuietly(temp);
+            }
+            Logger.info(
+                this, "%d bytes of %s saved to %s", file.length(), key, file
+            );
+        }
+        return stream;
+    }
+
+    /**
+     * Delete local copies, if they are here.
+     * @param keys Keys
+     */
+    public void delete(final Engine.Key... keys) {
+        final Collection<String> names = new ArrayList<String>(keys.length);
+        for (final Engine.Key key : keys) {
+            names.add(Disk.name(key));
+        }
+        synchronized (this.files) {
+            for (final String name : names) {
+                final Long bytes = this.files.remove(name);
+                if (bytes != null) {
+                    FileUtils.deleteQuietly(new File(this.dir, name));
+                    this.total -= bytes;
+                }
+            }
+        }
+    }
+
+    /**
+     * Total size of files.
+     * @return Bytes
+     */
+    public long bytes() {
+        synchronized (this.files) {
+            return this.total;
+        }
+    }
+
+    /**
+     * Add a file and delete the least recently used ones, if there
+     * is no room for it.
+     * @param name Name of the file
+     * @param bytes Its size
+     */
+    private void add(final String name, final long bytes) {
+        synchronized (this.files) {
+            final Long before = this.files.put(name, bytes);
+            if (before != null) {
+                this.total -= before;
+            }
+            this.total += bytes;
+            final Iterator<Map.Entry<String, Long>> eldest =
+                this.files.entrySet().iterator();
+            while (this.total > this.budget && eldest.hasNext()) {
+                final Map.Entry<String, Long> entry = eldest.next();
+                if (entry.getKey().equals(name)) {
+                    break;
+                }
+                FileUtils.deleteQuietly(new File(this.dir, entry.getKey()));
+                this.total -= entry.getValue();
+                eldest.remove();
+            }
+        }
+    }
+
+    /**
+     * Name of the file of the key.
+     * @param key Key
+     * @return Name
+     */
+    private static String name(final Engine.Key key) {
+        return Hashing.sha256().hashString(
+            String.format("%s %s", key.region(), key.parts()),
+            Charsets.UTF_8
+        ).toString();
+    }
+
+}
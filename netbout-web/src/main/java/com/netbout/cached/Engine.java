@@ -0,0 +1,355 @@
+/**
+ * Copyright (c) 2009-2015, netbout.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are PROHIBITED without prior written permission from
+ * the author. This product may NOT be used anywhere and on any computer
+ * except the server platform of netbout Inc. located at www.netbout.com.
+ * Federal copyright law prohibits unauthorized reproduction by any means
+ * and imposes fines up to $25,000 for violation. If you received
+ * this code accidentally and without intent to use it, please report this
+ * incident to the author by email.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.netbout.cached;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Cache engine, used by all decorators of this package.
+ *
+ * <p>Values are stored by explicit keys, like
+ * {@code ("bout.title", number)}, where the first element is
+ * the region, the statistics are collected for. Every cached method
+ * has its own region, named after the decorator and the method.
+ *
+ * @author Yegor Bugayenko (yegor@teamed.io)
+ * @version $Id$
+ * @since 2.16
+ */
+public interface Engine {
+
+    /**
+     * Get the value, loading it from the source if it's absent or expired.
+     * @param key Key
+     * @param lifetime How long to keep it
+     * @param unit Time unit of the lifetime
+     * @param source Source of the value
+     * @param <T> Type of value
+     * @return Value
+     * @throws IOException If the source fails
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    <T> T get(Engine.Key key, long lifetime, TimeUnit unit,
+        Engine.Source<T> source) throws IOException;
+
+    /**
+     * Find the value, without loading it.
+     *
+     * <p>Nothing is loaded and nothing is counted, it is used in order to
+     * update values in place, like {@link Counter}.
+     *
+     * @param key Key
+     * @param <T> Type of value
+     * @return Value or NULL if it's absent or expired
+     */
+    <T> T peek(Engine.Key key);
+
+    /**
+     * Forget these keys.
+     * @param keys Keys
+     */
+    void invalidate(Engine.Key... keys);
+
+    /**
+     * Forget all keys.
+     *
+     * <p>It is used when some invalidations may be lost, for example
+     * if the {@link Bus} failed to deliver them.
+     */
+    void flush();
+
+    /**
+     * Statistics, by regions.
+     * @return Statistics
+     */
+    Map<String, Engine.Stats> stats();
+
+    /**
+     * Source of values.
+     * @param <T> Type of value
+     */
+    interface Source<T> {
+        /**
+         * Load the value.
+         * @return Value
+         * @throws IOException If fails
+         */
+        T load() throws IOException;
+    }
+
+    /**
+     * Value that knows its own weight, better than the engine can
+     * estimate it.
+     */
+    interface Weighted {
+        /**
+         * Estimated weight in memory.
+         * @return Bytes
+         */
+        long weight();
+    }
+
+    /**
+     * Key.
+     */
+    @ToString(of = { "name", "parts" })
+    @EqualsAndHashCode(of = { "name", "parts" })
+    final class Key {
+        /**
+         * Region.
+         */
+        private final transient String name;
+        /**
+         * Parts of the key.
+         */
+        private final transient List<Object> parts;
+        /**
+         * Ctor.
+         * @param region Region
+         * @param items Parts of the key
+         */
+        public Key(final String region, final Object... items) {
+            this.name = region;
+            this.parts = Collections.unmodifiableList(Arrays.asList(items));
+        }
+        /**
+         * Region of the key.
+         * @return Name of the region
+         */
+        public String region() {
+            return this.name;
+        }
+        /**
+         * Parts of the key.
+         * @return Parts
+         */
+        public List<Object> parts() {
+            return this.parts;
+        }
+    }
+
+    /**
+     * Statistics of a region.
+     */
+    @ToString(of = { "hit", "miss", "evicted", "size", "weight" })
+    final class Stats {
+        /**
+         * Number of buckets of load latency, the last one is for
+         * microseconds above {@code 2^30}.
+         */
+        private static final int BUCKETS = 32;
+        /**
+         * Values found.
+         */
+        private final transient AtomicLong hit = new AtomicLong();
+        /**
+         * Values loaded.
+         */
+        private final transient AtomicLong miss = new AtomicLong();
+        /**
+         * Values evicted to make room for others.
+         */
+        private final transient AtomicLong evicted = new AtomicLong();
+        /**
+         * Values not admitted, being less frequent than existing ones.
+         */
+        private final transient AtomicLong rejected = new AtomicLong();
+        /**
+         * Values invalidated.
+         */
+        private final transient AtomicLong invalidated = new AtomicLong();
+        /**
+         * Values stored now.
+         */
+        private final transient AtomicLong size = new AtomicLong();
+        /**
+         * Estimated bytes stored now.
+         */
+        private final transient AtomicLong weight = new AtomicLong();
+        /**
+         * Loads by latency, where bucket N counts loads that took less
+         * than {@code 2^N} microseconds.
+         */
+        private final transient AtomicLongArray latency =
+            new AtomicLongArray(Engine.Stats.BUCKETS);
+        /**
+         * Values found.
+         * @return Count
+         */
+        public long hits() {
+            return this.hit.get();
+        }
+        /**
+         * Values loaded.
+         * @return Count
+         */
+        public long misses() {
+            return this.miss.get();
+        }
+        /**
+         * Share of hits among all requests.
+         * @return Ratio, between zero and one
+         */
+        public double ratio() {
+            final long total = this.hits() + this.misses();
+            double ratio = 0.0d;
+            if (total > 0L) {
+                ratio = (double) this.hits() / (double) total;
+            }
+            return ratio;
+        }
+        /**
+         * Values evicted.
+         * @return Count
+         */
+        public long evictions() {
+            return this.evicted.get();
+        }
+        /**
+         * Values not admitted.
+         * @return Count
+         */
+        public long rejections() {
+            return this.rejected.get();
+        }
+        /**
+         * Values invalidated.
+         * @return Count
+         */
+        public long invalidations() {
+            return this.invalidated.get();
+        }
+        /**
+         * Values stored.
+         * @return Count
+         */
+        public long entries() {
+            return this.size.get();
+        }
+        /**
+         * Estimated bytes stored.
+         * @return Bytes
+         */
+        public long bytes() {
+            return this.weight.get();
+        }
+        /**
+         * Latency of loads, at the given percentile.
+         *
+         * <p>The value is an upper bound, with the precision of a power
+         * of two, which is enough to see the order of it.
+         *
+         * @param share Percentile, between zero and one, like 0.99
+         * @return Microseconds, or zero if nothing was loaded yet
+         */
+        public long latency(final double share) {
+            long total = 0L;
+            for (int idx = 0; idx < Engine.Stats.BUCKETS; ++idx) {
+                total += this.latency.get(idx);
+            }
+            final long rank = (long) Math.ceil(share * (double) total);
+            long micros = 0L;
+            long seen = 0L;
+            for (int idx = 0; idx < Engine.Stats.BUCKETS; ++idx) {
+                seen += this.latency.get(idx);
+                if (total > 0L && seen >= rank) {
+                    micros = 1L << idx;
+                    break;
+                }
+            }
+            return micros;
+        }
+        /**
+         * Value found.
+         */
+        public void hit() {
+            this.hit.incrementAndGet();
+        }
+        /**
+         * Value loaded.
+         */
+        public void miss() {
+            this.miss.incrementAndGet();
+        }
+        /**
+         * Value loaded, taking that long.
+         * @param nanos Nanoseconds spent in the source
+         */
+        public void load(final long nanos) {
+            this.latency.incrementAndGet(
+                Math.min(
+                    Engine.Stats.BUCKETS - 1,
+                    Long.SIZE - Long.numberOfLeadingZeros(
+                        TimeUnit.NANOSECONDS.toMicros(nanos)
+                    )
+                )
+            );
+        }
+        /**
+         * Value rejected.
+         */
+        public void reject() {
+            this.rejected.incrementAndGet();
+        }
+        /**
+         * Value stored.
+         * @param bytes Its weight
+         */
+        public void add(final long bytes) {
+            this.size.incrementAndGet();
+            this.weight.addAndGet(bytes);
+        }
+        /**
+         * Value removed.
+         * @param bytes Its weight
+         * @param evict TRUE if evicted, FALSE if invalidated or expired
+         */
+        public void remove(final long bytes, final boolean evict) {
+            this.size.decrementAndGet();
+            this.weight.addAndGet(-bytes);
+            if (evict) {
+                this.evicted.incrementAndGet();
+            }
+        }
+        /**
+         * Value invalidated.
+         */
+        public void invalidate() {
+            this.invalidated.incrementAndGet();
+        }
+    }
+
+}
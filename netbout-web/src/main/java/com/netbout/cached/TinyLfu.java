@@ -0,0 +1,605 @@
+/**
+ * Copyright (c) 2009-2015, netbout.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are PROHIBITED without prior written permission from
+ * the author. This product may NOT be used anywhere and on any computer
+ * except the server platform of netbout Inc. located at www.netbout.com.
+ * Federal copyright law prohibits unauthorized reproduction by any means
+ * and imposes fines up to $25,000 for violation. If you received
+ * this code accidentally and without intent to use it, please report this
+ * incident to the author by email.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.netbout.cached;
+
+import com.jcabi.aspects.Tv;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Cache engine bounded by the number of entries and their estimated
+ * weight in bytes, with TinyLFU admission.
+ *
+ * <p>Entries are kept in LRU order. When there is no room for a new
+ * value, it is admitted only if it was requested more often than the
+ * least recently used entry, which is evicted then. Frequencies are
+ * estimated by a Count-Min sketch of 4-bit counters, which are halved
+ * every time ten times more requests than the capacity were seen, in
+ * order to forget the old history.
+ *
+ * <p>Big caches are split into segments by hash codes of keys, each
+ * with its own entries, sketch and lock, in order not to make all
+ * threads wait for one lock on every hit. Every segment has at least
+ * a thousand entries, so small caches have one segment.
+ *
+ * <p>Values are loaded outside of the lock. If the key is invalidated
+ * while its value is being loaded, the value is returned, but not
+ * stored, since it may be loaded before the change that invalidated
+ * the key.
+ *
+ * <p>The class is thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor@teamed.io)
+ * @version $Id$
+ * @since 2.16
+ */
+@ToString(of = { "capacity", "budget" })
+@EqualsAndHashCode(of = { "capacity", "budget" })
+final class TinyLfu implements Engine {
+
+    /**
+     * Estimated overhead of an entry, in bytes.
+     */
+    private static final long OVERHEAD = 96L;
+
+    /**
+     * Maximum number of segments.
+     */
+    private static final int SEGMENTS = 16;
+
+    /**
+     * Maximum number of entries.
+     */
+    private final transient int capacity;
+
+    /**
+     * Maximum total weight of entries, in bytes.
+     */
+    private final transient long budget;
+
+    /**
+     * Segments.
+     */
+    private final transient TinyLfu.Segment[] segments;
+
+    /**
+     * Statistics by regions.
+     */
+    private final transient ConcurrentMap<String, Engine.Stats> regions;
+
+    /**
+     * Ctor.
+     * @param entries Maximum number of entries
+     * @param bytes Maximum total weight of them
+     */
+    TinyLfu(final int entries, final long bytes) {
+        this.capacity = entries;
+        this.budget = bytes;
+        final int total = Math.min(
+            TinyLfu.SEGMENTS,
+            Integer.highestOneBit(Math.max(1, entries / Tv.THOUSAND))
+        );
+        this.segments = new TinyLfu.Segment[total];
+        for (int idx = 0; idx < total; ++idx) {
+            this.segments[idx] = new TinyLfu.Segment(
+                Math.max(1, entries / total), bytes / total
+            );
+        }
+        this.regions = new ConcurrentHashMap<String, Engine.Stats>(0);
+    }
+
+    @Override
+    public <T> T get(final Engine.Key key, final long lifetime,
+        final TimeUnit unit, final Engine.Source<T> source)
+        throws IOException {
+        final Engine.Stats stats = this.region(key);
+        final TinyLfu.Segment segment = this.segment(key);
+        final long now = System.currentTimeMillis();
+        final TinyLfu.Entry found = segment.find(key, now);
+        final T value;
+        if (found == null) {
+            stats.miss();
+            final long start = System.nanoTime();
+            final long generation = segment.loading(key);
+            boolean loaded = false;
+            try {
+                value = source.load();
+                loaded = true;
+            } finally {
+                if (!loaded) {
+                    segment.loaded(key, generation);
+                }
+            }
+            stats.load(System.nanoTime() - start);
+            segment.put(
+                key, generation, value, now + unit.toMillis(lifetime)
+            );
+        } else {
+            stats.hit();
+            @SuppressWarnings("unchecked")
+            final T cached = (T) found.value;
+            value = cached;
+        }
+        return value;
+    }
+
+    @Override
+    public <T> T peek(final Engine.Key key) {
+        final TinyLfu.Entry found = this.segment(key).peek(
+            key, System.currentTimeMillis()
+        );
+        Object value = null;
+        if (found != null) {
+            value = found.value;
+        }
+        @SuppressWarnings("unchecked")
+        final T cached = (T) value;
+        return cached;
+    }
+
+    @Override
+    public void invalidate(final Engine.Key... keys) {
+        for (final Engine.Key key : keys) {
+            this.segment(key).invalidate(key);
+        }
+    }
+
+    @Override
+    public void flush() {
+        for (final TinyLfu.Segment segment : this.segments) {
+            segment.flush();
+        }
+    }
+
+    @Override
+    public Map<String, Engine.Stats> stats() {
+        return Collections.unmodifiableMap(
+            new TreeMap<String, Engine.Stats>(this.regions)
+        );
+    }
+
+    /**
+     * Estimated weight of an object, in bytes.
+     * @param object The object
+     * @return Bytes
+     */
+    static long weigh(final Object object) {
+        long bytes;
+        if (object instanceof Engine.Weighted) {
+            bytes = Engine.Weighted.class.cast(object).weight();
+        } else if (object instanceof CharSequence) {
+            // @checkstyle MagicNumber (1 line)
+            bytes = 40L + 2L * CharSequence.class.cast(object).length();
+        } else if (object instanceof URI) {
+            // @checkstyle MagicNumber (1 line)
+            bytes = 80L + 4L * object.toString().length();
+        } else if (object instanceof Collection) {
+            // @checkstyle MagicNumber (1 line)
+            bytes = 40L;
+            for (final Object item : Collection.class.cast(object)) {
+                bytes += (long) Long.SIZE / Byte.SIZE + TinyLfu.weigh(item);
+            }
+        } else if (object instanceof Number || object instanceof Boolean
+            || object instanceof Date || object instanceof Enum) {
+            // @checkstyle MagicNumber (1 line)
+            bytes = 24L;
+        } else {
+            // @checkstyle MagicNumber (1 line)
+            bytes = 64L;
+        }
+        return bytes;
+    }
+
+    /**
+     * Segment of the key.
+     * @param key Key
+     * @return Segment
+     */
+    private TinyLfu.Segment segment(final Engine.Key key) {
+        int hash = key.hashCode();
+        // @checkstyle MagicNumber (1 line)
+        hash ^= hash >>> 16;
+        return this.segments[(hash & Integer.MAX_VALUE)
+            % this.segments.length];
+    }
+
+    /**
+     * Statistics of the region of the key.
+     * @param key Key
+     * @return Statistics
+     */
+    private Engine.Stats region(final Engine.Key key) {
+        Engine.Stats stats = this.regions.get(key.region());
+        if (stats == null) {
+            this.regions.putIfAbsent(key.region(), new Engine.Stats());
+            stats = this.regions.get(key.region());
+        }
+        return stats;
+    }
+
+    /**
+     * Segment of entries, with its own lock.
+     */
+    private final class Segment {
+        /**
+         * Maximum number of entries.
+         */
+        private final transient int size;
+        /**
+         * Maximum total weight of entries, in bytes.
+         */
+        private final transient long limit;
+        /**
+         * Entries, least recently used first.
+         */
+        private final transient LinkedHashMap<Engine.Key, TinyLfu.Entry> map;
+        /**
+         * Frequencies.
+         */
+        private final transient TinyLfu.Sketch sketch;
+        /**
+         * Number of loads in progress, by keys.
+         */
+        private final transient Map<Engine.Key, Integer> loads;
+        /**
+         * Generations of the last invalidations of keys being loaded.
+         */
+        private final transient Map<Engine.Key, Long> invalidated;
+        /**
+         * Generation, incremented by every invalidation.
+         */
+        private transient long generation;
+        /**
+         * Total weight of entries, in bytes.
+         */
+        private transient long weight;
+        /**
+         * Ctor.
+         * @param entries Maximum number of entries
+         * @param bytes Maximum total weight of them
+         */
+        Segment(final int entries, final long bytes) {
+            this.size = entries;
+            this.limit = bytes;
+            this.map = new LinkedHashMap<Engine.Key, TinyLfu.Entry>(
+                // @checkstyle MagicNumber (1 line)
+                16, 0.75f, true
+            );
+            this.sketch = new TinyLfu.Sketch(entries);
+            this.loads = new HashMap<Engine.Key, Integer>(0);
+            this.invalidated = new HashMap<Engine.Key, Long>(0);
+        }
+        /**
+         * Find an entry, counting the request.
+         * @param key Key
+         * @param now Current time
+         * @return Entry or NULL if it's absent or expired
+         */
+        public synchronized TinyLfu.Entry find(final Engine.Key key,
+            final long now) {
+            this.sketch.increment(key);
+            TinyLfu.Entry found = this.map.get(key);
+            if (found != null && found.expires < now) {
+                this.drop(key, false);
+                found = null;
+            }
+            return found;
+        }
+        /**
+         * Find an entry, without counting the request.
+         * @param key Key
+         * @param now Current time
+         * @return Entry or NULL if it's absent or expired
+         */
+        public synchronized TinyLfu.Entry peek(final Engine.Key key,
+            final long now) {
+            TinyLfu.Entry found = this.map.get(key);
+            if (found != null && found.expires < now) {
+                found = null;
+            }
+            return found;
+        }
+        /**
+         * Forget the key.
+         * @param key Key
+         */
+        public synchronized void invalidate(final Engine.Key key) {
+            ++this.generation;
+            if (this.loads.containsKey(key)) {
+                this.invalidated.put(key, this.generation);
+            }
+            if (this.drop(key, false)) {
+                TinyLfu.this.region(key).invalidate();
+            }
+        }
+        /**
+         * Forget all keys, including the ones being loaded now.
+         */
+        public synchronized void flush() {
+            ++this.generation;
+            for (final Engine.Key key : this.loads.keySet()) {
+                this.invalidated.put(key, this.generation);
+            }
+            for (final Map.Entry<Engine.Key, TinyLfu.Entry> entry
+                : this.map.entrySet()) {
+                final Engine.Stats stats = TinyLfu.this.region(entry.getKey());
+                stats.remove(entry.getValue().bytes, false);
+                stats.invalidate();
+            }
+            this.map.clear();
+            this.weight = 0L;
+        }
+        /**
+         * The value of the key is going to be loaded.
+         * @param key Key
+         * @return Generation when the load started
+         */
+        public synchronized long loading(final Engine.Key key) {
+            final Integer count = this.loads.get(key);
+            if (count == null) {
+                this.loads.put(key, 1);
+            } else {
+                this.loads.put(key, count + 1);
+            }
+            return this.generation;
+        }
+        /**
+         * The value of the key was loaded, or failed to load.
+         * @param key Key
+         * @param start Generation when the load started
+         * @return TRUE if the key wasn't invalidated during the load
+         */
+        public synchronized boolean loaded(final Engine.Key key,
+            final long start) {
+            final Long last = this.invalidated.get(key);
+            final int count = this.loads.get(key);
+            if (count == 1) {
+                this.loads.remove(key);
+                this.invalidated.remove(key);
+            } else {
+                this.loads.put(key, count - 1);
+            }
+            return last == null || last <= start;
+        }
+        /**
+         * Put a loaded value, if there is room for it and the key
+         * wasn't invalidated during the load.
+         * @param key Key
+         * @param start Generation when the load started
+         * @param value Value
+         * @param expires When it expires
+         * @checkstyle ParameterNumberCheck (5 lines)
+         */
+        public void put(final Engine.Key key, final long start,
+            final Object value, final long expires) {
+            long bytes = TinyLfu.OVERHEAD + TinyLfu.weigh(value);
+            for (final Object part : key.parts()) {
+                bytes += TinyLfu.weigh(part);
+            }
+            final Engine.Stats stats = TinyLfu.this.region(key);
+            synchronized (this) {
+                if (this.loaded(key, start)) {
+                    this.drop(key, false);
+                    if (this.admit(key, bytes)) {
+                        this.map.put(
+                            key, new TinyLfu.Entry(value, bytes, expires)
+                        );
+                        this.weight += bytes;
+                        stats.add(bytes);
+                    } else {
+                        stats.reject();
+                    }
+                }
+            }
+        }
+        /**
+         * Make room for a new entry, evicting less frequent ones.
+         * @param key Key of the new entry
+         * @param bytes Its weight
+         * @return TRUE if there is room now
+         */
+        private boolean admit(final Engine.Key key, final long bytes) {
+            final int freq = this.sketch.frequency(key);
+            final long now = System.currentTimeMillis();
+            boolean room = bytes <= this.limit;
+            while (room && !this.map.isEmpty()
+                && (this.map.size() >= this.size
+                || this.weight + bytes > this.limit)) {
+                final Iterator<Map.Entry<Engine.Key, TinyLfu.Entry>> eldest =
+                    this.map.entrySet().iterator();
+                final Map.Entry<Engine.Key, TinyLfu.Entry> victim =
+                    eldest.next();
+                final boolean expired = victim.getValue().expires < now;
+                if (expired
+                    || freq > this.sketch.frequency(victim.getKey())) {
+                    eldest.remove();
+                    this.weight -= victim.getValue().bytes;
+                    TinyLfu.this.region(victim.getKey()).remove(
+                        victim.getValue().bytes, !expired
+                    );
+                } else {
+                    room = false;
+                }
+            }
+            return room;
+        }
+        /**
+         * Remove an entry, if it exists.
+         * @param key Key
+         * @param evict TRUE if it's an eviction
+         * @return TRUE if removed
+         */
+        private boolean drop(final Engine.Key key, final boolean evict) {
+            final TinyLfu.Entry entry = this.map.remove(key);
+            if (entry != null) {
+                this.weight -= entry.bytes;
+                TinyLfu.this.region(key).remove(entry.bytes, evict);
+            }
+            return entry != null;
+        }
+    }
+
+    /**
+     * Cached value.
+     */
+    private static final class Entry {
+        /**
+         * Value.
+         */
+        private final transient Object value;
+        /**
+         * Estimated weight, in bytes.
+         */
+        private final transient long bytes;
+        /**
+         * When it expires, in milliseconds.
+         */
+        private final transient long expires;
+        /**
+         * Ctor.
+         * @param val Value
+         * @param weight Weight
+         * @param when Expiration moment
+         */
+        Entry(final Object val, final long weight, final long when) {
+            this.value = val;
+            this.bytes = weight;
+            this.expires = when;
+        }
+    }
+
+    /**
+     * Count-Min sketch of frequencies, with 4-bit counters and aging.
+     *
+     * <p>Not thread-safe, guarded by the lock of the segment.
+     */
+    private static final class Sketch {
+        /**
+         * Number of rows.
+         */
+        private static final int DEPTH = 4;
+        /**
+         * Maximum value of a counter.
+         */
+        private static final int MAX = 15;
+        /**
+         * Seeds of hash functions of rows.
+         */
+        private static final int[] SEEDS = {
+            0x97cb3127, 0x5f356495, 0x2f8d5e6b, 0x6a09e667,
+        };
+        /**
+         * Counters, row by row.
+         */
+        private final transient byte[] table;
+        /**
+         * Mask of a position in a row.
+         */
+        private final transient int mask;
+        /**
+         * How many increments before aging.
+         */
+        private final transient int sample;
+        /**
+         * Increments since the last aging.
+         */
+        private transient int count;
+        /**
+         * Ctor.
+         * @param entries Maximum number of entries in the cache
+         */
+        Sketch(final int entries) {
+            final int width = Integer.highestOneBit(
+                // @checkstyle MagicNumber (1 line)
+                Math.max(entries, 2) * 4 - 1
+            );
+            this.table = new byte[width * Sketch.DEPTH];
+            this.mask = width - 1;
+            // @checkstyle MagicNumber (1 line)
+            this.sample = Math.max(entries, 1) * 10;
+        }
+        /**
+         * Count one more request of the key.
+         * @param key Key
+         */
+        public void increment(final Object key) {
+            final int hash = key.hashCode();
+            for (int row = 0; row < Sketch.DEPTH; ++row) {
+                final int idx = this.index(hash, row);
+                if (this.table[idx] < Sketch.MAX) {
+                    ++this.table[idx];
+                }
+            }
+            ++this.count;
+            if (this.count >= this.sample) {
+                for (int idx = 0; idx < this.table.length; ++idx) {
+                    this.table[idx] = (byte) (this.table[idx] >> 1);
+                }
+                this.count /= 2;
+            }
+        }
+        /**
+         * Estimated frequency of the key.
+         * @param key Key
+         * @return Frequency
+         */
+        public int frequency(final Object key) {
+            final int hash = key.hashCode();
+            int freq = Sketch.MAX;
+            for (int row = 0; row < Sketch.DEPTH; ++row) {
+                freq = Math.min(freq, this.table[this.index(hash, row)]);
+            }
+            return freq;
+        }
+        /**
+         * Position of the counter.
+         * @param hash Hash code of the key
+         * @param row Number of row
+         * @return Index in the table
+         */
+        private int index(final int hash, final int row) {
+            int mixed = hash * Sketch.SEEDS[row];
+            // @checkstyle MagicNumber (1 line)
+            mixed ^= mixed >>> 16;
+            return row * (this.mask + 1) + (mixed & this.mask);
+        }
+    }
+
+}
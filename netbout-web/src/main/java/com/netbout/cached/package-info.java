@@ -28,6 +28,10 @@
 /**
  * Cached base.
  *
+ * <p>All decorators keep their values in {@link com.netbout.cached.Cache},
+ * by explicit keys, which include aliases and bout numbers where the
+ * values depend on them.
+ *
  * @author Yegor Bugayenko (yegor@teamed.io)
  * @version $Id$
  * @since 2.0
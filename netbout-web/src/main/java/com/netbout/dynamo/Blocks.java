@@ -0,0 +1,160 @@
+/**
+ * Copyright (c) 2009-2015, netbout.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are PROHIBITED without prior written permission from
+ * the author. This product may NOT be used anywhere and on any computer
+ * except the server platform of netbout Inc. located at www.netbout.com.
+ * Federal copyright law prohibits unauthorized reproduction by any means
+ * and imposes fines up to $25,000 for violation. If you received
+ * this code accidentally and without intent to use it, please report this
+ * incident to the author by email.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.netbout.dynamo;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Blocks of numbers leased by this dyno, see {@link DyCounter}.
+ *
+ * <p>Counters are immutable and created on every request, while their
+ * blocks must live as long as the dyno, so they are kept here, by keys
+ * of counters.
+ *
+ * <p>The class is thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor@teamed.io)
+ * @version $Id$
+ * @since 2.16
+ */
+final class Blocks {
+
+    /**
+     * Blocks, by keys of counters.
+     */
+    private static final ConcurrentMap<String, Blocks.Block> LEASED =
+        new ConcurrentHashMap<String, Blocks.Block>(0);
+
+    /**
+     * Utility class.
+     */
+    private Blocks() {
+        // intentionally empty
+    }
+
+    /**
+     * Next number from the block of the counter, leasing a new block
+     * if it is absent or over.
+     * @param key Key of the counter
+     * @param size How many numbers are leased at once
+     * @param lease How to lease a block
+     * @return Number
+     * @throws IOException If fails
+     */
+    static long next(final String key, final long size,
+        final Blocks.Lease lease) throws IOException {
+        long number = Blocks.next(key);
+        if (number == 0L) {
+            synchronized (Blocks.LEASED) {
+                number = Blocks.next(key);
+                if (number == 0L) {
+                    final long last = lease.last();
+                    final Blocks.Block block = new Blocks.Block(
+                        last - size + 1L, last
+                    );
+                    number = block.next();
+                    Blocks.LEASED.put(key, block);
+                }
+            }
+        }
+        return number;
+    }
+
+    /**
+     * Forget all blocks, as if the dyno was restarted.
+     */
+    static void clear() {
+        Blocks.LEASED.clear();
+    }
+
+    /**
+     * Next number from the block already leased.
+     * @param key Key of the counter
+     * @return Number or zero if there is no block or it is over
+     */
+    private static long next(final String key) {
+        final Blocks.Block block = Blocks.LEASED.get(key);
+        long number = 0L;
+        if (block != null) {
+            number = block.next();
+        }
+        return number;
+    }
+
+    /**
+     * Lease of a new block.
+     */
+    interface Lease {
+        /**
+         * Lease the block.
+         * @return Last number in the block
+         * @throws IOException If fails
+         */
+        long last() throws IOException;
+    }
+
+    /**
+     * Block of numbers leased.
+     */
+    private static final class Block {
+        /**
+         * Next number to give.
+         */
+        private final transient AtomicLong first;
+        /**
+         * Last number of the block.
+         */
+        private final transient long last;
+        /**
+         * Ctor.
+         * @param start First number
+         * @param end Last number
+         */
+        Block(final long start, final long end) {
+            this.first = new AtomicLong(start);
+            this.last = end;
+        }
+        /**
+         * Next number, or zero if the block is over.
+         * @return Number
+         */
+        public long next() {
+            final long number = this.first.getAndIncrement();
+            final long next;
+            if (number > this.last) {
+                next = 0L;
+            } else {
+                next = number;
+            }
+            return next;
+        }
+    }
+
+}
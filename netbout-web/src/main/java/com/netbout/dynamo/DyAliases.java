@@ -123,10 +123,10 @@ final class DyAliases implements Aliases {
         } else if (name.length() > Tv.TWENTY) {
             answer = "too long, must be 20 letters at most";
         } else if (name.matches("[a-z0-9]+")) {
-            if (new Everybody(this.region).occupied(name)) {
-                answer = "this alias is occupied";
-            } else {
+            if (new Everybody(this.region).free(name)) {
                 answer = "";
+            } else {
+                answer = "this alias is occupied";
             }
         } else {
             answer = "only English letters and numbers are accepted";
@@ -142,7 +142,8 @@ final class DyAliases implements Aliases {
         if (name.length() > Tv.HUNDRED) {
             throw new IllegalArgumentException("alias is too long");
         }
-        if (new Everybody(this.region).occupied(name)) {
+        final Everybody everybody = new Everybody(this.region);
+        if (everybody.occupied(name)) {
             throw new IllegalArgumentException(
                 String.format("alias '%s' is occupied", name)
             );
@@ -154,6 +155,7 @@ final class DyAliases implements Aliases {
                 .with(DyAliases.ATTR_PHOTO, Alias.BLANK)
                 .with(DyAliases.ATTR_LOCALE, Locale.ENGLISH)
         );
+        everybody.add(name);
         Logger.info(this, "alias @%s added to %s", name, this.urn);
     }
 
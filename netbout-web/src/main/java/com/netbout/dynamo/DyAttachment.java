@@ -26,12 +26,14 @@
  */
 package com.netbout.dynamo;
 
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.model.AttributeAction;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.amazonaws.services.dynamodbv2.model.AttributeValueUpdate;
-import com.amazonaws.services.s3.model.ObjectMetadata;
-import com.google.common.base.Predicate;
-import com.google.common.collect.Iterables;
+import com.amazonaws.services.dynamodbv2.model.ComparisonOperator;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
 import com.jcabi.aspects.Async;
 import com.jcabi.aspects.Cacheable;
 import com.jcabi.aspects.Immutable;
@@ -48,16 +50,18 @@ import com.jcabi.s3.Bucket;
 import com.jcabi.s3.mock.MkRegion;
 import com.netbout.spi.Attachment;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedList;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
-import org.apache.commons.codec.CharEncoding;
-import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.FileUtils;
 
 /**
  * Dynamo attachment.
@@ -166,23 +170,25 @@ final class DyAttachment implements Attachment {
     @Override
     public InputStream read() throws IOException {
         this.seen();
-        final byte[] bytes;
+        final InputStream stream;
         if (this.item.has(DyAttachments.ATTR_KEY)) {
-            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            this.bucket.ocket(
-                this.item.get(DyAttachments.ATTR_KEY).getS()
-            ).read(baos);
-            bytes = baos.toByteArray();
+            stream = new DyObject(
+                this.bucket, this.item.get(DyAttachments.ATTR_KEY).getS()
+            ).read();
         } else {
             final ByteBuffer buf =
                 this.item.get(DyAttachments.ATTR_DATA).getB();
             if (buf == null) {
-                bytes = "temporary unavailable".getBytes(CharEncoding.UTF_8);
-            } else {
-                bytes = buf.array();
+                throw new IOException(
+                    String.format(
+                        "content of attachment \"%s\" is not available",
+                        this.name()
+                    )
+                );
             }
+            stream = new ByteArrayInputStream(buf.array());
         }
-        return new ByteArrayInputStream(bytes);
+        return stream;
     }
 
     @Override
@@ -208,44 +214,43 @@ final class DyAttachment implements Attachment {
                 "ctype is too long, 100 bytes maximum allowed"
             );
         }
-        final byte[] data = IOUtils.toByteArray(stream);
-        if (data.length == 0) {
-            throw new Attachment.BrokenContentException(
-                String.format(
-                    "content of attachment \"%s\" can't be empty",
-                    this.name()
-                )
-            );
-        }
-        if (data.length > Tv.TEN * Tv.MILLION) {
-            throw new Attachment.TooBigException(
-                "attachment is too big, 10Mb is the maximum size"
-            );
-        }
-        if (!etag.equals(this.etag())) {
-            final AttributeUpdates updates = this.save(data, ctype)
-                .with(DyAttachments.ATTR_ETAG, etag);
-            this.item.put(updates);
-            this.updated();
-            Logger.info(
-                this, "attachment %s (%d bytes) uploaded into #%d by @%s",
-                this.name(), data.length, this.bout(), this.self
-            );
+        final File temp = DyAttachment.spool(stream);
+        try {
+            if (temp.length() == 0L) {
+                throw new Attachment.BrokenContentException(
+                    String.format(
+                        "content of attachment \"%s\" can't be empty",
+                        this.name()
+                    )
+                );
+            }
+            if (!etag.equals(this.etag())) {
+                final AttributeUpdates updates = this.save(temp, ctype)
+                    .with(DyAttachments.ATTR_ETAG, etag);
+                this.item.put(updates);
+                this.updated();
+                Logger.info(
+                    this, "attachment %s (%d bytes) uploaded into #%d by @%s",
+                    this.name(), temp.length(), this.bout(), this.self
+                );
+            }
+        } finally {
+            FileUtils.forceDelete(temp);
         }
     }
 
     /**
      * Save content.
-     * @param data Data to save
+     * @param file File with data to save
      * @param ctype CType
      * @return Updates to apply
      * @throws IOException If fails
      */
-    private AttributeUpdates save(final byte[] data, final String ctype)
+    private AttributeUpdates save(final File file, final String ctype)
         throws IOException {
         AttributeUpdates updates = new AttributeUpdates()
             .with(DyAttachments.ATTR_CTYPE, ctype);
-        if (data.length < DyAttachment.MAX_SIZE) {
+        if (file.length() < (long) DyAttachment.MAX_SIZE) {
             if (this.item.has(DyAttachments.ATTR_KEY)) {
                 this.bucket.remove(
                     this.item.get(DyAttachments.ATTR_KEY).getS()
@@ -253,7 +258,9 @@ final class DyAttachment implements Attachment {
             }
             updates = updates.with(
                 DyAttachments.ATTR_DATA,
-                new AttributeValue().withB(ByteBuffer.wrap(data))
+                new AttributeValue().withB(
+                    ByteBuffer.wrap(FileUtils.readFileToByteArray(file))
+                )
             );
             updates = updates.with(
                 DyAttachments.ATTR_KEY,
@@ -274,13 +281,7 @@ final class DyAttachment implements Attachment {
                     this.item.get(DyAttachments.RANGE).getS()
                 );
             }
-            final ObjectMetadata meta = new ObjectMetadata();
-            meta.setContentType(ctype);
-            meta.setContentLength((long) data.length);
-            this.bucket.ocket(key).write(
-                new ByteArrayInputStream(data),
-                meta
-            );
+            new DyObject(this.bucket, key).write(file, ctype);
             updates = updates
                 .with(DyAttachments.ATTR_DATA, key)
                 .with(DyAttachments.ATTR_KEY, key);
@@ -299,112 +300,138 @@ final class DyAttachment implements Attachment {
 
     /**
      * It was updated just now.
+     *
+     * <p>Every friend, except the author, gets the name of the attachment
+     * added to its set of unseen ones, by one atomic update, without
+     * reading the row first.
+     *
      * @throws IOException If fails
      */
     @Async
     private void updated() throws IOException {
-        Iterables.all(
-            this.region.table(DyFriends.TBL).frame()
-                .through(new QueryValve())
-                .where(DyFriends.HASH, Conditions.equalTo(this.bout())),
-            // @checkstyle AnonInnerLengthCheck (50 lines)
-            new Predicate<Item>() {
-                @Override
-                public boolean apply(final Item input) {
-                    AttributeUpdates updates = new AttributeUpdates().with(
-                        DyFriends.ATTR_UPDATED,
-                        System.currentTimeMillis()
+        final long number = this.bout();
+        final Iterable<Item> rows = this.region.table(DyFriends.TBL).frame()
+            .through(
+                new QueryValve().withAttributesToGet(
+                    DyFriends.HASH, DyFriends.RANGE
+                )
+            )
+            .where(DyFriends.HASH, Conditions.equalTo(number));
+        final Collection<String> friends = new LinkedList<String>();
+        for (final Item row : rows) {
+            friends.add(row.get(DyFriends.RANGE).getS());
+        }
+        final AttributeValueUpdate unseen = new AttributeValueUpdate()
+            .withAction(AttributeAction.ADD)
+            .withValue(new AttributeValue().withSS(this.name()));
+        final long now = System.currentTimeMillis();
+        final AmazonDynamoDB aws = this.region.aws();
+        try {
+            for (final String friend : friends) {
+                AttributeUpdates updates = new AttributeUpdates().with(
+                    DyFriends.ATTR_UPDATED, now
+                );
+                if (!friend.equals(this.self)) {
+                    updates = updates.with(DyFriends.ATTR_UNSEEN, unseen);
+                }
+                try {
+                    aws.updateItem(
+                        new UpdateItemRequest()
+                            .withTableName(
+                                this.region.table(DyFriends.TBL).name()
+                            )
+                            .withKey(DyFriends.key(number, friend))
+                            .withAttributeUpdates(updates)
+                            .withExpected(DyFriends.exists(friend))
                     );
-                    try {
-                        final String alias = input.get(DyFriends.RANGE).getS();
-                        if (!alias.equals(DyAttachment.this.self)) {
-                            final Set<String> list =
-                                DyAttachment.this.list(alias);
-                            list.add(DyAttachment.this.name());
-                            updates = updates.with(
-                                DyFriends.ATTR_UNSEEN,
-                                new AttributeValueUpdate()
-                                    .withAction(AttributeAction.PUT)
-                                    .withValue(
-                                        new AttributeValue().withSS(list)
-                                    )
-                            );
-                        }
-                        input.put(updates);
-                    } catch (final IOException ex) {
-                        throw new IllegalStateException(ex);
-                    }
-                    return true;
+                } catch (final ConditionalCheckFailedException ex) {
+                    Logger.debug(this, "@%s left #%d", friend, number);
                 }
             }
-        );
+        } finally {
+            aws.shutdown();
+        }
     }
 
     /**
      * It was seen just now.
+     *
+     * <p>The name of the attachment is removed from the set of unseen
+     * ones, by one atomic update, and only if it is there.
+     *
      * @throws IOException If fails
      */
     @Async
     private void seen() throws IOException {
-        Iterables.all(
-            this.region.table(DyFriends.TBL).frame()
-                .through(new QueryValve())
-                .where(DyFriends.HASH, Conditions.equalTo(this.bout()))
-                .where(DyFriends.RANGE, this.self),
-            new Predicate<Item>() {
-                @Override
-                public boolean apply(final Item input) {
-                    try {
-                        final Set<String> list =
-                            DyAttachment.this.list(DyAttachment.this.self);
-                        list.remove(DyAttachment.this.name());
-                        if (list.isEmpty()) {
-                            input.put(
-                                new AttributeUpdates().with(
-                                    DyFriends.ATTR_UNSEEN,
-                                    new AttributeValueUpdate().withAction(
-                                        AttributeAction.DELETE
-                                    )
+        final String name = this.name();
+        final AmazonDynamoDB aws = this.region.aws();
+        try {
+            aws.updateItem(
+                new UpdateItemRequest()
+                    .withTableName(this.region.table(DyFriends.TBL).name())
+                    .withKey(DyFriends.key(this.bout(), this.self))
+                    .withAttributeUpdates(
+                        new AttributeUpdates().with(
+                            DyFriends.ATTR_UNSEEN,
+                            new AttributeValueUpdate()
+                                .withAction(AttributeAction.DELETE)
+                                .withValue(new AttributeValue().withSS(name))
+                        )
+                    )
+                    .withExpected(
+                        Collections.singletonMap(
+                            DyFriends.ATTR_UNSEEN,
+                            new ExpectedAttributeValue()
+                                .withComparisonOperator(
+                                    ComparisonOperator.CONTAINS
                                 )
-                            );
-                        } else {
-                            input.put(
-                                new AttributeUpdates().with(
-                                    DyFriends.ATTR_UNSEEN,
-                                    new AttributeValueUpdate()
-                                        .withAction(AttributeAction.PUT)
-                                        .withValue(
-                                            new AttributeValue().withSS(list)
-                                        )
+                                .withAttributeValueList(
+                                    new AttributeValue().withS(name)
                                 )
-                            );
-                        }
-                    } catch (final IOException ex) {
-                        throw new IllegalStateException(ex);
-                    }
-                    return true;
-                }
-            }
-        );
+                        )
+                    )
+            );
+        } catch (final ConditionalCheckFailedException ex) {
+            Logger.debug(this, "%s was seen by @%s", name, this.self);
+        } finally {
+            aws.shutdown();
+        }
     }
 
     /**
-     * Existing list of unseen attachments.
-     * @param alias Alias
-     * @return List of attachments that are unseen
+     * Copy the stream into a temporary file, counting bytes.
+     * @param stream Stream to copy
+     * @return File
      * @throws IOException If fails
      */
-    private Set<String> list(final String alias) throws IOException {
-        final Item itm = this.region.table(DyFriends.TBL)
-            .frame().through(new QueryValve())
-            .where(DyFriends.HASH, Conditions.equalTo(this.bout()))
-            .where(DyFriends.RANGE, Conditions.equalTo(alias))
-            .iterator().next();
-        final Set<String> list = new HashSet<String>(0);
-        if (itm.has(DyFriends.ATTR_UNSEEN)) {
-            list.addAll(itm.get(DyFriends.ATTR_UNSEEN).getSS());
+    private static File spool(final InputStream stream) throws IOException {
+        final File temp = File.createTempFile("netbout", ".bin");
+        final OutputStream output = new FileOutputStream(temp);
+        boolean done = false;
+        try {
+            final byte[] buf = new byte[Tv.EIGHT * 1024];
+            long total = 0L;
+            while (true) {
+                final int len = stream.read(buf);
+                if (len < 0) {
+                    break;
+                }
+                total += (long) len;
+                if (total > (long) Tv.TEN * (long) Tv.MILLION) {
+                    throw new Attachment.TooBigException(
+                        "attachment is too big, 10Mb is the maximum size"
+                    );
+                }
+                output.write(buf, 0, len);
+            }
+            done = true;
+        } finally {
+            output.close();
+            if (!done) {
+                FileUtils.deleteQuietly(temp);
+            }
         }
-        return list;
+        return temp;
     }
 
     /**
@@ -61,20 +61,16 @@ public final class DyBase implements Base {
      * Public ctor.
      */
     public DyBase() {
-        final String key = Manifests.read("Netbout-DynamoKey");
-        Credentials creds = new Credentials.Simple(
-            key,
-            Manifests.read("Netbout-DynamoSecret")
-        );
-        if ("AAAAABBBBBAAAAABBBBB".equals(key)) {
-            creds = new Credentials.Direct(
-                creds, Integer.parseInt(System.getProperty("dynamo.port"))
-            );
-        }
-        this.region = new Region.Prefixed(
-            new ReRegion(new Region.Simple(creds)),
-            Manifests.read("Netbout-DynamoPrefix")
-        );
+        this(DyBase.region());
+    }
+
+    /**
+     * Ctor.
+     * @param reg Region we're in
+     * @since 2.16
+     */
+    DyBase(final Region reg) {
+        this.region = reg;
     }
 
     @Override
@@ -87,4 +83,45 @@ public final class DyBase implements Base {
         // nothing to do here
     }
 
+    /**
+     * Region configured in the manifest.
+     * @return Region
+     * @since 2.16
+     */
+    static Region region() {
+        return DyBase.region(DyBase.credentials());
+    }
+
+    /**
+     * Region configured in the manifest, with the given credentials.
+     * @param creds Credentials
+     * @return Region
+     * @since 2.16
+     */
+    static Region region(final Credentials creds) {
+        return new Region.Prefixed(
+            new ReRegion(new Region.Simple(creds)),
+            Manifests.read("Netbout-DynamoPrefix")
+        );
+    }
+
+    /**
+     * Credentials configured in the manifest.
+     * @return Credentials
+     * @since 2.16
+     */
+    static Credentials credentials() {
+        final String key = Manifests.read("Netbout-DynamoKey");
+        Credentials creds = new Credentials.Simple(
+            key,
+            Manifests.read("Netbout-DynamoSecret")
+        );
+        if ("AAAAABBBBBAAAAABBBBB".equals(key)) {
+            creds = new Credentials.Direct(
+                creds, Integer.parseInt(System.getProperty("dynamo.port"))
+            );
+        }
+        return creds;
+    }
+
 }
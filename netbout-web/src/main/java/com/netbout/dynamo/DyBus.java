@@ -0,0 +1,426 @@
+/**
+ * Copyright (c) 2009-2015, netbout.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are PROHIBITED without prior written permission from
+ * the author. This product may NOT be used anywhere and on any computer
+ * except the server platform of netbout Inc. located at www.netbout.com.
+ * Federal copyright law prohibits unauthorized reproduction by any means
+ * and imposes fines up to $25,000 for violation. If you received
+ * this code accidentally and without intent to use it, please report this
+ * incident to the author by email.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.netbout.dynamo;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ComparisonOperator;
+import com.amazonaws.services.dynamodbv2.model.Condition;
+import com.jcabi.aspects.Immutable;
+import com.jcabi.aspects.Loggable;
+import com.jcabi.aspects.Tv;
+import com.jcabi.dynamo.Attributes;
+import com.jcabi.dynamo.Item;
+import com.jcabi.dynamo.QueryValve;
+import com.jcabi.dynamo.Region;
+import com.jcabi.log.Logger;
+import com.jcabi.log.VerboseRunnable;
+import com.jcabi.log.VerboseThreads;
+import com.netbout.cached.Bus;
+import com.netbout.cached.Engine;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Bus of cache invalidations, on top of "changes" table.
+ *
+ * <p>Every publication is a row with the keys to invalidate, and
+ * every dyno polls the table every second for rows written by other
+ * dynos. Rows are spread over {@link #SHARDS} streams (hash keys) by
+ * hashes of their keys, so that neither writes nor reads hit one
+ * partition. A dyno polls the streams round-robin, one of them every
+ * 1/{@link #SHARDS} of a second, so every stream is polled once
+ * a second, as before, but every partition gets only its share of
+ * rows. Every dyno keeps its own cursor in every stream, the moment of
+ * its last successful poll, and reads all rows written since then, and
+ * {@link #LAG} milliseconds more (to tolerate clocks which are not
+ * perfectly synchronized). If a poll is delayed or fails, the next one
+ * catches up from the same cursor. Rows are removed by DynamoDB TTL, by
+ * their "expires" attribute, after {@link #LIFETIME} milliseconds. If
+ * the cursor is older than that, some rows may be gone already, and the
+ * listener is asked to flush everything.
+ *
+ * @author Yegor Bugayenko (yegor@teamed.io)
+ * @version $Id$
+ * @since 2.16
+ * @checkstyle ClassDataAbstractionCouplingCheck (500 lines)
+ */
+@Immutable
+@Loggable(Loggable.DEBUG)
+@ToString(of = "dyno")
+@EqualsAndHashCode(of = { "region", "dyno" })
+@SuppressWarnings("PMD.ExcessiveImports")
+public final class DyBus implements Bus {
+
+    /**
+     * Table name.
+     */
+    public static final String TBL = "changes";
+
+    /**
+     * Stream attribute.
+     */
+    public static final String HASH = "stream";
+
+    /**
+     * ID of the change, starting with its time.
+     */
+    public static final String RANGE = "id";
+
+    /**
+     * Keys to invalidate.
+     */
+    public static final String ATTR_KEYS = "keys";
+
+    /**
+     * Dyno that published the change.
+     */
+    public static final String ATTR_DYNO = "dyno";
+
+    /**
+     * When the row may be removed, in seconds since epoch.
+     */
+    public static final String ATTR_EXPIRES = "expires";
+
+    /**
+     * How many streams there are.
+     */
+    static final int SHARDS = Tv.EIGHT;
+
+    /**
+     * How far back in time to look for changes, in milliseconds.
+     */
+    private static final long LAG = TimeUnit.SECONDS.toMillis(Tv.TEN);
+
+    /**
+     * How long rows are kept, in milliseconds.
+     */
+    private static final long LIFETIME = TimeUnit.HOURS.toMillis(1L);
+
+    /**
+     * This dyno.
+     */
+    private static final String ME = UUID.randomUUID().toString();
+
+    /**
+     * Region to work with.
+     */
+    private final transient Region region;
+
+    /**
+     * Name of this dyno.
+     */
+    private final transient String dyno;
+
+    /**
+     * Public ctor.
+     */
+    public DyBus() {
+        this(DyBase.region(), DyBus.ME);
+    }
+
+    /**
+     * Ctor.
+     * @param reg Region
+     * @param name Name of this dyno
+     */
+    DyBus(final Region reg, final String name) {
+        this.region = reg;
+        this.dyno = name;
+    }
+
+    @Override
+    public void publish(final Collection<Engine.Key> keys)
+        throws IOException {
+        if (!keys.isEmpty()) {
+            final Map<Integer, Collection<String>> shards =
+                new HashMap<Integer, Collection<String>>(0);
+            for (final Engine.Key key : keys) {
+                final int shard = Math.abs(key.hashCode() % DyBus.SHARDS);
+                if (!shards.containsKey(shard)) {
+                    shards.put(shard, new ArrayList<String>(keys.size()));
+                }
+                shards.get(shard).add(DyBus.encode(key));
+            }
+            final long now = System.currentTimeMillis();
+            for (final Map.Entry<Integer, Collection<String>> shard
+                : shards.entrySet()) {
+                this.region.table(DyBus.TBL).put(
+                    new Attributes()
+                        .with(DyBus.HASH, DyBus.stream(shard.getKey()))
+                        .with(
+                            DyBus.RANGE,
+                            String.format(
+                                "%s-%s", DyBus.moment(now), UUID.randomUUID()
+                            )
+                        )
+                        .with(
+                            DyBus.ATTR_KEYS,
+                            new AttributeValue().withSS(shard.getValue())
+                        )
+                        .with(DyBus.ATTR_DYNO, this.dyno)
+                        .with(
+                            DyBus.ATTR_EXPIRES,
+                            TimeUnit.MILLISECONDS.toSeconds(
+                                now + DyBus.LIFETIME
+                            )
+                        )
+                );
+            }
+        }
+    }
+
+    @Override
+    public void listen(final Bus.Listener listener) {
+        Executors.newSingleThreadScheduledExecutor(
+            new VerboseThreads(DyBus.class)
+        ).scheduleWithFixedDelay(
+            new VerboseRunnable(new DyBus.Poll(this, listener), true),
+            1L, TimeUnit.SECONDS.toMillis(1L) / DyBus.SHARDS,
+            TimeUnit.MILLISECONDS
+        );
+    }
+
+    /**
+     * Keys published by other dynos to the stream after the given moment.
+     * @param shard Number of the stream
+     * @param start The moment, in milliseconds
+     * @param seen IDs of changes already delivered, which are skipped
+     *  and updated
+     * @return Keys
+     * @throws IOException If fails
+     */
+    private Collection<Engine.Key> changes(final int shard, final long start,
+        final Map<String, Long> seen) throws IOException {
+        final Collection<Engine.Key> keys = new LinkedList<Engine.Key>();
+        final Iterable<Item> items = this.region.table(DyBus.TBL).frame()
+            .through(
+                new QueryValve().withAttributesToGet(
+                    DyBus.RANGE, DyBus.ATTR_KEYS, DyBus.ATTR_DYNO
+                )
+            )
+            .where(DyBus.HASH, DyBus.stream(shard))
+            .where(
+                DyBus.RANGE,
+                new Condition()
+                    .withComparisonOperator(ComparisonOperator.GT)
+                    .withAttributeValueList(
+                        new AttributeValue().withS(DyBus.moment(start))
+                    )
+            );
+        for (final Item item : items) {
+            final String id = item.get(DyBus.RANGE).getS();
+            if (!seen.containsKey(id)
+                && !this.dyno.equals(item.get(DyBus.ATTR_DYNO).getS())) {
+                for (final String text : item.get(DyBus.ATTR_KEYS).getSS()) {
+                    keys.add(DyBus.decode(text));
+                }
+            }
+            seen.put(id, System.currentTimeMillis());
+        }
+        return keys;
+    }
+
+    /**
+     * Name of the stream.
+     * @param shard Number of it
+     * @return Hash key
+     */
+    private static String stream(final int shard) {
+        return String.format("cache-%d", shard);
+    }
+
+    /**
+     * Moment as a text, which can be compared alphabetically.
+     * @param time Time in milliseconds
+     * @return Text
+     */
+    private static String moment(final long time) {
+        return String.format("%013d", time);
+    }
+
+    /**
+     * Encode the key to text.
+     *
+     * <p>Every part is its type ("s" or "n"), its length and its value,
+     * for example {@code ("bout", 5L, "title")} is
+     * {@code "s4:bout n1:5 s5:title"}.
+     *
+     * @param key The key
+     * @return Text
+     */
+    static String encode(final Engine.Key key) {
+        final StringBuilder text = new StringBuilder(0);
+        DyBus.append(text, 's', key.region());
+        for (final Object part : key.parts()) {
+            text.append(' ');
+            if (part instanceof Long) {
+                DyBus.append(text, 'n', part.toString());
+            } else if (part instanceof String) {
+                DyBus.append(text, 's', part.toString());
+            } else {
+                throw new IllegalArgumentException(
+                    String.format("can't publish %s in %s", part, key)
+                );
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Decode the key from text.
+     * @param text Text made by {@link #encode(Engine.Key)}
+     * @return The key
+     */
+    static Engine.Key decode(final String text) {
+        final List<Object> parts = new LinkedList<Object>();
+        int pos = 0;
+        while (pos < text.length()) {
+            final char type = text.charAt(pos);
+            final int colon = text.indexOf(':', pos);
+            final int start = colon + 1;
+            final int end = start + Integer.parseInt(
+                text.substring(pos + 1, colon)
+            );
+            final String value = text.substring(start, end);
+            if (type == 'n') {
+                parts.add(Long.parseLong(value));
+            } else {
+                parts.add(value);
+            }
+            pos = end + 1;
+        }
+        final Iterator<Object> iterator = parts.iterator();
+        final String region = iterator.next().toString();
+        iterator.remove();
+        return new Engine.Key(region, parts.toArray());
+    }
+
+    /**
+     * Append one part to the text.
+     * @param text Text
+     * @param type Type of the part
+     * @param value Value of it
+     */
+    private static void append(final StringBuilder text, final char type,
+        final String value) {
+        text.append(type).append(value.length()).append(':').append(value);
+    }
+
+    /**
+     * Poll of the table, from the cursors of this dyno, one stream
+     * at a time, round-robin.
+     */
+    static final class Poll implements Runnable {
+        /**
+         * The bus.
+         */
+        private final transient DyBus bus;
+        /**
+         * Listener.
+         */
+        private final transient Bus.Listener listener;
+        /**
+         * IDs of changes already delivered, and when they were seen.
+         */
+        private final transient Map<String, Long> seen =
+            new HashMap<String, Long>(0);
+        /**
+         * Moments of the last successful polls of the streams,
+         * in milliseconds.
+         */
+        private final transient long[] cursors;
+        /**
+         * Number of the stream to poll next.
+         */
+        private transient int next;
+        /**
+         * Ctor.
+         * @param bse The bus
+         * @param lstnr Listener
+         */
+        Poll(final DyBus bse, final Bus.Listener lstnr) {
+            this(bse, lstnr, System.currentTimeMillis());
+        }
+        /**
+         * Ctor.
+         * @param bse The bus
+         * @param lstnr Listener
+         * @param last Moment of the last poll of every stream,
+         *  in milliseconds
+         */
+        Poll(final DyBus bse, final Bus.Listener lstnr, final long last) {
+            this.bus = bse;
+            this.listener = lstnr;
+            this.cursors = new long[DyBus.SHARDS];
+            Arrays.fill(this.cursors, last);
+        }
+        @Override
+        public void run() {
+            final int shard = this.next;
+            this.next = (shard + 1) % DyBus.SHARDS;
+            final long now = System.currentTimeMillis();
+            if (now - this.cursors[shard] + DyBus.LAG > DyBus.LIFETIME) {
+                Logger.warn(
+                    this, "stream #%d was not polled for %[ms]s, flushing",
+                    shard, now - this.cursors[shard]
+                );
+                this.listener.flush();
+                Arrays.fill(this.cursors, now);
+            }
+            final long start = this.cursors[shard] - DyBus.LAG;
+            final Iterator<Long> times = this.seen.values().iterator();
+            while (times.hasNext()) {
+                if (times.next() < start - DyBus.LAG) {
+                    times.remove();
+                }
+            }
+            try {
+                final Collection<Engine.Key> keys =
+                    this.bus.changes(shard, start, this.seen);
+                if (!keys.isEmpty()) {
+                    this.listener.invalidate(keys);
+                }
+            } catch (final IOException ex) {
+                throw new IllegalStateException(ex);
+            }
+            this.cursors[shard] = now;
+        }
+    }
+
+}
@@ -0,0 +1,265 @@
+/**
+ * Copyright (c) 2009-2015, netbout.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are PROHIBITED without prior written permission from
+ * the author. This product may NOT be used anywhere and on any computer
+ * except the server platform of netbout Inc. located at www.netbout.com.
+ * Federal copyright law prohibits unauthorized reproduction by any means
+ * and imposes fines up to $25,000 for violation. If you received
+ * this code accidentally and without intent to use it, please report this
+ * incident to the author by email.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.netbout.dynamo;
+
+import co.stateful.Counter;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeAction;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.AttributeValueUpdate;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.ReturnValue;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.jcabi.aspects.Immutable;
+import com.jcabi.aspects.Loggable;
+import com.jcabi.aspects.Tv;
+import com.jcabi.dynamo.AttributeUpdates;
+import com.jcabi.dynamo.Attributes;
+import com.jcabi.dynamo.Region;
+import com.jcabi.log.Logger;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Counter of unique numbers, in "counters" table.
+ *
+ * <p>Numbers are leased from DynamoDB in blocks, by one atomic ADD,
+ * and then handed out from memory. Every dyno leases its own blocks, so
+ * numbers are unique across dynos and restarts, but they are not
+ * strictly sequential: a block not used till the end is lost.
+ *
+ * <p>The counter item is created on first use, starting a hundred
+ * thousand numbers after the value of the stateful.co counter it
+ * replaces. During a rolling deploy, dynos of the previous version still
+ * take numbers from stateful.co, one by one, and the gap keeps them from
+ * colliding with the numbers leased here. The stateful.co counter is not
+ * used after the deploy.
+ *
+ * @author Yegor Bugayenko (yegor@teamed.io)
+ * @version $Id$
+ * @since 2.16
+ * @checkstyle ClassDataAbstractionCouplingCheck (500 lines)
+ */
+@Immutable
+@Loggable(Loggable.DEBUG)
+@ToString(of = "name")
+@EqualsAndHashCode(of = { "region", "name", "size" })
+@SuppressWarnings("PMD.ExcessiveImports")
+final class DyCounter {
+
+    /**
+     * Table name.
+     */
+    public static final String TBL = "counters";
+
+    /**
+     * Name attribute.
+     */
+    public static final String HASH = "name";
+
+    /**
+     * Last leased number.
+     */
+    public static final String ATTR_VALUE = "value";
+
+    /**
+     * Numbers left to the stateful.co counter, for dynos of the previous
+     * version, until they are stopped.
+     */
+    private static final long GAP = (long) (Tv.HUNDRED * Tv.THOUSAND);
+
+    /**
+     * Region to work with.
+     */
+    private final transient Region region;
+
+    /**
+     * Name of the counter.
+     */
+    private final transient String name;
+
+    /**
+     * Counter to start from, if there is no item in the table yet.
+     */
+    private final transient Counter seed;
+
+    /**
+     * How many numbers to lease at once.
+     */
+    private final transient long size;
+
+    /**
+     * Ctor.
+     * @param reg Region
+     * @param label Name of the counter
+     * @param start Counter to start from
+     */
+    DyCounter(final Region reg, final String label, final Counter start) {
+        this(reg, label, start, (long) Tv.THOUSAND);
+    }
+
+    /**
+     * Ctor.
+     * @param reg Region
+     * @param label Name of the counter
+     * @param start Counter to start from
+     * @param block How many numbers to lease at once
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    DyCounter(final Region reg, final String label, final Counter start,
+        final long block) {
+        this.region = reg;
+        this.name = label;
+        this.seed = start;
+        this.size = block;
+    }
+
+    /**
+     * Next unique number.
+     * @return Number
+     * @throws IOException If fails
+     */
+    public long next() throws IOException {
+        final String key = String.format(
+            "%s:%s", this.region.table(DyCounter.TBL).name(), this.name
+        );
+        return Blocks.next(
+            key, this.size,
+            new Blocks.Lease() {
+                @Override
+                public long last() throws IOException {
+                    return DyCounter.this.lease();
+                }
+            }
+        );
+    }
+
+    /**
+     * Forget all leased blocks, as if the dyno was restarted.
+     */
+    static void forget() {
+        Blocks.clear();
+    }
+
+    /**
+     * Lease next block.
+     * @return Last number in the block
+     * @throws IOException If fails
+     */
+    private long lease() throws IOException {
+        final AmazonDynamoDB aws = this.region.aws();
+        try {
+            Map<String, AttributeValue> attrs;
+            try {
+                attrs = this.add(aws);
+            } catch (final ConditionalCheckFailedException ex) {
+                this.create(aws);
+                attrs = this.add(aws);
+            }
+            final long last = Long.parseLong(
+                attrs.get(DyCounter.ATTR_VALUE).getN()
+            );
+            Logger.info(
+                this, "%d numbers leased from \"%s\", up to %d",
+                this.size, this.name, last
+            );
+            return last;
+        } finally {
+            aws.shutdown();
+        }
+    }
+
+    /**
+     * Add block size to the counter.
+     * @param aws AWS client
+     * @return New attributes of the counter item
+     */
+    private Map<String, AttributeValue> add(final AmazonDynamoDB aws) {
+        return aws.updateItem(
+            new UpdateItemRequest()
+                .withTableName(this.region.table(DyCounter.TBL).name())
+                .withKey(new Attributes().with(DyCounter.HASH, this.name))
+                .withAttributeUpdates(
+                    new AttributeUpdates().with(
+                        DyCounter.ATTR_VALUE,
+                        new AttributeValueUpdate()
+                            .withAction(AttributeAction.ADD)
+                            .withValue(
+                                new AttributeValue().withN(
+                                    Long.toString(this.size)
+                                )
+                            )
+                    )
+                )
+                .withExpected(
+                    Collections.singletonMap(
+                        DyCounter.ATTR_VALUE,
+                        new ExpectedAttributeValue().withExists(true)
+                    )
+                )
+                .withReturnValues(ReturnValue.UPDATED_NEW)
+        ).getAttributes();
+    }
+
+    /**
+     * Create the counter item, if it doesn't exist yet.
+     * @param aws AWS client
+     * @throws IOException If fails
+     */
+    private void create(final AmazonDynamoDB aws) throws IOException {
+        final long start = this.seed.incrementAndGet(0L) + DyCounter.GAP;
+        try {
+            aws.putItem(
+                new PutItemRequest()
+                    .withTableName(this.region.table(DyCounter.TBL).name())
+                    .withItem(
+                        new Attributes()
+                            .with(DyCounter.HASH, this.name)
+                            .with(DyCounter.ATTR_VALUE, start)
+                    )
+                    .withExpected(
+                        Collections.singletonMap(
+                            DyCounter.HASH,
+                            new ExpectedAttributeValue().withExists(false)
+                        )
+                    )
+            );
+            Logger.info(
+                this, "counter \"%s\" created, starting from %d",
+                this.name, start
+            );
+        } catch (final ConditionalCheckFailedException ex) {
+            Logger.debug(this, "counter \"%s\" already exists", this.name);
+        }
+    }
+
+}
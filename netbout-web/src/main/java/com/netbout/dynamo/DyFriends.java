@@ -26,22 +26,36 @@
  */
 package com.netbout.dynamo;
 
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeAction;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
-import com.google.common.base.Function;
-import com.google.common.collect.Iterables;
+import com.amazonaws.services.dynamodbv2.model.AttributeValueUpdate;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.ReturnValue;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
 import com.jcabi.aspects.Immutable;
 import com.jcabi.aspects.Loggable;
 import com.jcabi.aspects.Tv;
+import com.jcabi.dynamo.AttributeUpdates;
 import com.jcabi.dynamo.Attributes;
 import com.jcabi.dynamo.Conditions;
 import com.jcabi.dynamo.Item;
-import com.jcabi.dynamo.QueryValve;
 import com.jcabi.dynamo.Region;
 import com.jcabi.log.Logger;
 import com.netbout.spi.Friend;
 import com.netbout.spi.Friends;
 import java.io.IOException;
-import java.util.Iterator;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.TreeSet;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 import org.apache.commons.lang3.StringUtils;
@@ -49,14 +63,23 @@ import org.apache.commons.lang3.StringUtils;
 /**
  * Dynamo friends.
  *
+ * <p>Every row of the bout keeps aliases of all its participants, see
+ * {@link #ATTR_FRIENDS}. The set is changed by single elements, by
+ * conditional updates, which never create rows of friends who left.
+ * Rows where the set is known to be complete are marked by
+ * {@link #ATTR_COMPLETE}, others are completed before they are
+ * marked, see {@link #complete(Region, long)}.
+ *
  * @author Yegor Bugayenko (yegor@teamed.io)
  * @version $Id$
  * @since 2.0
+ * @checkstyle ClassDataAbstractionCouplingCheck (500 lines)
  */
 @Immutable
 @Loggable(Loggable.DEBUG)
 @ToString(of = "item")
 @EqualsAndHashCode(of = { "region", "item" })
+@SuppressWarnings("PMD.ExcessiveImports")
 final class DyFriends implements Friends {
 
     /**
@@ -90,15 +113,37 @@ final class DyFriends implements Friends {
     public static final String ATTR_UPDATED = "updated";
 
     /**
-     * How many messages unread here.
+     * How many messages unread here (before "seen" was introduced).
      */
     public static final String ATTR_UNREAD = "unread";
 
+    /**
+     * How many messages of the bout were seen, see {@link DyHead}.
+     */
+    public static final String ATTR_SEEN = "seen";
+
+    /**
+     * How many messages are unread here, as counted in the total of
+     * the alias, see {@link DyUnread}.
+     */
+    public static final String ATTR_PENDING = "pending";
+
     /**
      * Names of attachments that are not seen yet.
      */
     public static final String ATTR_UNSEEN = "unseen";
 
+    /**
+     * Aliases of all participants of the bout (denormalized into every
+     * row, in order to render the inbox with a single query).
+     */
+    public static final String ATTR_FRIENDS = "friends";
+
+    /**
+     * Marker of a row where {@link #ATTR_FRIENDS} is complete.
+     */
+    public static final String ATTR_COMPLETE = "complete";
+
     /**
      * Region to work with.
      */
@@ -127,64 +172,356 @@ final class DyFriends implements Friends {
                 String.format("alias '%s' doesn't exist", friend)
             );
         }
-        this.region.table(DyFriends.TBL).put(
-            new Attributes()
-                .with(DyFriends.HASH, this.bout())
-                .with(DyFriends.RANGE, alias)
-                .with(DyFriends.ATTR_TITLE, this.item.get(DyFriends.ATTR_TITLE))
-                .with(DyFriends.ATTR_UPDATED, System.currentTimeMillis())
+        final long bout = this.bout();
+        final Collection<String> members = DyFriends.members(
+            this.region, bout
         );
-        Logger.info(this, "@%s invited to #%s", friend, this.bout().getN());
+        members.add(alias);
+        boolean created = true;
+        final AmazonDynamoDB aws = this.region.aws();
+        try {
+            aws.putItem(
+                new PutItemRequest()
+                    .withTableName(this.region.table(DyFriends.TBL).name())
+                    .withItem(
+                        DyFriends.key(bout, alias)
+                            .with(
+                                DyFriends.ATTR_TITLE,
+                                this.item.get(DyFriends.ATTR_TITLE)
+                            )
+                            .with(
+                                DyFriends.ATTR_UPDATED,
+                                System.currentTimeMillis()
+                            )
+                            .with(
+                                DyFriends.ATTR_SEEN,
+                                new DyHead(this.region, bout).total()
+                            )
+                            .with(DyFriends.ATTR_PENDING, 0L)
+                            .with(
+                                DyFriends.ATTR_FRIENDS,
+                                new AttributeValue().withSS(members)
+                            )
+                    )
+                    .withExpected(
+                        Collections.singletonMap(
+                            DyFriends.RANGE,
+                            new ExpectedAttributeValue().withExists(false)
+                        )
+                    )
+            );
+        } catch (final ConditionalCheckFailedException ex) {
+            Logger.debug(this, "@%s is already in #%d", alias, bout);
+            created = false;
+        } finally {
+            aws.shutdown();
+        }
+        if (created) {
+            DyFriends.share(this.region, bout, alias, AttributeAction.ADD);
+            Logger.info(this, "@%s invited to #%d", friend, bout);
+        }
     }
 
     @Override
     public void kick(final String friend) throws IOException {
         final String alias = DyFriends.clean(friend);
-        final Iterator<Item> items = this.region.table(DyFriends.TBL).frame()
-            .through(new QueryValve())
-            .where(DyFriends.HASH, Conditions.equalTo(this.bout()))
-            .where(DyFriends.RANGE, alias)
-            .iterator();
-        if (!items.hasNext()) {
+        final long bout = this.bout();
+        final AmazonDynamoDB aws = this.region.aws();
+        final Map<String, AttributeValue> old;
+        try {
+            old = aws.deleteItem(
+                new DeleteItemRequest()
+                    .withTableName(this.region.table(DyFriends.TBL).name())
+                    .withKey(DyFriends.key(bout, alias))
+                    .withReturnValues(ReturnValue.ALL_OLD)
+            ).getAttributes();
+        } finally {
+            aws.shutdown();
+        }
+        if (old == null) {
             throw new Friends.UnknownAliasException(
                 String.format("alias '%s' is not in the bout", friend)
             );
         }
-        items.next();
-        items.remove();
-        Logger.info(this, "@%s kicked off #%s", friend, this.bout().getN());
+        new DyUnread(this.region, alias).add(-DyUnread.pending(old));
+        DyFriends.share(this.region, bout, alias, AttributeAction.DELETE);
+        Logger.info(this, "@%s kicked off #%d", friend, bout);
     }
 
     @Override
     public Iterable<Friend> iterate() throws IOException {
-        return Iterables.transform(
-            this.region.table(DyFriends.TBL)
-                .frame()
-                .through(new QueryValve())
-                .where(DyFriends.HASH, Conditions.equalTo(this.bout())),
-            new Function<Item, Friend>() {
-                @Override
-                public Friend apply(final Item input) {
-                    try {
-                        return new DyFriend(
-                            DyFriends.this.region,
-                            input.get(DyFriends.RANGE).getS()
+        return new DyProfiles(this.region).fetch(
+            DyFriends.members(this.region, this.bout())
+        );
+    }
+
+    /**
+     * The bout we're in.
+     * @return Bout number
+     * @throws IOException If fails
+     */
+    private long bout() throws IOException {
+        return Long.parseLong(this.item.get(DyFriends.HASH).getN());
+    }
+
+    /**
+     * Aliases of all participants of the bout.
+     * @param region Region
+     * @param bout Bout number
+     * @return Aliases
+     */
+    static Collection<String> members(final Region region, final long bout) {
+        final Collection<String> members = new TreeSet<String>();
+        for (final Map<String, AttributeValue> row
+            : DyFriends.rows(region, bout)) {
+            members.add(row.get(DyFriends.RANGE).getS());
+        }
+        return members;
+    }
+
+    /**
+     * Make the list of participants complete in all rows of the bout
+     * where it is not marked as such.
+     * @param region Region
+     * @param bout Bout number
+     */
+    static void complete(final Region region, final long bout) {
+        final Collection<String> members = new TreeSet<String>();
+        final Collection<String> partial = new LinkedList<String>();
+        for (final Map<String, AttributeValue> row
+            : DyFriends.rows(region, bout)) {
+            final String alias = row.get(DyFriends.RANGE).getS();
+            members.add(alias);
+            if (!row.containsKey(DyFriends.ATTR_COMPLETE)) {
+                partial.add(alias);
+            }
+        }
+        DyFriends.complete(region, bout, partial, members);
+    }
+
+    /**
+     * Add the alias to the list of participants in all rows of the bout,
+     * or delete it from there.
+     *
+     * <p>The list is changed by a single element, never replaced, so
+     * concurrent invites and kicks don't lose each other's changes.
+     * Rows that are not complete yet are completed instead.
+     *
+     * @param region Region
+     * @param bout Bout number
+     * @param alias Alias of the participant
+     * @param action ADD or DELETE
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    private static void share(final Region region, final long bout,
+        final String alias, final AttributeAction action) {
+        final Collection<String> members = new TreeSet<String>();
+        final Collection<String> partial = new LinkedList<String>();
+        final AmazonDynamoDB aws = region.aws();
+        try {
+            for (final Map<String, AttributeValue> row
+                : DyFriends.rows(region, bout)) {
+                final String friend = row.get(DyFriends.RANGE).getS();
+                members.add(friend);
+                if (row.containsKey(DyFriends.ATTR_COMPLETE)) {
+                    DyFriends.update(
+                        aws,
+                        DyFriends.request(region, bout, friend)
+                            .withAttributeUpdates(
+                                DyFriends.change(
+                                    action, Collections.singleton(alias)
+                                )
+                            )
+                    );
+                } else {
+                    partial.add(friend);
+                }
+            }
+        } finally {
+            aws.shutdown();
+        }
+        DyFriends.complete(region, bout, partial, members);
+    }
+
+    /**
+     * Make the list of participants complete in the rows and mark them.
+     *
+     * <p>All participants known before are added to the rows first,
+     * then the participants are loaded again and those who left in
+     * the meantime, or were in the rows from the very beginning and
+     * left before, are deleted from them, together with marking. All
+     * changes made by others after the second load are applied
+     * to the rows anyway, whether they are marked already or not.
+     *
+     * @param region Region
+     * @param bout Bout number
+     * @param partial Aliases of the rows to complete
+     * @param members Aliases of all participants, loaded before
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    private static void complete(final Region region, final long bout,
+        final Collection<String> partial, final Collection<String> members) {
+        if (!partial.isEmpty()) {
+            final Map<String, Collection<String>> sets =
+                new HashMap<String, Collection<String>>(partial.size());
+            final AmazonDynamoDB aws = region.aws();
+            try {
+                for (final String friend : partial) {
+                    final Map<String, AttributeValue> attrs = DyFriends.update(
+                        aws,
+                        DyFriends.request(region, bout, friend)
+                            .withAttributeUpdates(
+                                DyFriends.change(AttributeAction.ADD, members)
+                            )
+                    );
+                    if (!attrs.isEmpty()) {
+                        sets.put(
+                            friend, attrs.get(DyFriends.ATTR_FRIENDS).getSS()
                         );
-                    } catch (final IOException ex) {
-                        throw new IllegalStateException(ex);
                     }
                 }
+                final Collection<String> after = DyFriends.members(
+                    region, bout
+                );
+                for (final Map.Entry<String, Collection<String>> set
+                    : sets.entrySet()) {
+                    final Collection<String> gone =
+                        new TreeSet<String>(set.getValue());
+                    gone.removeAll(after);
+                    AttributeUpdates updates = new AttributeUpdates().with(
+                        DyFriends.ATTR_COMPLETE, 1L
+                    );
+                    if (!gone.isEmpty()) {
+                        updates = DyFriends.change(
+                            AttributeAction.DELETE, gone
+                        ).with(DyFriends.ATTR_COMPLETE, 1L);
+                    }
+                    DyFriends.update(
+                        aws,
+                        DyFriends.request(region, bout, set.getKey())
+                            .withAttributeUpdates(updates)
+                    );
+                }
+            } finally {
+                aws.shutdown();
             }
+        }
+    }
+
+    /**
+     * All rows of the bout, with their aliases and completion marks.
+     * @param region Region
+     * @param bout Bout number
+     * @return Rows
+     */
+    private static Collection<Map<String, AttributeValue>> rows(
+        final Region region, final long bout) {
+        final Collection<Map<String, AttributeValue>> rows =
+            new LinkedList<Map<String, AttributeValue>>();
+        final AmazonDynamoDB aws = region.aws();
+        try {
+            Map<String, AttributeValue> start = null;
+            do {
+                final QueryResult result = aws.query(
+                    new QueryRequest()
+                        .withTableName(region.table(DyFriends.TBL).name())
+                        .withKeyConditions(
+                            new Conditions().with(
+                                DyFriends.HASH, Conditions.equalTo(bout)
+                            )
+                        )
+                        .withAttributesToGet(
+                            DyFriends.RANGE, DyFriends.ATTR_COMPLETE
+                        )
+                        .withConsistentRead(true)
+                        .withExclusiveStartKey(start)
+                );
+                rows.addAll(result.getItems());
+                start = result.getLastEvaluatedKey();
+            } while (start != null);
+        } finally {
+            aws.shutdown();
+        }
+        return rows;
+    }
+
+    /**
+     * Change of the list of participants.
+     * @param action ADD or DELETE
+     * @param aliases Aliases to add or delete
+     * @return Updates
+     */
+    private static AttributeUpdates change(final AttributeAction action,
+        final Collection<String> aliases) {
+        return new AttributeUpdates().with(
+            DyFriends.ATTR_FRIENDS,
+            new AttributeValueUpdate()
+                .withAction(action)
+                .withValue(new AttributeValue().withSS(aliases))
         );
     }
 
     /**
-     * The bout we're in.
-     * @return Bout number
-     * @throws IOException If fails
+     * Request to update a row, only if it exists, returning the new
+     * values of the attributes updated.
+     * @param region Region
+     * @param bout Bout number
+     * @param alias Alias of the friend
+     * @return Request
      */
-    private AttributeValue bout() throws IOException {
-        return this.item.get(DyFriends.HASH);
+    private static UpdateItemRequest request(final Region region,
+        final long bout, final String alias) {
+        return new UpdateItemRequest()
+            .withTableName(region.table(DyFriends.TBL).name())
+            .withKey(DyFriends.key(bout, alias))
+            .withExpected(DyFriends.exists(alias))
+            .withReturnValues(ReturnValue.UPDATED_NEW);
+    }
+
+    /**
+     * Update a row, if it still exists.
+     * @param aws AWS client
+     * @param request The request
+     * @return New values of the attributes updated, or empty if the row
+     *  is gone
+     */
+    private static Map<String, AttributeValue> update(
+        final AmazonDynamoDB aws, final UpdateItemRequest request) {
+        Map<String, AttributeValue> attrs;
+        try {
+            attrs = aws.updateItem(request).getAttributes();
+        } catch (final ConditionalCheckFailedException ex) {
+            Logger.debug(DyFriends.class, "%s is gone", request.getKey());
+            attrs = Collections.emptyMap();
+        }
+        return attrs;
+    }
+
+    /**
+     * Key of a row in "friends" table.
+     * @param bout Bout number
+     * @param alias Alias of the friend
+     * @return Key
+     */
+    static Attributes key(final long bout, final String alias) {
+        return new Attributes()
+            .with(DyFriends.HASH, bout)
+            .with(DyFriends.RANGE, alias);
+    }
+
+    /**
+     * Expect the row in "friends" table to exist, in order not to
+     * create rows of friends who left the bout.
+     * @param alias Alias of the friend
+     * @return Expected values
+     */
+    static Map<String, ExpectedAttributeValue> exists(final String alias) {
+        return Collections.singletonMap(
+            DyFriends.RANGE,
+            new ExpectedAttributeValue().withValue(
+                new AttributeValue().withS(alias)
+            )
+        );
     }
 
     /**
@@ -0,0 +1,584 @@
+/**
+ * Copyright (c) 2009-2015, netbout.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are PROHIBITED without prior written permission from
+ * the author. This product may NOT be used anywhere and on any computer
+ * except the server platform of netbout Inc. located at www.netbout.com.
+ * Federal copyright law prohibits unauthorized reproduction by any means
+ * and imposes fines up to $25,000 for violation. If you received
+ * this code accidentally and without intent to use it, please report this
+ * incident to the author by email.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.netbout.dynamo;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeAction;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.AttributeValueUpdate;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.ComparisonOperator;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.Select;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.google.common.collect.Iterables;
+import com.jcabi.aspects.Immutable;
+import com.jcabi.aspects.Loggable;
+import com.jcabi.dynamo.AttributeUpdates;
+import com.jcabi.dynamo.Attributes;
+import com.jcabi.dynamo.Conditions;
+import com.jcabi.dynamo.Item;
+import com.jcabi.dynamo.QueryValve;
+import com.jcabi.dynamo.Region;
+import com.jcabi.log.Logger;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Head record of a bout, in "bouts" table.
+ *
+ * <p>The head keeps the total number of messages ever posted to the bout,
+ * while every row in "friends" table keeps the number of messages its
+ * alias has already seen. The difference between them is the number
+ * of unread messages, so posting a message changes only the head.
+ *
+ * <p>The head also keeps the number of the latest message, which
+ * new messages are numbered after, see {@link DyMessages#post(String)}.
+ * Numbers are unique only inside the bout, so that posting to different
+ * bouts never competes for one counter. The number is moved forward
+ * only after the message is saved, so numbers of saved messages
+ * have no gaps that can be filled later.
+ *
+ * <p>Bouts created before the head was introduced don't have it. It is
+ * created on first access: messages are counted and every row in "friends"
+ * table gets its "seen" attribute calculated from the old "unread" one.
+ *
+ * @author Yegor Bugayenko (yegor@teamed.io)
+ * @version $Id$
+ * @since 2.16
+ * @checkstyle ClassDataAbstractionCouplingCheck (500 lines)
+ */
+@Immutable
+@Loggable(Loggable.DEBUG)
+@ToString(of = "bout")
+@EqualsAndHashCode(of = { "region", "bout" })
+@SuppressWarnings("PMD.ExcessiveImports")
+final class DyHead {
+
+    /**
+     * Table name.
+     */
+    public static final String TBL = "bouts";
+
+    /**
+     * Bout attribute.
+     */
+    public static final String HASH = "bout";
+
+    /**
+     * Total number of messages posted.
+     */
+    public static final String ATTR_TOTAL = "total";
+
+    /**
+     * Number of the latest message posted.
+     */
+    public static final String ATTR_LAST = "last";
+
+    /**
+     * Maximum number of keys in one batch request.
+     */
+    private static final int BATCH = 100;
+
+    /**
+     * Region to work with.
+     */
+    private final transient Region region;
+
+    /**
+     * Bout number.
+     */
+    private final transient long bout;
+
+    /**
+     * Ctor.
+     * @param reg Region
+     * @param num Bout number
+     */
+    DyHead(final Region reg, final long num) {
+        this.region = reg;
+        this.bout = num;
+    }
+
+    /**
+     * Number of unread messages in a row of "friends" table.
+     *
+     * <p>A row that is not migrated yet, see {@link #seed()}, has the old
+     * "unread" attribute instead, which is what "seen" is calculated
+     * from. It may be read from "inbox" index, which is not consistent,
+     * even after the migration.
+     *
+     * @param total Total number of messages in the bout
+     * @param row Attributes of the row
+     * @return Number of unread messages
+     */
+    public static long unread(final long total,
+        final Map<String, AttributeValue> row) {
+        long unread = 0L;
+        if (row.containsKey(DyFriends.ATTR_SEEN)) {
+            unread = total - Long.parseLong(
+                row.get(DyFriends.ATTR_SEEN).getN()
+            );
+        } else if (row.containsKey(DyFriends.ATTR_UNREAD)) {
+            unread = Long.parseLong(row.get(DyFriends.ATTR_UNREAD).getN());
+        }
+        return Math.max(0L, unread);
+    }
+
+    /**
+     * Load total numbers of messages of many bouts, from their heads,
+     * in batches of a hundred, which is the maximum of DynamoDB. Keys
+     * that DynamoDB didn't process are requested again. Heads that are
+     * absent are created, see {@link #total()}.
+     * @param region Region
+     * @param rows Rows from "friends" table or its "inbox" index
+     * @return Totals, by bout numbers
+     * @throws IOException If fails
+     */
+    public static Map<Long, Long> totals(final Region region,
+        final Collection<Map<String, AttributeValue>> rows)
+        throws IOException {
+        final Map<Long, Long> totals = new HashMap<Long, Long>(rows.size());
+        final String table = region.table(DyHead.TBL).name();
+        for (final List<Map<String, AttributeValue>> batch
+            : Iterables.partition(rows, DyHead.BATCH)) {
+            final Collection<Map<String, AttributeValue>> keys =
+                new ArrayList<Map<String, AttributeValue>>(batch.size());
+            for (final Map<String, AttributeValue> row : batch) {
+                keys.add(
+                    new Attributes().with(
+                        DyHead.HASH, row.get(DyFriends.HASH)
+                    )
+                );
+            }
+            Map<String, KeysAndAttributes> request = Collections.singletonMap(
+                table,
+                new KeysAndAttributes()
+                    .withKeys(keys)
+                    .withAttributesToGet(DyHead.HASH, DyHead.ATTR_TOTAL)
+            );
+            final AmazonDynamoDB aws = region.aws();
+            try {
+                while (request != null && !request.isEmpty()) {
+                    final BatchGetItemResult result = aws.batchGetItem(
+                        new BatchGetItemRequest().withRequestItems(request)
+                    );
+                    final Collection<Map<String, AttributeValue>> heads =
+                        result.getResponses().get(table);
+                    if (heads != null) {
+                        DyHead.collect(heads, totals);
+                    }
+                    request = result.getUnprocessedKeys();
+                }
+            } finally {
+                aws.shutdown();
+            }
+        }
+        for (final Map<String, AttributeValue> row : rows) {
+            final long number = Long.parseLong(row.get(DyFriends.HASH).getN());
+            if (!totals.containsKey(number)) {
+                totals.put(number, new DyHead(region, number).total());
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Collect totals of heads.
+     * @param heads Heads from "bouts" table
+     * @param totals Totals, by bout numbers
+     */
+    private static void collect(
+        final Collection<Map<String, AttributeValue>> heads,
+        final Map<Long, Long> totals) {
+        for (final Map<String, AttributeValue> head : heads) {
+            if (head.containsKey(DyHead.ATTR_TOTAL)) {
+                totals.put(
+                    Long.parseLong(head.get(DyHead.HASH).getN()),
+                    Long.parseLong(head.get(DyHead.ATTR_TOTAL).getN())
+                );
+            }
+        }
+    }
+
+    /**
+     * Create a head of a new bout.
+     * @throws IOException If fails
+     */
+    public void create() throws IOException {
+        this.region.table(DyHead.TBL).put(
+            new Attributes()
+                .with(DyHead.HASH, this.bout)
+                .with(DyHead.ATTR_TOTAL, 0L)
+                .with(DyHead.ATTR_LAST, 0L)
+        );
+    }
+
+    /**
+     * Total number of messages ever posted to the bout.
+     * @return Total
+     * @throws IOException If fails
+     */
+    public long total() throws IOException {
+        Long total = this.stored();
+        if (total == null) {
+            total = this.seed();
+        }
+        return total;
+    }
+
+    /**
+     * Number of the latest message posted and counted.
+     *
+     * <p>It may be behind the latest message in "messages" table, which
+     * is posted but not counted yet, see {@link #posted(long)}.
+     *
+     * @return Message number, unique in the bout
+     * @throws IOException If fails
+     */
+    public long last() throws IOException {
+        final AmazonDynamoDB aws = this.region.aws();
+        final Map<String, AttributeValue> item;
+        try {
+            item = aws.getItem(
+                new GetItemRequest()
+                    .withTableName(this.region.table(DyHead.TBL).name())
+                    .withKey(this.key())
+                    .withAttributesToGet(DyHead.ATTR_TOTAL, DyHead.ATTR_LAST)
+                    .withConsistentRead(true)
+            ).getItem();
+        } finally {
+            aws.shutdown();
+        }
+        final long last;
+        if (item == null || !item.containsKey(DyHead.ATTR_LAST)) {
+            this.total();
+            last = this.number();
+        } else {
+            last = Long.parseLong(item.get(DyHead.ATTR_LAST).getN());
+        }
+        return last;
+    }
+
+    /**
+     * Count the message, which is already saved in "messages" table.
+     *
+     * <p>The total is increased by one, and the number of the latest
+     * message is moved forward, unless a message with a bigger number
+     * was counted already.
+     *
+     * @param number Number of the message
+     */
+    public void posted(final long number) {
+        final AttributeValueUpdate one = new AttributeValueUpdate()
+            .withAction(AttributeAction.ADD)
+            .withValue(new AttributeValue().withN("1"));
+        final AmazonDynamoDB aws = this.region.aws();
+        try {
+            try {
+                aws.updateItem(
+                    new UpdateItemRequest()
+                        .withTableName(this.region.table(DyHead.TBL).name())
+                        .withKey(this.key())
+                        .withAttributeUpdates(
+                            new AttributeUpdates()
+                                .with(DyHead.ATTR_TOTAL, one)
+                                .with(DyHead.ATTR_LAST, number)
+                        )
+                        .withExpected(
+                            Collections.singletonMap(
+                                DyHead.ATTR_LAST,
+                                new ExpectedAttributeValue()
+                                    .withComparisonOperator(
+                                        ComparisonOperator.LT
+                                    )
+                                    .withAttributeValueList(
+                                        new AttributeValue().withN(
+                                            Long.toString(number)
+                                        )
+                                    )
+                            )
+                        )
+                );
+            } catch (final ConditionalCheckFailedException ex) {
+                aws.updateItem(
+                    new UpdateItemRequest()
+                        .withTableName(this.region.table(DyHead.TBL).name())
+                        .withKey(this.key())
+                        .withAttributeUpdates(
+                            new AttributeUpdates().with(DyHead.ATTR_TOTAL, one)
+                        )
+                );
+            }
+        } finally {
+            aws.shutdown();
+        }
+    }
+
+    /**
+     * Start numbering messages of a bout that was started before
+     * heads were numbering them, right after the latest message
+     * numbered by the global counter.
+     * @return Number of the latest message
+     */
+    private long number() {
+        final AmazonDynamoDB aws = this.region.aws();
+        long last = 0L;
+        try {
+            final Collection<Map<String, AttributeValue>> latest = aws.query(
+                new QueryRequest()
+                    .withTableName(this.region.table(DyMessages.TBL).name())
+                    .withKeyConditions(
+                        new Conditions().with(
+                            DyMessages.HASH,
+                            Conditions.equalTo(this.bout)
+                        )
+                    )
+                    .withAttributesToGet(DyMessages.RANGE)
+                    .withScanIndexForward(false)
+                    .withLimit(1)
+            ).getItems();
+            if (!latest.isEmpty()) {
+                last = Long.parseLong(
+                    latest.iterator().next().get(DyMessages.RANGE).getN()
+                );
+            }
+            aws.updateItem(
+                new UpdateItemRequest()
+                    .withTableName(this.region.table(DyHead.TBL).name())
+                    .withKey(this.key())
+                    .withAttributeUpdates(
+                        new AttributeUpdates().with(DyHead.ATTR_LAST, last)
+                    )
+                    .withExpected(
+                        Collections.singletonMap(
+                            DyHead.ATTR_LAST,
+                            new ExpectedAttributeValue().withExists(false)
+                        )
+                    )
+            );
+            Logger.info(
+                this, "messages of #%d numbered after %d", this.bout, last
+            );
+        } catch (final ConditionalCheckFailedException ex) {
+            Logger.debug(this, "messages of #%d are numbered", this.bout);
+        } finally {
+            aws.shutdown();
+        }
+        return last;
+    }
+
+    /**
+     * Total number of messages, saved in the head.
+     * @return Total or NULL if the head doesn't have it yet
+     */
+    private Long stored() {
+        final AmazonDynamoDB aws = this.region.aws();
+        final Map<String, AttributeValue> item;
+        try {
+            item = aws.getItem(
+                new GetItemRequest()
+                    .withTableName(this.region.table(DyHead.TBL).name())
+                    .withKey(this.key())
+                    .withAttributesToGet(DyHead.ATTR_TOTAL)
+                    .withConsistentRead(true)
+            ).getItem();
+        } finally {
+            aws.shutdown();
+        }
+        Long total = null;
+        if (item != null && item.containsKey(DyHead.ATTR_TOTAL)) {
+            total = Long.parseLong(item.get(DyHead.ATTR_TOTAL).getN());
+        }
+        return total;
+    }
+
+    /**
+     * Create the head of a bout that was started before heads were
+     * introduced, and migrate all its rows in "friends" table.
+     *
+     * <p>Rows are migrated before the head gets its total, since nothing
+     * is posted to the bout until then: {@link DyMessages#post(String)}
+     * takes the number of the latest message from {@link #last()}, which
+     * seeds the head first, saves the message by a conditional PutItem
+     * with the next number, and only then counts it by
+     * {@link #posted(long)}. Every write here is conditional: a row that
+     * has "seen" already is not touched, and the total is saved only if
+     * the head doesn't have it. If another dyno saved it first, it is
+     * read again, since messages may have been posted after that.
+     *
+     * @return Total number of messages
+     * @throws IOException If fails
+     */
+    private long seed() throws IOException {
+        final long counted = this.count();
+        final Iterable<Item> rows = this.region.table(DyFriends.TBL)
+            .frame()
+            .through(new QueryValve())
+            .where(DyFriends.HASH, Conditions.equalTo(this.bout));
+        final AmazonDynamoDB aws = this.region.aws();
+        long total = counted;
+        try {
+            for (final Item row : rows) {
+                if (!row.has(DyFriends.ATTR_SEEN)) {
+                    this.migrate(aws, row, counted);
+                }
+            }
+            aws.updateItem(
+                new UpdateItemRequest()
+                    .withTableName(this.region.table(DyHead.TBL).name())
+                    .withKey(this.key())
+                    .withAttributeUpdates(
+                        new AttributeUpdates().with(DyHead.ATTR_TOTAL, counted)
+                    )
+                    .withExpected(
+                        Collections.singletonMap(
+                            DyHead.ATTR_TOTAL,
+                            new ExpectedAttributeValue().withExists(false)
+                        )
+                    )
+            );
+            Logger.info(
+                this, "head of #%d created with %d message(s)",
+                this.bout, counted
+            );
+        } catch (final ConditionalCheckFailedException ex) {
+            Logger.debug(this, "head of #%d already exists", this.bout);
+            final Long stored = this.stored();
+            if (stored != null) {
+                total = stored;
+            }
+        } finally {
+            aws.shutdown();
+        }
+        return total;
+    }
+
+    /**
+     * Calculate "seen" of a row from its old "unread", unless it has
+     * "seen" already or the friend left the bout.
+     * @param aws AWS client
+     * @param row The row in "friends" table
+     * @param total Total number of messages in the bout
+     * @throws IOException If fails
+     */
+    private void migrate(final AmazonDynamoDB aws, final Item row,
+        final long total) throws IOException {
+        long unread = 0L;
+        if (row.has(DyFriends.ATTR_UNREAD)) {
+            unread = Long.parseLong(row.get(DyFriends.ATTR_UNREAD).getN());
+        }
+        final String alias = row.get(DyFriends.RANGE).getS();
+        final Map<String, ExpectedAttributeValue> expected =
+            new HashMap<String, ExpectedAttributeValue>(
+                DyFriends.exists(alias)
+            );
+        expected.put(
+            DyFriends.ATTR_SEEN, new ExpectedAttributeValue().withExists(false)
+        );
+        try {
+            aws.updateItem(
+                new UpdateItemRequest()
+                    .withTableName(this.region.table(DyFriends.TBL).name())
+                    .withKey(DyFriends.key(this.bout, alias))
+                    .withAttributeUpdates(
+                        new AttributeUpdates()
+                            .with(
+                                DyFriends.ATTR_SEEN,
+                                Math.max(0L, total - unread)
+                            )
+                            .with(
+                                DyFriends.ATTR_UNREAD,
+                                new AttributeValueUpdate().withAction(
+                                    AttributeAction.DELETE
+                                )
+                            )
+                    )
+                    .withExpected(expected)
+            );
+        } catch (final ConditionalCheckFailedException ex) {
+            Logger.debug(
+                this, "row of @%s in #%d is migrated", alias, this.bout
+            );
+        }
+    }
+
+    /**
+     * Count all messages in the bout.
+     * @return Total number of messages
+     */
+    private long count() {
+        final AmazonDynamoDB aws = this.region.aws();
+        long total = 0L;
+        try {
+            Map<String, AttributeValue> start = null;
+            do {
+                final QueryResult result = aws.query(
+                    new QueryRequest()
+                        .withTableName(
+                            this.region.table(DyMessages.TBL).name()
+                        )
+                        .withKeyConditions(
+                            new Conditions().with(
+                                DyMessages.HASH,
+                                Conditions.equalTo(this.bout)
+                            )
+                        )
+                        .withSelect(Select.COUNT)
+                        .withExclusiveStartKey(start)
+                );
+                total += result.getCount();
+                start = result.getLastEvaluatedKey();
+            } while (start != null);
+        } finally {
+            aws.shutdown();
+        }
+        return total;
+    }
+
+    /**
+     * Key of the head.
+     * @return Key
+     */
+    private Attributes key() {
+        return new Attributes().with(DyHead.HASH, this.bout);
+    }
+
+}
@@ -30,12 +30,13 @@ import co.stateful.Counter;
 import co.stateful.RtSttc;
 import co.stateful.cached.CdSttc;
 import co.stateful.retry.ReSttc;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.amazonaws.services.dynamodbv2.model.ComparisonOperator;
 import com.amazonaws.services.dynamodbv2.model.Condition;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
 import com.amazonaws.services.dynamodbv2.model.Select;
-import com.google.common.base.Function;
-import com.google.common.collect.Iterables;
+import com.jcabi.aspects.Async;
 import com.jcabi.aspects.Cacheable;
 import com.jcabi.aspects.Immutable;
 import com.jcabi.aspects.Loggable;
@@ -48,10 +49,17 @@ import com.jcabi.log.Logger;
 import com.jcabi.manifests.Manifests;
 import com.jcabi.urn.URN;
 import com.netbout.spi.Bout;
+import com.netbout.spi.Friend;
+import com.netbout.spi.Friends;
 import com.netbout.spi.Inbox;
 import com.netbout.spi.Pageable;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeSet;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 
@@ -67,12 +75,13 @@ import lombok.ToString;
 @Loggable(Loggable.DEBUG)
 @ToString(of = "self")
 @EqualsAndHashCode(of = { "counter", "region", "self", "since" })
+@SuppressWarnings("PMD.ExcessiveImports")
 final class DyInbox implements Inbox {
 
     /**
      * Counter with bout number.
      */
-    private final transient Counter counter;
+    private final transient DyCounter counter;
 
     /**
      * Region we're in.
@@ -95,7 +104,11 @@ final class DyInbox implements Inbox {
      * @param slf My alias
      */
     DyInbox(final Region reg, final String slf) {
-        this(reg, slf, DyInbox.sttc(), Inbox.NEVER);
+        this(
+            reg, slf,
+            new DyCounter(reg, "nb-bout", DyInbox.sttc()),
+            Inbox.NEVER
+        );
     }
 
     /**
@@ -107,7 +120,7 @@ final class DyInbox implements Inbox {
      * @since 2.7.1
      * @checkstyle ParameterNumberCheck (5 lines)
      */
-    DyInbox(final Region reg, final String slf, final Counter ctr,
+    DyInbox(final Region reg, final String slf, final DyCounter ctr,
         final long strt) {
         this.region = reg;
         this.self = slf;
@@ -117,52 +130,29 @@ final class DyInbox implements Inbox {
 
     @Override
     public long start() throws IOException {
-        final long number = this.counter.incrementAndGet(1L);
+        final long number = this.counter.next();
+        new DyHead(this.region, number).create();
         this.region.table(DyFriends.TBL).put(
             new Attributes()
                 .with(DyFriends.RANGE, this.self)
                 .with(DyFriends.HASH, number)
                 .with(DyFriends.ATTR_UPDATED, System.currentTimeMillis())
                 .with(DyFriends.ATTR_TITLE, "untitled")
+                .with(DyFriends.ATTR_SEEN, 0L)
+                .with(DyFriends.ATTR_PENDING, 0L)
+                .with(
+                    DyFriends.ATTR_FRIENDS,
+                    new AttributeValue().withSS(this.self)
+                )
+                .with(DyFriends.ATTR_COMPLETE, 1L)
         );
         Logger.info(this, "bout #%d started by @%s", number, this.self);
         return number;
     }
 
-    /**
-     * {@inheritDoc}
-     * @todo #1 DynamoDBLocal doesn't work with all attributes
-     *  in global index. If we remove this check for a local version,
-     *  most tests fail. I'm not sure how to fix that. I suspect, it's
-     *  a bug in DynamoDBLocal, but I don't even know how to report
-     *  it to them :( Anyway, let's try to investigate and either fix
-     *  property or introduce a better workaround. Pay attention that this
-     *  code works correctly in production.
-     */
     @Override
     public long unread() throws IOException {
-        long unread = 0L;
-        if (!"1.0-LOCAL".equals(Manifests.read("Netbout-Version"))) {
-            final Iterable<Item> items = this.region.table(DyFriends.TBL)
-                .frame()
-                .where(DyFriends.RANGE, this.self)
-                .through(
-                    new QueryValve()
-                        .withIndexName(DyFriends.INDEX)
-                        .withConsistentRead(false)
-                        .withSelect(Select.SPECIFIC_ATTRIBUTES)
-                        .withAttributesToGet(DyFriends.ATTR_UNREAD)
-                        .withScanIndexForward(false)
-                );
-            for (final Item item : items) {
-                if (item.has(DyFriends.ATTR_UNREAD)) {
-                    unread += Long.parseLong(
-                        item.get(DyFriends.ATTR_UNREAD).getN()
-                    );
-                }
-            }
-        }
-        return unread;
+        return new DyUnread(this.region, this.self).value();
     }
 
     @Override
@@ -194,46 +184,158 @@ final class DyInbox implements Inbox {
         return new DyInbox(this.region, this.self, this.counter, number);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The page is loaded by one query to "inbox" index, which projects
+     * all attributes of "friends" table. Nothing else is fetched from
+     * DynamoDB in order to render the bouts in the list, except their
+     * heads, which are fetched by one batch request, and profiles of
+     * all participants of all bouts, also fetched together, see
+     * {@link DyProfiles}.
+     *
+     * <p>Rows of bouts started before heads were introduced don't have
+     * "seen" attribute until their heads are created, see
+     * {@link DyHead#totals(Region, Collection)}. The page is read again
+     * then, otherwise their unread messages would not be counted.
+     *
+     * <p>Rows created before the total of unread messages was introduced
+     * start to be counted in it here, see {@link DyUnread}.
+     *
+     * <p>Participants of rows where their list is not complete yet are
+     * loaded from "friends" table and the list is completed then, see
+     * {@link DyFriends#complete(Region, long)}.
+     */
     @Override
-    public Iterable<Bout> iterate() {
-        return Iterables.transform(
-            this.region.table(DyFriends.TBL)
-                .frame()
-                .where(DyFriends.RANGE, this.self)
-                .where(
-                    DyFriends.ATTR_UPDATED,
-                    new Condition()
-                        .withComparisonOperator(ComparisonOperator.LT)
-                        .withAttributeValueList(
-                            new AttributeValue().withN(
-                                Long.toString(this.since)
-                            )
-                        )
+    public Iterable<Bout> iterate() throws IOException {
+        Collection<Map<String, AttributeValue>> rows = this.rows();
+        Map<Long, Long> totals = DyHead.totals(this.region, rows);
+        for (final Map<String, AttributeValue> row : rows) {
+            if (!row.containsKey(DyFriends.ATTR_SEEN)) {
+                rows = this.rows();
+                totals = DyHead.totals(this.region, rows);
+                break;
+            }
+        }
+        final Map<Long, Friends> friends = this.friends(rows);
+        final Collection<Bout> bouts = new ArrayList<Bout>(rows.size());
+        for (final Map<String, AttributeValue> row : rows) {
+            final long number = Long.parseLong(row.get(DyFriends.HASH).getN());
+            if (!row.containsKey(DyFriends.ATTR_PENDING)) {
+                new DyUnread(this.region, this.self).start(
+                    number, DyHead.unread(totals.get(number), row)
+                );
+            }
+            bouts.add(
+                new Bout.ReadOnly(
+                    new DySummary(
+                        this.region, new Attributes(row),
+                        this.self, totals.get(number), friends.get(number)
+                    )
                 )
-                .through(
-                    new QueryValve()
-                        .withIndexName(DyFriends.INDEX)
-                        .withConsistentRead(false)
-                        .withLimit(Inbox.PAGE)
-                        .withSelect(Select.ALL_PROJECTED_ATTRIBUTES)
-                        .withScanIndexForward(false)
-                ),
-            new Function<Item, Bout>() {
-                @Override
-                public Bout apply(final Item item) {
-                    return new Bout.ReadOnly(
-                        new DyBout(
-                            DyInbox.this.region,
-                            item, DyInbox.this.self
-                        )
-                    );
-                }
+            );
+        }
+        return bouts;
+    }
+
+    /**
+     * Participants of the bouts, with profiles of all of them loaded
+     * together.
+     * @param rows Rows of the page
+     * @return Friends, by numbers of bouts
+     * @throws IOException If fails
+     */
+    private Map<Long, Friends> friends(
+        final Collection<Map<String, AttributeValue>> rows)
+        throws IOException {
+        final Map<Long, Collection<String>> aliases =
+            new HashMap<Long, Collection<String>>(rows.size());
+        final Collection<String> all = new TreeSet<String>();
+        for (final Map<String, AttributeValue> row : rows) {
+            final long number = Long.parseLong(row.get(DyFriends.HASH).getN());
+            final Collection<String> members;
+            if (row.containsKey(DyFriends.ATTR_COMPLETE)) {
+                members = row.get(DyFriends.ATTR_FRIENDS).getSS();
+            } else {
+                members = DyFriends.members(this.region, number);
+                this.complete(number);
             }
-        );
+            aliases.put(number, members);
+            all.addAll(members);
+        }
+        final Map<String, Friend> profiles =
+            new HashMap<String, Friend>(all.size());
+        for (final Friend friend : new DyProfiles(this.region).fetch(all)) {
+            profiles.put(friend.alias(), friend);
+        }
+        final Map<Long, Friends> friends =
+            new HashMap<Long, Friends>(aliases.size());
+        for (final Map.Entry<Long, Collection<String>> entry
+            : aliases.entrySet()) {
+            final Collection<Friend> list =
+                new ArrayList<Friend>(entry.getValue().size());
+            for (final String alias : entry.getValue()) {
+                list.add(profiles.get(alias));
+            }
+            friends.put(entry.getKey(), new DySummary.Members(list));
+        }
+        return friends;
+    }
+
+    /**
+     * Complete the list of participants in all rows of the bout.
+     * @param bout Bout number
+     */
+    @Async
+    private void complete(final long bout) {
+        DyFriends.complete(this.region, bout);
+    }
+
+    /**
+     * Rows of the page, from "inbox" index.
+     * @return Rows
+     */
+    private Collection<Map<String, AttributeValue>> rows() {
+        final AmazonDynamoDB aws = this.region.aws();
+        final Collection<Map<String, AttributeValue>> rows;
+        try {
+            rows = aws.query(
+                new QueryRequest()
+                    .withTableName(this.region.table(DyFriends.TBL).name())
+                    .withIndexName(DyFriends.INDEX)
+                    .withKeyConditions(
+                        new Conditions()
+                            .with(
+                                DyFriends.RANGE,
+                                Conditions.equalTo(this.self)
+                            )
+                            .with(DyFriends.ATTR_UPDATED, this.before())
+                    )
+                    .withConsistentRead(false)
+                    .withLimit(Inbox.PAGE)
+                    .withSelect(Select.ALL_PROJECTED_ATTRIBUTES)
+                    .withScanIndexForward(false)
+            ).getItems();
+        } finally {
+            aws.shutdown();
+        }
+        return rows;
+    }
+
+    /**
+     * Condition for bouts updated before the start moment.
+     * @return Condition
+     */
+    private Condition before() {
+        return new Condition()
+            .withComparisonOperator(ComparisonOperator.LT)
+            .withAttributeValueList(
+                new AttributeValue().withN(Long.toString(this.since))
+            );
     }
 
     /**
-     * Sttc counter.
+     * Sttc counter, used only once, to start {@link DyCounter} from.
      * @return Counter
      */
     @Cacheable(forever = true)
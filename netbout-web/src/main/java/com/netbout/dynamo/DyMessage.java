@@ -26,9 +26,12 @@
  */
 package com.netbout.dynamo;
 
+import com.jcabi.aspects.Async;
 import com.jcabi.aspects.Immutable;
 import com.jcabi.aspects.Loggable;
+import com.jcabi.dynamo.AttributeUpdates;
 import com.jcabi.dynamo.Item;
+import com.netbout.markdown.Markdown;
 import com.netbout.spi.Message;
 import java.io.IOException;
 import java.util.Date;
@@ -82,4 +85,28 @@ final class DyMessage implements Message {
     public String author() throws IOException {
         return this.item.get(DyMessages.ATTR_ALIAS).getS();
     }
+
+    @Override
+    public String html() throws IOException {
+        final String html;
+        if (this.item.has(DyMessages.ATTR_HTML)) {
+            html = this.item.get(DyMessages.ATTR_HTML).getS();
+        } else {
+            html = new Markdown(this.text()).html();
+            this.backfill(html);
+        }
+        return html;
+    }
+
+    /**
+     * Save HTML of an old message, posted before it was rendered on post.
+     * @param html Rendered text
+     * @throws IOException If fails
+     */
+    @Async
+    private void backfill(final String html) throws IOException {
+        this.item.put(
+            new AttributeUpdates().with(DyMessages.ATTR_HTML, html)
+        );
+    }
 }
@@ -26,20 +26,18 @@
  */
 package com.netbout.dynamo;
 
-import co.stateful.Counter;
-import co.stateful.RtSttc;
-import co.stateful.cached.CdSttc;
-import co.stateful.retry.ReSttc;
-import com.amazonaws.services.dynamodbv2.model.AttributeAction;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
-import com.amazonaws.services.dynamodbv2.model.AttributeValueUpdate;
 import com.amazonaws.services.dynamodbv2.model.ComparisonOperator;
 import com.amazonaws.services.dynamodbv2.model.Condition;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.ReturnValue;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
 import com.google.common.base.Function;
-import com.google.common.base.Predicate;
 import com.google.common.collect.Iterables;
 import com.jcabi.aspects.Async;
-import com.jcabi.aspects.Cacheable;
 import com.jcabi.aspects.Immutable;
 import com.jcabi.aspects.Loggable;
 import com.jcabi.aspects.Tv;
@@ -50,13 +48,16 @@ import com.jcabi.dynamo.Item;
 import com.jcabi.dynamo.QueryValve;
 import com.jcabi.dynamo.Region;
 import com.jcabi.log.Logger;
-import com.jcabi.manifests.Manifests;
-import com.jcabi.urn.URN;
+import com.netbout.markdown.Markdown;
 import com.netbout.spi.Inbox;
 import com.netbout.spi.Message;
 import com.netbout.spi.Messages;
 import com.netbout.spi.Pageable;
 import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.Map;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 import org.apache.commons.lang3.StringUtils;
@@ -72,7 +73,7 @@ import org.apache.commons.lang3.StringUtils;
 @Immutable
 @Loggable(Loggable.DEBUG)
 @ToString(of = "bout")
-@EqualsAndHashCode(of = { "counter", "region", "bout", "self", "start" })
+@EqualsAndHashCode(of = { "region", "bout", "self", "start" })
 @SuppressWarnings("PMD.ExcessiveImports")
 final class DyMessages implements Messages {
 
@@ -96,6 +97,11 @@ final class DyMessages implements Messages {
      */
     public static final String ATTR_TEXT = "text";
 
+    /**
+     * Text of the message, rendered to HTML when posted.
+     */
+    public static final String ATTR_HTML = "html";
+
     /**
      * Author of the message.
      */
@@ -106,11 +112,6 @@ final class DyMessages implements Messages {
      */
     public static final String ATTR_DATE = "date";
 
-    /**
-     * Counter with message number.
-     */
-    private final transient Counter counter;
-
     /**
      * Region to work with.
      */
@@ -138,7 +139,7 @@ final class DyMessages implements Messages {
      * @param slf Self alias
      */
     DyMessages(final Region reg, final long num, final String slf) {
-        this(reg, num, slf, DyMessages.sttc(), Inbox.NEVER);
+        this(reg, num, slf, Inbox.NEVER);
     }
 
     /**
@@ -146,17 +147,15 @@ final class DyMessages implements Messages {
      * @param reg Region
      * @param num Bout number
      * @param slf Self alias
-     * @param ctr Counter
      * @param strt Start message number
      * @since 2.7.1
      * @checkstyle ParameterNumberCheck (5 lines)
      */
     DyMessages(final Region reg, final long num, final String slf,
-        final Counter ctr, final long strt) {
+        final long strt) {
         this.region = reg;
         this.bout = num;
         this.self = slf;
-        this.counter = ctr;
         this.start = strt;
     }
 
@@ -173,34 +172,52 @@ final class DyMessages implements Messages {
                 "message is too big, break it into parts or upload attachment"
             );
         }
-        final long number = this.counter.incrementAndGet(1L);
-        this.region.table(DyMessages.TBL).put(
-            new Attributes()
-                .with(DyMessages.HASH, this.bout)
-                .with(DyMessages.RANGE, number)
-                .with(DyMessages.ATTR_TEXT, clean)
-                .with(DyMessages.ATTR_ALIAS, this.self)
-                .with(DyMessages.ATTR_DATE, System.currentTimeMillis())
-        );
+        final String html = new Markdown(clean).html();
+        final DyHead head = new DyHead(this.region, this.bout);
+        long number = head.last();
+        boolean saved;
+        do {
+            ++number;
+            saved = this.save(
+                new Attributes()
+                    .with(DyMessages.HASH, this.bout)
+                    .with(DyMessages.RANGE, number)
+                    .with(DyMessages.ATTR_TEXT, clean)
+                    .with(DyMessages.ATTR_HTML, html)
+                    .with(DyMessages.ATTR_ALIAS, this.self)
+                    .with(DyMessages.ATTR_DATE, System.currentTimeMillis())
+            );
+        } while (!saved);
+        head.posted(number);
         this.updated();
         Logger.info(this, "posted to #%d by @%s", this.bout, this.self);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The head is read first, since it migrates the row, if the bout
+     * was started before heads were introduced.
+     */
     @Override
     public long unread() throws IOException {
+        final long total = new DyHead(this.region, this.bout).total();
         final Item item = this.region.table(DyFriends.TBL)
             .frame()
             .through(
                 new QueryValve()
                     .withLimit(1)
-                    .withAttributesToGet(DyFriends.ATTR_UNREAD)
+                    .withAttributesToGet(DyFriends.ATTR_SEEN)
             )
             .where(DyFriends.HASH, Conditions.equalTo(this.bout))
             .where(DyFriends.RANGE, Conditions.equalTo(this.self))
             .iterator().next();
         final long unread;
-        if (item.has(DyFriends.ATTR_UNREAD)) {
-            unread = Long.parseLong(item.get(DyFriends.ATTR_UNREAD).getN());
+        if (item.has(DyFriends.ATTR_SEEN)) {
+            unread = Math.max(
+                0L,
+                total - Long.parseLong(item.get(DyFriends.ATTR_SEEN).getN())
+            );
         } else {
             unread = 0L;
         }
@@ -210,12 +227,12 @@ final class DyMessages implements Messages {
     @Override
     public Pageable<Message> jump(final long number) {
         return new DyMessages(
-            this.region, this.bout, this.self, this.counter, number
+            this.region, this.bout, this.self, number
         );
     }
 
     @Override
-    public Iterable<Message> iterate() {
+    public Iterable<Message> iterate() throws IOException {
         if (this.start != Long.MAX_VALUE) {
             this.seen();
         }
@@ -228,6 +245,7 @@ final class DyMessages implements Messages {
                         .withLimit(Messages.PAGE)
                         .withAttributesToGet(
                             DyMessages.ATTR_TEXT,
+                            DyMessages.ATTR_HTML,
                             DyMessages.ATTR_ALIAS,
                             DyMessages.ATTR_DATE
                         )
@@ -253,88 +271,142 @@ final class DyMessages implements Messages {
     }
 
     /**
-     * It was updated just now.
+     * Save the message, if its number is not taken yet.
+     *
+     * <p>The number is taken by saving the message, so when a message is
+     * visible, all messages before it are visible too, and a page of them
+     * never changes, see {@code com.netbout.cached.CdPage}.
+     *
+     * @param attrs Attributes of the message
+     * @return TRUE if saved, FALSE if the number is taken
      */
-    @Async
-    private void updated() {
-        final String alias = this.self;
-        Iterables.all(
-            this.region.table(DyFriends.TBL).frame()
-                .through(new QueryValve())
-                .where(DyFriends.HASH, Conditions.equalTo(this.bout)),
-            // @checkstyle AnonInnerLengthCheck (50 lines)
-            new Predicate<Item>() {
-                @Override
-                public boolean apply(final Item input) {
-                    AttributeUpdates updates = new AttributeUpdates().with(
-                        DyFriends.ATTR_UPDATED,
-                        System.currentTimeMillis()
-                    );
-                    try {
-                        if (!input.get(DyFriends.RANGE).getS().equals(alias)) {
-                            updates = updates.with(
-                                DyFriends.ATTR_UNREAD,
-                                new AttributeValueUpdate()
-                                    .withAction(AttributeAction.ADD)
-                                    .withValue(new AttributeValue().withN("1"))
-                            );
-                        }
-                        input.put(updates);
-                    } catch (final IOException ex) {
-                        throw new IllegalStateException(ex);
-                    }
-                    return true;
-                }
-            }
-        );
+    private boolean save(final Attributes attrs) {
+        final AmazonDynamoDB aws = this.region.aws();
+        boolean saved;
+        try {
+            aws.putItem(
+                new PutItemRequest()
+                    .withTableName(this.region.table(DyMessages.TBL).name())
+                    .withItem(attrs)
+                    .withExpected(
+                        Collections.singletonMap(
+                            DyMessages.RANGE,
+                            new ExpectedAttributeValue().withExists(false)
+                        )
+                    )
+            );
+            saved = true;
+        } catch (final ConditionalCheckFailedException ex) {
+            Logger.debug(
+                this, "message %s is taken in #%d",
+                attrs.get(DyMessages.RANGE).getN(), this.bout
+            );
+            saved = false;
+        } finally {
+            aws.shutdown();
+        }
+        return saved;
     }
 
     /**
-     * It was seen just now.
+     * It was updated just now.
+     *
+     * <p>Every row of the bout gets a new "updated" date, in order to move
+     * the bout to the top of all inboxes. These are blind writes, the rows
+     * are not read one by one. Unread messages are counted by the head of
+     * the bout, see {@link DyHead}, the author just marks one more message
+     * as seen. Rows of other friends get one more "pending" message,
+     * which is added to their totals, see {@link DyUnread}.
+     *
+     * @throws IOException If fails
      */
     @Async
-    private void seen() {
-        Iterables.all(
-            this.region.table(DyFriends.TBL).frame()
-                .through(new QueryValve())
-                .where(DyFriends.HASH, Conditions.equalTo(this.bout))
-                .where(DyFriends.RANGE, this.self),
-            new Predicate<Item>() {
-                @Override
-                public boolean apply(final Item input) {
-                    try {
-                        input.put(
-                            new AttributeUpdates().with(
-                                DyFriends.ATTR_UNREAD, 0L
+    private void updated() throws IOException {
+        final Iterable<Item> rows = this.region.table(DyFriends.TBL).frame()
+            .through(
+                new QueryValve().withAttributesToGet(
+                    DyFriends.HASH, DyFriends.RANGE
+                )
+            )
+            .where(DyFriends.HASH, Conditions.equalTo(this.bout));
+        final Collection<String> friends = new LinkedList<String>();
+        for (final Item row : rows) {
+            friends.add(row.get(DyFriends.RANGE).getS());
+        }
+        final long now = System.currentTimeMillis();
+        final AmazonDynamoDB aws = this.region.aws();
+        try {
+            for (final String friend : friends) {
+                final boolean author = friend.equals(this.self);
+                AttributeUpdates updates = new AttributeUpdates().with(
+                    DyFriends.ATTR_UPDATED, now
+                );
+                if (author) {
+                    updates = updates.with(
+                        DyFriends.ATTR_SEEN, DyUnread.plus(1L)
+                    );
+                } else {
+                    updates = updates.with(
+                        DyFriends.ATTR_PENDING, DyUnread.plus(1L)
+                    );
+                }
+                try {
+                    aws.updateItem(
+                        new UpdateItemRequest()
+                            .withTableName(
+                                this.region.table(DyFriends.TBL).name()
                             )
-                        );
-                    } catch (final IOException ex) {
-                        throw new IllegalStateException(ex);
-                    }
-                    return true;
+                            .withKey(DyFriends.key(this.bout, friend))
+                            .withAttributeUpdates(updates)
+                            .withExpected(DyFriends.exists(friend))
+                    );
+                } catch (final ConditionalCheckFailedException ex) {
+                    Logger.debug(this, "@%s left #%d", friend, this.bout);
+                    continue;
+                }
+                if (!author) {
+                    new DyUnread(this.region, friend).add(1L);
                 }
             }
-        );
+        } finally {
+            aws.shutdown();
+        }
     }
 
     /**
-     * Sttc counter.
-     * @return Counter
+     * It was seen just now.
+     *
+     * <p>The row gets "seen" equal to the total of the head and its
+     * "pending" is reset, which is subtracted from the total of
+     * the alias, see {@link DyUnread}.
+     *
+     * @throws IOException If fails
      */
-    @Cacheable(forever = true)
-    private static Counter sttc() {
+    @Async
+    private void seen() throws IOException {
+        final long total = new DyHead(this.region, this.bout).total();
+        final AmazonDynamoDB aws = this.region.aws();
+        final Map<String, AttributeValue> old;
         try {
-            return new CdSttc(
-                new ReSttc(
-                    RtSttc.make(
-                        URN.create(Manifests.read("Netbout-SttcUrn")),
-                        Manifests.read("Netbout-SttcToken")
+            old = aws.updateItem(
+                new UpdateItemRequest()
+                    .withTableName(this.region.table(DyFriends.TBL).name())
+                    .withKey(DyFriends.key(this.bout, this.self))
+                    .withAttributeUpdates(
+                        new AttributeUpdates()
+                            .with(DyFriends.ATTR_SEEN, total)
+                            .with(DyFriends.ATTR_PENDING, 0L)
                     )
-                )
-            ).counters().get("nb-message");
-        } catch (final IOException ex) {
-            throw new IllegalStateException(ex);
+                    .withExpected(DyFriends.exists(this.self))
+                    .withReturnValues(ReturnValue.UPDATED_OLD)
+            ).getAttributes();
+        } catch (final ConditionalCheckFailedException ex) {
+            Logger.debug(this, "@%s left #%d", this.self, this.bout);
+            return;
+        } finally {
+            aws.shutdown();
         }
+        new DyUnread(this.region, this.self).add(-DyUnread.pending(old));
     }
 
 }
@@ -0,0 +1,365 @@
+/**
+ * Copyright (c) 2009-2015, netbout.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are PROHIBITED without prior written permission from
+ * the author. This product may NOT be used anywhere and on any computer
+ * except the server platform of netbout Inc. located at www.netbout.com.
+ * Federal copyright law prohibits unauthorized reproduction by any means
+ * and imposes fines up to $25,000 for violation. If you received
+ * this code accidentally and without intent to use it, please report this
+ * incident to the author by email.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.netbout.dynamo;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.jcabi.aspects.Immutable;
+import com.jcabi.aspects.Loggable;
+import com.jcabi.aspects.Tv;
+import com.jcabi.log.Logger;
+import com.jcabi.log.VerboseRunnable;
+import com.jcabi.log.VerboseThreads;
+import com.jcabi.s3.Bucket;
+import com.jcabi.s3.Ocket;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Content of an attachment in S3, streamed in both directions.
+ *
+ * <p>Content is uploaded from a file in parts, and is read as a live
+ * stream from S3, never being kept in memory. If the stream is skipped
+ * before the first byte is read, only the rest of the object is requested
+ * from S3, by its range.
+ *
+ * <p>Regions that don't have AWS client (for example, mock regions
+ * used in tests) are supported through {@link Ocket}, which is read
+ * into a pipe by a thread of a shared pool.
+ *
+ * <p>Every S3 client taken from the region is shut down when it's not
+ * needed any more: after the upload, or when the stream is closed.
+ *
+ * @author Yegor Bugayenko (yegor@teamed.io)
+ * @version $Id$
+ * @since 2.16
+ * @checkstyle ClassDataAbstractionCouplingCheck (500 lines)
+ */
+@Immutable
+@Loggable(Loggable.DEBUG)
+@ToString(of = "key")
+@EqualsAndHashCode(of = { "bucket", "key" })
+@SuppressWarnings({ "PMD.ExcessiveImports", "PMD.DoNotUseThreads" })
+final class DyObject {
+
+    /**
+     * Threads reading ockets into pipes.
+     */
+    private static final ExecutorService PIPES =
+        Executors.newCachedThreadPool(new VerboseThreads(DyObject.class));
+
+    /**
+     * Size of one part to upload, the minimum S3 allows.
+     */
+    private static final long PART = (long) Tv.FIVE * 1024L * 1024L;
+
+    /**
+     * HTTP status of a range that starts after the end of the object.
+     */
+    private static final int UNSATISFIABLE = 416;
+
+    /**
+     * Bucket.
+     */
+    private final transient Bucket bucket;
+
+    /**
+     * Key of the object.
+     */
+    private final transient String key;
+
+    /**
+     * Ctor.
+     * @param bkt Bucket
+     * @param name Key of the object
+     */
+    DyObject(final Bucket bkt, final String name) {
+        this.bucket = bkt;
+        this.key = name;
+    }
+
+    /**
+     * Upload content from a file.
+     * @param file File with content
+     * @param ctype Content type
+     * @throws IOException If fails
+     */
+    public void write(final File file, final String ctype)
+        throws IOException {
+        final ObjectMetadata meta = new ObjectMetadata();
+        meta.setContentType(ctype);
+        final AmazonS3 aws = DyObject.aws(this.bucket);
+        if (aws == null) {
+            meta.setContentLength(file.length());
+            final InputStream input = new FileInputStream(file);
+            try {
+                this.bucket.ocket(this.key).write(input, meta);
+            } finally {
+                input.close();
+            }
+        } else {
+            try {
+                this.upload(aws, file, meta);
+            } finally {
+                aws.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Live stream of the content.
+     * @return Stream
+     */
+    public InputStream read() {
+        return new DyObject.Stream(this.bucket, this.key);
+    }
+
+    /**
+     * S3 client of the region of the bucket.
+     * @param bkt Bucket
+     * @return Client or NULL if the region doesn't have it
+     */
+    private static AmazonS3 aws(final Bucket bkt) {
+        AmazonS3 aws;
+        try {
+            aws = bkt.region().aws();
+        } catch (final UnsupportedOperationException ex) {
+            aws = null;
+        }
+        return aws;
+    }
+
+    /**
+     * Upload content from a file, in parts.
+     * @param aws S3 client
+     * @param file File with content
+     * @param meta Metadata
+     * @throws IOException If fails
+     */
+    private void upload(final AmazonS3 aws, final File file,
+        final ObjectMetadata meta) throws IOException {
+        final String name = this.bucket.name();
+        final String upload = aws.initiateMultipartUpload(
+            new InitiateMultipartUploadRequest(name, this.key, meta)
+        ).getUploadId();
+        try {
+            final List<PartETag> tags = new ArrayList<PartETag>(2);
+            long offset = 0L;
+            while (offset < file.length()) {
+                final long size = Math.min(
+                    DyObject.PART, file.length() - offset
+                );
+                tags.add(
+                    aws.uploadPart(
+                        new UploadPartRequest()
+                            .withBucketName(name)
+                            .withKey(this.key)
+                            .withUploadId(upload)
+                            .withPartNumber(tags.size() + 1)
+                            .withFile(file)
+                            .withFileOffset(offset)
+                            .withPartSize(size)
+                    ).getPartETag()
+                );
+                offset += size;
+            }
+            aws.completeMultipartUpload(
+                new CompleteMultipartUploadRequest(
+                    name, this.key, upload, tags
+                )
+            );
+            Logger.info(
+                this, "%d bytes uploaded to %s in %d part(s)",
+                file.length(), this.key, tags.size()
+            );
+        } catch (final AmazonClientException ex) {
+            aws.abortMultipartUpload(
+                new AbortMultipartUploadRequest(name, this.key, upload)
+            );
+            throw new IOException(ex);
+        }
+    }
+
+    /**
+     * Lazy stream of the object, opened on first read.
+     */
+    private static final class Stream extends InputStream {
+        /**
+         * Bucket.
+         */
+        private final transient Bucket bucket;
+        /**
+         * Key.
+         */
+        private final transient String key;
+        /**
+         * How many bytes to skip before opening.
+         */
+        private transient long offset;
+        /**
+         * Opened stream, or NULL.
+         */
+        private transient InputStream origin;
+        /**
+         * S3 client of the opened stream, or NULL.
+         */
+        private transient AmazonS3 aws;
+        /**
+         * Ctor.
+         * @param bkt Bucket
+         * @param name Key
+         */
+        Stream(final Bucket bkt, final String name) {
+            super();
+            this.bucket = bkt;
+            this.key = name;
+        }
+        @Override
+        public int read() throws IOException {
+            return this.open().read();
+        }
+        @Override
+        public int read(final byte[] buf, final int off, final int len)
+            throws IOException {
+            return this.open().read(buf, off, len);
+        }
+        @Override
+        public long skip(final long num) throws IOException {
+            final long skipped;
+            if (this.origin == null) {
+                this.offset += num;
+                skipped = num;
+            } else {
+                skipped = this.origin.skip(num);
+            }
+            return skipped;
+        }
+        @Override
+        public void close() throws IOException {
+            try {
+                if (this.origin != null) {
+                    this.origin.close();
+                }
+            } finally {
+                if (this.aws != null) {
+                    this.aws.shutdown();
+                    this.aws = null;
+                }
+            }
+        }
+        /**
+         * Open the stream, if not yet.
+         * @return Stream
+         * @throws IOException If fails
+         */
+        private InputStream open() throws IOException {
+            if (this.origin == null) {
+                this.aws = DyObject.aws(this.bucket);
+                if (this.aws == null) {
+                    this.origin = this.pipe();
+                } else {
+                    final GetObjectRequest request = new GetObjectRequest(
+                        this.bucket.name(), this.key
+                    );
+                    if (this.offset > 0L) {
+                        request.setRange(this.offset, Long.MAX_VALUE);
+                    }
+                    try {
+                        this.origin = this.aws.getObject(request)
+                            .getObjectContent();
+                    } catch (final AmazonS3Exception ex) {
+                        if (ex.getStatusCode() != DyObject.UNSATISFIABLE) {
+                            this.close();
+                            throw new IOException(ex);
+                        }
+                        this.origin = new ByteArrayInputStream(new byte[0]);
+                    }
+                }
+            }
+            return this.origin;
+        }
+        /**
+         * Read the object through its ocket, in a thread of the pool.
+         * @return Stream
+         * @throws IOException If fails
+         */
+        private InputStream pipe() throws IOException {
+            final PipedInputStream input = new PipedInputStream(
+                Tv.SIXTY * Tv.THOUSAND
+            );
+            final OutputStream output = new PipedOutputStream(input);
+            final Ocket ocket = this.bucket.ocket(this.key);
+            DyObject.PIPES.submit(
+                new VerboseRunnable(
+                    new Callable<Void>() {
+                        @Override
+                        public Void call() throws IOException {
+                            try {
+                                ocket.read(output);
+                            } finally {
+                                output.close();
+                            }
+                            return null;
+                        }
+                    },
+                    true
+                )
+            );
+            long left = this.offset;
+            while (left > 0L) {
+                final long skipped = input.skip(left);
+                if (skipped <= 0L) {
+                    break;
+                }
+                left -= skipped;
+            }
+            return input;
+        }
+    }
+
+}
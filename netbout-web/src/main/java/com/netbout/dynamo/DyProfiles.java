@@ -0,0 +1,222 @@
+/**
+ * Copyright (c) 2009-2015, netbout.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are PROHIBITED without prior written permission from
+ * the author. This product may NOT be used anywhere and on any computer
+ * except the server platform of netbout Inc. located at www.netbout.com.
+ * Federal copyright law prohibits unauthorized reproduction by any means
+ * and imposes fines up to $25,000 for violation. If you received
+ * this code accidentally and without intent to use it, please report this
+ * incident to the author by email.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.netbout.dynamo;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
+import com.jcabi.aspects.Immutable;
+import com.jcabi.aspects.Loggable;
+import com.jcabi.dynamo.Attributes;
+import com.jcabi.dynamo.Region;
+import com.netbout.spi.Alias;
+import com.netbout.spi.Friend;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Profiles of friends, loaded from "aliases" table in batches.
+ *
+ * <p>Every {@link Friend} returned has its photo and email already
+ * loaded, by one BatchGetItem request per {@link #BATCH} aliases. Friends
+ * whose aliases don't exist any more get a blank photo and an empty
+ * email, exactly as {@link DyFriend} does.
+ *
+ * @author Yegor Bugayenko (yegor@teamed.io)
+ * @version $Id$
+ * @since 2.16
+ */
+@Immutable
+@Loggable(Loggable.DEBUG)
+@ToString
+@EqualsAndHashCode(of = "region")
+final class DyProfiles {
+
+    /**
+     * Maximum number of keys in one BatchGetItem request.
+     */
+    private static final int BATCH = 100;
+
+    /**
+     * Region to work with.
+     */
+    private final transient Region region;
+
+    /**
+     * Ctor.
+     * @param reg Region
+     */
+    DyProfiles(final Region reg) {
+        this.region = reg;
+    }
+
+    /**
+     * Load friends.
+     * @param aliases Aliases of them
+     * @return Friends, in the same order
+     */
+    public List<Friend> fetch(final Collection<String> aliases) {
+        final Map<String, Attributes> found = this.load(aliases);
+        final List<Friend> friends = new ArrayList<Friend>(aliases.size());
+        for (final String alias : aliases) {
+            Attributes attrs = found.get(alias);
+            if (attrs == null) {
+                attrs = new Attributes();
+            }
+            friends.add(new DyProfiles.Profile(alias, attrs));
+        }
+        return friends;
+    }
+
+    /**
+     * Load profiles of existing aliases.
+     * @param aliases Aliases
+     * @return Attributes of them, by aliases
+     */
+    private Map<String, Attributes> load(final Collection<String> aliases) {
+        final Map<String, Attributes> found =
+            new HashMap<String, Attributes>(aliases.size());
+        if (!aliases.isEmpty()) {
+            final String table = this.region.table(DyAliases.TBL).name();
+            final AmazonDynamoDB aws = this.region.aws();
+            try {
+                final List<Map<String, AttributeValue>> keys =
+                    new ArrayList<Map<String, AttributeValue>>(aliases.size());
+                for (final String alias : aliases) {
+                    keys.add(new Attributes().with(DyAliases.HASH, alias));
+                }
+                for (int pos = 0; pos < keys.size(); pos += DyProfiles.BATCH) {
+                    DyProfiles.batch(
+                        aws, table,
+                        keys.subList(
+                            pos, Math.min(pos + DyProfiles.BATCH, keys.size())
+                        ),
+                        found
+                    );
+                }
+            } finally {
+                aws.shutdown();
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Load one batch, retrying unprocessed keys.
+     * @param aws AWS client
+     * @param table Table name
+     * @param keys Keys, no more than {@link #BATCH}
+     * @param found Where to put found profiles
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    private static void batch(final AmazonDynamoDB aws, final String table,
+        final Collection<Map<String, AttributeValue>> keys,
+        final Map<String, Attributes> found) {
+        Map<String, KeysAndAttributes> request = Collections.singletonMap(
+            table,
+            new KeysAndAttributes()
+                .withKeys(keys)
+                .withAttributesToGet(
+                    DyAliases.HASH, DyAliases.ATTR_PHOTO, DyAliases.ATTR_EMAIL
+                )
+        );
+        while (request != null && !request.isEmpty()) {
+            final BatchGetItemResult result = aws.batchGetItem(
+                new BatchGetItemRequest().withRequestItems(request)
+            );
+            final Collection<Map<String, AttributeValue>> items =
+                result.getResponses().get(table);
+            if (items != null) {
+                for (final Map<String, AttributeValue> item : items) {
+                    found.put(
+                        item.get(DyAliases.HASH).getS(), new Attributes(item)
+                    );
+                }
+            }
+            request = result.getUnprocessedKeys();
+        }
+    }
+
+    /**
+     * Friend with a loaded profile.
+     */
+    @Immutable
+    @Loggable(Loggable.DEBUG)
+    @ToString(of = "name")
+    @EqualsAndHashCode(of = { "name", "attrs" })
+    private static final class Profile implements Friend {
+        /**
+         * Alias.
+         */
+        private final transient String name;
+        /**
+         * Attributes from "aliases" table (empty if alias is absent).
+         */
+        private final transient Attributes attrs;
+        /**
+         * Ctor.
+         * @param alias Alias
+         * @param map Attributes
+         */
+        Profile(final String alias, final Attributes map) {
+            this.name = alias;
+            this.attrs = map;
+        }
+        @Override
+        public String alias() {
+            return this.name;
+        }
+        @Override
+        public URI photo() {
+            final URI uri;
+            if (this.attrs.containsKey(DyAliases.ATTR_PHOTO)) {
+                uri = URI.create(this.attrs.get(DyAliases.ATTR_PHOTO).getS());
+            } else {
+                uri = Alias.BLANK;
+            }
+            return uri;
+        }
+        @Override
+        public String email() {
+            String email = "";
+            if (this.attrs.containsKey(DyAliases.ATTR_EMAIL)) {
+                email = this.attrs.get(DyAliases.ATTR_EMAIL).getS();
+            }
+            return email;
+        }
+    }
+
+}
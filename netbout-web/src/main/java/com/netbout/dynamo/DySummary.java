@@ -0,0 +1,291 @@
+/**
+ * Copyright (c) 2009-2015, netbout.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are PROHIBITED without prior written permission from
+ * the author. This product may NOT be used anywhere and on any computer
+ * except the server platform of netbout Inc. located at www.netbout.com.
+ * Federal copyright law prohibits unauthorized reproduction by any means
+ * and imposes fines up to $25,000 for violation. If you received
+ * this code accidentally and without intent to use it, please report this
+ * incident to the author by email.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.netbout.dynamo;
+
+import com.jcabi.aspects.Immutable;
+import com.jcabi.aspects.Loggable;
+import com.jcabi.dynamo.Attributes;
+import com.jcabi.dynamo.Region;
+import com.netbout.spi.Attachment;
+import com.netbout.spi.Attachments;
+import com.netbout.spi.Bout;
+import com.netbout.spi.Friend;
+import com.netbout.spi.Friends;
+import com.netbout.spi.Message;
+import com.netbout.spi.Messages;
+import com.netbout.spi.Pageable;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Dynamo bout summary, built from one row of "inbox" index.
+ *
+ * <p>The "inbox" global index projects all attributes of "friends"
+ * table, so everything the inbox page needs (title, date, number of seen
+ * messages, unseen attachments and the list of participants) is already
+ * in the row. The only things missing are the total number of messages,
+ * which is loaded from the head of the bout, see {@link DyHead}, and
+ * profiles of the participants, which are loaded for the entire page,
+ * see {@link DyInbox#iterate()}.
+ *
+ * @author Yegor Bugayenko (yegor@teamed.io)
+ * @version $Id$
+ * @since 2.16
+ * @checkstyle ClassDataAbstractionCouplingCheck (500 lines)
+ */
+@Immutable
+@Loggable(Loggable.DEBUG)
+@ToString(of = "row")
+@EqualsAndHashCode(of = { "region", "row", "self", "total" })
+@SuppressWarnings({ "PMD.TooManyMethods", "PMD.ExcessiveImports" })
+final class DySummary implements Bout {
+
+    /**
+     * Region we're in.
+     */
+    private final transient Region region;
+
+    /**
+     * Row of the "inbox" index.
+     */
+    private final transient Attributes row;
+
+    /**
+     * Alias of myself.
+     */
+    private final transient String self;
+
+    /**
+     * Total number of messages in the bout, see {@link DyHead}.
+     */
+    private final transient long total;
+
+    /**
+     * Participants of the bout, with their profiles loaded.
+     */
+    private final transient Friends members;
+
+    /**
+     * Ctor.
+     * @param reg Region we're in
+     * @param attrs All attributes of the row in "friends" table
+     * @param slf Self alias
+     * @param messages Total number of messages in the bout
+     * @param friends Participants of the bout
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    DySummary(final Region reg, final Attributes attrs, final String slf,
+        final long messages, final Friends friends) {
+        this.region = reg;
+        this.row = attrs;
+        this.self = slf;
+        this.total = messages;
+        this.members = friends;
+    }
+
+    @Override
+    public long number() {
+        return Long.parseLong(this.row.get(DyFriends.HASH).getN());
+    }
+
+    @Override
+    public Date date() {
+        return new Date(
+            Long.parseLong(this.row.get(DyFriends.ATTR_UPDATED).getN())
+        );
+    }
+
+    @Override
+    public Date updated() {
+        return this.date();
+    }
+
+    @Override
+    public String title() {
+        return this.row.get(DyFriends.ATTR_TITLE).getS();
+    }
+
+    @Override
+    public void rename(final String text) {
+        throw new UnsupportedOperationException("#rename()");
+    }
+
+    @Override
+    public Messages messages() {
+        return new DySummary.Unread(
+            new DyMessages(this.region, this.number(), this.self),
+            DyHead.unread(this.total, this.row)
+        );
+    }
+
+    @Override
+    public Friends friends() {
+        return this.members;
+    }
+
+    @Override
+    public Attachments attachments() {
+        int unseen = 0;
+        if (this.row.containsKey(DyFriends.ATTR_UNSEEN)) {
+            unseen = this.row.get(DyFriends.ATTR_UNSEEN).getSS().size();
+        }
+        return new DySummary.Unseen(
+            new DyAttachments(this.region, this.number(), this.self),
+            unseen
+        );
+    }
+
+    /**
+     * Messages with the number of unread already known.
+     */
+    @Immutable
+    @Loggable(Loggable.DEBUG)
+    @ToString(of = "origin")
+    @EqualsAndHashCode(of = { "origin", "total" })
+    private static final class Unread implements Messages {
+        /**
+         * Original messages.
+         */
+        private final transient Messages origin;
+        /**
+         * Total unread.
+         */
+        private final transient long total;
+        /**
+         * Ctor.
+         * @param org Original messages
+         * @param unread How many of them are unread
+         */
+        Unread(final Messages org, final long unread) {
+            this.origin = org;
+            this.total = unread;
+        }
+        @Override
+        public void post(final String text) throws IOException {
+            this.origin.post(text);
+        }
+        @Override
+        public long unread() {
+            return this.total;
+        }
+        @Override
+        public Pageable<Message> jump(final long number) throws IOException {
+            return this.origin.jump(number);
+        }
+        @Override
+        public Iterable<Message> iterate() throws IOException {
+            return this.origin.iterate();
+        }
+    }
+
+    /**
+     * Attachments with the number of unseen already known.
+     */
+    @Immutable
+    @Loggable(Loggable.DEBUG)
+    @ToString(of = "origin")
+    @EqualsAndHashCode(of = { "origin", "total" })
+    private static final class Unseen implements Attachments {
+        /**
+         * Original attachments.
+         */
+        private final transient Attachments origin;
+        /**
+         * Total unseen.
+         */
+        private final transient int total;
+        /**
+         * Ctor.
+         * @param org Original attachments
+         * @param unseen How many of them are unseen
+         */
+        Unseen(final Attachments org, final int unseen) {
+            this.origin = org;
+            this.total = unseen;
+        }
+        @Override
+        public int unseen() {
+            return this.total;
+        }
+        @Override
+        public void create(final String name) throws IOException {
+            this.origin.create(name);
+        }
+        @Override
+        public void delete(final String name) throws IOException {
+            this.origin.delete(name);
+        }
+        @Override
+        public Attachment get(final String name) throws IOException {
+            return this.origin.get(name);
+        }
+        @Override
+        public Iterable<Attachment> iterate() throws IOException {
+            return this.origin.iterate();
+        }
+    }
+
+    /**
+     * Friends with their profiles already loaded.
+     *
+     * <p>The class is not immutable, since it keeps a list, but it
+     * never changes the list and never gives it out.
+     */
+    @Loggable(Loggable.DEBUG)
+    @ToString(of = "list")
+    @EqualsAndHashCode(of = "list")
+    static final class Members implements Friends {
+        /**
+         * All participants.
+         */
+        private final transient Collection<Friend> list;
+        /**
+         * Ctor.
+         * @param friends All participants
+         */
+        Members(final Collection<Friend> friends) {
+            this.list = friends;
+        }
+        @Override
+        public void invite(final String friend) {
+            throw new UnsupportedOperationException("#invite()");
+        }
+        @Override
+        public void kick(final String friend) {
+            throw new UnsupportedOperationException("#kick()");
+        }
+        @Override
+        public Iterable<Friend> iterate() {
+            return Collections.unmodifiableCollection(this.list);
+        }
+    }
+
+}
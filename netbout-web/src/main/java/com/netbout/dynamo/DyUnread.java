@@ -0,0 +1,244 @@
+/**
+ * Copyright (c) 2009-2015, netbout.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are PROHIBITED without prior written permission from
+ * the author. This product may NOT be used anywhere and on any computer
+ * except the server platform of netbout Inc. located at www.netbout.com.
+ * Federal copyright law prohibits unauthorized reproduction by any means
+ * and imposes fines up to $25,000 for violation. If you received
+ * this code accidentally and without intent to use it, please report this
+ * incident to the author by email.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.netbout.dynamo;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeAction;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.AttributeValueUpdate;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.jcabi.aspects.Async;
+import com.jcabi.aspects.Immutable;
+import com.jcabi.aspects.Loggable;
+import com.jcabi.dynamo.AttributeUpdates;
+import com.jcabi.dynamo.Attributes;
+import com.jcabi.dynamo.Region;
+import com.jcabi.log.Logger;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Total number of unread messages of an alias.
+ *
+ * <p>The total is stored in "unread" attribute of the alias, in "aliases"
+ * table, and is read by one GetItem. It is always the sum of "pending"
+ * attributes of all rows of the alias in "friends" table. Every change
+ * of a row's "pending" is done by one atomic update of the row, which
+ * returns how much it changed, and then exactly that much is added
+ * to the total, by atomic ADD:
+ *
+ * <ul>
+ *     <li>a message posted adds one to the row of every friend, except
+ *     the author, see {@code DyMessages#updated()};</li>
+ *     <li>a bout seen resets the row to zero and subtracts its old
+ *     value, see {@code DyMessages#seen()};</li>
+ *     <li>a friend kicked deletes the row and subtracts its value,
+ *     see {@link DyFriends#kick(String)}.</li>
+ * </ul>
+ *
+ * <p>Rows created before the total was introduced don't have "pending"
+ * and are not counted. They start to be counted when they are shown in
+ * the inbox, with the number of messages unread there, see
+ * {@link #start(long, long)}, or when the bout is seen, with zero.
+ *
+ * <p>Nothing is ever recalculated, so the total doesn't drift away from
+ * the rows. Since the total is updated right after the row, it may be
+ * behind it for a moment.
+ *
+ * @author Yegor Bugayenko (yegor@teamed.io)
+ * @version $Id$
+ * @since 2.16
+ */
+@Immutable
+@Loggable(Loggable.DEBUG)
+@ToString(of = "alias")
+@EqualsAndHashCode(of = { "region", "alias" })
+final class DyUnread {
+
+    /**
+     * Total unread attribute, in "aliases" table.
+     */
+    public static final String ATTR_UNREAD = "unread";
+
+    /**
+     * Region we're in.
+     */
+    private final transient Region region;
+
+    /**
+     * Alias.
+     */
+    private final transient String alias;
+
+    /**
+     * Ctor.
+     * @param reg Region we're in
+     * @param name Alias
+     */
+    DyUnread(final Region reg, final String name) {
+        this.region = reg;
+        this.alias = name;
+    }
+
+    /**
+     * Current total.
+     * @return Total number of unread messages
+     */
+    public long value() {
+        final AmazonDynamoDB aws = this.region.aws();
+        final Map<String, AttributeValue> item;
+        try {
+            item = aws.getItem(
+                new GetItemRequest()
+                    .withTableName(this.region.table(DyAliases.TBL).name())
+                    .withKey(this.key())
+                    .withAttributesToGet(DyUnread.ATTR_UNREAD)
+                    .withConsistentRead(false)
+            ).getItem();
+        } finally {
+            aws.shutdown();
+        }
+        long total = 0L;
+        if (item != null && item.containsKey(DyUnread.ATTR_UNREAD)) {
+            total = Long.parseLong(item.get(DyUnread.ATTR_UNREAD).getN());
+        }
+        return total;
+    }
+
+    /**
+     * Add a number (positive or negative) to the total, after "pending"
+     * of a row was changed by exactly that number.
+     * @param delta How many to add
+     */
+    public void add(final long delta) {
+        if (delta != 0L) {
+            final AmazonDynamoDB aws = this.region.aws();
+            try {
+                aws.updateItem(
+                    new UpdateItemRequest()
+                        .withTableName(this.region.table(DyAliases.TBL).name())
+                        .withKey(this.key())
+                        .withAttributeUpdates(
+                            new AttributeUpdates().with(
+                                DyUnread.ATTR_UNREAD, DyUnread.plus(delta)
+                            )
+                        )
+                        .withExpected(
+                            Collections.singletonMap(
+                                DyAliases.HASH,
+                                new ExpectedAttributeValue().withValue(
+                                    new AttributeValue().withS(this.alias)
+                                )
+                            )
+                        )
+                );
+            } catch (final ConditionalCheckFailedException ex) {
+                Logger.debug(this, "alias @%s is absent", this.alias);
+            } finally {
+                aws.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Start counting the row of the bout, which was created before the
+     * total was introduced, unless it's counted already.
+     * @param bout Bout number
+     * @param unread Number of unread messages there
+     */
+    @Async
+    public void start(final long bout, final long unread) {
+        final Map<String, ExpectedAttributeValue> expected =
+            new HashMap<String, ExpectedAttributeValue>(
+                DyFriends.exists(this.alias)
+            );
+        expected.put(
+            DyFriends.ATTR_PENDING,
+            new ExpectedAttributeValue().withExists(false)
+        );
+        final AmazonDynamoDB aws = this.region.aws();
+        try {
+            aws.updateItem(
+                new UpdateItemRequest()
+                    .withTableName(this.region.table(DyFriends.TBL).name())
+                    .withKey(DyFriends.key(bout, this.alias))
+                    .withAttributeUpdates(
+                        new AttributeUpdates().with(
+                            DyFriends.ATTR_PENDING, unread
+                        )
+                    )
+                    .withExpected(expected)
+            );
+            this.add(unread);
+        } catch (final ConditionalCheckFailedException ex) {
+            Logger.debug(
+                this, "row of @%s in #%d is counted", this.alias, bout
+            );
+        } finally {
+            aws.shutdown();
+        }
+    }
+
+    /**
+     * Atomic addition.
+     * @param delta How many to add
+     * @return Update
+     */
+    static AttributeValueUpdate plus(final long delta) {
+        return new AttributeValueUpdate()
+            .withAction(AttributeAction.ADD)
+            .withValue(new AttributeValue().withN(Long.toString(delta)));
+    }
+
+    /**
+     * Pending value of a row of "friends" table.
+     * @param row Attributes of the row, maybe NULL
+     * @return Value or zero if the row is absent or not counted
+     */
+    static long pending(final Map<String, AttributeValue> row) {
+        long pending = 0L;
+        if (row != null && row.containsKey(DyFriends.ATTR_PENDING)) {
+            pending = Long.parseLong(row.get(DyFriends.ATTR_PENDING).getN());
+        }
+        return pending;
+    }
+
+    /**
+     * Key of the alias in "aliases" table.
+     * @return Key
+     */
+    private Attributes key() {
+        return new Attributes().with(DyAliases.HASH, this.alias);
+    }
+
+}
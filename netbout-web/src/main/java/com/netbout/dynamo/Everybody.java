@@ -26,28 +26,78 @@
  */
 package com.netbout.dynamo;
 
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
 import com.jcabi.aspects.Immutable;
 import com.jcabi.aspects.Loggable;
 import com.jcabi.aspects.Tv;
 import com.jcabi.dynamo.Conditions;
 import com.jcabi.dynamo.QueryValve;
 import com.jcabi.dynamo.Region;
+import com.jcabi.log.Logger;
+import com.jcabi.log.VerboseRunnable;
+import com.jcabi.log.VerboseThreads;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 
 /**
  * Everybody.
  *
+ * <p>All aliases known are kept in memory, in a Bloom filter, built by
+ * a parallel scan of "aliases" table when the filter is used for the first
+ * time, and updated when aliases are added through this dyno. Aliases
+ * added through other dynos get into the filter when it is built again,
+ * by the next scan, every few minutes. If the scan fails, it is retried
+ * a bit later. That's why the filter is used only by {@link #free(String)},
+ * which is allowed to be wrong for a few minutes, while
+ * {@link #occupied(String)} always checks DynamoDB, unless the alias
+ * was recently seen there.
+ *
  * @author Yegor Bugayenko (yegor@teamed.io)
  * @version $Id$
  * @since 2.0
+ * @checkstyle ClassDataAbstractionCouplingCheck (500 lines)
  */
 @Immutable
 @Loggable(Loggable.DEBUG)
 @ToString
 @EqualsAndHashCode(of = "region")
+@SuppressWarnings("PMD.DoNotUseThreads")
 final class Everybody {
 
+    /**
+     * Threads building indexes.
+     */
+    private static final ExecutorService SERVICE =
+        Executors.newCachedThreadPool(new VerboseThreads(Everybody.class));
+
+    /**
+     * Indexes, by names of tables.
+     */
+    private static final ConcurrentMap<String, Everybody.Index> INDEXES =
+        new ConcurrentHashMap<String, Everybody.Index>(1);
+
     /**
      * Region to work with.
      */
@@ -67,17 +117,389 @@ final class Everybody {
      * @return TRUE if occupied
      */
     public boolean occupied(final String name) {
+        Everybody.validate(name);
+        final Everybody.Index index = this.index();
+        boolean found = index.known(name);
+        if (!found) {
+            found = this.region.table(DyAliases.TBL).frame()
+                .through(new QueryValve().withLimit(1))
+                .where(DyAliases.HASH, Conditions.equalTo(name))
+                .iterator()
+                .hasNext();
+            if (found) {
+                index.add(name);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * This name is most likely free (it may be occupied through another
+     * dyno a few minutes ago).
+     * @param name The name
+     * @return TRUE if free
+     */
+    public boolean free(final String name) {
+        Everybody.validate(name);
+        return this.index().absent(name) || !this.occupied(name);
+    }
+
+    /**
+     * This name was just occupied.
+     * @param name The name
+     */
+    public void add(final String name) {
+        this.index().add(name);
+    }
+
+    /**
+     * Index of this region.
+     * @return Index
+     */
+    private Everybody.Index index() {
+        final String table = this.region.table(DyAliases.TBL).name();
+        Everybody.Index index = Everybody.INDEXES.get(table);
+        if (index == null) {
+            final Everybody.Index fresh = new Everybody.Index();
+            index = Everybody.INDEXES.putIfAbsent(table, fresh);
+            if (index == null) {
+                index = fresh;
+            }
+        }
+        index.refresh(this.region);
+        return index;
+    }
+
+    /**
+     * Validate the name.
+     * @param name The name
+     */
+    private static void validate(final String name) {
         if (name.isEmpty()) {
             throw new IllegalArgumentException("alias can't be empty");
         }
         if (name.length() > Tv.HUNDRED) {
             throw new IllegalArgumentException("alias is too long");
         }
-        return this.region.table(DyAliases.TBL).frame()
-            .through(new QueryValve().withLimit(1))
-            .where(DyAliases.HASH, Conditions.equalTo(name))
-            .iterator()
-            .hasNext();
+    }
+
+    /**
+     * Index of aliases.
+     */
+    private static final class Index {
+        /**
+         * How many segments to scan in parallel.
+         */
+        private static final int SEGMENTS = Tv.FOUR;
+        /**
+         * How many recent hits to remember.
+         */
+        private static final int HITS = Tv.TEN * Tv.THOUSAND;
+        /**
+         * How often to build the filter again, in milliseconds.
+         */
+        private static final long REFRESH = TimeUnit.MINUTES.toMillis(
+            (long) Tv.FIVE
+        );
+        /**
+         * How soon to retry a failed scan, in milliseconds.
+         */
+        private static final long RETRY = TimeUnit.SECONDS.toMillis(
+            (long) Tv.THIRTY
+        );
+        /**
+         * Filter, or NULL if not built yet.
+         */
+        private transient volatile Everybody.Bloom bloom;
+        /**
+         * When the filter has to be built again.
+         */
+        private transient volatile long expires;
+        /**
+         * The filter is being built now.
+         */
+        private final transient AtomicBoolean building = new AtomicBoolean();
+        /**
+         * Recently confirmed aliases, least recently used first.
+         */
+        private final transient Map<String, Boolean> hits =
+            Collections.synchronizedMap(
+                new LinkedHashMap<String, Boolean>(
+                    Tv.HUNDRED, 0.75f, true
+                ) {
+                    private static final long serialVersionUID = 1L;
+                    @Override
+                    protected boolean removeEldestEntry(
+                        final Map.Entry<String, Boolean> eldest) {
+                        return this.size() > Everybody.Index.HITS;
+                    }
+                }
+            );
+        /**
+         * The alias surely exists.
+         * @param name The name
+         * @return TRUE if it was confirmed recently
+         */
+        public boolean known(final String name) {
+            return this.hits.get(name) != null;
+        }
+        /**
+         * The alias surely doesn't exist (as far as this dyno knows).
+         * @param name The name
+         * @return TRUE if the filter is built and doesn't have it
+         */
+        public boolean absent(final String name) {
+            final Everybody.Bloom filter = this.bloom;
+            return filter != null && !filter.contains(name)
+                && !this.known(name);
+        }
+        /**
+         * Add an alias.
+         * @param name The name
+         */
+        public void add(final String name) {
+            this.hits.put(name, Boolean.TRUE);
+            final Everybody.Bloom filter = this.bloom;
+            if (filter != null) {
+                filter.add(name);
+            }
+        }
+        /**
+         * Build the filter in background, if it's time to do it and
+         * nobody is building it already.
+         * @param region Region
+         */
+        public void refresh(final Region region) {
+            if (System.currentTimeMillis() >= this.expires
+                && this.building.compareAndSet(false, true)) {
+                Everybody.SERVICE.submit(
+                    new VerboseRunnable(
+                        new Runnable() {
+                            @Override
+                            public void run() {
+                                Index.this.rebuild(region);
+                            }
+                        },
+                        true
+                    )
+                );
+            }
+        }
+        /**
+         * Build the filter and schedule the next build, sooner if
+         * this one failed.
+         * @param region Region
+         */
+        private void rebuild(final Region region) {
+            long delay = Index.RETRY;
+            try {
+                this.build(region);
+                delay = Index.REFRESH;
+            } catch (final IllegalStateException ex) {
+                Logger.warn(
+                    this, "failed to index aliases, will retry: %s", ex
+                );
+            } finally {
+                this.expires = System.currentTimeMillis() + delay;
+                this.building.set(false);
+            }
+        }
+        /**
+         * Build the filter, by a parallel scan of the table.
+         * @param region Region
+         */
+        private void build(final Region region) {
+            final long start = System.currentTimeMillis();
+            final Collection<String> names =
+                new ConcurrentLinkedQueue<String>();
+            final String table = region.table(DyAliases.TBL).name();
+            final Collection<Future<?>> scans =
+                new ArrayList<Future<?>>(Index.SEGMENTS);
+            for (int seg = 0; seg < Index.SEGMENTS; ++seg) {
+                final int segment = seg;
+                scans.add(
+                    Everybody.SERVICE.submit(
+                        new Runnable() {
+                            @Override
+                            public void run() {
+                                Index.scan(region, table, segment, names);
+                            }
+                        }
+                    )
+                );
+            }
+            for (final Future<?> scan : scans) {
+                try {
+                    scan.get();
+                } catch (final InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(ex);
+                } catch (final ExecutionException ex) {
+                    throw new IllegalStateException(
+                        String.format("failed to scan %s", table), ex
+                    );
+                }
+            }
+            final Everybody.Bloom filter = new Everybody.Bloom(
+                Math.max(names.size() * 2, Tv.TEN * Tv.THOUSAND)
+            );
+            for (final String name : names) {
+                filter.add(name);
+            }
+            this.bloom = filter;
+            synchronized (this.hits) {
+                for (final String name : this.hits.keySet()) {
+                    filter.add(name);
+                }
+            }
+            Logger.info(
+                this,
+                "%d aliases indexed in %[ms]s, %d bytes, %.4f FPP",
+                names.size(), System.currentTimeMillis() - start,
+                filter.bytes(), filter.fpp()
+            );
+        }
+        /**
+         * Scan one segment of the table.
+         * @param region Region
+         * @param table Table name
+         * @param segment Segment number
+         * @param names Names found
+         * @checkstyle ParameterNumberCheck (5 lines)
+         */
+        private static void scan(final Region region, final String table,
+            final int segment, final Collection<String> names) {
+            final AmazonDynamoDB aws = region.aws();
+            try {
+                Map<String, AttributeValue> next = null;
+                do {
+                    final ScanResult result = aws.scan(
+                        new ScanRequest()
+                            .withTableName(table)
+                            .withAttributesToGet(DyAliases.HASH)
+                            .withSegment(segment)
+                            .withTotalSegments(Index.SEGMENTS)
+                            .withExclusiveStartKey(next)
+                    );
+                    for (final Map<String, AttributeValue> item
+                        : result.getItems()) {
+                        names.add(item.get(DyAliases.HASH).getS());
+                    }
+                    next = result.getLastEvaluatedKey();
+                } while (next != null);
+            } finally {
+                aws.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Bloom filter of strings, with 1% of false positives when full.
+     */
+    private static final class Bloom {
+        /**
+         * Number of hash functions.
+         */
+        private static final int HASHES = Tv.SEVEN;
+        /**
+         * Bits per element, for 1% of false positives.
+         */
+        private static final int BITS = Tv.TEN;
+        /**
+         * Bits.
+         */
+        private final transient BitSet bits;
+        /**
+         * Total number of bits.
+         */
+        private final transient int size;
+        /**
+         * Elements added.
+         */
+        private transient int count;
+        /**
+         * Ctor.
+         * @param capacity Expected number of elements
+         */
+        Bloom(final int capacity) {
+            this.size = capacity * Bloom.BITS;
+            this.bits = new BitSet(this.size);
+        }
+        /**
+         * Add an element.
+         * @param text Element
+         */
+        public void add(final String text) {
+            final int[] positions = this.positions(text);
+            synchronized (this.bits) {
+                for (final int pos : positions) {
+                    this.bits.set(pos);
+                }
+                ++this.count;
+            }
+        }
+        /**
+         * The element might be there.
+         * @param text Element
+         * @return TRUE if it might be added
+         */
+        public boolean contains(final String text) {
+            final int[] positions = this.positions(text);
+            boolean found = true;
+            synchronized (this.bits) {
+                for (int idx = 0; idx < positions.length && found; ++idx) {
+                    found = this.bits.get(positions[idx]);
+                }
+            }
+            return found;
+        }
+        /**
+         * Memory used.
+         * @return Bytes
+         */
+        public int bytes() {
+            return this.size / Byte.SIZE;
+        }
+        /**
+         * Expected rate of false positives, with elements added so far.
+         * @return Rate
+         */
+        public double fpp() {
+            final int added;
+            synchronized (this.bits) {
+                added = this.count;
+            }
+            return Math.pow(
+                1.0d - Math.exp(
+                    -(double) Bloom.HASHES * added / this.size
+                ),
+                Bloom.HASHES
+            );
+        }
+        /**
+         * Positions of the bits of the element.
+         *
+         * <p>Two independent 64-bit halves of MurmurHash3 are combined
+         * into all hash functions, as Kirsch and Mitzenmacher suggest.
+         *
+         * @param text Element
+         * @return Positions
+         */
+        private int[] positions(final String text) {
+            final ByteBuffer hash = ByteBuffer.wrap(
+                Hashing.murmur3_128().hashString(text, Charsets.UTF_8)
+                    .asBytes()
+            ).order(ByteOrder.LITTLE_ENDIAN);
+            final long first = hash.getLong();
+            final long second = hash.getLong();
+            final int[] positions = new int[Bloom.HASHES];
+            for (int idx = 0; idx < positions.length; ++idx) {
+                positions[idx] = (int) (
+                    ((first + idx * second) & Long.MAX_VALUE) % this.size
+                );
+            }
+            return positions;
+        }
     }
 
 }
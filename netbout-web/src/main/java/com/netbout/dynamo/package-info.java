@@ -31,9 +31,15 @@
  * <p>There are the following tables in DynamoDB:
  *
  * <pre>
- * aliases: (hash:alias, urn, photo, locale) -> GSI(urn,alias)
- * friends: (hash:bout, range:alias, title, updated, new) -> GSI(alias,updated)
- * messages: (hash:bout, range:msg, text, alias, date)
+ * aliases: (hash:alias, urn, photo, locale, email, unread)
+ *   -> GSI(urn,alias)
+ * friends: (hash:bout, range:alias, title, updated, seen, pending,
+ *   unseen, friends, complete)
+ *   -> GSI(alias,updated)
+ * bouts: (hash:bout, total, last)
+ * counters: (hash:name, value)
+ * changes: (hash:stream, range:id, keys, dyno, expires)
+ * messages: (hash:bout, range:msg, text, html, alias, date)
  * attachments: (hash:bout, range:name, owner, ctype, data)
  * </pre>
  *
@@ -34,7 +34,7 @@ import com.jcabi.email.Postman;
 import com.jcabi.email.enclosure.EnHTML;
 import com.jcabi.email.stamp.StRecipient;
 import com.jcabi.email.stamp.StSubject;
-import com.netbout.rest.Markdown;
+import com.netbout.markdown.Markdown;
 import com.netbout.spi.Bout;
 import com.netbout.spi.Friend;
 import com.netbout.spi.Message;
@@ -43,6 +43,7 @@ import com.netbout.spi.Pageable;
 import java.io.IOException;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
+import org.apache.commons.lang3.StringUtils;
 
 /**
  * Email Messages.
@@ -87,11 +88,12 @@ final class EmMessages implements Messages {
     @Override
     public void post(final String text) throws IOException {
         this.origin.post(text);
+        final String html = new Markdown(StringUtils.strip(text)).html();
         for (final Friend friend : this.bout.friends().iterate()) {
             if (friend.email().isEmpty()) {
                 continue;
             }
-            this.email(friend, text);
+            this.email(friend, html);
         }
     }
 
@@ -113,10 +115,10 @@ final class EmMessages implements Messages {
     /**
      * Send an email.
      * @param friend Friend to send to
-     * @param text The text of the new message
+     * @param html The text of the new message, rendered to HTML
      * @throws IOException If fails
      */
-    private void email(final Friend friend, final String text)
+    private void email(final Friend friend, final String html)
         throws IOException {
         this.postman.send(
             new Envelope.MIME()
@@ -133,7 +135,7 @@ final class EmMessages implements Messages {
                 .with(
                     new EnHTML(
                         Joiner.on('\n').join(
-                            new Markdown(text).html(),
+                            html,
                             "<p>--<br/>to reply click here: ",
                             String.format(
                                 "http://www.netbout.com/b/%d</p>",
@@ -24,25 +24,37 @@
  * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
  * SUCH DAMAGE.
  */
-package com.netbout.rest;
+package com.netbout.markdown;
 
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
 import com.jcabi.aspects.Immutable;
-import com.jcabi.aspects.RetryOnFailure;
+import com.jcabi.aspects.Tv;
 import com.jcabi.log.Logger;
+import com.netbout.cached.Cache;
+import com.netbout.cached.Engine;
+import com.netbout.spi.Attachment;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import javax.validation.constraints.NotNull;
 import org.apache.commons.codec.CharEncoding;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringEscapeUtils;
 import org.pegdown.PegDownProcessor;
 import org.w3c.tidy.Tidy;
 
 /**
  * Text with markdown formatting.
  *
- * <p>The class is immutable and thread-safe.
+ * <p>The class is immutable and thread-safe. Every thread renders with its
+ * own PegDown processor and Tidy, because neither of them is thread-safe
+ * and the parser of PegDown is expensive to build, so there is no lock.
+ *
+ * <p>Rendered HTML is cached in {@link Cache#markdown()}, by the SHA-256
+ * of the text, since the same short texts are posted again and again.
  *
  * @author Yegor Bugayenko (yegor@teamed.io)
  * @version $Id$
@@ -52,9 +64,30 @@ import org.w3c.tidy.Tidy;
 public final class Markdown {
 
     /**
-     * Tidy.
+     * Region of the cache.
+     */
+    private static final String REGION = "markdown";
+
+    /**
+     * Tidy of the current thread.
+     */
+    private static final ThreadLocal<Tidy> TIDY = new ThreadLocal<Tidy>() {
+        @Override
+        protected Tidy initialValue() {
+            return Markdown.makeTidy();
+        }
+    };
+
+    /**
+     * PegDown processor of the current thread.
      */
-    private static final Tidy TIDY = Markdown.makeTidy();
+    private static final ThreadLocal<PegDownProcessor> PEGDOWN =
+        new ThreadLocal<PegDownProcessor>() {
+            @Override
+            protected PegDownProcessor initialValue() {
+                return new PegDownProcessor();
+            }
+        };
 
     /**
      * The source text.
@@ -71,16 +104,87 @@ public final class Markdown {
 
     /**
      * Convert it to HTML.
+     *
+     * <p>PegDown returns NULL when parsing takes too long, the text is
+     * rendered as a plain paragraph then.
+     *
      * @return The HTML
+     * @throws IOException If fails
      * @link https://github.com/sirthias/pegdown/issues/136
      */
-    @RetryOnFailure(verbose = false)
-    public String html() {
-        synchronized (Markdown.TIDY) {
-            return Markdown.clean(
-                new PegDownProcessor().markdownToHtml(this.text)
+    public String html() throws IOException {
+        final String src = this.text;
+        return Markdown.cached(
+            new Engine.Key(
+                Markdown.REGION,
+                Hashing.sha256().hashString(src, Charsets.UTF_8).toString()
+            ),
+            new Engine.Source<String>() {
+                @Override
+                public String load() {
+                    return Markdown.render(src);
+                }
+            }
+        );
+    }
+
+    /**
+     * Render markdown attachment to HTML.
+     *
+     * <p>The HTML is cached by the name and the ETag of the attachment,
+     * so it's read again only when uploaded again.
+     *
+     * @param bout Number of the bout
+     * @param atmt The attachment
+     * @return The HTML
+     * @throws IOException If fails
+     */
+    public static String html(final long bout, final Attachment atmt)
+        throws IOException {
+        return Markdown.cached(
+            new Engine.Key(Markdown.REGION, bout, atmt.name(), atmt.etag()),
+            new Engine.Source<String>() {
+                @Override
+                public String load() throws IOException {
+                    return Markdown.render(
+                        IOUtils.toString(atmt.read(), CharEncoding.UTF_8)
+                    );
+                }
+            }
+        );
+    }
+
+    /**
+     * Get HTML from the cache or render it.
+     * @param key Key in the cache
+     * @param source Source of HTML
+     * @return The HTML
+     * @throws IOException If fails
+     */
+    private static String cached(final Engine.Key key,
+        final Engine.Source<String> source) throws IOException {
+        return Cache.markdown().get(
+            key, (long) Tv.THIRTY, TimeUnit.DAYS, source
+        );
+    }
+
+    /**
+     * Render the text.
+     * @param src The text
+     * @return The HTML
+     */
+    private static String render(final String src) {
+        String html = Markdown.PEGDOWN.get().markdownToHtml(src);
+        if (html == null) {
+            Logger.warn(
+                Markdown.class, "failed to parse %d chars in time",
+                src.length()
+            );
+            html = String.format(
+                "<p>%s</p>", StringEscapeUtils.escapeXml(src)
             );
         }
+        return Markdown.clean(html);
     }
 
     /**
@@ -91,7 +195,7 @@ public final class Markdown {
     private static String clean(final String xml) {
         try {
             final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            Markdown.TIDY.parse(
+            Markdown.TIDY.get().parse(
                 IOUtils.toInputStream(xml, CharEncoding.UTF_8),
                 baos
             );
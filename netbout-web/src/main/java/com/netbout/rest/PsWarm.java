@@ -0,0 +1,239 @@
+/**
+ * Copyright (c) 2009-2015, netbout.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are PROHIBITED without prior written permission from
+ * the author. This product may NOT be used anywhere and on any computer
+ * except the server platform of netbout Inc. located at www.netbout.com.
+ * Federal copyright law prohibits unauthorized reproduction by any means
+ * and imposes fines up to $25,000 for violation. If you received
+ * this code accidentally and without intent to use it, please report this
+ * incident to the author by email.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.netbout.rest;
+
+import com.google.common.collect.Iterables;
+import com.jcabi.aspects.Tv;
+import com.jcabi.log.VerboseRunnable;
+import com.jcabi.log.VerboseThreads;
+import com.jcabi.urn.URN;
+import com.netbout.cached.Cache;
+import com.netbout.cached.Engine;
+import com.netbout.spi.Alias;
+import com.netbout.spi.Base;
+import com.netbout.spi.Bout;
+import com.netbout.spi.Friend;
+import com.netbout.spi.Inbox;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.takes.Request;
+import org.takes.Response;
+import org.takes.facets.auth.Identity;
+import org.takes.facets.auth.Pass;
+
+/**
+ * Pass that warms up the cache of the user, who is entering.
+ *
+ * <p>When the user enters, by login or by cookie, the alias, the unread
+ * number of the favicon and the first page of the inbox with summaries
+ * of bouts are loaded in background, in parallel, so the first page is
+ * rendered from memory. It's done once in five minutes per user at most.
+ * When too many users enter at once, the tasks that don't fit into
+ * the queue are dropped, and their data are loaded on demand.
+ *
+ * @author Yegor Bugayenko (yegor@teamed.io)
+ * @version $Id$
+ * @since 2.16
+ */
+@SuppressWarnings("PMD.DoNotUseThreads")
+final class PsWarm implements Pass {
+
+    /**
+     * Threads loading data, with a bounded queue of tasks, the ones that
+     * don't fit are discarded, since warming up is never required.
+     */
+    private static final ExecutorService SERVICE = new ThreadPoolExecutor(
+        Tv.EIGHT, Tv.EIGHT, 0L, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<Runnable>(Tv.THOUSAND),
+        new VerboseThreads(PsWarm.class),
+        new ThreadPoolExecutor.DiscardPolicy()
+    );
+
+    /**
+     * Original pass.
+     */
+    private final transient Pass origin;
+
+    /**
+     * Base.
+     */
+    private final transient Base base;
+
+    /**
+     * Ctor.
+     * @param pass Original pass
+     * @param bse Base
+     */
+    PsWarm(final Pass pass, final Base bse) {
+        this.origin = pass;
+        this.base = bse;
+    }
+
+    @Override
+    public Iterator<Identity> enter(final Request req) throws IOException {
+        final Iterator<Identity> users = this.origin.enter(req);
+        final Iterator<Identity> entered;
+        if (users.hasNext()) {
+            final Identity identity = users.next();
+            if (!identity.equals(Identity.ANONYMOUS)) {
+                this.warm(identity.urn());
+            }
+            entered = Collections.singleton(identity).iterator();
+        } else {
+            entered = users;
+        }
+        return entered;
+    }
+
+    @Override
+    public Response exit(final Response response, final Identity identity)
+        throws IOException {
+        return this.origin.exit(response, identity);
+    }
+
+    /**
+     * Warm up, unless it was done recently.
+     * @param urn URN of the user
+     * @throws IOException If fails
+     */
+    private void warm(final String urn) throws IOException {
+        Cache.engine().get(
+            new Engine.Key("warm", urn), (long) Tv.FIVE, TimeUnit.MINUTES,
+            new Engine.Source<Boolean>() {
+                @Override
+                public Boolean load() {
+                    PsWarm.submit(
+                        new PsWarm.Task() {
+                            @Override
+                            public void run() throws IOException {
+                                PsWarm.this.inbox(urn);
+                            }
+                        }
+                    );
+                    return true;
+                }
+            }
+        );
+    }
+
+    /**
+     * Load the alias and the inbox of the user.
+     * @param urn URN of the user
+     * @throws IOException If fails
+     */
+    private void inbox(final String urn) throws IOException {
+        final Iterator<Alias> aliases = this.base.user(URN.create(urn))
+            .aliases().iterate().iterator();
+        if (aliases.hasNext()) {
+            final Alias alias = aliases.next();
+            PsWarm.submit(
+                new PsWarm.Task() {
+                    @Override
+                    public void run() throws IOException {
+                        alias.locale();
+                        alias.photo();
+                        alias.email();
+                    }
+                }
+            );
+            final Inbox inbox = alias.inbox();
+            PsWarm.submit(
+                new PsWarm.Task() {
+                    @Override
+                    public void run() throws IOException {
+                        inbox.unread();
+                    }
+                }
+            );
+            for (final Bout bout
+                : Iterables.limit(inbox.iterate(), Inbox.PAGE)) {
+                PsWarm.submit(
+                    new PsWarm.Task() {
+                        @Override
+                        public void run() throws IOException {
+                            PsWarm.summary(bout);
+                        }
+                    }
+                );
+            }
+        }
+    }
+
+    /**
+     * Load the summary of a bout, as shown in the inbox.
+     * @param bout The bout
+     * @throws IOException If fails
+     */
+    private static void summary(final Bout bout) throws IOException {
+        bout.title();
+        bout.updated();
+        bout.messages().unread();
+        bout.attachments().unseen();
+        for (final Friend friend : bout.friends().iterate()) {
+            friend.alias();
+        }
+    }
+
+    /**
+     * Run the task in background.
+     * @param task The task
+     */
+    private static void submit(final PsWarm.Task task) {
+        PsWarm.SERVICE.submit(
+            new VerboseRunnable(
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            task.run();
+                        } catch (final IOException ex) {
+                            throw new IllegalStateException(ex);
+                        }
+                    }
+                },
+                true
+            )
+        );
+    }
+
+    /**
+     * Task of loading.
+     */
+    private interface Task {
+        /**
+         * Load.
+         * @throws IOException If fails
+         */
+        void run() throws IOException;
+    }
+
+}
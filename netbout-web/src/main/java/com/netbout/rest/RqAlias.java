@@ -33,6 +33,7 @@ import com.netbout.spi.Base;
 import com.netbout.spi.User;
 import java.io.IOException;
 import java.net.HttpURLConnection;
+import java.util.Iterator;
 import lombok.EqualsAndHashCode;
 import org.takes.Request;
 import org.takes.facets.auth.Identity;
@@ -73,15 +74,16 @@ public final class RqAlias extends RqWrap {
      */
     public boolean has() throws IOException {
         final Identity identity = new RqAuth(this).identity();
+        boolean has = false;
         if (!identity.equals(Identity.ANONYMOUS)) {
             final Aliases aliases = this.user().aliases();
-            if (!aliases.iterate().iterator().hasNext()
-                && "urn:test:1".equals(identity.urn())) {
+            has = aliases.iterate().iterator().hasNext();
+            if (!has && "urn:test:1".equals(identity.urn())) {
                 aliases.add("tester");
+                has = true;
             }
         }
-        return !identity.equals(Identity.ANONYMOUS)
-            && this.user().aliases().iterate().iterator().hasNext();
+        return has;
     }
 
     /**
@@ -103,14 +105,15 @@ public final class RqAlias extends RqWrap {
      * @throws IOException If fails
      */
     public Alias alias() throws IOException {
-        final Aliases aliases = this.user().aliases();
-        if (!aliases.iterate().iterator().hasNext()) {
+        final Iterator<Alias> aliases =
+            this.user().aliases().iterate().iterator();
+        if (!aliases.hasNext()) {
             throw new RsForward(
                 HttpURLConnection.HTTP_MOVED_TEMP,
                 "/login/start"
             );
         }
-        return aliases.iterate().iterator().next();
+        return aliases.next();
     }
 
 }
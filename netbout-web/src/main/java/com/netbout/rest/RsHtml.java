@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) 2009-2015, netbout.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are PROHIBITED without prior written permission from
+ * the author. This product may NOT be used anywhere and on any computer
+ * except the server platform of netbout Inc. located at www.netbout.com.
+ * Federal copyright law prohibits unauthorized reproduction by any means
+ * and imposes fines up to $25,000 for violation. If you received
+ * this code accidentally and without intent to use it, please report this
+ * incident to the author by email.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.netbout.rest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import lombok.EqualsAndHashCode;
+import org.takes.Response;
+import org.takes.rs.xe.XeSource;
+import org.w3c.dom.Document;
+import org.xembly.ImpossibleModificationException;
+import org.xembly.Xembler;
+
+/**
+ * HTML page, rendered on server by a compiled stylesheet.
+ *
+ * <p>The Xembly of the page is applied to a DOM document, which goes
+ * straight to the transformer, without printing it to text and parsing
+ * it back, see {@link Stylesheets}. The page is rendered in
+ * {@link #head()}, so that a failure is reported as an error, not as
+ * a broken page after 200 OK.
+ *
+ * @author Yegor Bugayenko (yegor@teamed.io)
+ * @version $Id$
+ * @since 2.16
+ */
+@EqualsAndHashCode(of = { "xsl", "source" })
+final class RsHtml implements Response {
+
+    /**
+     * Factory of DOM documents.
+     */
+    private static final DocumentBuilderFactory DOCS =
+        DocumentBuilderFactory.newInstance();
+
+    /**
+     * Path of the stylesheet.
+     */
+    private final transient String xsl;
+
+    /**
+     * Source of XML.
+     */
+    private final transient XeSource source;
+
+    /**
+     * HTML, once rendered.
+     */
+    private final transient AtomicReference<byte[]> html;
+
+    /**
+     * Ctor.
+     * @param path Path of the stylesheet in classpath
+     * @param src Source of XML
+     */
+    RsHtml(final String path, final XeSource src) {
+        this.xsl = path;
+        this.source = src;
+        this.html = new AtomicReference<byte[]>();
+    }
+
+    @Override
+    public Iterable<String> head() throws IOException {
+        this.rendered();
+        return Collections.singleton("HTTP/1.1 200 OK");
+    }
+
+    @Override
+    public InputStream body() throws IOException {
+        return new ByteArrayInputStream(this.rendered());
+    }
+
+    /**
+     * Render the page, only once.
+     * @return HTML
+     * @throws IOException If fails
+     */
+    private byte[] rendered() throws IOException {
+        synchronized (this.html) {
+            if (this.html.get() == null) {
+                final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                Stylesheets.transform(this.xsl, RsHtml.dom(this.source), out);
+                this.html.set(out.toByteArray());
+            }
+            return this.html.get();
+        }
+    }
+
+    /**
+     * Apply the Xembly of the source to a new DOM document.
+     * @param src Source of XML
+     * @return Document
+     * @throws IOException If fails
+     */
+    static Document dom(final XeSource src) throws IOException {
+        final Document dom;
+        try {
+            synchronized (RsHtml.DOCS) {
+                dom = RsHtml.DOCS.newDocumentBuilder().newDocument();
+            }
+        } catch (final ParserConfigurationException ex) {
+            throw new IllegalStateException(ex);
+        }
+        try {
+            new Xembler(src.toXembly()).apply(dom);
+        } catch (final ImpossibleModificationException ex) {
+            throw new IllegalStateException(ex);
+        }
+        return dom;
+    }
+
+}
@@ -0,0 +1,307 @@
+/**
+ * Copyright (c) 2009-2015, netbout.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are PROHIBITED without prior written permission from
+ * the author. This product may NOT be used anywhere and on any computer
+ * except the server platform of netbout Inc. located at www.netbout.com.
+ * Federal copyright law prohibits unauthorized reproduction by any means
+ * and imposes fines up to $25,000 for violation. If you received
+ * this code accidentally and without intent to use it, please report this
+ * incident to the author by email.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.netbout.rest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.EqualsAndHashCode;
+import org.takes.Response;
+import org.takes.rs.xe.XeSource;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/**
+ * JSON page, made from the same Xembly as the XML one, without XSL.
+ *
+ * <p>The root element of the page becomes the JSON object and
+ * every element inside it becomes a property:
+ *
+ * <ul>
+ *     <li>an element with text only becomes a string, like
+ *     {@code "title":"hello"};</li>
+ *     <li>a plural element of singular elements, like
+ *     {@code <friends><friend/></friends>}, becomes an array, and so
+ *     does an empty list, like {@code <friends/>};</li>
+ *     <li>{@code <links>} becomes an object of HREFs by their RELs,
+ *     like {@code "links":{"more":"/b/1?start=5"}};</li>
+ *     <li>any other element becomes an object, with its attributes,
+ *     its elements, where repeated elements make an array, or its
+ *     text as {@code "#text"}.</li>
+ * </ul>
+ *
+ * <p>The whole JSON is rendered in {@link #head()}, before the status.
+ *
+ * @author Yegor Bugayenko (yegor@teamed.io)
+ * @version $Id$
+ * @since 2.16
+ */
+@EqualsAndHashCode(of = "source")
+final class RsJson implements Response {
+
+    /**
+     * Names of lists, which are arrays even when empty.
+     */
+    private static final Collection<String> LISTS = Arrays.asList(
+        "bouts", "friends", "attachments", "messages"
+    );
+
+    /**
+     * Source of XML.
+     */
+    private final transient XeSource source;
+
+    /**
+     * JSON, once rendered.
+     */
+    private final transient AtomicReference<byte[]> json;
+
+    /**
+     * Ctor.
+     * @param src Source of XML
+     */
+    RsJson(final XeSource src) {
+        this.source = src;
+        this.json = new AtomicReference<byte[]>();
+    }
+
+    @Override
+    public Iterable<String> head() throws IOException {
+        this.rendered();
+        return Collections.singleton("HTTP/1.1 200 OK");
+    }
+
+    @Override
+    public InputStream body() throws IOException {
+        return new ByteArrayInputStream(this.rendered());
+    }
+
+    /**
+     * Render the page, only once.
+     * @return JSON
+     * @throws IOException If fails
+     */
+    private byte[] rendered() throws IOException {
+        synchronized (this.json) {
+            if (this.json.get() == null) {
+                final StringBuilder out = new StringBuilder(0);
+                RsJson.object(
+                    out, RsHtml.dom(this.source).getDocumentElement()
+                );
+                this.json.set(out.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            return this.json.get();
+        }
+    }
+
+    /**
+     * Print the element.
+     * @param json Where to print
+     * @param element The element
+     */
+    private static void value(final StringBuilder json,
+        final Element element) {
+        final Collection<Element> kids = RsJson.children(element);
+        if ("links".equals(element.getNodeName())) {
+            RsJson.links(json, kids);
+        } else if (RsJson.plural(element, kids)) {
+            RsJson.array(json, kids);
+        } else if (kids.isEmpty() && !element.hasAttributes()) {
+            RsJson.string(json, element.getTextContent());
+        } else {
+            RsJson.object(json, element);
+        }
+    }
+
+    /**
+     * Print the element as an object.
+     * @param json Where to print
+     * @param element The element
+     */
+    private static void object(final StringBuilder json,
+        final Element element) {
+        final Map<String, Collection<Element>> groups =
+            new LinkedHashMap<String, Collection<Element>>(0);
+        for (final Element kid : RsJson.children(element)) {
+            if (!groups.containsKey(kid.getNodeName())) {
+                groups.put(kid.getNodeName(), new LinkedList<Element>());
+            }
+            groups.get(kid.getNodeName()).add(kid);
+        }
+        json.append('{');
+        boolean first = true;
+        final NamedNodeMap attrs = element.getAttributes();
+        for (int idx = 0; idx < attrs.getLength(); ++idx) {
+            final Node attr = attrs.item(idx);
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            RsJson.string(json, attr.getNodeName());
+            json.append(':');
+            RsJson.string(json, attr.getNodeValue());
+        }
+        if (groups.isEmpty() && !element.getTextContent().isEmpty()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            RsJson.string(json, "#text");
+            json.append(':');
+            RsJson.string(json, element.getTextContent());
+        }
+        for (final Map.Entry<String, Collection<Element>> ent
+            : groups.entrySet()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            RsJson.string(json, ent.getKey());
+            json.append(':');
+            if (ent.getValue().size() == 1) {
+                RsJson.value(json, ent.getValue().iterator().next());
+            } else {
+                RsJson.array(json, ent.getValue());
+            }
+        }
+        json.append('}');
+    }
+
+    /**
+     * Print elements as an array.
+     * @param json Where to print
+     * @param kids Elements
+     */
+    private static void array(final StringBuilder json,
+        final Collection<Element> kids) {
+        json.append('[');
+        boolean first = true;
+        for (final Element kid : kids) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            RsJson.value(json, kid);
+        }
+        json.append(']');
+    }
+
+    /**
+     * Print links as an object.
+     * @param json Where to print
+     * @param links Elements of links
+     */
+    private static void links(final StringBuilder json,
+        final Collection<Element> links) {
+        json.append('{');
+        boolean first = true;
+        for (final Element link : links) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            RsJson.string(json, link.getAttribute("rel"));
+            json.append(':');
+            RsJson.string(json, link.getAttribute("href"));
+        }
+        json.append('}');
+    }
+
+    /**
+     * Print JSON string.
+     * @param json Where to print
+     * @param text The text
+     */
+    private static void string(final StringBuilder json, final String text) {
+        json.append('"');
+        for (final char chr : text.toCharArray()) {
+            if (chr == '"' || chr == '\\') {
+                json.append('\\').append(chr);
+            } else if (chr == '\n') {
+                json.append("\\n");
+            } else if (chr < ' ') {
+                json.append(String.format("\\u%04x", (int) chr));
+            } else {
+                json.append(chr);
+            }
+        }
+        json.append('"');
+    }
+
+    /**
+     * Is it a plural element of singular ones, like friends of friend?
+     *
+     * <p>Lists of the pages, see {@link #LISTS}, are plural even when
+     * they are empty, so that the type of the property doesn't depend
+     * on the number of items.
+     *
+     * @param element The element
+     * @param kids Its elements
+     * @return TRUE if it is
+     */
+    private static boolean plural(final Element element,
+        final Collection<Element> kids) {
+        boolean plural = !kids.isEmpty()
+            || RsJson.LISTS.contains(element.getNodeName());
+        for (final Element kid : kids) {
+            if (!element.getNodeName().equals(
+                String.format("%ss", kid.getNodeName())
+            )) {
+                plural = false;
+                break;
+            }
+        }
+        return plural;
+    }
+
+    /**
+     * Elements of the element.
+     * @param element The element
+     * @return Its elements
+     */
+    private static Collection<Element> children(final Element element) {
+        final Collection<Element> kids = new LinkedList<Element>();
+        Node kid = element.getFirstChild();
+        while (kid != null) {
+            if (kid instanceof Element) {
+                kids.add((Element) kid);
+            }
+            kid = kid.getNextSibling();
+        }
+        return kids;
+    }
+
+}
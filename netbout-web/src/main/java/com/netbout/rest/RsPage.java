@@ -39,7 +39,6 @@ import org.takes.misc.Opt;
 import org.takes.rq.RqHeaders;
 import org.takes.rs.RsWithType;
 import org.takes.rs.RsWrap;
-import org.takes.rs.RsXSLT;
 import org.takes.rs.xe.RsXembly;
 import org.takes.rs.xe.XeSource;
 import org.takes.rs.xe.XeStylesheet;
@@ -81,13 +80,34 @@ public final class RsPage extends RsWrap {
      */
     private static Response make(final String xsl, final Base base,
         final Request req, final XeSource... src) throws IOException {
-        final Response xbl = new RsXembly(
-            new XeStylesheet(xsl),
-            new XePage(base, req, src)
+        final XeSource page = new XePage(base, req, src);
+        final Response raw = new RsWithType(
+            new RsXembly(new XeStylesheet(xsl), page),
+            "text/xml"
+        );
+        final Response html = new RsWithType(
+            new RsHtml(xsl, page),
+            "text/html"
         );
-        final Response raw = new RsWithType(xbl, "text/xml");
         return new RsFork(
             req,
+            new Fork() {
+                @Override
+                public Opt<Response> route(final Request rst)
+                    throws IOException {
+                    final Opt<Response> opt;
+                    if (RsPage.json(rst)) {
+                        opt = new Opt.Single<Response>(
+                            new RsWithType(
+                                new RsJson(page), "application/json"
+                            )
+                        );
+                    } else {
+                        opt = new Opt.Empty<>();
+                    }
+                    return opt;
+                }
+            },
             new Fork() {
                 @Override
                 public Opt<Response> route(final Request rst)
@@ -97,10 +117,7 @@ public final class RsPage extends RsWrap {
                         hdr.header("User-Agent").iterator();
                     final Opt<Response> opt;
                     if (agent.hasNext() && agent.next().contains("Firefox")) {
-                        opt = new Opt.Single<Response>(
-                            // @checkstyle MultipleStringLiteralsCheck (1 line)
-                            new RsXSLT(new RsWithType(raw, "text/html"))
-                        );
+                        opt = new Opt.Single<Response>(html);
                     } else {
                         opt = new Opt.Empty<>();
                     }
@@ -108,11 +125,30 @@ public final class RsPage extends RsWrap {
                 }
             },
             new FkTypes("application/xml,text/xml", raw),
-            new FkTypes(
-                "*/*",
-                new RsXSLT(new RsWithType(raw, "text/html"))
-            )
+            new FkTypes("*/*", html)
         );
     }
 
+    /**
+     * Does the request explicitly ask for JSON?
+     *
+     * <p>{@link FkTypes} can't be used, since it finds JSON among
+     * "any types", which every browser accepts.
+     *
+     * @param req Request
+     * @return TRUE if JSON is expected
+     * @throws IOException If fails
+     */
+    private static boolean json(final Request req) throws IOException {
+        boolean json = false;
+        for (final String accept
+            : new RqHeaders.Base(req).header("Accept")) {
+            if (accept.contains("application/json")) {
+                json = true;
+                break;
+            }
+        }
+        return json;
+    }
+
 }
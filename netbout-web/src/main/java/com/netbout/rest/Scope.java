@@ -0,0 +1,172 @@
+/**
+ * Copyright (c) 2009-2015, netbout.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are PROHIBITED without prior written permission from
+ * the author. This product may NOT be used anywhere and on any computer
+ * except the server platform of netbout Inc. located at www.netbout.com.
+ * Federal copyright law prohibits unauthorized reproduction by any means
+ * and imposes fines up to $25,000 for violation. If you received
+ * this code accidentally and without intent to use it, please report this
+ * incident to the author by email.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.netbout.rest;
+
+import com.jcabi.urn.URN;
+import com.netbout.spi.Alias;
+import com.netbout.spi.Aliases;
+import com.netbout.spi.Base;
+import com.netbout.spi.Friend;
+import com.netbout.spi.User;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Base, scoped to a single request.
+ *
+ * <p>A page asks for the user and the aliases of the request many times,
+ * in forks, takes and Xembly sources, through {@link RqAlias}. This
+ * decorator remembers the users it found and their aliases, in order
+ * to look them up only once per request. It must be created for every
+ * request and forgotten after the response is rendered, see
+ * {@link Scoped}.
+ *
+ * <p>The class is thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor@teamed.io)
+ * @version $Id$
+ * @since 2.16
+ */
+final class Scope implements Base {
+
+    /**
+     * Original.
+     */
+    private final transient Base origin;
+
+    /**
+     * Users found.
+     */
+    private final transient ConcurrentMap<URN, User> users;
+
+    /**
+     * Ctor.
+     * @param org Original
+     */
+    Scope(final Base org) {
+        this.origin = org;
+        this.users = new ConcurrentHashMap<URN, User>(1);
+    }
+
+    @Override
+    public User user(final URN urn) throws IOException {
+        User user = this.users.get(urn);
+        if (user == null) {
+            this.users.putIfAbsent(
+                urn, new Scope.ScUser(this.origin.user(urn))
+            );
+            user = this.users.get(urn);
+        }
+        return user;
+    }
+
+    @Override
+    public void close() {
+        // the original base is closed by its owner, not by the request
+    }
+
+    /**
+     * User, scoped to a request.
+     */
+    private static final class ScUser implements User {
+        /**
+         * Original.
+         */
+        private final transient User origin;
+        /**
+         * Aliases of the user.
+         */
+        private final transient Aliases all;
+        /**
+         * Ctor.
+         * @param org Original
+         */
+        ScUser(final User org) {
+            this.origin = org;
+            this.all = new Scope.ScAliases(org.aliases());
+        }
+        @Override
+        public Aliases aliases() {
+            return this.all;
+        }
+        @Override
+        public Iterable<Friend> friends(final String text)
+            throws IOException {
+            return this.origin.friends(text);
+        }
+    }
+
+    /**
+     * Aliases, scoped to a request.
+     */
+    private static final class ScAliases implements Aliases {
+        /**
+         * Original.
+         */
+        private final transient Aliases origin;
+        /**
+         * Aliases found, or NULL if not yet.
+         */
+        private final transient AtomicReference<List<Alias>> found;
+        /**
+         * Ctor.
+         * @param org Original
+         */
+        ScAliases(final Aliases org) {
+            this.origin = org;
+            this.found = new AtomicReference<List<Alias>>();
+        }
+        @Override
+        public String check(final String name) throws IOException {
+            return this.origin.check(name);
+        }
+        @Override
+        public void add(final String name) throws IOException {
+            this.origin.add(name);
+            this.found.set(null);
+        }
+        @Override
+        public Iterable<Alias> iterate() throws IOException {
+            List<Alias> list = this.found.get();
+            if (list == null) {
+                list = new LinkedList<Alias>();
+                for (final Alias alias : this.origin.iterate()) {
+                    list.add(alias);
+                }
+                list = Collections.unmodifiableList(list);
+                this.found.compareAndSet(null, list);
+            }
+            return list;
+        }
+    }
+
+}
@@ -0,0 +1,212 @@
+/**
+ * Copyright (c) 2009-2015, netbout.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are PROHIBITED without prior written permission from
+ * the author. This product may NOT be used anywhere and on any computer
+ * except the server platform of netbout Inc. located at www.netbout.com.
+ * Federal copyright law prohibits unauthorized reproduction by any means
+ * and imposes fines up to $25,000 for violation. If you received
+ * this code accidentally and without intent to use it, please report this
+ * incident to the author by email.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.netbout.rest;
+
+import com.jcabi.urn.URN;
+import com.netbout.spi.Base;
+import com.netbout.spi.User;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import org.takes.Request;
+import org.takes.Response;
+import org.takes.Take;
+
+/**
+ * Base, bound to the request, which the current thread works with.
+ *
+ * <p>Takes of authenticated users are made once, with this base, see
+ * {@link TkApp}. The take made by {@link #bind(Take)} makes a new
+ * {@link Scope} for every request and binds it to the thread, while
+ * the request is processed and while its response is printed, since
+ * pages are rendered when their bodies are read. Out of them, the
+ * original base is used.
+ *
+ * <p>The class is thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor@teamed.io)
+ * @version $Id$
+ * @since 2.16
+ */
+final class Scoped implements Base {
+
+    /**
+     * Scope of the current thread, or NULL.
+     */
+    private static final ThreadLocal<Base> CURRENT = new ThreadLocal<Base>();
+
+    /**
+     * Original.
+     */
+    private final transient Base origin;
+
+    /**
+     * Ctor.
+     * @param org Original
+     */
+    Scoped(final Base org) {
+        this.origin = org;
+    }
+
+    @Override
+    public User user(final URN urn) throws IOException {
+        Base base = Scoped.CURRENT.get();
+        if (base == null) {
+            base = this.origin;
+        }
+        return base.user(urn);
+    }
+
+    @Override
+    public void close() {
+        // the original base is closed by its owner, not by the request
+    }
+
+    /**
+     * Take that processes every request in its own scope.
+     * @param take Take to process requests
+     * @return Take
+     */
+    public Take bind(final Take take) {
+        final Base base = this.origin;
+        return new Take() {
+            @Override
+            public Response act(final Request req) throws IOException {
+                final Base scope = new Scope(base);
+                final Base before = Scoped.enter(scope);
+                try {
+                    return new Scoped.RsBound(take.act(req), scope);
+                } finally {
+                    Scoped.leave(before);
+                }
+            }
+        };
+    }
+
+    /**
+     * Bind the scope to the current thread.
+     * @param scope The scope
+     * @return Scope bound before, or NULL
+     */
+    private static Base enter(final Base scope) {
+        final Base before = Scoped.CURRENT.get();
+        Scoped.CURRENT.set(scope);
+        return before;
+    }
+
+    /**
+     * Bind the previous scope to the current thread again.
+     * @param before Scope bound before, or NULL
+     */
+    private static void leave(final Base before) {
+        if (before == null) {
+            Scoped.CURRENT.remove();
+        } else {
+            Scoped.CURRENT.set(before);
+        }
+    }
+
+    /**
+     * Response, printed in the scope.
+     */
+    private static final class RsBound implements Response {
+        /**
+         * Original.
+         */
+        private final transient Response origin;
+        /**
+         * Scope.
+         */
+        private final transient Base scope;
+        /**
+         * Ctor.
+         * @param res Original
+         * @param bse Scope
+         */
+        RsBound(final Response res, final Base bse) {
+            this.origin = res;
+            this.scope = bse;
+        }
+        @Override
+        public Iterable<String> head() throws IOException {
+            final Base before = Scoped.enter(this.scope);
+            try {
+                return this.origin.head();
+            } finally {
+                Scoped.leave(before);
+            }
+        }
+        @Override
+        public InputStream body() throws IOException {
+            final Base before = Scoped.enter(this.scope);
+            try {
+                return new Scoped.Stream(this.origin.body(), this.scope);
+            } finally {
+                Scoped.leave(before);
+            }
+        }
+    }
+
+    /**
+     * Body of a response, read in the scope.
+     */
+    private static final class Stream extends FilterInputStream {
+        /**
+         * Scope.
+         */
+        private final transient Base scope;
+        /**
+         * Ctor.
+         * @param body Original body
+         * @param bse Scope
+         */
+        Stream(final InputStream body, final Base bse) {
+            super(body);
+            this.scope = bse;
+        }
+        @Override
+        public int read() throws IOException {
+            final Base before = Scoped.enter(this.scope);
+            try {
+                return super.read();
+            } finally {
+                Scoped.leave(before);
+            }
+        }
+        @Override
+        public int read(final byte[] buf, final int off, final int len)
+            throws IOException {
+            final Base before = Scoped.enter(this.scope);
+            try {
+                return super.read(buf, off, len);
+            } finally {
+                Scoped.leave(before);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,245 @@
+/**
+ * Copyright (c) 2009-2015, netbout.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are PROHIBITED without prior written permission from
+ * the author. This product may NOT be used anywhere and on any computer
+ * except the server platform of netbout Inc. located at www.netbout.com.
+ * Federal copyright law prohibits unauthorized reproduction by any means
+ * and imposes fines up to $25,000 for violation. If you received
+ * this code accidentally and without intent to use it, please report this
+ * incident to the author by email.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.netbout.rest;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.URIResolver;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+import org.w3c.dom.Node;
+
+/**
+ * Compiled XSL stylesheets, shared by all requests.
+ *
+ * <p>Every stylesheet from {@code /xsl} in classpath is compiled once,
+ * together with all stylesheets it includes, into thread-safe
+ * {@link Templates}. When any of them is a file, which is the case when
+ * the app is started from {@code target/classes}, it is compiled again
+ * after the file is modified, for example by {@code FkHitRefresh}
+ * in {@link TkApp}. In a JAR nothing is ever compiled twice.
+ *
+ * <p>The class is thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor@teamed.io)
+ * @version $Id$
+ * @since 2.16
+ */
+final class Stylesheets {
+
+    /**
+     * Compiled stylesheets, by their paths.
+     */
+    private static final ConcurrentMap<String, Stylesheets.Compiled> ALL =
+        new ConcurrentHashMap<String, Stylesheets.Compiled>(0);
+
+    /**
+     * Factory of templates, which is not thread-safe.
+     */
+    private static final TransformerFactory FACTORY =
+        TransformerFactory.newInstance();
+
+    /**
+     * Utility class.
+     */
+    private Stylesheets() {
+        // intentionally empty
+    }
+
+    /**
+     * Compile these stylesheets in advance.
+     * @param paths Paths in classpath, like {@code "/xsl/inbox.xsl"}
+     * @throws IOException If some of them can't be compiled
+     */
+    static void compile(final String... paths) throws IOException {
+        for (final String path : paths) {
+            Stylesheets.templates(path);
+        }
+    }
+
+    /**
+     * Transform XML to HTML.
+     * @param path Path of the stylesheet in classpath
+     * @param xml XML document
+     * @param output Where to write HTML
+     * @throws IOException If fails
+     */
+    static void transform(final String path, final Node xml,
+        final OutputStream output) throws IOException {
+        final Transformer trans;
+        try {
+            trans = Stylesheets.templates(path).newTransformer();
+        } catch (final TransformerConfigurationException ex) {
+            throw new IOException(ex);
+        }
+        trans.setURIResolver(new Stylesheets.InClasspath());
+        try {
+            trans.transform(new DOMSource(xml), new StreamResult(output));
+        } catch (final TransformerException ex) {
+            throw new IOException(ex);
+        }
+    }
+
+    /**
+     * Compiled templates of the stylesheet.
+     * @param path Path of it in classpath
+     * @return Templates
+     * @throws IOException If can't compile
+     */
+    static Templates templates(final String path)
+        throws IOException {
+        Stylesheets.Compiled found = Stylesheets.ALL.get(path);
+        if (found == null || found.modified()) {
+            synchronized (Stylesheets.FACTORY) {
+                found = Stylesheets.ALL.get(path);
+                if (found == null || found.modified()) {
+                    found = Stylesheets.load(path);
+                    Stylesheets.ALL.put(path, found);
+                }
+            }
+        }
+        return found.templates;
+    }
+
+    /**
+     * Compile the stylesheet.
+     * @param path Path of it in classpath
+     * @return Compiled
+     * @throws IOException If can't compile
+     */
+    private static Stylesheets.Compiled load(final String path)
+        throws IOException {
+        final Stylesheets.InClasspath resolver = new Stylesheets.InClasspath();
+        Stylesheets.FACTORY.setURIResolver(resolver);
+        try {
+            return new Stylesheets.Compiled(
+                Stylesheets.FACTORY.newTemplates(resolver.resolve(path, "")),
+                resolver.files()
+            );
+        } catch (final TransformerException ex) {
+            throw new IOException(
+                String.format("can't compile %s", path), ex
+            );
+        }
+    }
+
+    /**
+     * Compiled stylesheet.
+     */
+    private static final class Compiled {
+        /**
+         * Templates.
+         */
+        private final transient Templates templates;
+        /**
+         * Files it was compiled from, with their modification times.
+         */
+        private final transient Map<File, Long> files;
+        /**
+         * Ctor.
+         * @param tpls Templates
+         * @param sources Files it was compiled from
+         */
+        Compiled(final Templates tpls, final Collection<File> sources) {
+            this.templates = tpls;
+            this.files = new HashMap<File, Long>(sources.size());
+            for (final File file : sources) {
+                this.files.put(file, file.lastModified());
+            }
+        }
+        /**
+         * Was any of the files modified after compilation?
+         * @return TRUE if it has to be compiled again
+         */
+        public boolean modified() {
+            boolean modified = false;
+            for (final Map.Entry<File, Long> ent : this.files.entrySet()) {
+                if (ent.getKey().lastModified() != ent.getValue()) {
+                    modified = true;
+                    break;
+                }
+            }
+            return modified;
+        }
+    }
+
+    /**
+     * Resolver of absolute paths, like {@code "/xsl/layout.xsl"} or
+     * {@code "/lang/en.xml?1.0"}, in classpath.
+     */
+    private static final class InClasspath implements URIResolver {
+        /**
+         * Files resolved.
+         */
+        private final transient Collection<File> found =
+            new LinkedList<File>();
+        @Override
+        public Source resolve(final String href, final String base)
+            throws TransformerException {
+            final String path = URI.create(href).getPath();
+            final URL url = Stylesheets.class.getResource(path);
+            if (url == null) {
+                throw new TransformerException(
+                    String.format("%s not found in classpath", path)
+                );
+            }
+            if ("file".equals(url.getProtocol())) {
+                try {
+                    this.found.add(new File(url.toURI()));
+                } catch (final URISyntaxException ex) {
+                    throw new TransformerException(ex);
+                }
+            }
+            return new StreamSource(url.toString());
+        }
+        /**
+         * Files resolved so far.
+         * @return Files
+         */
+        public Collection<File> files() {
+            return this.found;
+        }
+    }
+
+}
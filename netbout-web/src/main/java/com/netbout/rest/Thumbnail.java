@@ -0,0 +1,330 @@
+/**
+ * Copyright (c) 2009-2015, netbout.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are PROHIBITED without prior written permission from
+ * the author. This product may NOT be used anywhere and on any computer
+ * except the server platform of netbout Inc. located at www.netbout.com.
+ * Federal copyright law prohibits unauthorized reproduction by any means
+ * and imposes fines up to $25,000 for violation. If you received
+ * this code accidentally and without intent to use it, please report this
+ * incident to the author by email.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.netbout.rest;
+
+import com.google.common.hash.Hashing;
+import com.google.common.net.HttpHeaders;
+import com.jcabi.aspects.Tv;
+import com.jcabi.http.request.JdkRequest;
+import com.jcabi.http.response.RestResponse;
+import com.jcabi.http.wire.AutoRedirectingWire;
+import com.jcabi.http.wire.OneMinuteWire;
+import com.jcabi.http.wire.RetryWire;
+import com.netbout.cached.Cache;
+import com.netbout.cached.Engine;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.ImageIO;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Thumbnail of a photo of an alias, PNG.
+ *
+ * <p>Thumbnails are kept in {@link Cache#engine()} for an hour and
+ * in {@link Cache#disk()} until they are evicted, by the name of the
+ * alias and the URI of its photo, see {@link Cache#thumbnail(String, URI)}.
+ * When the photo is changed by {@link com.netbout.spi.Alias#photo(URI)},
+ * even to the same URI, thumbnails of the old and the new URI are
+ * invalidated in both of them, on all dynos, and the thumbnail is made
+ * again on the next request.
+ *
+ * <p>Only one request makes the thumbnail of an alias, when it's absent
+ * in both caches, others wait for it and get the same result.
+ *
+ * @author Yegor Bugayenko (yegor@teamed.io)
+ * @version $Id$
+ * @since 2.16
+ * @checkstyle ClassDataAbstractionCouplingCheck (500 lines)
+ */
+final class Thumbnail implements Engine.Weighted {
+
+    /**
+     * Thumbnails being made now, by their keys.
+     */
+    private static final ConcurrentMap<Engine.Key, FutureTask<Thumbnail>>
+        FLIGHTS = new ConcurrentHashMap<Engine.Key, FutureTask<Thumbnail>>(0);
+
+    /**
+     * PNG content.
+     */
+    private final transient byte[] png;
+
+    /**
+     * Entity tag.
+     */
+    private final transient String tag;
+
+    /**
+     * Ctor.
+     * @param bytes PNG content
+     */
+    Thumbnail(final byte[] bytes) {
+        this.png = bytes.clone();
+        this.tag = String.format(
+            "\"%s\"", Hashing.sha256().hashBytes(bytes).toString()
+        );
+    }
+
+    /**
+     * Find or make the thumbnail of the photo.
+     * @param alias Name of the alias
+     * @param photo URI of its photo
+     * @return Thumbnail
+     * @throws IOException If fails
+     */
+    public static Thumbnail of(final String alias, final URI photo)
+        throws IOException {
+        return Thumbnail.of(
+            alias, photo,
+            new Engine.Source<BufferedImage>() {
+                @Override
+                public BufferedImage load() throws IOException {
+                    return Thumbnail.download(photo);
+                }
+            }
+        );
+    }
+
+    /**
+     * Find or make the thumbnail of the photo.
+     * @param alias Name of the alias
+     * @param photo URI of its photo
+     * @param origin Where to get the photo from, if it's not cached
+     * @return Thumbnail
+     * @throws IOException If fails
+     */
+    static Thumbnail of(final String alias, final URI photo,
+        final Engine.Source<BufferedImage> origin) throws IOException {
+        final Engine.Key key = Cache.thumbnail(alias, photo);
+        return Cache.engine().get(
+            key, 1L, TimeUnit.HOURS,
+            new Engine.Source<Thumbnail>() {
+                @Override
+                public Thumbnail load() throws IOException {
+                    return Thumbnail.flight(
+                        key,
+                        new Callable<Thumbnail>() {
+                            @Override
+                            public Thumbnail call() throws IOException {
+                                return Thumbnail.local(key, origin);
+                            }
+                        }
+                    );
+                }
+            }
+        );
+    }
+
+    /**
+     * PNG content.
+     * @return Stream of bytes
+     */
+    public InputStream stream() {
+        return new ByteArrayInputStream(this.png);
+    }
+
+    /**
+     * Entity tag, which is the hash of the content, quoted.
+     * @return ETag
+     */
+    public String etag() {
+        return this.tag;
+    }
+
+    /**
+     * Does any of these "If-None-Match" headers match the thumbnail?
+     *
+     * <p>Every header is a list of entity tags, separated by commas,
+     * maybe weak, like {@code W/"abc"}, or {@code *}, which matches
+     * anything, see RFC 7232, section 3.2.
+     *
+     * @param headers Values of "If-None-Match" headers
+     * @return TRUE if the browser has it already
+     */
+    public boolean matches(final Iterable<String> headers) {
+        boolean matches = false;
+        for (final String header : headers) {
+            for (final String item : header.split(",")) {
+                final String etag = item.trim();
+                if ("*".equals(etag) || this.tag.equals(etag)
+                    || this.tag.equals(etag.replaceFirst("^W/", ""))) {
+                    matches = true;
+                    break;
+                }
+            }
+        }
+        return matches;
+    }
+
+    @Override
+    public long weight() {
+        return (long) this.png.length;
+    }
+
+    /**
+     * Make the thumbnail, unless another thread is making it already,
+     * wait for that one then.
+     * @param key Key
+     * @param make How to make it
+     * @return Thumbnail
+     * @throws IOException If fails
+     */
+    private static Thumbnail flight(final Engine.Key key,
+        final Callable<Thumbnail> make) throws IOException {
+        final FutureTask<Thumbnail> task = new FutureTask<Thumbnail>(make);
+        FutureTask<Thumbnail> running = Thumbnail.FLIGHTS.putIfAbsent(
+            key, task
+        );
+        if (running == null) {
+            running = task;
+            try {
+                task.run();
+            } finally {
+                Thumbnail.FLIGHTS.remove(key, task);
+            }
+        }
+        try {
+            return running.get();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException(ex);
+        } catch (final ExecutionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw IOException.class.cast(ex.getCause());
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    /**
+     * Read the thumbnail from the disk, making it if it's absent.
+     * @param key Key
+     * @param origin Where to get the photo from
+     * @return Thumbnail
+     * @throws IOException If fails
+     */
+    private static Thumbnail local(final Engine.Key key,
+        final Engine.Source<BufferedImage> origin) throws IOException {
+        final InputStream stream = Cache.disk().read(
+            key,
+            new Engine.Source<InputStream>() {
+                @Override
+                public InputStream load() throws IOException {
+                    final ByteArrayOutputStream baos =
+                        new ByteArrayOutputStream();
+                    ImageIO.write(
+                        Thumbnail.scale(origin.load(), Tv.HUNDRED),
+                        "png", baos
+                    );
+                    return new ByteArrayInputStream(baos.toByteArray());
+                }
+            }
+        );
+        try {
+            return new Thumbnail(IOUtils.toByteArray(stream));
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Download the photo.
+     * @param photo URI of the photo
+     * @return Image, or the default one if it's not an image
+     * @throws IOException If fails
+     */
+    private static BufferedImage download(final URI photo)
+        throws IOException {
+        final byte[] img = new JdkRequest(photo)
+            .through(AutoRedirectingWire.class)
+            .through(RetryWire.class)
+            .through(OneMinuteWire.class)
+            .header(HttpHeaders.ACCEPT, "image/*")
+            .header(HttpHeaders.USER_AGENT, "Netbout.com")
+            .fetch()
+            .as(RestResponse.class)
+            .assertStatus(HttpURLConnection.HTTP_OK)
+            .binary();
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(img));
+        if (image == null) {
+            image = ImageIO.read(new URL("http://img.netbout.com/unknown.png"));
+        }
+        return image;
+    }
+
+    /**
+     * Scale the image to the width, keeping its proportions.
+     *
+     * <p>It is halved with bilinear interpolation until it's twice as big
+     * as needed at most, which looks as smooth as
+     * {@link java.awt.Image#SCALE_SMOOTH} and is many times faster.
+     *
+     * @param image The image
+     * @param width Width of the thumbnail
+     * @return Thumbnail
+     */
+    static BufferedImage scale(final BufferedImage image,
+        final int width) {
+        final int height = Math.max(
+            1, image.getHeight() * width / image.getWidth()
+        );
+        BufferedImage current = image;
+        do {
+            final BufferedImage next = new BufferedImage(
+                Math.max(width, current.getWidth() / 2),
+                Math.max(height, current.getHeight() / 2),
+                BufferedImage.TYPE_INT_RGB
+            );
+            final Graphics2D graphics = next.createGraphics();
+            graphics.setRenderingHint(
+                RenderingHints.KEY_INTERPOLATION,
+                RenderingHints.VALUE_INTERPOLATION_BILINEAR
+            );
+            graphics.drawImage(
+                current, 0, 0, next.getWidth(), next.getHeight(), null
+            );
+            graphics.dispose();
+            current = next;
+        } while (current.getWidth() != width || current.getHeight() != height);
+        return current;
+    }
+
+}
@@ -104,6 +104,10 @@ public final class TkApp extends TkWrap {
                 )
             );
         }
+        Stylesheets.compile(
+            "/xsl/login.xsl", "/xsl/register.xsl", "/xsl/inbox.xsl",
+            "/xsl/bout.xsl", "/xsl/account.xsl", "/xsl/cache.xsl"
+        );
         return new TkWithHeaders(
             new TkVersioned(
                 new TkMeasured(
@@ -111,7 +115,8 @@ public final class TkApp extends TkWrap {
                         new TkAppFallback(
                             new TkForward(
                                 new TkAppAuth(
-                                    TkApp.regex(base)
+                                    TkApp.regex(base),
+                                    base
                                 )
                             )
                         )
@@ -130,6 +135,7 @@ public final class TkApp extends TkWrap {
      * @throws IOException If fails
      */
     private static Take regex(final Base base) throws IOException {
+        final Scoped scoped = new Scoped(base);
         return new TkFork(
             new FkParams(
                 PsByFlag.class.getSimpleName(),
@@ -171,25 +177,40 @@ public final class TkApp extends TkWrap {
                     new FkRegex("/", new TkHome(base))
                 )
             ),
-            new FkAuthenticated(
+            new FkAuthenticated(scoped.bind(TkApp.user(scoped)))
+        );
+    }
+
+    /**
+     * Takes of an authenticated user.
+     *
+     * <p>They are made once, with a base bound to the request being
+     * processed, see {@link Scoped}, in order to find the user and the
+     * aliases only once per request.
+     *
+     * @param base Base, bound to the request
+     * @return Take
+     * @throws IOException If fails
+     */
+    private static Take user(final Base base) throws IOException {
+        return new TkFork(
+            new FkRegistered(
+                base,
                 new TkFork(
-                    new FkRegistered(
-                        base,
-                        new TkFork(
-                            new FkRegex("/", new TkInbox(base)),
-                            new FkRegex("/start", new TkStart(base)),
-                            new FkRegex("/b/.*", new TkBout(base)),
-                            new FkRegex("/acc/.*", new TkAccount(base)),
-                            new FkRegex(
-                                "/f/([a-zA-Z0-9]+)\\.png",
-                                new TkFriend(base)
-                            )
-                        )
-                    ),
-                    new FkRegex("/", new RsRedirect("/login/start")),
-                    new FkRegex("/login/.*", new TkLogin(base))
+                    new FkRegex("/", new TkInbox(base)),
+                    new FkRegex("/bouts", new TkBouts(base)),
+                    new FkRegex("/start", new TkStart(base)),
+                    new FkRegex("/b/.*", new TkBout(base)),
+                    new FkRegex("/acc/.*", new TkAccount(base)),
+                    new FkRegex("/cache", new TkCache(base)),
+                    new FkRegex(
+                        "/f/([a-zA-Z0-9]+)\\.png",
+                        new TkFriend(base)
+                    )
                 )
-            )
+            ),
+            new FkRegex("/", new RsRedirect("/login/start")),
+            new FkRegex("/login/.*", new TkLogin(base))
         );
     }
 
@@ -27,6 +27,7 @@
 package com.netbout.rest;
 
 import com.jcabi.manifests.Manifests;
+import com.netbout.spi.Base;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -72,63 +73,71 @@ final class TkAppAuth extends TkWrap {
     /**
      * Ctor.
      * @param take Take
+     * @param base Base
      */
-    TkAppAuth(final Take take) {
-        super(TkAppAuth.make(take));
+    TkAppAuth(final Take take, final Base base) {
+        super(TkAppAuth.make(take, base));
     }
 
     /**
      * Authenticated.
+     *
+     * <p>Cache of the user is warmed up on entrance, see {@link PsWarm}.
+     *
      * @param take Take
+     * @param base Base
      * @return Authenticated take
      */
-    private static Take make(final Take take) {
+    private static Take make(final Take take, final Base base) {
         return new TkAuth(
             take,
-            new PsChain(
-                new PsByFlag(
-                    new PsByFlag.Pair(
-                        PsGithub.class.getSimpleName(),
-                        new PsGithub(
-                            Manifests.read("Netbout-GithubId"),
-                            Manifests.read("Netbout-GithubSecret")
-                        )
-                    ),
-                    new PsByFlag.Pair(
-                        PsFacebook.class.getSimpleName(),
-                        new PsFacebook(
-                            Manifests.read("Netbout-FbId"),
-                            Manifests.read("Netbout-FbSecret")
-                        )
-                    ),
-                    new PsByFlag.Pair(
-                        PsGoogle.class.getSimpleName(),
-                        new PsGoogle(
-                            Manifests.read("Netbout-GoogleId"),
-                            Manifests.read("Netbout-GoogleSecret"),
-                            "http://www.netbout.com/?PsByFlag=PsGoogle"
+            new PsWarm(
+                new PsChain(
+                    new PsByFlag(
+                        new PsByFlag.Pair(
+                            PsGithub.class.getSimpleName(),
+                            new PsGithub(
+                                Manifests.read("Netbout-GithubId"),
+                                Manifests.read("Netbout-GithubSecret")
+                            )
+                        ),
+                        new PsByFlag.Pair(
+                            PsFacebook.class.getSimpleName(),
+                            new PsFacebook(
+                                Manifests.read("Netbout-FbId"),
+                                Manifests.read("Netbout-FbSecret")
+                            )
+                        ),
+                        new PsByFlag.Pair(
+                            PsGoogle.class.getSimpleName(),
+                            new PsGoogle(
+                                Manifests.read("Netbout-GoogleId"),
+                                Manifests.read("Netbout-GoogleSecret"),
+                                "http://www.netbout.com/?PsByFlag=PsGoogle"
+                            )
+                        ),
+                        new PsByFlag.Pair(
+                            "fake-user",
+                            new TkAppAuth.FakePass()
+                        ),
+                        new PsByFlag.Pair(
+                            PsLogout.class.getSimpleName(),
+                            new PsLogout()
                         )
                     ),
-                    new PsByFlag.Pair(
-                        "fake-user",
-                        new TkAppAuth.FakePass()
-                    ),
-                    new PsByFlag.Pair(
-                        PsLogout.class.getSimpleName(),
-                        new PsLogout()
-                    )
-                ),
-                new PsCookie(
-                    new CcSafe(
-                        new CcHex(
-                            new CcXOR(
-                                new CcSalted(new CcCompact()),
-                                Manifests.read("Netbout-SecurityKey")
+                    new PsCookie(
+                        new CcSafe(
+                            new CcHex(
+                                new CcXOR(
+                                    new CcSalted(new CcCompact()),
+                                    Manifests.read("Netbout-SecurityKey")
+                                )
                             )
                         )
-                    )
+                    ),
+                    new PsFake(TkAppAuth.TESTING)
                 ),
-                new PsFake(TkAppAuth.TESTING)
+                base
             )
         );
     }
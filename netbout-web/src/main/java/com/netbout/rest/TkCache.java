@@ -0,0 +1,147 @@
+/**
+ * Copyright (c) 2009-2015, netbout.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are PROHIBITED without prior written permission from
+ * the author. This product may NOT be used anywhere and on any computer
+ * except the server platform of netbout Inc. located at www.netbout.com.
+ * Federal copyright law prohibits unauthorized reproduction by any means
+ * and imposes fines up to $25,000 for violation. If you received
+ * this code accidentally and without intent to use it, please report this
+ * incident to the author by email.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.netbout.rest;
+
+import com.jcabi.manifests.Manifests;
+import com.netbout.cached.Cache;
+import com.netbout.cached.Engine;
+import com.netbout.spi.Base;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import org.takes.Request;
+import org.takes.Response;
+import org.takes.Take;
+import org.takes.facets.auth.RqAuth;
+import org.takes.rs.xe.XeAppend;
+import org.takes.rs.xe.XeDirectives;
+import org.xembly.Directives;
+
+/**
+ * Statistics of caches, for admins only.
+ *
+ * <p>Every cached method has its own region, with its hits, misses,
+ * evictions, entries, estimated bytes and percentiles of load latency,
+ * in microseconds. The page is XML when requested with
+ * {@code Accept: text/xml}, which is the feed for dashboards.
+ *
+ * <p>Admins are listed by their URNs in {@code Netbout-Admins} entry
+ * of the manifest, separated by commas.
+ *
+ * @author Yegor Bugayenko (yegor@teamed.io)
+ * @version $Id$
+ * @since 2.16
+ */
+public final class TkCache implements Take {
+
+    /**
+     * Percentiles of load latency.
+     */
+    private static final double[] PERCENTILES = {
+        // @checkstyle MagicNumber (1 line)
+        0.5d, 0.95d, 0.99d,
+    };
+
+    /**
+     * Base.
+     */
+    private final transient Base base;
+
+    /**
+     * Ctor.
+     * @param bse Base
+     */
+    public TkCache(final Base bse) {
+        this.base = bse;
+    }
+
+    @Override
+    public Response act(final Request req) throws IOException {
+        if (!TkCache.admins().contains(new RqAuth(req).identity().urn())) {
+            throw new RsFailure("this page is for admins only");
+        }
+        final Directives dirs = new Directives()
+            .add("disk").set(Long.toString(Cache.disk().bytes())).up();
+        TkCache.append(dirs, "objects", Cache.engine());
+        TkCache.append(dirs, "markdown", Cache.markdown());
+        return new RsPage(
+            "/xsl/cache.xsl",
+            this.base,
+            req,
+            new XeAppend("cache", new XeDirectives(dirs))
+        );
+    }
+
+    /**
+     * URNs of admins.
+     * @return URNs
+     */
+    private static Collection<String> admins() {
+        return Arrays.asList(
+            Manifests.read("Netbout-Admins").trim().split("\\s*,\\s*")
+        );
+    }
+
+    /**
+     * Append statistics of an engine.
+     * @param dirs Directives to append to
+     * @param name Name of the engine
+     * @param engine The engine
+     */
+    private static void append(final Directives dirs, final String name,
+        final Engine engine) {
+        dirs.add("engine").attr("name", name);
+        for (final Map.Entry<String, Engine.Stats> ent
+            : engine.stats().entrySet()) {
+            final Engine.Stats stats = ent.getValue();
+            dirs.add("region").attr("name", ent.getKey())
+                .add("hits").set(Long.toString(stats.hits())).up()
+                .add("misses").set(Long.toString(stats.misses())).up()
+                .add("ratio")
+                .set(String.format(Locale.ENGLISH, "%.3f", stats.ratio()))
+                .up()
+                .add("evictions").set(Long.toString(stats.evictions())).up()
+                .add("rejections").set(Long.toString(stats.rejections())).up()
+                .add("invalidations")
+                .set(Long.toString(stats.invalidations())).up()
+                .add("entries").set(Long.toString(stats.entries())).up()
+                .add("bytes").set(Long.toString(stats.bytes())).up()
+                .add("latency");
+            for (final double share : TkCache.PERCENTILES) {
+                dirs.add("percentile")
+                    .attr("of", String.format(Locale.ENGLISH, "%.2f", share))
+                    .set(Long.toString(stats.latency(share)))
+                    .up();
+            }
+            dirs.up().up();
+        }
+        dirs.up();
+    }
+
+}
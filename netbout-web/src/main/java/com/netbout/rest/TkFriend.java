@@ -28,36 +28,28 @@ package com.netbout.rest;
 
 import com.google.common.collect.Iterables;
 import com.google.common.net.HttpHeaders;
-import com.jcabi.aspects.Tv;
-import com.jcabi.http.request.JdkRequest;
-import com.jcabi.http.response.RestResponse;
-import com.jcabi.http.wire.AutoRedirectingWire;
-import com.jcabi.http.wire.OneMinuteWire;
-import com.jcabi.http.wire.RetryWire;
 import com.netbout.spi.Base;
 import com.netbout.spi.Friend;
 import com.netbout.spi.User;
-import java.awt.Image;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.concurrent.TimeUnit;
-import javax.imageio.ImageIO;
 import org.takes.Response;
 import org.takes.facets.fork.RqRegex;
 import org.takes.facets.fork.TkRegex;
+import org.takes.rq.RqHeaders;
 import org.takes.rs.RsFluent;
 
 /**
  * Friend.
  *
+ * <p>Photo of the friend is rendered as a {@link Thumbnail}, which is
+ * cached, with its hash as an ETag, so browsers that have it already
+ * get "304 Not Modified" without the content.
+ *
  * @author Yegor Bugayenko (yegor@teamed.io)
  * @version $Id$
  * @since 2.14
- * @checkstyle ClassDataAbstractionCouplingCheck (500 lines)
  */
 public final class TkFriend implements TkRegex {
 
@@ -90,32 +82,8 @@ public final class TkFriend implements TkRegex {
                 String.format("alias \"%s\" is not found", alias)
             );
         }
-        final byte[] img = new JdkRequest(friend.photo())
-            .through(AutoRedirectingWire.class)
-            .through(RetryWire.class)
-            .through(OneMinuteWire.class)
-            .header(HttpHeaders.ACCEPT, "image/*")
-            .header(HttpHeaders.USER_AGENT, "Netbout.com")
-            .fetch()
-            .as(RestResponse.class)
-            .assertStatus(HttpURLConnection.HTTP_OK)
-            .binary();
-        BufferedImage image = ImageIO.read(new ByteArrayInputStream(img));
-        if (image == null) {
-            image = ImageIO.read(new URL("http://img.netbout.com/unknown.png"));
-        }
-        final Image thumb = image.getScaledInstance(
-            Tv.HUNDRED, -1, Image.SCALE_SMOOTH
-        );
-        final BufferedImage bthumb = new BufferedImage(
-            thumb.getWidth(null), thumb.getHeight(null),
-            BufferedImage.TYPE_INT_RGB
-        );
-        bthumb.getGraphics().drawImage(thumb, 0, 0, null);
-        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        ImageIO.write(bthumb, "png", baos);
-        return new RsFluent()
-            .withType("image/png")
+        final Thumbnail thumb = Thumbnail.of(alias, friend.photo());
+        RsFluent response = new RsFluent()
             .withHeader(
                 "Cache-Control",
                 String.format(
@@ -123,7 +91,17 @@ public final class TkFriend implements TkRegex {
                     TimeUnit.DAYS.toSeconds(1L)
                 )
             )
-            .withBody(new ByteArrayInputStream(baos.toByteArray()));
+            .withHeader(HttpHeaders.ETAG, thumb.etag());
+        if (thumb.matches(
+            new RqHeaders.Base(req).header(HttpHeaders.IF_NONE_MATCH)
+        )) {
+            response = response.withStatus(HttpURLConnection.HTTP_NOT_MODIFIED);
+        } else {
+            response = response
+                .withType("image/png")
+                .withBody(thumb.stream());
+        }
+        return response;
     }
 
 }
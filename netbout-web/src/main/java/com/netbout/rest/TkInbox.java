@@ -75,7 +75,8 @@ final class TkInbox implements Take {
             "/xsl/inbox.xsl",
             this.base,
             req,
-            new XeAppend("bouts", this.bouts(req))
+            new XeAppend("bouts", this.bouts(req)),
+            new XeLink("bouts", "/bouts")
         );
     }
 
@@ -86,18 +87,39 @@ final class TkInbox implements Take {
      * @throws IOException If fails
      */
     private Iterable<XeSource> bouts(final Request req) throws IOException {
+        return TkInbox.sources(
+            Iterables.limit(
+                new RqAlias(this.base, req).alias()
+                    .inbox().jump(TkInbox.since(req)).iterate(),
+                Inbox.PAGE
+            )
+        );
+    }
+
+    /**
+     * Moment to show bouts since, from the "since" query parameter.
+     * @param req Request
+     * @return Moment, in milliseconds
+     * @throws IOException If fails
+     */
+    static long since(final Request req) throws IOException {
         long since = Inbox.NEVER;
         final Iterator<String> param = new RqHref.Base(req).href()
             .param("since").iterator();
         if (param.hasNext()) {
             since = Long.parseLong(param.next());
         }
+        return since;
+    }
+
+    /**
+     * Convert bouts to bundles.
+     * @param bouts Bouts to convert
+     * @return Bundles
+     */
+    static Iterable<XeSource> sources(final Iterable<Bout> bouts) {
         return new XeTransform<>(
-            Iterables.limit(
-                new RqAlias(this.base, req).alias()
-                    .inbox().jump(since).iterate(),
-                Inbox.PAGE
-            ),
+            bouts,
             new XeTransform.Func<Bout>() {
                 @Override
                 public XeSource transform(final Bout bout) throws IOException {
@@ -38,6 +38,8 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Collection;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
@@ -85,7 +87,31 @@ final class TkAttach implements Take {
         );
         final String name = new RqPrint(multi.single("name")).printBody();
         final File temp = File.createTempFile("netbout", "bin");
-        IOUtils.copy(multi.single("file").body(), new FileOutputStream(temp));
+        try {
+            return this.attach(req, name, temp, multi.single("file").body());
+        } finally {
+            FileUtils.deleteQuietly(temp);
+        }
+    }
+
+    /**
+     * Attach the file.
+     * @param req Request
+     * @param name Name of the attachment
+     * @param temp Temporary file to use
+     * @param body Body of the file uploaded
+     * @return Response
+     * @throws IOException If fails
+     * @checkstyle ParameterNumberCheck (5 lines)
+     */
+    private Response attach(final Request req, final String name,
+        final File temp, final InputStream body) throws IOException {
+        final OutputStream output = new FileOutputStream(temp);
+        try {
+            IOUtils.copy(body, output);
+        } finally {
+            output.close();
+        }
         final Bout bout = new RqBout(this.base, req).bout();
         final StringBuilder msg = new StringBuilder(Tv.HUNDRED);
         if (new Attachments.Search(bout.attachments()).exists(name)) {
@@ -101,16 +127,17 @@ final class TkAttach implements Take {
         final String ctype = TkAttach.ctype(temp);
         msg.append(" (").append(temp.length())
             .append(" bytes, ").append(ctype).append(')');
+        final InputStream input = new FileInputStream(temp);
         try {
             bout.attachments().get(name).write(
-                new FileInputStream(temp),
-                ctype, Long.toString(System.currentTimeMillis())
+                input, ctype, Long.toString(System.currentTimeMillis())
             );
         } catch (final Attachment.TooBigException
             | Attachment.BrokenContentException ex) {
             throw new RsFailure(ex);
+        } finally {
+            input.close();
         }
-        FileUtils.forceDelete(temp);
         throw new RsForward(new RsFlash(msg.toString()));
     }
 
@@ -57,6 +57,7 @@ public final class TkBout extends TkWrap {
     private static Take make(final Base base) {
         return new TkFork(
             new FkBout("", new TkIndex(base)),
+            new FkBout("/messages", new TkMessages(base)),
             new FkBout("/attach", new TkAttach(base)),
             new FkBout("/upload", new TkUpload(base)),
             new FkBout("/download", new TkDownload(base)),
@@ -29,24 +29,53 @@ package com.netbout.rest.bout;
 import com.netbout.spi.Attachment;
 import com.netbout.spi.Base;
 import com.netbout.spi.Bout;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
 import java.net.URLEncoder;
+import java.util.Iterator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.apache.commons.lang3.CharEncoding;
 import org.takes.Request;
 import org.takes.Response;
 import org.takes.Take;
+import org.takes.rq.RqHeaders;
 import org.takes.rq.RqHref;
 import org.takes.rs.RsFluent;
 
 /**
  * Download.
  *
+ * <p>Content is streamed from the attachment as is. A range of bytes
+ * may be requested with "Range" header, when the content is a local
+ * file, see {@link com.netbout.cached.Disk}. The range is found by
+ * positioning the channel of the file, without reading the bytes before
+ * it. A range that starts after the end of the file is answered with
+ * "416 Range Not Satisfiable". When the size of the content is not known,
+ * the range is ignored and the content is returned completely, since
+ * "Content-Range" and "Content-Length" can't be correct then.
+ *
  * @author Yegor Bugayenko (yegor@teamed.io)
  * @version $Id$
  * @since 2.14
  */
 final class TkDownload implements Take {
 
+    /**
+     * Range of bytes requested, open ranges are supported only if the
+     * size of the attachment is known.
+     */
+    private static final Pattern RANGE =
+        Pattern.compile("bytes=(\\d+)-(\\d*)");
+
+    /**
+     * HTTP status of a range that starts after the end of the content.
+     */
+    private static final int UNSATISFIABLE = 416;
+
     /**
      * Base.
      */
@@ -66,8 +95,25 @@ final class TkDownload implements Take {
         final Attachment attachment = bout.attachments().get(
             new RqHref.Smart(new RqHref.Base(req)).single("name")
         );
-        return new RsFluent()
-            .withBody(attachment.read())
+        final InputStream stream = attachment.read();
+        final long size = TkDownload.size(stream);
+        final Iterator<String> ranges = new RqHeaders.Base(req)
+            .header("Range").iterator();
+        boolean ranged = false;
+        long first = 0L;
+        long last = -1L;
+        if (ranges.hasNext() && size >= 0L) {
+            final Matcher range = TkDownload.RANGE.matcher(ranges.next());
+            if (range.matches()) {
+                ranged = true;
+                first = Long.parseLong(range.group(1));
+                last = size - 1L;
+                if (!range.group(2).isEmpty()) {
+                    last = Math.min(last, Long.parseLong(range.group(2)));
+                }
+            }
+        }
+        RsFluent response = new RsFluent()
             .withHeader(
                 "Content-Disposition",
                 String.format(
@@ -75,7 +121,47 @@ final class TkDownload implements Take {
                     URLEncoder.encode(attachment.name(), CharEncoding.UTF_8)
                 )
             )
+            .withHeader("Accept-Ranges", "bytes")
             .withType(attachment.ctype());
+        if (ranged && first >= size) {
+            stream.close();
+            response = response
+                .withStatus(TkDownload.UNSATISFIABLE)
+                .withHeader("Content-Range", String.format("bytes */%d", size))
+                .withHeader("Content-Length", "0");
+        } else if (ranged && last >= first) {
+            FileInputStream.class.cast(stream).getChannel().position(first);
+            response = response
+                .withStatus(HttpURLConnection.HTTP_PARTIAL)
+                .withHeader(
+                    "Content-Range",
+                    String.format("bytes %d-%d/%d", first, last, size)
+                )
+                .withHeader("Content-Length", Long.toString(last - first + 1L))
+                .withBody(new BoundedInputStream(stream, last - first + 1L));
+        } else {
+            if (size >= 0L) {
+                response = response.withHeader(
+                    "Content-Length", Long.toString(size)
+                );
+            }
+            response = response.withBody(stream);
+        }
+        return response;
+    }
+
+    /**
+     * Size of the content, if it's known.
+     * @param stream The content
+     * @return Size in bytes or -1, if it's not a file
+     * @throws IOException If fails
+     */
+    private static long size(final InputStream stream) throws IOException {
+        long size = -1L;
+        if (stream instanceof FileInputStream) {
+            size = FileInputStream.class.cast(stream).getChannel().size();
+        }
+        return size;
     }
 
 }
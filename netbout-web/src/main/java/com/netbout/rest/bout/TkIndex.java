@@ -140,6 +140,7 @@ final class TkIndex implements Take {
                     )
                 )
             ),
+            new XeLink("messages", home.path("messages")),
             new XeLink("post", home.path("post")),
             new XeLink("rename", home.path("rename")),
             new XeLink("invite", home.path("invite")),
@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) 2009-2015, netbout.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are PROHIBITED without prior written permission from
+ * the author. This product may NOT be used anywhere and on any computer
+ * except the server platform of netbout Inc. located at www.netbout.com.
+ * Federal copyright law prohibits unauthorized reproduction by any means
+ * and imposes fines up to $25,000 for violation. If you received
+ * this code accidentally and without intent to use it, please report this
+ * incident to the author by email.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.netbout.rest.bout;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.netbout.rest.RsFragment;
+import com.netbout.spi.Base;
+import com.netbout.spi.Bout;
+import com.netbout.spi.Inbox;
+import com.netbout.spi.Message;
+import com.netbout.spi.Messages;
+import java.io.IOException;
+import java.util.List;
+import org.takes.Request;
+import org.takes.Response;
+import org.takes.Take;
+import org.takes.misc.Href;
+import org.takes.rq.RqHref;
+import org.takes.rs.xe.XeAppend;
+import org.takes.rs.xe.XeSource;
+import org.takes.rs.xe.XeTransform;
+import org.takes.rs.xe.XeWhen;
+
+/**
+ * Next page of messages in the bout, for infinite scroll.
+ *
+ * <p>It renders the messages exactly as {@link TkIndex} does, together
+ * with the URL of the next page, in {@code more}, which is absent when
+ * there are no more messages. Friends and attachments of the bout are
+ * not rendered.
+ *
+ * @author Yegor Bugayenko (yegor@teamed.io)
+ * @version $Id$
+ * @since 2.16
+ */
+final class TkMessages implements Take {
+
+    /**
+     * Base.
+     */
+    private final transient Base base;
+
+    /**
+     * Ctor.
+     * @param bse Base
+     */
+    TkMessages(final Base bse) {
+        this.base = bse;
+    }
+
+    @Override
+    public Response act(final Request req) throws IOException {
+        final long start = Long.parseLong(
+            new RqHref.Smart(new RqHref.Base(req)).single(
+                "start",
+                Long.toString(Inbox.NEVER)
+            )
+        );
+        final Bout bout = new RqBout(this.base, req).bout();
+        final List<Message> msgs = Lists.newArrayList(
+            Iterables.limit(
+                bout.messages().jump(start).iterate(),
+                Messages.PAGE
+            )
+        );
+        final boolean full = msgs.size() == Messages.PAGE;
+        String more = "";
+        if (full) {
+            more = new Href("/b").path(bout.number()).path("messages").with(
+                "start", Iterables.getLast(msgs).number()
+            ).toString();
+        }
+        return new RsFragment(
+            new XeAppend(
+                "messages",
+                new XeTransform<>(
+                    msgs,
+                    new XeTransform.Func<Message>() {
+                        @Override
+                        public XeSource transform(final Message msg)
+                            throws IOException {
+                            return new XeMessage(bout, msg);
+                        }
+                    }
+                )
+            ),
+            new XeWhen(full, new XeAppend("more", more))
+        );
+    }
+
+}
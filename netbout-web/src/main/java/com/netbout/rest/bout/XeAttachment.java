@@ -26,13 +26,11 @@
  */
 package com.netbout.rest.bout;
 
-import com.netbout.rest.Markdown;
+import com.netbout.markdown.Markdown;
 import com.netbout.spi.Attachment;
 import com.netbout.spi.Bout;
 import java.io.IOException;
 import java.util.Iterator;
-import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang3.CharEncoding;
 import org.takes.Request;
 import org.takes.misc.Href;
 import org.takes.rq.RqHref;
@@ -49,6 +47,9 @@ import org.xembly.Xembler;
 /**
  * Attachment in Xembly.
  *
+ * <p>HTML of an open markdown attachment may be cached, so the attachment
+ * is read only in order to mark it as seen, if it's unseen yet.
+ *
  * @author Yegor Bugayenko (yegor@teamed.io)
  * @version $Id$
  * @since 2.14
@@ -124,15 +125,12 @@ final class XeAttachment extends XeWrap {
                 new XeSource() {
                     @Override
                     public Iterable<Directive> toXembly() throws IOException {
+                        final String html = Markdown.html(bout.number(), atmt);
+                        if (atmt.unseen()) {
+                            atmt.read().close();
+                        }
                         return new Directives().add("html").set(
-                            Xembler.escape(
-                                new Markdown(
-                                    IOUtils.toString(
-                                        atmt.read(),
-                                        CharEncoding.UTF_8
-                                    )
-                                ).html()
-                            )
+                            Xembler.escape(html)
                         );
                     }
                 }
@@ -26,7 +26,6 @@
  */
 package com.netbout.rest.bout;
 
-import com.netbout.rest.Markdown;
 import com.netbout.spi.Bout;
 import com.netbout.spi.Message;
 import java.io.IOException;
@@ -80,7 +79,7 @@ final class XeMessage extends XeWrap {
                     .up()
                     .add("author").set(msg.author()).up()
                     .add("text").set(msg.text()).up()
-                    .add("html").set(new Markdown(msg.text()).html()).up()
+                    .add("html").set(msg.html()).up()
                     .add("timeago")
                     .set(new PrettyTime().format(msg.date())).up()
                     .add("date")
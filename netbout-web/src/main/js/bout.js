@@ -66,31 +66,30 @@ $(document).ready(
             {
               url: more,
               cache: false,
-              dataType: 'xml',
+              dataType: 'json',
               method: 'GET',
               success: function (data) {
                 var appendix = '';
-                more = '';
-                $(data).find('message').each(
+                $.each(
+                  data.messages,
                   function (idx, msg) {
-                    var $msg = $(msg);
                     appendix += [
                       '<div class="message" id="msg',
-                      $msg.find('number').text(),
+                      msg.number,
                       '"><div class="left"><img class="photo" src="',
-                      $msg.find('link[rel="photo"]').attr('href'),
+                      msg.links.photo,
                       '"/>',
                       '</div><div class="right"><div class="meta"><strong>',
-                      escapeHTML($msg.find('author').text()),
+                      escapeHTML(msg.author),
                       '</strong> said ',
-                      escapeHTML($msg.find('timeago').text()),
+                      escapeHTML(msg.timeago),
                       '</div><div class="text">',
-                      $msg.find('html').text(),
+                      msg.html,
                       '</div></div></div>'
                     ].join('');
-                    more = $msg.find('link[rel="more"]').attr('href');
                   }
                 );
+                more = data.more || '';
                 $tail.removeAttr('id');
                 $tail.html(appendix + '<div id="tail"/>');
                 $box.attr('data-more', more);
@@ -48,48 +48,48 @@ $(document).ready(
             {
               url: more,
               cache: false,
-              dataType: 'xml',
+              dataType: 'json',
               method: 'GET',
               success: function (data) {
                 var appendix = '<ul class="bouts">';
-                more = '';
-                $(data).find('bout').each(
+                $.each(
+                  data.bouts,
                   function (idx, bout) {
-                    var $bout = $(bout),
-                      unread = parseInt($bout.find('unread').text(), 10),
-                      unseen = parseInt($bout.find('unseen').text(), 10);
+                    var unread = parseInt(bout.unread, 10),
+                      unseen = parseInt(bout.unseen, 10);
                     appendix += [
                       '<li class="bout" id="bout',
-                      $bout.find('number').text(),
+                      bout.number,
                       '"><h1 class="bout"><span class="num',
                       (unread === 0 && unseen === 0 ? '' : ' unread'),
                       '">#',
-                      $bout.find('number').text(),
+                      bout.number,
                       '</span><a class="title" href="',
-                      $bout.find('link[rel="open"]').attr('href'),
+                      bout.links.open,
                       '">',
-                      escapeHTML($bout.find('title').text()),
+                      escapeHTML(bout.title),
                       '</a>',
                       (unread === 0 ? '' : '<span class="unread">' + unread + '</span>'),
                       '</h1><div class="friends">'
                     ].join('');
-                    $bout.find('friend').each(
+                    $.each(
+                      bout.friends,
                       function (idx, friend) {
-                        var $friend = $(friend), shift = 57 * idx;
+                        var shift = 57 * idx;
                         appendix += [
                           '<div class="friend" style="left:',
                           shift + 'px;"><img alt="',
-                          escapeHTML($friend.find('alias').text()),
+                          escapeHTML(friend.alias),
                           '" src="',
-                          $friend.find('link[rel="photo"]').attr('href'),
+                          friend.links.photo,
                           '"/></div>'
                         ].join('');
                       }
                     );
                     appendix += '</div></li>';
-                    more = $bout.find('link[rel="more"]').attr('href');
                   }
                 );
+                more = data.more || '';
                 $tail.removeAttr('id');
                 $tail.html(appendix + '</ul><div id="tail"/>');
                 $box.attr('data-more', more);
@@ -99,7 +99,14 @@
                 </fieldset>
             </form>
         </div>
-        <div id="messages" data-more="{messages/message[position()=last()]/links/link[@rel='more']/@href}">
+        <div id="messages">
+            <xsl:if test="messages/message">
+                <xsl:attribute name="data-more">
+                    <xsl:value-of select="/page/links/link[@rel='messages']/@href"/>
+                    <xsl:text>?start=</xsl:text>
+                    <xsl:value-of select="messages/message[position()=last()]/number"/>
+                </xsl:attribute>
+            </xsl:if>
             <xsl:apply-templates select="messages/message"/>
             <div id="tail"/>
         </div>
@@ -79,7 +79,14 @@
                 </p>
             </xsl:when>
             <xsl:otherwise>
-                <div id="bouts" data-more="{bouts/bout[position()=last()]/links/link[@rel='more']/@href}">
+                <div id="bouts">
+                    <xsl:if test="bouts/bout">
+                        <xsl:attribute name="data-more">
+                            <xsl:value-of select="/page/links/link[@rel='bouts']/@href"/>
+                            <xsl:text>?since=</xsl:text>
+                            <xsl:value-of select="bouts/bout[position()=last()]/updated"/>
+                        </xsl:attribute>
+                    </xsl:if>
                     <ul class="bouts">
                         <xsl:for-each select="bouts/bout">
                             <xsl:apply-templates select="."/>
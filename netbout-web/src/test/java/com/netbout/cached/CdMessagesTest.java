@@ -26,12 +26,22 @@
  */
 package com.netbout.cached;
 
+import com.netbout.spi.Friend;
+import com.netbout.spi.Friends;
 import com.netbout.spi.Messages;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.Matchers;
 import org.junit.Test;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 /**
  * Test case for {@link CdMessages}.
@@ -42,19 +52,99 @@ import org.mockito.Mockito;
 public final class CdMessagesTest {
 
     /**
-     * CdMessages can flush unread number.
+     * CdMessages can reset unread number, when messages are seen.
      * @throws Exception If there is some problem inside
      */
     @Test
-    public void flushesUnreadNumber() throws Exception {
+    public void resetsUnreadNumber() throws Exception {
         final Messages origin = Mockito.mock(Messages.class);
         Mockito.doReturn(1L).doReturn(2L).when(origin).unread();
-        final Messages messages = new CdMessages(origin);
+        final Messages messages = new CdMessages(
+            origin, "jeff", 1L, Mockito.mock(Friends.class)
+        );
         MatcherAssert.assertThat(messages.unread(), Matchers.equalTo(1L));
         MatcherAssert.assertThat(messages.unread(), Matchers.equalTo(1L));
         Mockito.doReturn(Collections.emptyList()).when(origin).iterate();
         messages.iterate();
-        MatcherAssert.assertThat(messages.unread(), Matchers.equalTo(2L));
+        MatcherAssert.assertThat(messages.unread(), Matchers.equalTo(0L));
+        Mockito.verify(origin, Mockito.times(1)).unread();
+    }
+
+    /**
+     * CdMessages can count unread messages of friends on post.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void countsUnreadNumberOnPost() throws Exception {
+        final long bout = 3L;
+        final Friend friend = Mockito.mock(Friend.class);
+        Mockito.doReturn("walter").when(friend).alias();
+        final Friend author = Mockito.mock(Friend.class);
+        Mockito.doReturn("jesse").when(author).alias();
+        final Friends friends = Mockito.mock(Friends.class);
+        Mockito.doReturn(Arrays.asList(friend, author))
+            .when(friends).iterate();
+        final Messages origin = Mockito.mock(Messages.class);
+        Mockito.doReturn(1L).when(origin).unread();
+        final Messages reader = new CdMessages(
+            origin, "walter", bout, friends
+        );
+        final Messages writer = new CdMessages(
+            origin, "jesse", bout, friends
+        );
+        MatcherAssert.assertThat(reader.unread(), Matchers.equalTo(1L));
+        MatcherAssert.assertThat(writer.unread(), Matchers.equalTo(1L));
+        writer.post("hey, how are you?");
+        MatcherAssert.assertThat(reader.unread(), Matchers.equalTo(2L));
+        MatcherAssert.assertThat(writer.unread(), Matchers.equalTo(1L));
+        Mockito.verify(origin, Mockito.times(2)).unread();
+    }
+
+    /**
+     * CdMessages can forget unread number of a friend, which was being
+     * loaded while a message was posted.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void forgetsUnreadNumberLoadedDuringPost() throws Exception {
+        final long bout = 4L;
+        final Friend friend = Mockito.mock(Friend.class);
+        Mockito.doReturn("gus").when(friend).alias();
+        final Friend author = Mockito.mock(Friend.class);
+        Mockito.doReturn("mike").when(author).alias();
+        final Friends friends = Mockito.mock(Friends.class);
+        Mockito.doReturn(Arrays.asList(friend, author))
+            .when(friends).iterate();
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch posted = new CountDownLatch(1);
+        final Messages origin = Mockito.mock(Messages.class);
+        Mockito.doAnswer(
+            new Answer<Long>() {
+                @Override
+                public Long answer(final InvocationOnMock inv)
+                    throws InterruptedException {
+                    loading.countDown();
+                    posted.await();
+                    return 1L;
+                }
+            }
+        ).doReturn(2L).when(origin).unread();
+        final Messages reader = new CdMessages(origin, "gus", bout, friends);
+        final ExecutorService svc = Executors.newSingleThreadExecutor();
+        final Future<Long> stale = svc.submit(
+            new Callable<Long>() {
+                @Override
+                public Long call() throws Exception {
+                    return reader.unread();
+                }
+            }
+        );
+        loading.await();
+        new CdMessages(origin, "mike", bout, friends).post("say my name");
+        posted.countDown();
+        MatcherAssert.assertThat(stale.get(), Matchers.equalTo(1L));
+        svc.shutdown();
+        MatcherAssert.assertThat(reader.unread(), Matchers.equalTo(2L));
     }
 
 }
@@ -0,0 +1,150 @@
+/**
+ * Copyright (c) 2009-2015, netbout.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are PROHIBITED without prior written permission from
+ * the author. This product may NOT be used anywhere and on any computer
+ * except the server platform of netbout Inc. located at www.netbout.com.
+ * Federal copyright law prohibits unauthorized reproduction by any means
+ * and imposes fines up to $25,000 for violation. If you received
+ * this code accidentally and without intent to use it, please report this
+ * incident to the author by email.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.netbout.cached;
+
+import com.google.common.collect.Iterables;
+import com.netbout.spi.Friend;
+import com.netbout.spi.Friends;
+import com.netbout.spi.Message;
+import com.netbout.spi.Messages;
+import com.netbout.spi.Pageable;
+import java.util.Collections;
+import java.util.Date;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * Test case for {@link CdPage}.
+ * @author Yegor Bugayenko (yegor@teamed.io)
+ * @version $Id$
+ * @since 2.16
+ */
+public final class CdPageTest {
+
+    /**
+     * CdPage can cache an old page, loading its messages only once.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void cachesOldPage() throws Exception {
+        final Message msg = CdPageTest.message(1L);
+        final Messages origin = Mockito.mock(Messages.class);
+        final Pageable<Message> page = CdPageTest.page(msg);
+        Mockito.doReturn(page).when(origin).jump(Mockito.anyLong());
+        Mockito.doReturn(Collections.singletonList(CdPageTest.message(2L)))
+            .when(origin).iterate();
+        final Messages messages = new CdMessages(
+            origin, "jeff", 2L, Mockito.mock(Friends.class)
+        );
+        for (int idx = 0; idx < 2; ++idx) {
+            MatcherAssert.assertThat(
+                Iterables.getOnlyElement(messages.jump(1L).iterate()).text(),
+                Matchers.equalTo("hey")
+            );
+        }
+        Mockito.verify(page, Mockito.times(2)).iterate();
+        Mockito.verify(msg, Mockito.times(1)).text();
+    }
+
+    /**
+     * CdPage can reload the head page after a new post.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void reloadsHeadPageAfterPost() throws Exception {
+        final Message msg = CdPageTest.message(1L);
+        final Messages origin = Mockito.mock(Messages.class);
+        Mockito.doReturn(Collections.singletonList(msg))
+            .when(origin).iterate();
+        final Friends friends = Mockito.mock(Friends.class);
+        Mockito.doReturn(Collections.<Friend>emptyList())
+            .when(friends).iterate();
+        final Messages messages = new CdMessages(origin, "mike", 3L, friends);
+        Iterables.size(messages.iterate());
+        Iterables.size(messages.iterate());
+        Mockito.verify(msg, Mockito.times(1)).text();
+        messages.post("hello");
+        Iterables.size(messages.iterate());
+        Mockito.verify(msg, Mockito.times(2)).text();
+    }
+
+    /**
+     * CdPage can treat a page that starts above the newest message
+     * as the head page, reloading it after a new post.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void reloadsPageAboveNewestMessageAfterPost() throws Exception {
+        final Message msg = CdPageTest.message(1L);
+        final Messages origin = Mockito.mock(Messages.class);
+        Mockito.doReturn(Collections.singletonList(msg))
+            .when(origin).iterate();
+        final Friends friends = Mockito.mock(Friends.class);
+        Mockito.doReturn(Collections.<Friend>emptyList())
+            .when(friends).iterate();
+        final Messages messages = new CdMessages(origin, "john", 4L, friends);
+        Iterables.size(messages.jump(2L).iterate());
+        Iterables.size(messages.jump(2L).iterate());
+        Mockito.verify(msg, Mockito.times(1)).text();
+        messages.post("how are you?");
+        Iterables.size(messages.jump(2L).iterate());
+        Mockito.verify(msg, Mockito.times(2)).text();
+    }
+
+    /**
+     * Make a message.
+     * @param number Its number
+     * @return Message
+     * @throws Exception If fails
+     */
+    private static Message message(final long number) throws Exception {
+        final Message msg = Mockito.mock(Message.class);
+        Mockito.doReturn(number).when(msg).number();
+        Mockito.doReturn("hey").when(msg).text();
+        Mockito.doReturn("<p>hey</p>").when(msg).html();
+        Mockito.doReturn("jeff").when(msg).author();
+        Mockito.doReturn(new Date()).when(msg).date();
+        return msg;
+    }
+
+    /**
+     * Make a page.
+     * @param msg The only message in it
+     * @return Page
+     * @throws Exception If fails
+     */
+    @SuppressWarnings("unchecked")
+    private static Pageable<Message> page(final Message msg)
+        throws Exception {
+        final Pageable<Message> page = Mockito.mock(Pageable.class);
+        Mockito.doReturn(Collections.singletonList(msg)).when(page).iterate();
+        return page;
+    }
+
+}
@@ -0,0 +1,154 @@
+/**
+ * Copyright (c) 2009-2015, netbout.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are PROHIBITED without prior written permission from
+ * the author. This product may NOT be used anywhere and on any computer
+ * except the server platform of netbout Inc. located at www.netbout.com.
+ * Federal copyright law prohibits unauthorized reproduction by any means
+ * and imposes fines up to $25,000 for violation. If you received
+ * this code accidentally and without intent to use it, please report this
+ * incident to the author by email.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.netbout.cached;
+
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.io.IOUtils;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Test case for {@link Disk}.
+ * @author Yegor Bugayenko (yegor@teamed.io)
+ * @version $Id$
+ * @since 2.16
+ */
+public final class DiskTest {
+
+    /**
+     * Disk can download content only once.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void downloadsOnce() throws Exception {
+        final Disk disk = new Disk(Files.createTempDir(), 1024L);
+        final DiskTest.Source source = new DiskTest.Source("hello, world!");
+        final Engine.Key key = new Engine.Key("content", 1L, "a.txt", "a1");
+        disk.read(key, source).close();
+        MatcherAssert.assertThat(
+            IOUtils.toString(disk.read(key, source)),
+            Matchers.equalTo("hello, world!")
+        );
+        MatcherAssert.assertThat(source.count(), Matchers.equalTo(1));
+    }
+
+    /**
+     * Disk can delete least recently used files.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void deletesLeastRecentlyUsedFiles() throws Exception {
+        final File dir = Files.createTempDir();
+        final Disk disk = new Disk(dir, 2L);
+        final DiskTest.Source source = new DiskTest.Source("x");
+        final Engine.Key first = new Engine.Key("content", 1L, "f", "1");
+        final Engine.Key second = new Engine.Key("content", 1L, "s", "1");
+        final Engine.Key third = new Engine.Key("content", 1L, "t", "1");
+        disk.read(first, source).close();
+        disk.read(second, source).close();
+        disk.read(first, source).close();
+        disk.read(third, source).close();
+        MatcherAssert.assertThat(disk.bytes(), Matchers.equalTo(2L));
+        MatcherAssert.assertThat(dir.list().length, Matchers.equalTo(2));
+        disk.read(first, source).close();
+        MatcherAssert.assertThat(source.count(), Matchers.equalTo(3));
+        disk.read(second, source).close();
+        MatcherAssert.assertThat(source.count(), Matchers.equalTo(4));
+    }
+
+    /**
+     * Disk can keep nothing, if the source fails.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void keepsNothingIfSourceFails() throws Exception {
+        final File dir = Files.createTempDir();
+        final Disk disk = new Disk(dir, 1024L);
+        final Engine.Key key = new Engine.Key("content", 1L, "b.txt", "b1");
+        try {
+            disk.read(
+                key,
+                new Engine.Source<InputStream>() {
+                    @Override
+                    public InputStream load() throws IOException {
+                        throw new IOException("not available");
+                    }
+                }
+            );
+        } catch (final IOException ex) {
+            MatcherAssert.assertThat(
+                ex.getMessage(), Matchers.equalTo("not available")
+            );
+        }
+        MatcherAssert.assertThat(dir.list().length, Matchers.equalTo(0));
+        final DiskTest.Source source = new DiskTest.Source("fine");
+        MatcherAssert.assertThat(
+            IOUtils.toString(disk.read(key, source)),
+            Matchers.equalTo("fine")
+        );
+        MatcherAssert.assertThat(source.count(), Matchers.equalTo(1));
+    }
+
+    /**
+     * Source, which counts downloads.
+     */
+    private static final class Source implements Engine.Source<InputStream> {
+        /**
+         * Content.
+         */
+        private final transient String content;
+        /**
+         * Downloads.
+         */
+        private final transient AtomicInteger total = new AtomicInteger();
+        /**
+         * Ctor.
+         * @param text Content
+         */
+        Source(final String text) {
+            this.content = text;
+        }
+        @Override
+        public InputStream load() {
+            this.total.incrementAndGet();
+            return IOUtils.toInputStream(this.content);
+        }
+        /**
+         * How many times it was downloaded.
+         * @return Count
+         */
+        public int count() {
+            return this.total.get();
+        }
+    }
+
+}
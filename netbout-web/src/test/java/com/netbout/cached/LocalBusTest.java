@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2009-2015, netbout.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are PROHIBITED without prior written permission from
+ * the author. This product may NOT be used anywhere and on any computer
+ * except the server platform of netbout Inc. located at www.netbout.com.
+ * Federal copyright law prohibits unauthorized reproduction by any means
+ * and imposes fines up to $25,000 for violation. If you received
+ * this code accidentally and without intent to use it, please report this
+ * incident to the author by email.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.netbout.cached;
+
+import com.jcabi.aspects.Tv;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Test case for {@link LocalBus}.
+ * @author Yegor Bugayenko (yegor@teamed.io)
+ * @version $Id$
+ * @since 2.16
+ */
+public final class LocalBusTest {
+
+    /**
+     * LocalBus can invalidate keys in engines of all listeners.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void invalidatesPeers() throws Exception {
+        final Bus bus = new LocalBus();
+        final Engine first = LocalBusTest.engine(bus);
+        final Engine second = LocalBusTest.engine(bus);
+        final Engine.Key key = new Engine.Key("bout", 1L, "title");
+        final AtomicLong version = new AtomicLong();
+        final Engine.Source<Long> source = new Engine.Source<Long>() {
+            @Override
+            public Long load() {
+                return version.get();
+            }
+        };
+        first.get(key, 1L, TimeUnit.HOURS, source);
+        second.get(key, 1L, TimeUnit.HOURS, source);
+        version.incrementAndGet();
+        bus.publish(Collections.singleton(key));
+        MatcherAssert.assertThat(
+            first.get(key, 1L, TimeUnit.HOURS, source),
+            Matchers.equalTo(1L)
+        );
+        MatcherAssert.assertThat(
+            second.get(key, 1L, TimeUnit.HOURS, source),
+            Matchers.equalTo(1L)
+        );
+    }
+
+    /**
+     * Make an engine, which listens to the bus.
+     * @param bus The bus
+     * @return Engine
+     */
+    private static Engine engine(final Bus bus) {
+        final Engine engine = new TinyLfu(Tv.TEN, (long) Tv.MILLION);
+        bus.listen(
+            new Bus.Listener() {
+                @Override
+                public void invalidate(final Collection<Engine.Key> keys) {
+                    engine.invalidate(
+                        keys.toArray(new Engine.Key[keys.size()])
+                    );
+                }
+                @Override
+                public void flush() {
+                    engine.flush();
+                }
+            }
+        );
+        return engine;
+    }
+
+}
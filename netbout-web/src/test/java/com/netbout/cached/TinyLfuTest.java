@@ -0,0 +1,202 @@
+/**
+ * Copyright (c) 2009-2015, netbout.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are PROHIBITED without prior written permission from
+ * the author. This product may NOT be used anywhere and on any computer
+ * except the server platform of netbout Inc. located at www.netbout.com.
+ * Federal copyright law prohibits unauthorized reproduction by any means
+ * and imposes fines up to $25,000 for violation. If you received
+ * this code accidentally and without intent to use it, please report this
+ * incident to the author by email.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.netbout.cached;
+
+import com.jcabi.aspects.Tv;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Test case for {@link TinyLfu}.
+ * @author Yegor Bugayenko (yegor@teamed.io)
+ * @version $Id$
+ * @since 2.16
+ */
+public final class TinyLfuTest {
+
+    /**
+     * TinyLfu can cache values and invalidate them.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void cachesAndInvalidates() throws Exception {
+        final Engine engine = new TinyLfu(Tv.TEN, (long) Tv.MILLION);
+        final TinyLfuTest.Counter counter = new TinyLfuTest.Counter();
+        final Engine.Key key = new Engine.Key("test", "jeff", 1L, "title");
+        engine.get(key, 1L, TimeUnit.HOURS, counter);
+        engine.get(new Engine.Key("test", "jeff", 1L, "title"),
+            1L, TimeUnit.HOURS, counter);
+        MatcherAssert.assertThat(counter.loads(), Matchers.equalTo(1));
+        engine.invalidate(key);
+        engine.get(key, 1L, TimeUnit.HOURS, counter);
+        MatcherAssert.assertThat(counter.loads(), Matchers.equalTo(2));
+        MatcherAssert.assertThat(
+            engine.stats().get("test").hits(), Matchers.equalTo(1L)
+        );
+        MatcherAssert.assertThat(
+            engine.stats().get("test").invalidations(), Matchers.equalTo(1L)
+        );
+    }
+
+    /**
+     * TinyLfu can keep frequent values and reject rare ones.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void keepsFrequentValues() throws Exception {
+        final Engine engine = new TinyLfu(Tv.TEN, (long) Tv.MILLION);
+        final TinyLfuTest.Counter counter = new TinyLfuTest.Counter();
+        for (int round = 0; round < Tv.FIVE; ++round) {
+            for (int idx = 0; idx < Tv.TEN; ++idx) {
+                engine.get(
+                    new Engine.Key("hot", idx), 1L, TimeUnit.HOURS, counter
+                );
+            }
+        }
+        for (int idx = 0; idx < Tv.HUNDRED; ++idx) {
+            engine.get(
+                new Engine.Key("cold", idx), 1L, TimeUnit.HOURS, counter
+            );
+        }
+        MatcherAssert.assertThat(
+            engine.stats().get("hot").entries(),
+            Matchers.equalTo((long) Tv.TEN)
+        );
+        MatcherAssert.assertThat(
+            engine.stats().get("cold").rejections(),
+            Matchers.equalTo((long) Tv.HUNDRED)
+        );
+    }
+
+    /**
+     * TinyLfu can stay within the limit of bytes.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void staysWithinBytes() throws Exception {
+        final long limit = (long) Tv.TEN * Tv.THOUSAND;
+        final Engine engine = new TinyLfu(Tv.THOUSAND, limit);
+        for (int idx = 0; idx < Tv.THOUSAND; ++idx) {
+            for (int hit = 0; hit < 2; ++hit) {
+                engine.get(
+                    new Engine.Key("big", idx), 1L, TimeUnit.HOURS,
+                    new Engine.Source<String>() {
+                        @Override
+                        public String load() {
+                            return new String(new char[Tv.HUNDRED]);
+                        }
+                    }
+                );
+            }
+        }
+        MatcherAssert.assertThat(
+            engine.stats().get("big").bytes(),
+            Matchers.lessThanOrEqualTo(limit)
+        );
+        MatcherAssert.assertThat(
+            engine.stats().get("big").entries(),
+            Matchers.greaterThan(0L)
+        );
+    }
+
+    /**
+     * TinyLfu can skip a value, which was invalidated while loading.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void skipsValueInvalidatedDuringLoad() throws Exception {
+        final Engine engine = new TinyLfu(Tv.TEN, (long) Tv.MILLION);
+        final Engine.Key key = new Engine.Key("stale", "walter");
+        final TinyLfuTest.Counter counter = new TinyLfuTest.Counter();
+        engine.get(
+            key, 1L, TimeUnit.HOURS,
+            new Engine.Source<String>() {
+                @Override
+                public String load() throws IOException {
+                    final String value = counter.load();
+                    engine.invalidate(key);
+                    return value;
+                }
+            }
+        );
+        MatcherAssert.assertThat(
+            engine.get(key, 1L, TimeUnit.HOURS, counter),
+            Matchers.equalTo("2")
+        );
+        MatcherAssert.assertThat(
+            engine.get(key, 1L, TimeUnit.HOURS, counter),
+            Matchers.equalTo("2")
+        );
+    }
+
+    /**
+     * TinyLfu can keep values of a big cache in many segments.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void keepsValuesInSegments() throws Exception {
+        final int total = Tv.TEN * Tv.THOUSAND;
+        final Engine engine = new TinyLfu(
+            total * 2, (long) Tv.HUNDRED * Tv.MILLION
+        );
+        final TinyLfuTest.Counter counter = new TinyLfuTest.Counter();
+        for (int round = 0; round < 2; ++round) {
+            for (int idx = 0; idx < total; ++idx) {
+                engine.get(
+                    new Engine.Key("many", idx), 1L, TimeUnit.HOURS, counter
+                );
+            }
+        }
+        MatcherAssert.assertThat(counter.loads(), Matchers.equalTo(total));
+    }
+
+    /**
+     * Source that counts loads.
+     */
+    private static final class Counter implements Engine.Source<String> {
+        /**
+         * Loads.
+         */
+        private final transient AtomicInteger count = new AtomicInteger();
+        @Override
+        public String load() throws IOException {
+            return String.valueOf(this.count.incrementAndGet());
+        }
+        /**
+         * How many times loaded.
+         * @return Count
+         */
+        public int loads() {
+            return this.count.get();
+        }
+    }
+
+}
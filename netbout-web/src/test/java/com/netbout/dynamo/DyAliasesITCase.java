@@ -26,9 +26,14 @@
  */
 package com.netbout.dynamo;
 
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.jcabi.aspects.Tv;
+import com.jcabi.dynamo.Credentials;
 import com.jcabi.urn.URN;
 import com.netbout.spi.Alias;
 import com.netbout.spi.Aliases;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.Matchers;
 import org.junit.Test;
@@ -62,4 +67,84 @@ public final class DyAliasesITCase {
         );
     }
 
+    /**
+     * DyAliases can check aliases against the index, without DynamoDB,
+     * when the index is built.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void checksAliasesAgainstIndex() throws Exception {
+        final DyAliasesITCase.Counting creds =
+            new DyAliasesITCase.Counting(DyBase.credentials());
+        final Aliases aliases = new DyBase(DyBase.region(creds))
+            .user(new URN("urn:test:2")).aliases();
+        final String free = "freealias";
+        final String taken = "takenalias";
+        aliases.add(taken);
+        final long start = System.currentTimeMillis();
+        while (true) {
+            final int calls = creds.calls();
+            MatcherAssert.assertThat(
+                aliases.check(free),
+                Matchers.isEmptyString()
+            );
+            if (creds.calls() == calls || System.currentTimeMillis() - start
+                > TimeUnit.MINUTES.toMillis(1L)) {
+                break;
+            }
+            TimeUnit.MILLISECONDS.sleep((long) Tv.HUNDRED);
+        }
+        final int before = creds.calls();
+        for (int idx = 0; idx < Tv.TEN; ++idx) {
+            MatcherAssert.assertThat(
+                aliases.check(free),
+                Matchers.isEmptyString()
+            );
+            MatcherAssert.assertThat(
+                aliases.check(taken),
+                Matchers.not(Matchers.isEmptyString())
+            );
+        }
+        MatcherAssert.assertThat(creds.calls(), Matchers.equalTo(before));
+        final String fresh = "freshalias";
+        aliases.add(fresh);
+        MatcherAssert.assertThat(
+            aliases.check(fresh),
+            Matchers.not(Matchers.isEmptyString())
+        );
+    }
+
+    /**
+     * Credentials that count clients made, one per request to DynamoDB.
+     */
+    private static final class Counting implements Credentials {
+        /**
+         * Original credentials.
+         */
+        private final transient Credentials origin;
+        /**
+         * Clients made.
+         */
+        private final transient AtomicInteger total = new AtomicInteger();
+        /**
+         * Ctor.
+         * @param creds Original credentials
+         */
+        Counting(final Credentials creds) {
+            this.origin = creds;
+        }
+        /**
+         * Clients made so far.
+         * @return Total
+         */
+        public int calls() {
+            return this.total.get();
+        }
+        @Override
+        public AmazonDynamoDB aws() {
+            this.total.incrementAndGet();
+            return this.origin.aws();
+        }
+    }
+
 }
@@ -31,9 +31,16 @@ import com.jcabi.urn.URN;
 import com.netbout.spi.Aliases;
 import com.netbout.spi.Attachment;
 import com.netbout.spi.Attachments;
+import com.netbout.spi.Base;
 import com.netbout.spi.Bout;
 import com.netbout.spi.Inbox;
 import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import javax.ws.rs.core.MediaType;
 import org.apache.commons.io.IOUtils;
 import org.hamcrest.MatcherAssert;
@@ -84,4 +91,253 @@ public final class DyAttachmentITCase {
         );
     }
 
+    /**
+     * DyAttachment can write and read big attachments without keeping
+     * them in memory.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void streamsBigAttachmentInConstantMemory() throws Exception {
+        final String alias = "gregory5";
+        final Aliases aliases =
+            new DyBase().user(new URN("urn:test:89637")).aliases();
+        aliases.add(alias);
+        final Inbox inbox = aliases.iterate().iterator().next().inbox();
+        final Bout bout = inbox.bout(inbox.start());
+        final String name = "big";
+        bout.attachments().create(name);
+        final Attachment attachment = bout.attachments().get(name);
+        final long size = (long) Tv.TEN * (long) Tv.MILLION;
+        final long before = DyAttachmentITCase.live();
+        final DyAttachmentITCase.Bytes input =
+            new DyAttachmentITCase.Bytes(size);
+        attachment.write(input, MediaType.APPLICATION_OCTET_STREAM, "big");
+        final InputStream output = attachment.read();
+        final byte[] buf = new byte[Tv.THOUSAND];
+        long total = 0L;
+        long peak = 0L;
+        long broken = 0L;
+        while (true) {
+            final int len = output.read(buf);
+            if (len < 0) {
+                break;
+            }
+            for (int idx = 0; idx < len; ++idx) {
+                if (buf[idx] != DyAttachmentITCase.Bytes.at(total + idx)) {
+                    ++broken;
+                }
+            }
+            total += (long) len;
+            if (total > size * Tv.NINE / Tv.TEN && peak == 0L) {
+                peak = DyAttachmentITCase.live();
+            }
+        }
+        output.close();
+        MatcherAssert.assertThat(total, Matchers.equalTo(size));
+        MatcherAssert.assertThat(broken, Matchers.equalTo(0L));
+        MatcherAssert.assertThat(
+            Math.max(peak, input.peak()) - before,
+            Matchers.lessThan(size / 2L)
+        );
+    }
+
+    /**
+     * DyAttachment can track unseen attachments of two friends, while
+     * one of them uploads and another one reads them concurrently.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void tracksUnseenOfTwoFriendsConcurrently() throws Exception {
+        final Base base = new DyBase();
+        final Aliases first = base.user(new URN("urn:test:89641")).aliases();
+        first.add("jesse");
+        final Aliases second = base.user(new URN("urn:test:89642")).aliases();
+        second.add("skyler");
+        final Inbox inbox = first.iterate().iterator().next().inbox();
+        final long number = inbox.start();
+        inbox.bout(number).friends().invite("skyler");
+        final Attachments author = inbox.bout(number).attachments();
+        final Attachments reader = second.iterate().iterator().next()
+            .inbox().bout(number).attachments();
+        final int total = Tv.FIVE;
+        ExecutorService svc = Executors.newFixedThreadPool(total);
+        for (int idx = 0; idx < total; ++idx) {
+            svc.submit(DyAttachmentITCase.upload(author, "old", idx));
+        }
+        DyAttachmentITCase.shutdown(svc);
+        DyAttachmentITCase.await(reader, total);
+        svc = Executors.newFixedThreadPool(total * 2);
+        for (int idx = 0; idx < total; ++idx) {
+            svc.submit(DyAttachmentITCase.upload(author, "new", idx));
+            final String name = String.format("old%d", idx);
+            svc.submit(
+                new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        reader.get(name).read().close();
+                        return null;
+                    }
+                }
+            );
+        }
+        DyAttachmentITCase.shutdown(svc);
+        for (int idx = 0; idx < total; ++idx) {
+            DyAttachmentITCase.await(
+                reader.get(String.format("old%d", idx)), false
+            );
+            DyAttachmentITCase.await(
+                reader.get(String.format("new%d", idx)), true
+            );
+        }
+        MatcherAssert.assertThat(reader.unseen(), Matchers.equalTo(total));
+        MatcherAssert.assertThat(author.unseen(), Matchers.equalTo(0));
+    }
+
+    /**
+     * Create and upload an attachment.
+     * @param attachments Attachments
+     * @param prefix Prefix of the name
+     * @param idx Index
+     * @return Callable
+     */
+    private static Callable<Void> upload(final Attachments attachments,
+        final String prefix, final int idx) {
+        return new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                final String name = String.format("%s%d", prefix, idx);
+                attachments.create(name);
+                attachments.get(name).write(
+                    new ByteArrayInputStream(
+                        name.getBytes(StandardCharsets.UTF_8)
+                    ),
+                    MediaType.TEXT_PLAIN,
+                    name
+                );
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Shut down the service and wait for all tasks.
+     * @param svc Service
+     * @throws InterruptedException If interrupted
+     */
+    private static void shutdown(final ExecutorService svc)
+        throws InterruptedException {
+        svc.shutdown();
+        MatcherAssert.assertThat(
+            svc.awaitTermination(1L, TimeUnit.MINUTES),
+            Matchers.is(true)
+        );
+    }
+
+    /**
+     * Wait for the asynchronous updates of unseen attachments, until
+     * their number is as expected.
+     * @param attachments Attachments of the reader
+     * @param expected How many must be unseen
+     * @throws Exception If fails
+     */
+    private static void await(final Attachments attachments,
+        final int expected) throws Exception {
+        final long start = System.currentTimeMillis();
+        while (attachments.unseen() != expected
+            && System.currentTimeMillis() - start
+            < TimeUnit.SECONDS.toMillis((long) Tv.TEN)) {
+            TimeUnit.MILLISECONDS.sleep((long) Tv.HUNDRED);
+        }
+        MatcherAssert.assertThat(
+            attachments.unseen(),
+            Matchers.equalTo(expected)
+        );
+    }
+
+    /**
+     * Wait for the asynchronous update of one unseen attachment.
+     * @param attachment Attachment of the reader
+     * @param expected Must it be unseen
+     * @throws Exception If fails
+     */
+    private static void await(final Attachment attachment,
+        final boolean expected) throws Exception {
+        final long start = System.currentTimeMillis();
+        while (attachment.unseen() != expected
+            && System.currentTimeMillis() - start
+            < TimeUnit.SECONDS.toMillis((long) Tv.TEN)) {
+            TimeUnit.MILLISECONDS.sleep((long) Tv.HUNDRED);
+        }
+        MatcherAssert.assertThat(
+            attachment.unseen(),
+            Matchers.equalTo(expected)
+        );
+    }
+
+    /**
+     * Memory used by live objects.
+     * @return Bytes
+     */
+    private static long live() {
+        System.gc();
+        final Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Generated content, which remembers memory used when it is
+     * almost over.
+     */
+    private static final class Bytes extends InputStream {
+        /**
+         * Total size.
+         */
+        private final transient long size;
+        /**
+         * Bytes already given.
+         */
+        private transient long pos;
+        /**
+         * Memory used.
+         */
+        private transient long used;
+        /**
+         * Ctor.
+         * @param total Total size
+         */
+        Bytes(final long total) {
+            super();
+            this.size = total;
+        }
+        /**
+         * Byte at the position.
+         * @param idx Position
+         * @return Byte
+         */
+        public static byte at(final long idx) {
+            return (byte) (idx % Tv.HUNDRED);
+        }
+        /**
+         * Memory used when the content was almost over.
+         * @return Bytes
+         */
+        public long peak() {
+            return this.used;
+        }
+        @Override
+        public int read() {
+            final int next;
+            if (this.pos < this.size) {
+                next = Bytes.at(this.pos) & 0xff;
+                ++this.pos;
+                if (this.pos == this.size * Tv.NINE / Tv.TEN) {
+                    this.used = DyAttachmentITCase.live();
+                }
+            } else {
+                next = -1;
+            }
+            return next;
+        }
+    }
+
 }
@@ -0,0 +1,158 @@
+/**
+ * Copyright (c) 2009-2015, netbout.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are PROHIBITED without prior written permission from
+ * the author. This product may NOT be used anywhere and on any computer
+ * except the server platform of netbout Inc. located at www.netbout.com.
+ * Federal copyright law prohibits unauthorized reproduction by any means
+ * and imposes fines up to $25,000 for violation. If you received
+ * this code accidentally and without intent to use it, please report this
+ * incident to the author by email.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.netbout.dynamo;
+
+import com.jcabi.aspects.Tv;
+import com.jcabi.dynamo.Region;
+import com.netbout.cached.Bus;
+import com.netbout.cached.Engine;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Integration case for {@link DyBus}.
+ * @author Yegor Bugayenko (yegor@teamed.io)
+ * @version $Id$
+ * @since 2.16
+ */
+public final class DyBusITCase {
+
+    /**
+     * DyBus can deliver keys to other dynos.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void deliversKeysToOtherDynos() throws Exception {
+        final Region region = DyBase.region();
+        final BlockingQueue<Engine.Key> received =
+            new LinkedBlockingQueue<Engine.Key>();
+        final Bus.Listener listener = new DyBusITCase.Queue(received);
+        final Bus first = new DyBus(region, "first");
+        first.listen(listener);
+        new DyBus(region, "second").listen(listener);
+        final Engine.Key key = new Engine.Key("bout", 1L, "title");
+        first.publish(Arrays.asList(key));
+        MatcherAssert.assertThat(
+            received.poll((long) Tv.TEN, TimeUnit.SECONDS),
+            Matchers.equalTo(key)
+        );
+        MatcherAssert.assertThat(
+            received.poll(2L, TimeUnit.SECONDS),
+            Matchers.nullValue()
+        );
+    }
+
+    /**
+     * DyBus can catch up after a delayed poll, from its cursor.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void catchesUpAfterDelayedPoll() throws Exception {
+        final Region region = DyBase.region();
+        final BlockingQueue<Engine.Key> received =
+            new LinkedBlockingQueue<Engine.Key>();
+        final Runnable poll = new DyBus.Poll(
+            new DyBus(region, "third"), new DyBusITCase.Queue(received)
+        );
+        final Engine.Key key = new Engine.Key("bout", 2L, "title");
+        new DyBus(region, "fourth").publish(Arrays.asList(key));
+        TimeUnit.SECONDS.sleep((long) Tv.TWENTY);
+        for (int idx = 0; idx < DyBus.SHARDS; ++idx) {
+            poll.run();
+        }
+        MatcherAssert.assertThat(received.poll(), Matchers.equalTo(key));
+    }
+
+    /**
+     * DyBus can flush the listener, when the cursor is too old.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void flushesWhenCursorIsTooOld() throws Exception {
+        final Region region = DyBase.region();
+        final BlockingQueue<Engine.Key> received =
+            new LinkedBlockingQueue<Engine.Key>();
+        new DyBus.Poll(
+            new DyBus(region, "fifth"), new DyBusITCase.Queue(received),
+            System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1L)
+        ).run();
+        MatcherAssert.assertThat(
+            received.poll(),
+            Matchers.equalTo(DyBusITCase.Queue.FLUSH)
+        );
+    }
+
+    /**
+     * DyBus can encode and decode keys.
+     */
+    @Test
+    public void encodesKeys() {
+        final Engine.Key key = new Engine.Key(
+            "attachment", 2L, "a file: 1 2", "jeff", "unseen"
+        );
+        MatcherAssert.assertThat(
+            DyBus.decode(DyBus.encode(key)),
+            Matchers.equalTo(key)
+        );
+    }
+
+    /**
+     * Listener that puts keys into a queue.
+     */
+    private static final class Queue implements Bus.Listener {
+        /**
+         * Key put when everything is flushed.
+         */
+        public static final Engine.Key FLUSH = new Engine.Key("flush");
+        /**
+         * Keys received.
+         */
+        private final transient Collection<Engine.Key> keys;
+        /**
+         * Ctor.
+         * @param queue Keys received
+         */
+        Queue(final Collection<Engine.Key> queue) {
+            this.keys = queue;
+        }
+        @Override
+        public void invalidate(final Collection<Engine.Key> list) {
+            this.keys.addAll(list);
+        }
+        @Override
+        public void flush() {
+            this.keys.add(DyBusITCase.Queue.FLUSH);
+        }
+    }
+
+}
@@ -0,0 +1,208 @@
+/**
+ * Copyright (c) 2009-2015, netbout.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are PROHIBITED without prior written permission from
+ * the author. This product may NOT be used anywhere and on any computer
+ * except the server platform of netbout Inc. located at www.netbout.com.
+ * Federal copyright law prohibits unauthorized reproduction by any means
+ * and imposes fines up to $25,000 for violation. If you received
+ * this code accidentally and without intent to use it, please report this
+ * incident to the author by email.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.netbout.dynamo;
+
+import co.stateful.Counter;
+import co.stateful.RtSttc;
+import com.jcabi.aspects.Tv;
+import com.jcabi.dynamo.Region;
+import com.jcabi.log.Logger;
+import com.jcabi.urn.URN;
+import com.netbout.spi.Inbox;
+import com.netbout.spi.Messages;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Assume;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * Integration case for {@link DyCounter}.
+ * @author Yegor Bugayenko (yegor@teamed.io)
+ * @version $Id$
+ */
+public final class DyCounterITCase {
+
+    /**
+     * DyCounter can start after the old counter, leaving numbers to
+     * dynos that still use it.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void startsAfterOldCounter() throws Exception {
+        final Counter seed = Mockito.mock(Counter.class);
+        final long start = 5431L;
+        Mockito.doReturn(start).when(seed).incrementAndGet(0L);
+        MatcherAssert.assertThat(
+            new DyCounter(DyBase.region(), "test-start", seed).next(),
+            Matchers.equalTo(start + (long) (Tv.HUNDRED * Tv.THOUSAND) + 1L)
+        );
+    }
+
+    /**
+     * DyCounter can give unique numbers to many threads and
+     * after restarts.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void givesUniqueNumbers() throws Exception {
+        final DyCounter counter = new DyCounter(
+            DyBase.region(), "test-unique",
+            Mockito.mock(Counter.class), (long) Tv.TEN
+        );
+        final Collection<Long> numbers = new ConcurrentSkipListSet<Long>();
+        final int threads = Tv.TEN;
+        final ExecutorService svc = Executors.newFixedThreadPool(threads);
+        for (int thread = 0; thread < threads; ++thread) {
+            svc.submit(
+                new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        for (int idx = 0; idx < Tv.FIFTY; ++idx) {
+                            numbers.add(counter.next());
+                        }
+                        DyCounter.forget();
+                        return null;
+                    }
+                }
+            );
+        }
+        svc.shutdown();
+        MatcherAssert.assertThat(
+            svc.awaitTermination(1L, TimeUnit.MINUTES),
+            Matchers.is(true)
+        );
+        MatcherAssert.assertThat(
+            numbers,
+            Matchers.hasSize(threads * Tv.FIFTY)
+        );
+    }
+
+    /**
+     * DyCounter can start bouts and post messages faster than the
+     * stateful.co counter, which was called for every bout and every
+     * message before.
+     *
+     * <p>This is a benchmark, it only logs the numbers. It needs
+     * credentials of stateful.co in "sttc.urn" and "sttc.token" system
+     * properties, otherwise it's skipped. Numbers per second "before"
+     * are calculated as if every bout and message took one more request
+     * to stateful.co, of its average latency measured here.
+     *
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void startsBoutsAndPostsFasterThanRemoteCounter()
+        throws Exception {
+        final String urn = System.getProperty("sttc.urn");
+        final String token = System.getProperty("sttc.token");
+        Assume.assumeNotNull(urn, token);
+        final Counter sttc = RtSttc.make(URN.create(urn), token)
+            .counters().get("nb-benchmark");
+        final Region region = DyBase.region();
+        final String alias = "bench5";
+        new DyBase(region).user(new URN("urn:test:50501")).aliases()
+            .add(alias);
+        final DyInbox inbox = new DyInbox(
+            region, alias,
+            new DyCounter(region, "test-bench", Mockito.mock(Counter.class)),
+            Inbox.NEVER
+        );
+        final Messages messages = inbox.bout(inbox.start()).messages();
+        final int total = Tv.FIFTY;
+        final long remote = DyCounterITCase.latency(
+            new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    sttc.incrementAndGet(1L);
+                    return null;
+                }
+            },
+            total
+        );
+        final long starts = DyCounterITCase.latency(
+            new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    inbox.start();
+                    return null;
+                }
+            },
+            total
+        );
+        final long posts = DyCounterITCase.latency(
+            new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    messages.post("benchmark");
+                    return null;
+                }
+            },
+            total
+        );
+        Logger.info(
+            this, "per second, bouts: %.1f -> %.1f, posts: %.1f -> %.1f",
+            DyCounterITCase.rate(starts + remote),
+            DyCounterITCase.rate(starts),
+            DyCounterITCase.rate(posts + remote),
+            DyCounterITCase.rate(posts)
+        );
+    }
+
+    /**
+     * Average latency of an operation.
+     * @param operation The operation
+     * @param total How many times to run it
+     * @return Nanoseconds
+     * @throws Exception If fails
+     */
+    private static long latency(final Callable<Void> operation,
+        final int total) throws Exception {
+        operation.call();
+        final long start = System.nanoTime();
+        for (int idx = 0; idx < total; ++idx) {
+            operation.call();
+        }
+        return (System.nanoTime() - start) / (long) total;
+    }
+
+    /**
+     * Operations per second.
+     * @param latency Average latency of one, in nanoseconds
+     * @return Rate
+     */
+    private static double rate(final long latency) {
+        return (double) TimeUnit.SECONDS.toNanos(1L) / (double) latency;
+    }
+
+}
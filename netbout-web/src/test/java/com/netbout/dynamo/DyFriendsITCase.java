@@ -26,12 +26,20 @@
  */
 package com.netbout.dynamo;
 
+import com.jcabi.aspects.Tv;
+import com.jcabi.dynamo.Attributes;
+import com.jcabi.dynamo.Region;
 import com.jcabi.urn.URN;
 import com.netbout.spi.Aliases;
+import com.netbout.spi.Base;
 import com.netbout.spi.Bout;
 import com.netbout.spi.Friend;
 import com.netbout.spi.Friends;
 import com.netbout.spi.Inbox;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.Matchers;
 import org.junit.Test;
@@ -66,4 +74,74 @@ public final class DyFriendsITCase {
         );
     }
 
+    /**
+     * DyFriends can invite friends concurrently, without losing any of
+     * them in the lists of participants, which the inbox renders.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void invitesFriendsConcurrently() throws Exception {
+        final Base base = new DyBase();
+        final Aliases aliases = base.user(new URN("urn:test:8531")).aliases();
+        aliases.add("walter");
+        final Inbox inbox = aliases.iterate().iterator().next().inbox();
+        final Friends friends = inbox.bout(inbox.start()).friends();
+        final int threads = Tv.FIVE;
+        final ExecutorService svc = Executors.newFixedThreadPool(threads);
+        for (int idx = 0; idx < threads; ++idx) {
+            final String alias = String.format("walter%d", idx);
+            base.user(new URN(String.format("urn:test:854%d", idx)))
+                .aliases().add(alias);
+            svc.submit(
+                new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        friends.invite(alias);
+                        return null;
+                    }
+                }
+            );
+        }
+        svc.shutdown();
+        MatcherAssert.assertThat(
+            svc.awaitTermination(1L, TimeUnit.MINUTES),
+            Matchers.is(true)
+        );
+        MatcherAssert.assertThat(
+            inbox.iterate().iterator().next().friends().iterate(),
+            Matchers.<Friend>iterableWithSize(threads + 1)
+        );
+    }
+
+    /**
+     * DyFriends can complete lists of participants in rows created
+     * before the lists were introduced.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void completesListsInOldRows() throws Exception {
+        final Region region = DyBase.region();
+        final Base base = new DyBase(region);
+        final long number = Tv.MILLION * Tv.FIVE
+            + System.nanoTime() % Tv.MILLION;
+        final String alias = "saul";
+        final Aliases aliases = base.user(new URN("urn:test:8550")).aliases();
+        aliases.add(alias);
+        final String friend = "kim";
+        base.user(new URN("urn:test:8551")).aliases().add(friend);
+        region.table(DyFriends.TBL).put(
+            new Attributes()
+                .with(DyFriends.HASH, number)
+                .with(DyFriends.RANGE, alias)
+                .with(DyFriends.ATTR_TITLE, "older")
+                .with(DyFriends.ATTR_UPDATED, System.currentTimeMillis())
+        );
+        final Inbox inbox = aliases.iterate().iterator().next().inbox();
+        inbox.bout(number).friends().invite(friend);
+        MatcherAssert.assertThat(
+            inbox.iterate().iterator().next().friends().iterate(),
+            Matchers.<Friend>iterableWithSize(2)
+        );
+    }
+
 }
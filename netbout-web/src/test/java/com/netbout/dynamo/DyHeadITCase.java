@@ -0,0 +1,236 @@
+/**
+ * Copyright (c) 2009-2015, netbout.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are PROHIBITED without prior written permission from
+ * the author. This product may NOT be used anywhere and on any computer
+ * except the server platform of netbout Inc. located at www.netbout.com.
+ * Federal copyright law prohibits unauthorized reproduction by any means
+ * and imposes fines up to $25,000 for violation. If you received
+ * this code accidentally and without intent to use it, please report this
+ * incident to the author by email.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.netbout.dynamo;
+
+import com.jcabi.aspects.Tv;
+import com.jcabi.dynamo.Attributes;
+import com.jcabi.dynamo.Conditions;
+import com.jcabi.dynamo.Item;
+import com.jcabi.dynamo.QueryValve;
+import com.jcabi.dynamo.Region;
+import com.jcabi.urn.URN;
+import com.netbout.spi.Aliases;
+import com.netbout.spi.Base;
+import com.netbout.spi.Bout;
+import com.netbout.spi.Inbox;
+import com.netbout.spi.Message;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Integration case for {@link DyHead}.
+ * @author Yegor Bugayenko (yegor@teamed.io)
+ * @version $Id$
+ */
+public final class DyHeadITCase {
+
+    /**
+     * DyHead can count unread messages of a friend.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void countsUnreadMessages() throws Exception {
+        final String alias = "diana4";
+        final String friend = "robert9";
+        final Base base = new DyBase();
+        base.user(new URN("urn:test:55401")).aliases().add(friend);
+        final Aliases aliases = base.user(new URN("urn:test:55402")).aliases();
+        aliases.add(alias);
+        final Inbox inbox = aliases.iterate().iterator().next().inbox();
+        final long number = inbox.start();
+        final Bout bout = inbox.bout(number);
+        bout.friends().invite(friend);
+        bout.messages().post("first");
+        bout.messages().post("second");
+        MatcherAssert.assertThat(
+            new DyMessages(DyBase.region(), number, friend).unread(),
+            Matchers.equalTo(2L)
+        );
+    }
+
+    /**
+     * DyHead can migrate a bout created before heads.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void migratesOldBout() throws Exception {
+        final Region region = DyBase.region();
+        final long number = Tv.MILLION + System.nanoTime() % Tv.MILLION;
+        final String alias = "victor5";
+        region.table(DyFriends.TBL).put(
+            new Attributes()
+                .with(DyFriends.HASH, number)
+                .with(DyFriends.RANGE, alias)
+                .with(DyFriends.ATTR_TITLE, "old")
+                .with(DyFriends.ATTR_UPDATED, System.currentTimeMillis())
+                .with(DyFriends.ATTR_UNREAD, 2L)
+        );
+        for (long msg = 1L; msg <= (long) Tv.FIVE; ++msg) {
+            region.table(DyMessages.TBL).put(
+                new Attributes()
+                    .with(DyMessages.HASH, number)
+                    .with(DyMessages.RANGE, msg)
+                    .with(DyMessages.ATTR_TEXT, "hey")
+                    .with(DyMessages.ATTR_ALIAS, alias)
+                    .with(DyMessages.ATTR_DATE, System.currentTimeMillis())
+            );
+        }
+        MatcherAssert.assertThat(
+            new DyHead(region, number).total(),
+            Matchers.equalTo((long) Tv.FIVE)
+        );
+        final Item row = region.table(DyFriends.TBL).frame()
+            .through(new QueryValve())
+            .where(DyFriends.HASH, Conditions.equalTo(number))
+            .where(DyFriends.RANGE, alias)
+            .iterator().next();
+        MatcherAssert.assertThat(
+            row.get(DyFriends.ATTR_SEEN).getN(),
+            Matchers.equalTo("3")
+        );
+        MatcherAssert.assertThat(
+            new DyMessages(region, number, alias).unread(),
+            Matchers.equalTo(2L)
+        );
+    }
+
+    /**
+     * DyHead can migrate a bout created before heads only once, and
+     * number messages posted to it concurrently without gaps.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void migratesOldBoutConcurrently() throws Exception {
+        final Region region = DyBase.region();
+        final long number = Tv.MILLION * Tv.FOUR
+            + System.nanoTime() % Tv.MILLION;
+        final String alias = "nora17";
+        region.table(DyFriends.TBL).put(
+            new Attributes()
+                .with(DyFriends.HASH, number)
+                .with(DyFriends.RANGE, alias)
+                .with(DyFriends.ATTR_TITLE, "racy")
+                .with(DyFriends.ATTR_UPDATED, System.currentTimeMillis())
+                .with(DyFriends.ATTR_UNREAD, 1L)
+        );
+        region.table(DyMessages.TBL).put(
+            new Attributes()
+                .with(DyMessages.HASH, number)
+                .with(DyMessages.RANGE, 1L)
+                .with(DyMessages.ATTR_TEXT, "hi")
+                .with(DyMessages.ATTR_ALIAS, alias)
+                .with(DyMessages.ATTR_DATE, System.currentTimeMillis())
+        );
+        final int threads = Tv.FIVE;
+        final ExecutorService svc = Executors.newFixedThreadPool(threads);
+        final Collection<Future<Void>> posts =
+            new ArrayList<Future<Void>>(threads);
+        for (int idx = 0; idx < threads; ++idx) {
+            posts.add(
+                svc.submit(
+                    new Callable<Void>() {
+                        @Override
+                        public Void call() throws Exception {
+                            new DyMessages(region, number, alias).post("yo");
+                            return null;
+                        }
+                    }
+                )
+            );
+        }
+        for (final Future<Void> post : posts) {
+            post.get();
+        }
+        svc.shutdown();
+        final Collection<Long> numbers = new TreeSet<Long>();
+        for (final Item item : region.table(DyMessages.TBL).frame()
+            .through(new QueryValve())
+            .where(DyMessages.HASH, Conditions.equalTo(number))) {
+            numbers.add(Long.parseLong(item.get(DyMessages.RANGE).getN()));
+        }
+        final Collection<Long> expected = new TreeSet<Long>();
+        for (long msg = 1L; msg <= (long) threads + 1L; ++msg) {
+            expected.add(msg);
+        }
+        MatcherAssert.assertThat(numbers, Matchers.equalTo(expected));
+        MatcherAssert.assertThat(
+            new DyHead(region, number).total(),
+            Matchers.equalTo((long) threads + 1L)
+        );
+        MatcherAssert.assertThat(
+            new DyMessages(region, number, alias).unread(),
+            Matchers.equalTo((long) threads + 1L)
+        );
+    }
+
+    /**
+     * DyHead can number messages inside a bout, continuing after
+     * the messages numbered before.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void numbersMessagesInsideBout() throws Exception {
+        final Region region = DyBase.region();
+        final long number = Tv.MILLION * 2L + System.nanoTime() % Tv.MILLION;
+        final long old = 73004L;
+        region.table(DyMessages.TBL).put(
+            new Attributes()
+                .with(DyMessages.HASH, number)
+                .with(DyMessages.RANGE, old)
+                .with(DyMessages.ATTR_TEXT, "before")
+                .with(DyMessages.ATTR_ALIAS, "oliver4")
+                .with(DyMessages.ATTR_DATE, System.currentTimeMillis())
+        );
+        new DyMessages(region, number, "oliver4").post("after");
+        new DyMessages(region, number, "oliver4").post("later");
+        final Iterator<Message> msgs =
+            new DyMessages(region, number, "oliver4").iterate().iterator();
+        MatcherAssert.assertThat(
+            msgs.next().number(), Matchers.equalTo(old + 2L)
+        );
+        MatcherAssert.assertThat(
+            msgs.next().number(), Matchers.equalTo(old + 1L)
+        );
+        final DyHead head = new DyHead(region, number);
+        MatcherAssert.assertThat(head.last(), Matchers.equalTo(old + 2L));
+        MatcherAssert.assertThat(head.total(), Matchers.equalTo(2L + 1L));
+        final DyHead fresh = new DyHead(region, number + 1L);
+        fresh.create();
+        new DyMessages(region, number + 1L, "oliver4").post("first");
+        MatcherAssert.assertThat(fresh.last(), Matchers.equalTo(1L));
+    }
+
+}
@@ -29,6 +29,7 @@ package com.netbout.dynamo;
 import com.jcabi.aspects.Tv;
 import com.jcabi.urn.URN;
 import com.netbout.spi.Aliases;
+import com.netbout.spi.Base;
 import com.netbout.spi.Bout;
 import com.netbout.spi.Friend;
 import com.netbout.spi.Friends;
@@ -130,4 +131,36 @@ public final class DyInboxITCase {
         MatcherAssert.assertThat(found, Matchers.equalTo(bouts));
     }
 
+    /**
+     * DyInbox can list bouts together with their friends.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void listsBoutsWithFriends() throws Exception {
+        final String alias = "margaret";
+        final String friend = "peter771";
+        final Base base = new DyBase();
+        base.user(new URN("urn:test:66051")).aliases().add(friend);
+        final Aliases aliases = base.user(new URN("urn:test:66052")).aliases();
+        aliases.add(alias);
+        final Inbox inbox = aliases.iterate().iterator().next().inbox();
+        final Bout bout = inbox.bout(inbox.start());
+        bout.rename("summary");
+        bout.friends().invite(friend);
+        final Bout summary = inbox.iterate().iterator().next();
+        MatcherAssert.assertThat(
+            summary.title(),
+            Matchers.equalTo("summary")
+        );
+        MatcherAssert.assertThat(
+            summary.friends().iterate(),
+            Matchers.allOf(
+                Matchers.<Friend>iterableWithSize(2),
+                Matchers.hasItem(
+                    new Friend.HasAlias(Matchers.equalTo(friend))
+                )
+            )
+        );
+    }
+
 }
@@ -65,6 +65,10 @@ public final class DyMessagesITCase {
             messages.iterate(),
             Matchers.not(Matchers.emptyIterable())
         );
+        MatcherAssert.assertThat(
+            messages.iterate().iterator().next().html(),
+            Matchers.containsString("<p>hello, again!</p>")
+        );
     }
 
     /**
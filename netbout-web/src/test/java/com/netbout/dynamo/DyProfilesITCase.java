@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2009-2015, netbout.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are PROHIBITED without prior written permission from
+ * the author. This product may NOT be used anywhere and on any computer
+ * except the server platform of netbout Inc. located at www.netbout.com.
+ * Federal copyright law prohibits unauthorized reproduction by any means
+ * and imposes fines up to $25,000 for violation. If you received
+ * this code accidentally and without intent to use it, please report this
+ * incident to the author by email.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.netbout.dynamo;
+
+import com.jcabi.dynamo.Region;
+import com.jcabi.urn.URN;
+import com.netbout.spi.Alias;
+import com.netbout.spi.Aliases;
+import com.netbout.spi.Friend;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Integration case for {@link DyProfiles}.
+ * @author Yegor Bugayenko (yegor@teamed.io)
+ * @version $Id$
+ * @since 2.16
+ */
+public final class DyProfilesITCase {
+
+    /**
+     * DyProfiles can load profiles of existing and absent aliases.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void loadsProfiles() throws Exception {
+        final Region region = DyBase.region();
+        final Aliases aliases =
+            new DyBase(region).user(new URN("urn:test:7741")).aliases();
+        final String name = "profiled";
+        aliases.add(name);
+        final URI photo = URI.create("http://localhost/photo.png");
+        aliases.iterate().iterator().next().photo(photo);
+        final List<Friend> friends = new DyProfiles(region).fetch(
+            Arrays.asList(name, "absentalias")
+        );
+        MatcherAssert.assertThat(friends.get(0).alias(), Matchers.is(name));
+        MatcherAssert.assertThat(friends.get(0).photo(), Matchers.is(photo));
+        MatcherAssert.assertThat(
+            friends.get(1).photo(), Matchers.is(Alias.BLANK)
+        );
+        MatcherAssert.assertThat(
+            friends.get(1).email(), Matchers.isEmptyString()
+        );
+    }
+
+    /**
+     * DyProfiles can load more aliases than fit into one batch.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void loadsManyProfiles() throws Exception {
+        final Collection<String> names = new ArrayList<String>(0);
+        // @checkstyle MagicNumber (1 line)
+        for (int idx = 0; idx < 250; ++idx) {
+            names.add(String.format("nobody%d", idx));
+        }
+        MatcherAssert.assertThat(
+            new DyProfiles(DyBase.region()).fetch(names),
+            Matchers.<Friend>iterableWithSize(names.size())
+        );
+    }
+
+}
@@ -0,0 +1,144 @@
+/**
+ * Copyright (c) 2009-2015, netbout.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are PROHIBITED without prior written permission from
+ * the author. This product may NOT be used anywhere and on any computer
+ * except the server platform of netbout Inc. located at www.netbout.com.
+ * Federal copyright law prohibits unauthorized reproduction by any means
+ * and imposes fines up to $25,000 for violation. If you received
+ * this code accidentally and without intent to use it, please report this
+ * incident to the author by email.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.netbout.dynamo;
+
+import com.jcabi.aspects.Tv;
+import com.jcabi.dynamo.Attributes;
+import com.jcabi.dynamo.Region;
+import com.jcabi.urn.URN;
+import com.netbout.spi.Aliases;
+import com.netbout.spi.Base;
+import com.netbout.spi.Bout;
+import com.netbout.spi.Inbox;
+import java.util.concurrent.TimeUnit;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Integration case for {@link DyUnread}.
+ * @author Yegor Bugayenko (yegor@teamed.io)
+ * @version $Id$
+ */
+public final class DyUnreadITCase {
+
+    /**
+     * DyUnread can count unread messages in all bouts.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void countsUnreadMessages() throws Exception {
+        final Region region = DyBase.region();
+        final Base base = new DyBase(region);
+        final String alias = "william7";
+        final String friend = "henry12";
+        final Aliases others = base.user(new URN("urn:test:73382"))
+            .aliases();
+        others.add(friend);
+        final Aliases aliases = base.user(new URN("urn:test:73381"))
+            .aliases();
+        aliases.add(alias);
+        final Inbox inbox = aliases.iterate().iterator().next().inbox();
+        final DyUnread unread = new DyUnread(region, friend);
+        MatcherAssert.assertThat(unread.value(), Matchers.equalTo(0L));
+        final long[] numbers = new long[2];
+        for (int idx = 0; idx < numbers.length; ++idx) {
+            numbers[idx] = inbox.start();
+            final Bout bout = inbox.bout(numbers[idx]);
+            bout.friends().invite(friend);
+            bout.messages().post("how are you?");
+            bout.messages().post("are you there?");
+        }
+        DyUnreadITCase.await(unread, 2L + 2L);
+        inbox.bout(numbers[1]).friends().kick(friend);
+        DyUnreadITCase.await(unread, 2L);
+        others.iterate().iterator().next().inbox().bout(numbers[0])
+            .messages().iterate();
+        DyUnreadITCase.await(unread, 0L);
+        MatcherAssert.assertThat(
+            new DyUnread(region, alias).value(),
+            Matchers.equalTo(0L)
+        );
+    }
+
+    /**
+     * DyUnread can count unread messages in bouts started before the
+     * total was introduced, after they are shown in the inbox.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void countsUnreadMessagesInOldBouts() throws Exception {
+        final Region region = DyBase.region();
+        final long number = Tv.MILLION * Tv.THREE
+            + System.nanoTime() % Tv.MILLION;
+        final String alias = "grace31";
+        final Aliases aliases = new DyBase(region)
+            .user(new URN("urn:test:73383")).aliases();
+        aliases.add(alias);
+        region.table(DyFriends.TBL).put(
+            new Attributes()
+                .with(DyFriends.HASH, number)
+                .with(DyFriends.RANGE, alias)
+                .with(DyFriends.ATTR_TITLE, "older")
+                .with(DyFriends.ATTR_UPDATED, System.currentTimeMillis())
+                .with(DyFriends.ATTR_UNREAD, 2L)
+        );
+        for (long msg = 1L; msg <= (long) Tv.THREE; ++msg) {
+            region.table(DyMessages.TBL).put(
+                new Attributes()
+                    .with(DyMessages.HASH, number)
+                    .with(DyMessages.RANGE, msg)
+                    .with(DyMessages.ATTR_TEXT, "hello")
+                    .with(DyMessages.ATTR_ALIAS, "someone")
+                    .with(DyMessages.ATTR_DATE, System.currentTimeMillis())
+            );
+        }
+        final DyUnread unread = new DyUnread(region, alias);
+        MatcherAssert.assertThat(unread.value(), Matchers.equalTo(0L));
+        aliases.iterate().iterator().next().inbox().iterate();
+        DyUnreadITCase.await(unread, 2L);
+    }
+
+    /**
+     * Wait until the total is as expected, since it is updated
+     * asynchronously.
+     * @param unread The total
+     * @param expected Expected value
+     * @throws Exception If fails
+     */
+    private static void await(final DyUnread unread, final long expected)
+        throws Exception {
+        for (int idx = 0; idx < Tv.HUNDRED; ++idx) {
+            if (unread.value() == expected) {
+                break;
+            }
+            TimeUnit.MILLISECONDS.sleep((long) Tv.HUNDRED);
+        }
+        MatcherAssert.assertThat(unread.value(), Matchers.equalTo(expected));
+    }
+
+}
@@ -24,12 +24,30 @@
  * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
  * SUCH DAMAGE.
  */
-package com.netbout.rest;
+package com.netbout.markdown;
 
+import com.jcabi.aspects.Tv;
+import com.jcabi.log.Logger;
 import com.jcabi.matchers.XhtmlMatchers;
+import com.netbout.cached.Cache;
+import com.netbout.cached.Engine;
+import com.netbout.spi.Attachment;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.commons.io.IOUtils;
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.Matchers;
 import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 /**
  * Test case for {@link Markdown}.
@@ -153,4 +171,127 @@ public final class MarkdownTest {
         );
     }
 
+    /**
+     * Markdown can reuse HTML of the same text.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void reusesRenderedText() throws Exception {
+        final String text = String.format("+1, **%s**", UUID.randomUUID());
+        final String html = new Markdown(text).html();
+        final long hits = MarkdownTest.hits();
+        MatcherAssert.assertThat(
+            new Markdown(text).html(),
+            Matchers.equalTo(html)
+        );
+        MatcherAssert.assertThat(
+            MarkdownTest.hits(),
+            Matchers.greaterThan(hits)
+        );
+    }
+
+    /**
+     * Markdown can render an attachment only once, until it's uploaded
+     * again.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void rendersAttachmentOnce() throws Exception {
+        final Attachment atmt = Mockito.mock(Attachment.class);
+        Mockito.doReturn(UUID.randomUUID().toString()).when(atmt).name();
+        Mockito.doReturn("a1").when(atmt).etag();
+        Mockito.doAnswer(
+            new Answer<InputStream>() {
+                @Override
+                public InputStream answer(final InvocationOnMock inv) {
+                    return IOUtils.toInputStream("# hello");
+                }
+            }
+        ).when(atmt).read();
+        Markdown.html(1L, atmt);
+        MatcherAssert.assertThat(
+            Markdown.html(1L, atmt),
+            Matchers.containsString("hello</h1>")
+        );
+        Mockito.verify(atmt, Mockito.times(1)).read();
+        Mockito.doReturn("a2").when(atmt).etag();
+        Markdown.html(1L, atmt);
+        Mockito.verify(atmt, Mockito.times(2)).read();
+    }
+
+    /**
+     * Markdown can render in many threads at once, with the same result
+     * (the rates in one and in all threads are reported).
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void rendersConcurrently() throws Exception {
+        final String text = "# title\n\n**hi**, _dude_!\n\n* one\n* two\n";
+        final int threads = Runtime.getRuntime().availableProcessors();
+        final double single = MarkdownTest.rate(text, 1);
+        final double multi = MarkdownTest.rate(text, threads);
+        Logger.info(
+            this, "%.0f renders/sec in one thread, %.0f in %d threads",
+            single, multi, threads
+        );
+    }
+
+    /**
+     * Render the text many times and measure the rate.
+     *
+     * <p>Every text is made unique, in order to bypass the cache.
+     *
+     * @param text Text to render
+     * @param threads How many threads to use
+     * @return Renders per second
+     * @throws Exception If fails
+     */
+    private static double rate(final String text, final int threads)
+        throws Exception {
+        final ExecutorService service = Executors.newFixedThreadPool(threads);
+        final Collection<Future<String>> futures =
+            new ArrayList<Future<String>>(threads * Tv.HUNDRED);
+        final long start = System.nanoTime();
+        try {
+            for (int idx = 0; idx < threads * Tv.HUNDRED; ++idx) {
+                final String unique = String.format(
+                    "%s\n%s", text, UUID.randomUUID()
+                );
+                futures.add(
+                    service.submit(
+                        new Callable<String>() {
+                            @Override
+                            public String call() throws IOException {
+                                return new Markdown(unique).html();
+                            }
+                        }
+                    )
+                );
+            }
+            for (final Future<String> future : futures) {
+                MatcherAssert.assertThat(
+                    future.get(),
+                    Matchers.containsString("<strong>hi</strong>")
+                );
+            }
+        } finally {
+            service.shutdown();
+        }
+        // @checkstyle MagicNumber (1 line)
+        return futures.size() * 1.0e9d / (System.nanoTime() - start);
+    }
+
+    /**
+     * Hits of the markdown cache so far.
+     * @return Hits
+     */
+    private static long hits() {
+        final Engine.Stats stats = Cache.markdown().stats().get("markdown");
+        long hits = 0L;
+        if (stats != null) {
+            hits = stats.hits();
+        }
+        return hits;
+    }
+
 }
@@ -0,0 +1,145 @@
+/**
+ * Copyright (c) 2009-2015, netbout.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are PROHIBITED without prior written permission from
+ * the author. This product may NOT be used anywhere and on any computer
+ * except the server platform of netbout Inc. located at www.netbout.com.
+ * Federal copyright law prohibits unauthorized reproduction by any means
+ * and imposes fines up to $25,000 for violation. If you received
+ * this code accidentally and without intent to use it, please report this
+ * incident to the author by email.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.netbout.rest;
+
+import com.jcabi.aspects.Tv;
+import com.jcabi.urn.URN;
+import com.netbout.cached.Cache;
+import com.netbout.cached.CdBase;
+import com.netbout.cached.Engine;
+import com.netbout.mock.MkBase;
+import com.netbout.spi.Alias;
+import com.netbout.spi.Base;
+import com.netbout.spi.User;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.takes.Request;
+import org.takes.Response;
+import org.takes.facets.auth.Identity;
+import org.takes.facets.auth.Pass;
+import org.takes.rq.RqFake;
+
+/**
+ * Test case for {@link PsWarm}.
+ * @author Yegor Bugayenko (yegor@teamed.io)
+ * @version $Id$
+ * @since 2.16
+ */
+public final class PsWarmTest {
+
+    /**
+     * PsWarm can warm up the inbox once, and serve its first page from
+     * the engine then.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void warmsUpInboxOnce() throws Exception {
+        final MkBase origin = new MkBase();
+        final URN urn = new URN("urn:test:77123");
+        origin.user(urn).aliases().add("lalo");
+        final Alias alias = origin.user(urn).aliases()
+            .iterate().iterator().next();
+        alias.inbox().start();
+        final PsWarmTest.Counting base =
+            new PsWarmTest.Counting(new CdBase(origin));
+        final Pass pass = new PsWarm(
+            new Pass() {
+                @Override
+                public Iterator<Identity> enter(final Request req) {
+                    return Collections.<Identity>singleton(
+                        new Identity.Simple(urn.toString())
+                    ).iterator();
+                }
+                @Override
+                public Response exit(final Response response,
+                    final Identity identity) {
+                    return response;
+                }
+            },
+            base
+        );
+        for (int idx = 0; idx < Tv.FIVE; ++idx) {
+            pass.enter(new RqFake());
+        }
+        final Engine.Key page = new Engine.Key("inbox.iterate", "lalo");
+        final long start = System.currentTimeMillis();
+        while (Cache.engine().peek(page) == null
+            && System.currentTimeMillis() - start
+            < TimeUnit.SECONDS.toMillis((long) Tv.TEN)) {
+            TimeUnit.MILLISECONDS.sleep((long) Tv.HUNDRED);
+        }
+        MatcherAssert.assertThat(
+            Cache.engine().<Iterable<Object>>peek(page),
+            Matchers.<Object>iterableWithSize(1)
+        );
+        MatcherAssert.assertThat(base.users(), Matchers.equalTo(1));
+    }
+
+    /**
+     * Base that counts users requested.
+     */
+    private static final class Counting implements Base {
+        /**
+         * Original base.
+         */
+        private final transient Base origin;
+        /**
+         * Users requested.
+         */
+        private final transient AtomicInteger total = new AtomicInteger();
+        /**
+         * Ctor.
+         * @param base Original base
+         */
+        Counting(final Base base) {
+            this.origin = base;
+        }
+        /**
+         * How many times users were requested.
+         * @return Count
+         */
+        public int users() {
+            return this.total.get();
+        }
+        @Override
+        public User user(final URN urn) throws IOException {
+            this.total.incrementAndGet();
+            return this.origin.user(urn);
+        }
+        @Override
+        public void close() throws IOException {
+            this.origin.close();
+        }
+    }
+
+}
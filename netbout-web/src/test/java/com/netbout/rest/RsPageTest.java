@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2009-2015, netbout.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are PROHIBITED without prior written permission from
+ * the author. This product may NOT be used anywhere and on any computer
+ * except the server platform of netbout Inc. located at www.netbout.com.
+ * Federal copyright law prohibits unauthorized reproduction by any means
+ * and imposes fines up to $25,000 for violation. If you received
+ * this code accidentally and without intent to use it, please report this
+ * incident to the author by email.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.netbout.rest;
+
+import com.jcabi.aspects.Tv;
+import com.jcabi.urn.URN;
+import com.netbout.mock.MkBase;
+import com.netbout.spi.Alias;
+import com.netbout.spi.Aliases;
+import com.netbout.spi.Base;
+import java.io.IOException;
+import javax.xml.transform.Templates;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.takes.Response;
+import org.takes.Take;
+import org.takes.rq.RqFake;
+import org.takes.rq.RqWithHeader;
+import org.takes.rs.RsPrint;
+
+/**
+ * Test case for {@link RsPage}.
+ * @author Yegor Bugayenko (yegor@teamed.io)
+ * @version $Id$
+ * @since 2.16
+ */
+public final class RsPageTest {
+
+    /**
+     * RsPage can render HTML by stylesheets compiled only once, instead
+     * of compiling them for every request, like RsXSLT does.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void rendersWithStylesheetsCompiledOnce() throws Exception {
+        final Base base = new MkBase();
+        final Aliases aliases = base.user(URN.create("urn:test:1")).aliases();
+        aliases.add("tester");
+        final Alias alias = aliases.iterate().iterator().next();
+        final long bout = alias.inbox().start();
+        alias.inbox().bout(bout).friends().invite(alias.name());
+        alias.inbox().bout(bout).messages().post("how are you?");
+        final Take app = new TkApp(base);
+        final String[] pages = {"/", String.format("/b/%d", bout)};
+        final String[] xsls = {"/xsl/inbox.xsl", "/xsl/bout.xsl"};
+        for (int idx = 0; idx < pages.length; ++idx) {
+            final Templates compiled = Stylesheets.templates(xsls[idx]);
+            for (int run = 0; run < Tv.THREE; ++run) {
+                MatcherAssert.assertThat(
+                    RsPageTest.html(app.act(new RqFake("GET", pages[idx]))),
+                    Matchers.containsString("tester")
+                );
+            }
+            MatcherAssert.assertThat(
+                pages[idx],
+                Stylesheets.templates(xsls[idx]),
+                Matchers.sameInstance(compiled)
+            );
+        }
+    }
+
+    /**
+     * RsPage can render empty lists as JSON arrays, exactly as lists
+     * with items.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void rendersEmptyListsAsJsonArrays() throws Exception {
+        final Base base = new MkBase();
+        final URN urn = URN.create("urn:test:2");
+        final Aliases aliases = base.user(urn).aliases();
+        aliases.add("jsoner");
+        final long bout = aliases.iterate().iterator().next().inbox().start();
+        MatcherAssert.assertThat(
+            RsPageTest.html(
+                new TkApp(base).act(
+                    new RqWithHeader(
+                        new RqWithTester(
+                            urn,
+                            new RqFake("GET", String.format("/b/%d", bout))
+                        ),
+                        "Accept", "application/json"
+                    )
+                )
+            ),
+            Matchers.allOf(
+                Matchers.containsString("\"messages\":[]"),
+                Matchers.containsString("\"attachments\":[]")
+            )
+        );
+    }
+
+    /**
+     * Print the body.
+     * @param rsp Response
+     * @return HTML
+     * @throws IOException If fails
+     */
+    private static String html(final Response rsp) throws IOException {
+        return new RsPrint(rsp).printBody();
+    }
+
+}
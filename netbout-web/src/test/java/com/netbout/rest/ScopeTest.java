@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2009-2015, netbout.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are PROHIBITED without prior written permission from
+ * the author. This product may NOT be used anywhere and on any computer
+ * except the server platform of netbout Inc. located at www.netbout.com.
+ * Federal copyright law prohibits unauthorized reproduction by any means
+ * and imposes fines up to $25,000 for violation. If you received
+ * this code accidentally and without intent to use it, please report this
+ * incident to the author by email.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.netbout.rest;
+
+import com.jcabi.urn.URN;
+import com.netbout.mock.MkBase;
+import com.netbout.spi.Alias;
+import com.netbout.spi.Aliases;
+import com.netbout.spi.Base;
+import com.netbout.spi.User;
+import java.util.Collections;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.takes.facets.fork.TkFork;
+import org.takes.rs.RsPrint;
+
+/**
+ * Test case for {@link Scope}.
+ * @author Yegor Bugayenko (yegor@teamed.io)
+ * @version $Id$
+ * @since 2.16
+ */
+public final class ScopeTest {
+
+    /**
+     * Scope can look up aliases only once per page.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void findsAliasesOncePerPage() throws Exception {
+        final URN urn = URN.create("urn:test:1");
+        final Base base = new MkBase();
+        base.user(urn).aliases().add("jeff");
+        final Alias alias =
+            base.user(urn).aliases().iterate().iterator().next();
+        final Aliases aliases = Mockito.mock(Aliases.class);
+        Mockito.doReturn(Collections.singleton(alias))
+            .when(aliases).iterate();
+        final User user = Mockito.mock(User.class);
+        Mockito.doReturn(aliases).when(user).aliases();
+        final Base origin = Mockito.mock(Base.class);
+        Mockito.doReturn(user).when(origin).user(urn);
+        final Base scope = new Scope(origin);
+        MatcherAssert.assertThat(
+            new RsPrint(
+                new TkFork(
+                    new FkRegistered(scope, new TkInbox(scope))
+                ).act(new RqWithTester(urn))
+            ).printBody(),
+            Matchers.containsString("jeff")
+        );
+        Mockito.verify(origin, Mockito.times(1)).user(urn);
+        Mockito.verify(aliases, Mockito.times(1)).iterate();
+    }
+
+    /**
+     * Scope can find aliases again, after one is added.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void findsAliasesAfterAddition() throws Exception {
+        final URN urn = URN.create("urn:test:2");
+        final Base scope = new Scope(new MkBase());
+        final Aliases aliases = scope.user(urn).aliases();
+        MatcherAssert.assertThat(
+            aliases.iterate(), Matchers.emptyIterable()
+        );
+        aliases.add("walter");
+        MatcherAssert.assertThat(
+            aliases.iterate(), Matchers.<Alias>iterableWithSize(1)
+        );
+    }
+
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) 2009-2015, netbout.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are PROHIBITED without prior written permission from
+ * the author. This product may NOT be used anywhere and on any computer
+ * except the server platform of netbout Inc. located at www.netbout.com.
+ * Federal copyright law prohibits unauthorized reproduction by any means
+ * and imposes fines up to $25,000 for violation. If you received
+ * this code accidentally and without intent to use it, please report this
+ * incident to the author by email.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.netbout.rest;
+
+import com.jcabi.urn.URN;
+import com.netbout.mock.MkBase;
+import com.netbout.spi.Base;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.takes.Request;
+import org.takes.Response;
+import org.takes.Take;
+import org.takes.rq.RqFake;
+import org.takes.rs.RsPrint;
+
+/**
+ * Test case for {@link Scoped}.
+ * @author Yegor Bugayenko (yegor@teamed.io)
+ * @version $Id$
+ * @since 2.16
+ */
+public final class ScopedTest {
+
+    /**
+     * Scoped can find the user once per request, while the request is
+     * processed and while its body is rendered.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void findsUserOncePerRequest() throws Exception {
+        final URN urn = URN.create("urn:test:3");
+        final Base origin = Mockito.mock(Base.class);
+        Mockito.doReturn(new MkBase().user(urn)).when(origin).user(urn);
+        final Scoped scoped = new Scoped(origin);
+        final Take take = scoped.bind(
+            new Take() {
+                @Override
+                public Response act(final Request req) throws IOException {
+                    scoped.user(urn);
+                    scoped.user(urn);
+                    return new Response() {
+                        @Override
+                        public Iterable<String> head() {
+                            return Collections.singleton("HTTP/1.1 200 OK");
+                        }
+                        @Override
+                        public InputStream body() throws IOException {
+                            scoped.user(urn);
+                            return new ByteArrayInputStream(new byte[0]);
+                        }
+                    };
+                }
+            }
+        );
+        for (int idx = 0; idx < 2; ++idx) {
+            MatcherAssert.assertThat(
+                new RsPrint(take.act(new RqFake())).printBody(),
+                Matchers.isEmptyString()
+            );
+        }
+        Mockito.verify(origin, Mockito.times(2)).user(urn);
+        scoped.user(urn);
+        Mockito.verify(origin, Mockito.times(2 + 1)).user(urn);
+    }
+
+}
@@ -0,0 +1,230 @@
+/**
+ * Copyright (c) 2009-2015, netbout.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are PROHIBITED without prior written permission from
+ * the author. This product may NOT be used anywhere and on any computer
+ * except the server platform of netbout Inc. located at www.netbout.com.
+ * Federal copyright law prohibits unauthorized reproduction by any means
+ * and imposes fines up to $25,000 for violation. If you received
+ * this code accidentally and without intent to use it, please report this
+ * incident to the author by email.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.netbout.rest;
+
+import com.jcabi.aspects.Tv;
+import com.netbout.cached.Cache;
+import com.netbout.cached.Engine;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Test case for {@link Thumbnail}.
+ * @author Yegor Bugayenko (yegor@teamed.io)
+ * @version $Id$
+ * @since 2.16
+ */
+public final class ThumbnailTest {
+
+    /**
+     * Thumbnail can download the photo once for many concurrent requests.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void downloadsPhotoOnce() throws Exception {
+        final String alias = String.format("walter%d", System.nanoTime());
+        final URI photo = URI.create("http://img.netbout.com/walter.png");
+        final AtomicInteger downloads = new AtomicInteger();
+        final Engine.Source<BufferedImage> origin =
+            new Engine.Source<BufferedImage>() {
+                @Override
+                public BufferedImage load() throws IOException {
+                    downloads.incrementAndGet();
+                    try {
+                        TimeUnit.MILLISECONDS.sleep((long) Tv.HUNDRED);
+                    } catch (final InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException(ex);
+                    }
+                    return ThumbnailTest.image(Tv.THOUSAND, Tv.THOUSAND);
+                }
+            };
+        final int threads = Tv.TEN;
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService service = Executors.newFixedThreadPool(threads);
+        final Collection<Future<String>> futures =
+            new ArrayList<Future<String>>(threads);
+        try {
+            for (int idx = 0; idx < threads; ++idx) {
+                futures.add(
+                    service.submit(
+                        new Callable<String>() {
+                            @Override
+                            public String call() throws Exception {
+                                start.await();
+                                return Thumbnail.of(alias, photo, origin)
+                                    .etag();
+                            }
+                        }
+                    )
+                );
+            }
+            start.countDown();
+            final String etag = futures.iterator().next().get();
+            for (final Future<String> future : futures) {
+                MatcherAssert.assertThat(
+                    future.get(), Matchers.equalTo(etag)
+                );
+            }
+        } finally {
+            service.shutdown();
+        }
+        MatcherAssert.assertThat(downloads.get(), Matchers.equalTo(1));
+    }
+
+    /**
+     * Thumbnail can make the thumbnail again, when it is invalidated,
+     * even if the URI of the photo is the same.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void downloadsPhotoAgainWhenInvalidated() throws Exception {
+        final String alias = String.format("jesse%d", System.nanoTime());
+        final URI photo = URI.create("http://img.netbout.com/jesse.png");
+        final AtomicInteger downloads = new AtomicInteger();
+        final Engine.Source<BufferedImage> origin =
+            new Engine.Source<BufferedImage>() {
+                @Override
+                public BufferedImage load() {
+                    return ThumbnailTest.image(
+                        Tv.HUNDRED, Tv.TEN * downloads.incrementAndGet()
+                    );
+                }
+            };
+        final String etag = Thumbnail.of(alias, photo, origin).etag();
+        MatcherAssert.assertThat(
+            Thumbnail.of(alias, photo, origin).etag(), Matchers.equalTo(etag)
+        );
+        Cache.invalidate(Cache.thumbnail(alias, photo));
+        MatcherAssert.assertThat(
+            Thumbnail.of(alias, photo, origin).etag(),
+            Matchers.not(Matchers.equalTo(etag))
+        );
+        MatcherAssert.assertThat(downloads.get(), Matchers.equalTo(2));
+    }
+
+    /**
+     * Thumbnail can scale a wide image down.
+     */
+    @Test
+    public void scalesWideImage() {
+        final BufferedImage thumb = Thumbnail.scale(
+            ThumbnailTest.image(Tv.THOUSAND, Tv.HUNDRED), Tv.HUNDRED
+        );
+        MatcherAssert.assertThat(
+            thumb.getWidth(), Matchers.equalTo(Tv.HUNDRED)
+        );
+        MatcherAssert.assertThat(
+            thumb.getHeight(), Matchers.equalTo(Tv.TEN)
+        );
+    }
+
+    /**
+     * Thumbnail can scale a tall image down.
+     */
+    @Test
+    public void scalesTallImage() {
+        final BufferedImage thumb = Thumbnail.scale(
+            ThumbnailTest.image(Tv.TWENTY, Tv.TWENTY * Tv.TEN), Tv.TEN
+        );
+        MatcherAssert.assertThat(
+            thumb.getWidth(), Matchers.equalTo(Tv.TEN)
+        );
+        MatcherAssert.assertThat(
+            thumb.getHeight(), Matchers.equalTo(Tv.HUNDRED)
+        );
+    }
+
+    /**
+     * Thumbnail can scale a small image up.
+     */
+    @Test
+    public void scalesSmallImageUp() {
+        final BufferedImage thumb = Thumbnail.scale(
+            ThumbnailTest.image(Tv.TEN, Tv.FIVE), Tv.TWENTY
+        );
+        MatcherAssert.assertThat(
+            thumb.getWidth(), Matchers.equalTo(Tv.TWENTY)
+        );
+        MatcherAssert.assertThat(
+            thumb.getHeight(), Matchers.equalTo(Tv.TEN)
+        );
+    }
+
+    /**
+     * Thumbnail can match lists of entity tags and a star.
+     */
+    @Test
+    public void matchesListsOfEtags() {
+        final Thumbnail thumb = new Thumbnail(new byte[] {1, 2, 3});
+        MatcherAssert.assertThat(
+            thumb.matches(
+                Arrays.asList(
+                    "\"other\"", String.format("\"a\", %s", thumb.etag())
+                )
+            ),
+            Matchers.is(true)
+        );
+        MatcherAssert.assertThat(
+            thumb.matches(Arrays.asList(String.format("W/%s", thumb.etag()))),
+            Matchers.is(true)
+        );
+        MatcherAssert.assertThat(
+            thumb.matches(Arrays.asList("*")),
+            Matchers.is(true)
+        );
+        MatcherAssert.assertThat(
+            thumb.matches(Arrays.asList("\"a\", \"b\"")),
+            Matchers.is(false)
+        );
+    }
+
+    /**
+     * Make an image.
+     * @param width Width
+     * @param height Height
+     * @return Image
+     */
+    private static BufferedImage image(final int width, final int height) {
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    }
+
+}
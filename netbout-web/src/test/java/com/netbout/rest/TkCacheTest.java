@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) 2009-2015, netbout.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are PROHIBITED without prior written permission from
+ * the author. This product may NOT be used anywhere and on any computer
+ * except the server platform of netbout Inc. located at www.netbout.com.
+ * Federal copyright law prohibits unauthorized reproduction by any means
+ * and imposes fines up to $25,000 for violation. If you received
+ * this code accidentally and without intent to use it, please report this
+ * incident to the author by email.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.netbout.rest;
+
+import com.jcabi.matchers.XhtmlMatchers;
+import com.jcabi.urn.URN;
+import com.netbout.cached.Cache;
+import com.netbout.cached.Engine;
+import com.netbout.mock.MkBase;
+import com.netbout.spi.Base;
+import java.util.concurrent.TimeUnit;
+import org.hamcrest.MatcherAssert;
+import org.junit.Test;
+import org.takes.facets.forward.RsForward;
+import org.takes.rs.RsPrint;
+
+/**
+ * Test case for {@link TkCache}.
+ * @author Yegor Bugayenko (yegor@teamed.io)
+ * @version $Id$
+ * @since 2.16
+ */
+public final class TkCacheTest {
+
+    /**
+     * TkCache can render statistics of regions.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void rendersStatistics() throws Exception {
+        final Base base = new MkBase();
+        final URN urn = URN.create("urn:test:1");
+        base.user(urn).aliases().add("admin");
+        Cache.engine().get(
+            new Engine.Key("test.stats", 1L), 1L, TimeUnit.MINUTES,
+            new Engine.Source<String>() {
+                @Override
+                public String load() {
+                    return "loaded";
+                }
+            }
+        );
+        MatcherAssert.assertThat(
+            new RsPrint(
+                new TkCache(base).act(new RqWithTester(urn))
+            ).printBody(),
+            XhtmlMatchers.hasXPaths(
+                "/page/cache/disk",
+                "/page/cache/engine[@name='markdown']",
+                "/page/cache/engine/region[@name='test.stats']/misses",
+                "//region[@name='test.stats']/latency/percentile[@of='0.99']"
+            )
+        );
+    }
+
+    /**
+     * TkCache can reject users who are not admins.
+     * @throws Exception If there is some problem inside
+     */
+    @Test(expected = RsForward.class)
+    public void rejectsStrangers() throws Exception {
+        final Base base = new MkBase();
+        final URN urn = URN.create("urn:test:2");
+        base.user(urn).aliases().add("stranger");
+        new TkCache(base).act(new RqWithTester(urn));
+    }
+
+}
@@ -34,6 +34,7 @@ import org.hamcrest.MatcherAssert;
 import org.hamcrest.Matchers;
 import org.junit.Test;
 import org.takes.facets.fork.RqRegex;
+import org.takes.rq.RqWithHeader;
 import org.takes.rs.RsPrint;
 
 /**
@@ -68,4 +69,35 @@ public final class TkFriendTest {
         );
     }
 
+    /**
+     * TkFriend can tell the browser that its copy is fresh.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void respondsNotModifiedByEtag() throws Exception {
+        final Base base = new MkBase();
+        final String alias = "friend";
+        final URN urn = new URN("urn:test:1");
+        final User user = base.user(urn);
+        user.aliases().add(alias);
+        final String etag = new RsPrint(
+            new TkFriend(base).act(
+                new RqRegex.Fake(new RqWithTester(urn), "(.*)", alias)
+            )
+        ).printHead().replaceAll("(?s).*ETag: ([^\\r\\n]+).*", "$1");
+        MatcherAssert.assertThat(
+            new RsPrint(
+                new TkFriend(base).act(
+                    new RqRegex.Fake(
+                        new RqWithHeader(
+                            new RqWithTester(urn), "If-None-Match", etag
+                        ),
+                        "(.*)", alias
+                    )
+                )
+            ).print(),
+            Matchers.startsWith("HTTP/1.1 304 ")
+        );
+    }
+
 }
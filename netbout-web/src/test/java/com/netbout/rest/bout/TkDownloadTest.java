@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) 2009-2015, netbout.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are PROHIBITED without prior written permission from
+ * the author. This product may NOT be used anywhere and on any computer
+ * except the server platform of netbout Inc. located at www.netbout.com.
+ * Federal copyright law prohibits unauthorized reproduction by any means
+ * and imposes fines up to $25,000 for violation. If you received
+ * this code accidentally and without intent to use it, please report this
+ * incident to the author by email.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT
+ * OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ */
+package com.netbout.rest.bout;
+
+import com.jcabi.urn.URN;
+import com.netbout.cached.CdBase;
+import com.netbout.mock.MkBase;
+import com.netbout.rest.RqWithTester;
+import com.netbout.spi.Alias;
+import com.netbout.spi.Base;
+import com.netbout.spi.Bout;
+import com.netbout.spi.User;
+import java.net.HttpURLConnection;
+import org.apache.commons.io.IOUtils;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.takes.Response;
+import org.takes.rq.RqFake;
+import org.takes.rq.RqWithHeader;
+import org.takes.rs.RsPrint;
+
+/**
+ * Test case for {@link TkDownload}.
+ * @author Yegor Bugayenko (yegor@teamed.io)
+ * @version $Id$
+ * @since 2.16
+ */
+public final class TkDownloadTest {
+
+    /**
+     * TkDownload can return a range of a local file.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void returnsRangeOfFile() throws Exception {
+        final RsPrint response = new RsPrint(
+            TkDownloadTest.download(new CdBase(new MkBase()), "bytes=1-3")
+        );
+        MatcherAssert.assertThat(
+            response.print(),
+            Matchers.allOf(
+                Matchers.startsWith("HTTP/1.1 206 "),
+                Matchers.containsString("Content-Range: bytes 1-3/6"),
+                Matchers.containsString("Content-Length: 3"),
+                Matchers.endsWith("\r\n\r\nell")
+            )
+        );
+    }
+
+    /**
+     * TkDownload can reject a range that starts after the end of file.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void rejectsRangeAfterEnd() throws Exception {
+        final RsPrint response = new RsPrint(
+            TkDownloadTest.download(new CdBase(new MkBase()), "bytes=6-")
+        );
+        MatcherAssert.assertThat(
+            response.print(),
+            Matchers.allOf(
+                Matchers.startsWith("HTTP/1.1 416 "),
+                Matchers.containsString("Content-Range: bytes */6"),
+                Matchers.containsString("Content-Length: 0")
+            )
+        );
+    }
+
+    /**
+     * TkDownload can ignore a range when the size is not known.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void ignoresRangeOfUnknownSize() throws Exception {
+        final Response response = TkDownloadTest.download(
+            new MkBase(), "bytes=1-3"
+        );
+        MatcherAssert.assertThat(
+            new RsPrint(response).printHead(),
+            Matchers.allOf(
+                Matchers.startsWith(
+                    String.format("HTTP/1.1 %d ", HttpURLConnection.HTTP_OK)
+                ),
+                Matchers.not(Matchers.containsString("Content-Range"))
+            )
+        );
+        MatcherAssert.assertThat(
+            IOUtils.toString(response.body()),
+            Matchers.equalTo("hello!")
+        );
+    }
+
+    /**
+     * Download an attachment "hello!" with a range.
+     * @param base Base
+     * @param range Range header
+     * @return Response
+     * @throws Exception If fails
+     */
+    private static Response download(final Base base, final String range)
+        throws Exception {
+        final URN urn = new URN("urn:test:1");
+        final User user = base.user(urn);
+        user.aliases().add("walter");
+        final Alias alias = user.aliases().iterate().iterator().next();
+        final Bout bout = alias.inbox().bout(alias.inbox().start());
+        bout.friends().invite(alias.name());
+        bout.attachments().create("a");
+        bout.attachments().get("a").write(
+            IOUtils.toInputStream("hello!"), "text/plain", "etag-1"
+        );
+        return new FkBout("/download", new TkDownload(base)).route(
+            new RqWithTester(
+                urn,
+                new RqWithHeader(
+                    new RqFake(
+                        "GET",
+                        String.format("/b/%d/download?name=a", bout.number())
+                    ),
+                    "Range", range
+                )
+            )
+        ).get();
+    }
+
+}
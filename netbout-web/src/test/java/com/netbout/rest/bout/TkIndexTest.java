@@ -34,8 +34,10 @@ import com.netbout.spi.Alias;
 import com.netbout.spi.Bout;
 import com.netbout.spi.User;
 import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
 import org.junit.Test;
 import org.takes.rq.RqFake;
+import org.takes.rq.RqWithHeader;
 import org.takes.rs.RsPrint;
 
 /**
@@ -88,4 +90,42 @@ public final class TkIndexTest {
         );
     }
 
+    /**
+     * TkIndex can render bout page in JSON.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void rendersBoutPageInJson() throws Exception {
+        final MkBase base = new MkBase();
+        final URN urn = new URN("urn:test:1");
+        final User user = base.user(urn);
+        user.aliases().add("walter");
+        final Alias alias = user.aliases().iterate().iterator().next();
+        final Bout bout = alias.inbox().bout(alias.inbox().start());
+        bout.messages().post("how are you?");
+        bout.friends().invite(alias.name());
+        MatcherAssert.assertThat(
+            new RsPrint(
+                new FkBout(".*", new TkIndex(base)).route(
+                    new RqWithTester(
+                        urn,
+                        new RqWithHeader(
+                            new RqFake(
+                                "GET",
+                                String.format("/b/%d", bout.number())
+                            ),
+                            "Accept",
+                            "application/json"
+                        )
+                    )
+                ).get()
+            ).printBody(),
+            Matchers.allOf(
+                Matchers.startsWith("{"),
+                Matchers.containsString("\"friends\":[{\"alias\":\"walter\""),
+                Matchers.containsString("\"text\":\"how are you?\"")
+            )
+        );
+    }
+
 }